@@ -1,5 +1,6 @@
 plugins {
     id("java")
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "dev.charcoal.database.bridge"
@@ -9,6 +10,27 @@ repositories {
     mavenCentral()
 }
 
+// 21 for virtual threads, which the load test clients run on
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+tasks.withType<JavaCompile> {
+    options.release = 21
+}
+
+// Load tests drive real backends for minutes, so they live apart from the unit-sized jmh benchmarks
+val loadtest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[loadtest.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[loadtest.compileOnlyConfigurationName].extendsFrom(configurations.compileOnly.get())
+configurations[loadtest.annotationProcessorConfigurationName].extendsFrom(configurations.annotationProcessor.get())
+
 dependencies {
     implementation("com.github.ben-manes.caffeine:caffeine:3.2.3") //cache
 
@@ -19,13 +41,41 @@ dependencies {
 
     implementation("com.fasterxml.jackson.core:jackson-databind:2.20.0") //json
     implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-yaml:2.20.1")
+    implementation("com.fasterxml.jackson.module:jackson-module-blackbird:2.20.0") //optional faster property access
+    implementation("at.yawk.lz4:lz4-java:1.12.0") //payload compression
     implementation("org.yaml:snakeyaml:2.5") //yaml
 
 
+    compileOnly("org.jetbrains:annotations:26.0.2")
     compileOnly("org.projectlombok:lombok:1.18.40")
     annotationProcessor("org.projectlombok:lombok:1.18.40")
+
+    testImplementation(platform("org.junit:junit-bom:5.13.4"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    testRuntimeOnly("org.xerial:sqlite-jdbc:3.50.3.0") //SQLiteDatabase tests
+
+    jmhAnnotationProcessor(project(":codec-processor")) //generated codecs for BsonCodecBenchmark
+
+    "loadtestImplementation"("org.hdrhistogram:HdrHistogram:2.2.2") //latency percentiles
+    "loadtestRuntimeOnly"("org.xerial:sqlite-jdbc:3.50.3.0") //local SQLite stand-in
+}
+
+// gradle loadTest -Pargs="--backend=memory,sqlite --distribution=zipfian --mode=open --rate=20000"
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Runs the mixed-workload load test against one or more backends."
+    classpath = loadtest.runtimeClasspath
+    mainClass.set("dev.charcoal.database.bridge.loadtest.LoadTestMain")
+    args = (project.findProperty("args") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
 }
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+}
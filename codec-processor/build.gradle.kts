@@ -0,0 +1,13 @@
+plugins {
+    id("java")
+}
+
+group = "dev.charcoal.database.bridge"
+version = "0.1.0"
+
+repositories {
+    mavenCentral()
+}
+
+// Runs inside javac of the projects using the bridge, so it has no dependencies of its own and only refers to
+// the bridge and BSON types by name in the code it generates.
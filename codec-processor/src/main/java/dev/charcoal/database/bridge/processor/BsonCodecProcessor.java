@@ -0,0 +1,484 @@
+package dev.charcoal.database.bridge.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@code Codec} named {@code <Entity>_BsonCodec} next to every class with a {@code @MongoId} field.
+ * {@code GeneratedCodecProvider} picks these up at runtime ahead of the automatic {@code PojoCodecProvider}.
+ * <p>
+ * The generated codecs write the same documents as the POJO codec with its default conventions, for entities whose
+ * fields have accessors (as with Lombok's {@code @Data}). Properties are the non-static, non-transient fields,
+ * including inherited ones, whether or not accessors exist, because those Lombok generates are not visible here. A field named {@code id} or {@code _id}, or
+ * marked {@code @BsonId}, is stored as {@code _id}. {@code @BsonProperty} renames a field and {@code @BsonIgnore}
+ * skips it. Null values are left out. Accessible fields are read and written directly, private ones through
+ * a {@code VarHandle}. When a class uses something the generator does not handle, such as a type variable or
+ * an unsupported collection type, no codec is generated. A note explains why, and the class keeps using the
+ * POJO codec.
+ */
+@SupportedAnnotationTypes(BsonCodecProcessor.MONGO_ID)
+public class BsonCodecProcessor extends AbstractProcessor {
+
+    static final String MONGO_ID = "dev.charcoal.database.bridge.mongo.annotations.MongoId";
+    static final String CODEC_SUFFIX = "_BsonCodec";
+
+    private static final String BSON_ID = "org.bson.codecs.pojo.annotations.BsonId";
+    private static final String BSON_PROPERTY = "org.bson.codecs.pojo.annotations.BsonProperty";
+    private static final String BSON_IGNORE = "org.bson.codecs.pojo.annotations.BsonIgnore";
+    private static final String COLLECTION_CODECS = "dev.charcoal.database.bridge.mongo.codec.CollectionCodecs";
+
+    private static final Set<String> LIST_TYPES = Set.of("java.util.Collection", "java.util.List", "java.util.ArrayList");
+    private static final Set<String> SET_TYPES = Set.of("java.util.Set", "java.util.HashSet", "java.util.LinkedHashSet");
+    private static final Set<String> MAP_TYPES = Set.of("java.util.Map", "java.util.HashMap", "java.util.LinkedHashMap");
+
+    private Elements elements;
+    private Types types;
+    private Filer filer;
+    private Messager messager;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.filer = processingEnv.getFiler();
+        this.messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        TypeElement mongoId = elements.getTypeElement(MONGO_ID);
+        if (mongoId == null) return false;
+
+        Set<TypeElement> entities = new LinkedHashSet<>();
+        for (Element element : round.getElementsAnnotatedWith(mongoId)) {
+            if (element.getKind() == ElementKind.FIELD) entities.add((TypeElement) element.getEnclosingElement());
+        }
+
+        for (TypeElement entity : entities) {
+            try {
+                write(entity, generate(entity));
+            } catch (UnsupportedEntityException e) {
+                messager.printMessage(Diagnostic.Kind.NOTE,
+                        "No BSON codec generated for " + entity.getQualifiedName() + ", it keeps using PojoCodecProvider: " + e.getMessage(), entity);
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Cannot write BSON codec: " + e.getMessage(), entity);
+            }
+        }
+        return false; // other processors may care about @MongoId too
+    }
+
+    private static class UnsupportedEntityException extends Exception {
+        UnsupportedEntityException(String message) {
+            super(message);
+        }
+    }
+
+    private record Property(VariableElement field, String bsonName, TypeMirror type, boolean viaHandle) {
+
+        String javaName() {
+            return field.getSimpleName().toString();
+        }
+
+        boolean readOnly() {
+            return field.getModifiers().contains(Modifier.FINAL);
+        }
+    }
+
+    /* ------------------ MODEL ------------------ */
+
+    private String generate(TypeElement entity) throws UnsupportedEntityException {
+        if (entity.getModifiers().contains(Modifier.ABSTRACT)) throw new UnsupportedEntityException("it is abstract");
+        if (!entity.getTypeParameters().isEmpty()) throw new UnsupportedEntityException("it is generic");
+        if (entity.getModifiers().contains(Modifier.PRIVATE)) throw new UnsupportedEntityException("it is private");
+        if (entity.getNestingKind() == NestingKind.MEMBER && !entity.getModifiers().contains(Modifier.STATIC)) {
+            throw new UnsupportedEntityException("it is an inner class");
+        }
+        if (entity.getNestingKind() == NestingKind.LOCAL || entity.getNestingKind() == NestingKind.ANONYMOUS) {
+            throw new UnsupportedEntityException("it is a local class");
+        }
+        if (!hasAccessibleNoArgConstructor(entity)) {
+            throw new UnsupportedEntityException("it needs a non-private no-arg constructor");
+        }
+
+        String packageName = elements.getPackageOf(entity).getQualifiedName().toString();
+        List<Property> properties = properties(entity, packageName);
+        return source(entity, packageName, properties);
+    }
+
+    private boolean hasAccessibleNoArgConstructor(TypeElement entity) {
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(entity.getEnclosedElements());
+        for (ExecutableElement constructor : constructors) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Superclass fields first, then the entity's own, in declaration order.
+     */
+    private List<Property> properties(TypeElement entity, String packageName) throws UnsupportedEntityException {
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement type = entity; type != null; type = superclassOf(type)) {
+            hierarchy.add(0, type);
+        }
+
+        List<Property> properties = new ArrayList<>();
+        Set<String> names = new LinkedHashSet<>();
+        Set<String> javaNames = new LinkedHashSet<>();
+        for (TypeElement type : hierarchy) {
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) continue;
+                if (annotation(field, BSON_IGNORE) != null) continue;
+
+                String bsonName = bsonName(field);
+                if (!names.add(bsonName)) throw new UnsupportedEntityException("two fields map to " + bsonName);
+                if (!javaNames.add(field.getSimpleName().toString())) {
+                    throw new UnsupportedEntityException("field " + field.getSimpleName() + " hides an inherited one");
+                }
+
+                boolean sameFieldsPackage = elements.getPackageOf(type).getQualifiedName().contentEquals(packageName);
+                boolean viaHandle = modifiers.contains(Modifier.PRIVATE)
+                        || (!modifiers.contains(Modifier.PUBLIC) && !sameFieldsPackage);
+                properties.add(new Property(field, bsonName, field.asType(), viaHandle));
+            }
+        }
+
+        // the POJO codec writes the id first
+        properties.sort((a, b) -> Boolean.compare(!a.bsonName().equals("_id"), !b.bsonName().equals("_id")));
+        for (Property property : properties) {
+            codecExpression(property.type()); // rejects unsupported types before anything is written
+        }
+        return properties;
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) return null;
+        TypeElement element = (TypeElement) types.asElement(superclass);
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private String bsonName(VariableElement field) {
+        if (annotation(field, BSON_ID) != null) return "_id";
+
+        AnnotationMirror property = annotation(field, BSON_PROPERTY);
+        if (property != null) {
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : property.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("value")) {
+                    String value = (String) entry.getValue().getValue();
+                    if (!value.isEmpty()) return value;
+                }
+            }
+        }
+
+        String name = field.getSimpleName().toString();
+        return name.equals("id") ? "_id" : name;
+    }
+
+    private AnnotationMirror annotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(annotationName)) return mirror;
+        }
+        return null;
+    }
+
+    /* ------------------ TYPES ------------------ */
+
+    /**
+     * Source form of {@code type} without type-use annotations, which {@link TypeMirror#toString()} would include.
+     */
+    private String typeName(TypeMirror type) throws UnsupportedEntityException {
+        switch (type.getKind()) {
+            case BOOLEAN, BYTE, SHORT, INT, LONG, CHAR, FLOAT, DOUBLE -> {
+                return type.getKind().name().toLowerCase();
+            }
+            case ARRAY -> {
+                return typeName(((ArrayType) type).getComponentType()) + "[]";
+            }
+            case DECLARED -> {
+                DeclaredType declared = (DeclaredType) type;
+                StringBuilder name = new StringBuilder(((TypeElement) declared.asElement()).getQualifiedName());
+                List<? extends TypeMirror> arguments = declared.getTypeArguments();
+                if (!arguments.isEmpty()) {
+                    name.append('<');
+                    for (int i = 0; i < arguments.size(); i++) {
+                        if (i > 0) name.append(", ");
+                        name.append(typeName(arguments.get(i)));
+                    }
+                    name.append('>');
+                }
+                return name.toString();
+            }
+            default -> throw new UnsupportedEntityException("type " + type + " is not supported");
+        }
+    }
+
+    private String boxedName(TypeMirror type) throws UnsupportedEntityException {
+        if (type.getKind().isPrimitive()) {
+            return types.boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return typeName(type);
+    }
+
+    private String erasedName(TypeMirror type) throws UnsupportedEntityException {
+        return type.getKind().isPrimitive() ? typeName(type) : typeName(types.erasure(type));
+    }
+
+    /**
+     * Expression building the codec of {@code type} from {@code registry}.
+     */
+    private String codecExpression(TypeMirror type) throws UnsupportedEntityException {
+        if (type.getKind().isPrimitive()) return "registry.get(" + boxedName(type) + ".class)";
+
+        if (type.getKind() == TypeKind.ARRAY) {
+            if (((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE) return "registry.get(byte[].class)";
+            throw new UnsupportedEntityException("arrays other than byte[] are not supported");
+        }
+        if (type.getKind() != TypeKind.DECLARED) throw new UnsupportedEntityException("type " + type + " is not supported");
+
+        DeclaredType declared = (DeclaredType) type;
+        TypeElement element = (TypeElement) declared.asElement();
+        String qualifiedName = element.getQualifiedName().toString();
+        List<? extends TypeMirror> arguments = declared.getTypeArguments();
+
+        if (arguments.isEmpty()) {
+            if (!element.getTypeParameters().isEmpty()) throw new UnsupportedEntityException("raw type " + qualifiedName);
+            return "registry.get(" + qualifiedName + ".class)";
+        }
+        if (LIST_TYPES.contains(qualifiedName)) {
+            return COLLECTION_CODECS + ".list(" + codecExpression(arguments.get(0)) + ")";
+        }
+        if (SET_TYPES.contains(qualifiedName)) {
+            return COLLECTION_CODECS + ".set(" + codecExpression(arguments.get(0)) + ")";
+        }
+        if (MAP_TYPES.contains(qualifiedName)) {
+            TypeMirror key = arguments.get(0);
+            if (key.getKind() != TypeKind.DECLARED
+                    || !((TypeElement) types.asElement(key)).getQualifiedName().contentEquals("java.lang.String")) {
+                throw new UnsupportedEntityException("map keys must be strings");
+            }
+            return COLLECTION_CODECS + ".map(" + codecExpression(arguments.get(1)) + ")";
+        }
+        throw new UnsupportedEntityException("generic type " + qualifiedName + " is not supported");
+    }
+
+    /* ------------------ SOURCE ------------------ */
+
+    static String flatName(TypeElement entity) {
+        StringBuilder name = new StringBuilder(entity.getSimpleName());
+        for (Element enclosing = entity.getEnclosingElement(); enclosing instanceof TypeElement type; enclosing = type.getEnclosingElement()) {
+            name.insert(0, type.getSimpleName() + "_");
+        }
+        return name.toString();
+    }
+
+    private void write(TypeElement entity, String source) throws IOException {
+        PackageElement pkg = elements.getPackageOf(entity);
+        String packagePrefix = pkg.isUnnamed() ? "" : pkg.getQualifiedName() + ".";
+        try (Writer writer = filer.createSourceFile(packagePrefix + flatName(entity) + CODEC_SUFFIX, entity).openWriter()) {
+            writer.write(source);
+        }
+    }
+
+    private String source(TypeElement entity, String packageName, List<Property> properties) throws UnsupportedEntityException {
+        String entityName = entity.getQualifiedName().toString();
+        String codecName = flatName(entity) + CODEC_SUFFIX;
+
+        StringBuilder out = new StringBuilder();
+        if (!packageName.isEmpty()) out.append("package ").append(packageName).append(";\n\n");
+        out.append("import org.bson.BsonReader;\n")
+                .append("import org.bson.BsonType;\n")
+                .append("import org.bson.BsonWriter;\n")
+                .append("import org.bson.codecs.Codec;\n")
+                .append("import org.bson.codecs.DecoderContext;\n")
+                .append("import org.bson.codecs.EncoderContext;\n")
+                .append("import org.bson.codecs.configuration.CodecRegistry;\n\n")
+                .append("import java.lang.invoke.MethodHandles;\n")
+                .append("import java.lang.invoke.VarHandle;\n\n")
+                .append("/**\n * Generated by BsonCodecProcessor from {@link ").append(entityName).append("}, do not edit.\n */\n")
+                .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(codecName).append(" implements Codec<").append(entityName).append("> {\n\n");
+
+        // VarHandles for private fields
+        boolean anyHandle = properties.stream().anyMatch(Property::viaHandle);
+        for (Property property : properties) {
+            if (property.viaHandle()) out.append("    private static final VarHandle ").append(handle(property)).append(";\n");
+        }
+        if (anyHandle) {
+            out.append("\n    static {\n        try {\n");
+            for (Property property : properties) {
+                if (!property.viaHandle()) continue;
+                String owner = ((TypeElement) property.field().getEnclosingElement()).getQualifiedName().toString();
+                out.append("            ").append(handle(property)).append(" = MethodHandles.privateLookupIn(").append(owner)
+                        .append(".class, MethodHandles.lookup())\n                    .findVarHandle(").append(owner).append(".class, \"")
+                        .append(property.javaName()).append("\", ").append(erasedName(property.type())).append(".class);\n");
+            }
+            out.append("        } catch (ReflectiveOperationException e) {\n            throw new ExceptionInInitializerError(e);\n        }\n    }\n");
+        }
+
+        // codecs are resolved on first use so self-referencing entities do not recurse while the registry builds them
+        out.append("\n    private final CodecRegistry registry;\n");
+        for (Property property : properties) {
+            out.append("    private Codec<").append(boxedName(property.type())).append("> ").append(codecField(property)).append(";\n");
+        }
+        out.append("\n    public ").append(codecName).append("(CodecRegistry registry) {\n        this.registry = registry;\n    }\n");
+
+        for (Property property : properties) {
+            String boxed = boxedName(property.type());
+            out.append("\n    private Codec<").append(boxed).append("> ").append(codecField(property)).append("() {\n")
+                    .append("        Codec<").append(boxed).append("> codec = ").append(codecField(property)).append(";\n")
+                    .append("        if (codec == null) ").append(codecField(property)).append(" = codec = (Codec) ")
+                    .append(codecExpression(property.type())).append(";\n")
+                    .append("        return codec;\n    }\n");
+        }
+
+        appendEncode(out, entityName, properties);
+        appendDecode(out, entityName, properties);
+
+        out.append("\n    @Override\n    public Class<").append(entityName).append("> getEncoderClass() {\n        return ")
+                .append(entityName).append(".class;\n    }\n}\n");
+        return out.toString();
+    }
+
+    private void appendEncode(StringBuilder out, String entityName, List<Property> properties) throws UnsupportedEntityException {
+        out.append("\n    @Override\n    public void encode(BsonWriter writer, ").append(entityName)
+                .append(" value, EncoderContext context) {\n        writer.writeStartDocument();\n");
+
+        for (Property property : properties) {
+            String name = "\"" + property.bsonName() + "\"";
+            String read = read(property);
+            TypeKind kind = property.type().getKind();
+            switch (kind) {
+                case INT, SHORT, BYTE -> out.append("        writer.writeInt32(").append(name).append(", ").append(read).append(");\n");
+                case LONG -> out.append("        writer.writeInt64(").append(name).append(", ").append(read).append(");\n");
+                case DOUBLE, FLOAT -> out.append("        writer.writeDouble(").append(name).append(", ").append(read).append(");\n");
+                case BOOLEAN -> out.append("        writer.writeBoolean(").append(name).append(", ").append(read).append(");\n");
+                case CHAR -> out.append("        writer.writeString(").append(name).append(", String.valueOf(").append(read).append("));\n");
+                default -> {
+                    String local = "v_" + property.javaName();
+                    out.append("        ").append(typeName(property.type())).append(' ').append(local).append(" = ").append(read).append(";\n")
+                            .append("        if (").append(local).append(" != null) {\n");
+                    if (isString(property.type())) {
+                        out.append("            writer.writeString(").append(name).append(", ").append(local).append(");\n");
+                    } else {
+                        out.append("            writer.writeName(").append(name).append(");\n")
+                                .append("            context.encodeWithChildContext(").append(codecField(property)).append("(), writer, ")
+                                .append(local).append(");\n");
+                    }
+                    out.append("        }\n");
+                }
+            }
+        }
+        out.append("        writer.writeEndDocument();\n    }\n");
+    }
+
+    private void appendDecode(StringBuilder out, String entityName, List<Property> properties) throws UnsupportedEntityException {
+        out.append("\n    @Override\n    public ").append(entityName).append(" decode(BsonReader reader, DecoderContext context) {\n")
+                .append("        ").append(entityName).append(" value = new ").append(entityName).append("();\n")
+                .append("        reader.readStartDocument();\n")
+                .append("        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {\n")
+                .append("            String name = reader.readName();\n")
+                .append("            if (reader.getCurrentBsonType() == BsonType.NULL) {\n")
+                .append("                reader.readNull();\n");
+
+        // nulls reset object fields and leave primitives at their default, like the POJO codec
+        boolean first = true;
+        for (Property property : properties) {
+            if (property.readOnly() || property.type().getKind().isPrimitive()) continue;
+            out.append(first ? "                " : " else ").append("if (name.equals(\"").append(property.bsonName()).append("\")) ")
+                    .append(write(property, "null")).append(";");
+            first = false;
+        }
+        if (!first) out.append('\n');
+        out.append("                continue;\n            }\n")
+                .append("            switch (name) {\n");
+
+        for (Property property : properties) {
+            if (property.readOnly()) continue;
+            out.append("                case \"").append(property.bsonName()).append("\" -> ")
+                    .append(write(property, readValue(property))).append(";\n");
+        }
+        out.append("                default -> reader.skipValue();\n            }\n        }\n")
+                .append("        reader.readEndDocument();\n        return value;\n    }\n");
+    }
+
+    /**
+     * Reads the current value, taking the direct path when the stored BSON type is the natural one and the
+     * lenient registry codec otherwise (an int stored as a double, for example).
+     */
+    private String readValue(Property property) throws UnsupportedEntityException {
+        String viaCodec = "context.decodeWithChildContext(" + codecField(property) + "(), reader)";
+        return switch (property.type().getKind()) {
+            case INT -> "reader.getCurrentBsonType() == BsonType.INT32 ? reader.readInt32() : " + viaCodec;
+            case LONG -> "reader.getCurrentBsonType() == BsonType.INT64 ? reader.readInt64() : " + viaCodec;
+            case DOUBLE -> "reader.getCurrentBsonType() == BsonType.DOUBLE ? reader.readDouble() : " + viaCodec;
+            case BOOLEAN -> "reader.getCurrentBsonType() == BsonType.BOOLEAN ? reader.readBoolean() : " + viaCodec;
+            default -> isString(property.type())
+                    ? "reader.getCurrentBsonType() == BsonType.STRING ? reader.readString() : " + viaCodec
+                    : viaCodec;
+        };
+    }
+
+    private boolean isString(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) types.asElement(type)).getQualifiedName().contentEquals("java.lang.String");
+    }
+
+    private String read(Property property) throws UnsupportedEntityException {
+        if (!property.viaHandle()) return "value." + property.javaName();
+        return "(" + erasedName(property.type()) + ") " + handle(property) + ".get(value)";
+    }
+
+    private String write(Property property, String expression) throws UnsupportedEntityException {
+        String typed = "(" + (property.type().getKind().isPrimitive() ? typeName(property.type()) : boxedName(property.type())) + ") (" + expression + ")";
+        if (!property.viaHandle()) return "value." + property.javaName() + " = " + typed;
+        return handle(property) + ".set(value, " + typed + ")";
+    }
+
+    private static String handle(Property property) {
+        return "H_" + property.javaName();
+    }
+
+    private static String codecField(Property property) {
+        return "codec_" + property.javaName();
+    }
+}
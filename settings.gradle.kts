@@ -1 +1,3 @@
-rootProject.name = "DatabaseBrige"
\ No newline at end of file
+rootProject.name = "DatabaseBrige"
+
+include("codec-processor")
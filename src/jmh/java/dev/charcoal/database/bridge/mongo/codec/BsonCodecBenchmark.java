@@ -0,0 +1,118 @@
+package dev.charcoal.database.bridge.mongo.codec;
+
+import com.mongodb.MongoClientSettings;
+import dev.charcoal.database.bridge.mongo.annotations.MongoId;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+/**
+ * Compares the automatic POJO codec with the one generated by BsonCodecProcessor for the same entity.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BsonCodecBenchmark {
+
+    public static class Profile {
+        @MongoId
+        private String id;
+        private String name;
+        private long coins;
+        private boolean online;
+        private List<String> friends = new ArrayList<>();
+
+        // the POJO codec only sees properties with accessors
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public long getCoins() { return coins; }
+        public void setCoins(long coins) { this.coins = coins; }
+        public boolean isOnline() { return online; }
+        public void setOnline(boolean online) { this.online = online; }
+        public List<String> getFriends() { return friends; }
+        public void setFriends(List<String> friends) { this.friends = friends; }
+    }
+
+    private Profile profile;
+    private byte[] payload;
+    private Codec<Profile> pojoCodec;
+    private Codec<Profile> generatedCodec;
+
+    @Setup
+    public void setup() {
+        profile = new Profile();
+        profile.id = UUID.randomUUID().toString();
+        profile.name = "charcoal";
+        profile.coins = 123_456_789L;
+        profile.online = true;
+        for (int i = 0; i < 50; i++) {
+            profile.friends.add(UUID.randomUUID().toString());
+        }
+
+        CodecRegistry pojo = fromRegistries(MongoClientSettings.getDefaultCodecRegistry(),
+                fromProviders(PojoCodecProvider.builder().automatic(true).build()));
+        CodecRegistry generated = fromRegistries(MongoClientSettings.getDefaultCodecRegistry(),
+                fromProviders(new GeneratedCodecProvider()));
+        pojoCodec = pojo.get(Profile.class);
+        generatedCodec = generated.get(Profile.class);
+
+        payload = encode(pojoCodec);
+    }
+
+    private byte[] encode(Codec<Profile> codec) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, profile, EncoderContext.builder().build());
+        }
+        return buffer.toByteArray();
+    }
+
+    private Profile decode(Codec<Profile> codec) {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(payload))) {
+            return codec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    @Benchmark
+    public byte[] encodePojo() {
+        return encode(pojoCodec);
+    }
+
+    @Benchmark
+    public byte[] encodeGenerated() {
+        return encode(generatedCodec);
+    }
+
+    @Benchmark
+    public Profile decodePojo() {
+        return decode(pojoCodec);
+    }
+
+    @Benchmark
+    public Profile decodeGenerated() {
+        return decode(generatedCodec);
+    }
+}
@@ -0,0 +1,72 @@
+package dev.charcoal.database.bridge.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old Redis hot path (bytes -> String -> mapper.readValue(String, Class)) with the cached
+ * per-type reader/writer working on bytes directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerializationBenchmark {
+
+    public static class Profile {
+        public String id;
+        public String name;
+        public long coins;
+        public boolean online;
+        public List<String> friends = new ArrayList<>();
+    }
+
+    private Profile profile;
+    private byte[] payload;
+    private TypedSerializer<Profile> serializer;
+
+    @Setup
+    public void setup() throws Exception {
+        profile = new Profile();
+        profile.id = UUID.randomUUID().toString();
+        profile.name = "charcoal";
+        profile.coins = 123_456_789L;
+        profile.online = true;
+        for (int i = 0; i < 50; i++) {
+            profile.friends.add(UUID.randomUUID().toString());
+        }
+
+        payload = DataUtils.mapper.writeValueAsBytes(profile);
+        serializer = DataUtils.serializer(Profile.class);
+    }
+
+    @Benchmark
+    public Profile readViaString() throws Exception {
+        return DataUtils.mapper.readValue(new String(payload, StandardCharsets.UTF_8), Profile.class);
+    }
+
+    @Benchmark
+    public Profile readViaCachedReader() {
+        return serializer.fromBytes(payload);
+    }
+
+    @Benchmark
+    public byte[] writeViaString() throws Exception {
+        return DataUtils.mapper.writeValueAsString(profile).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] writeViaCachedWriter() {
+        return serializer.toBytes(profile);
+    }
+}
@@ -0,0 +1,14 @@
+package dev.charcoal.database.bridge.loadtest;
+
+public enum ArrivalMode {
+    /**
+     * A fixed number of clients, each sending its next operation once the previous one completed. With a target
+     * rate the clients are paced, otherwise they go as fast as the backend answers.
+     */
+    CLOSED,
+    /**
+     * Operations arrive on a fixed schedule at the target rate, however slow the backend is, like independent
+     * users would.
+     */
+    OPEN
+}
@@ -0,0 +1,94 @@
+package dev.charcoal.database.bridge.loadtest;
+
+import com.mongodb.client.MongoClients;
+import dev.charcoal.database.bridge.DatabaseConnectionBuilder;
+import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.memory.MemoryDatabase;
+import dev.charcoal.database.bridge.memory.MemoryOptions;
+import dev.charcoal.database.bridge.mongo.MongoDatabase;
+import dev.charcoal.database.bridge.redis.RedisDatabase;
+import dev.charcoal.database.bridge.sql.exception.SQLDatabaseException;
+import dev.charcoal.database.bridge.sql.impl.SQLiteDatabase;
+import dev.charcoal.database.bridge.utils.DataUtils;
+import dev.charcoal.database.bridge.utils.TypedSerializer;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Backends the load test can run against, by spec:
+ * <ul>
+ *     <li>{@code memory}: the plain in-process store, as a baseline</li>
+ *     <li>{@code redis-like}, {@code mongo-like}: the in-process store with the latency of a nearby server
+ *     injected, to rehearse a workload without one</li>
+ *     <li>{@code sqlite[:path]}: a real SQLite file, {@code build/loadtest.db} by default</li>
+ *     <li>{@code redis:<url>}, {@code mongo:<url>}: a running server</li>
+ * </ul>
+ */
+final class Backends {
+
+    private static final String TABLE = "loadtest";
+
+    private Backends() {
+    }
+
+    record Backend(String name, SyncDatabase<LoadRecord> database, AutoCloseable closer) {
+    }
+
+    static Backend open(String spec) {
+        String kind = spec;
+        String target = null;
+        int colon = spec.indexOf(':');
+        if (colon >= 0) {
+            kind = spec.substring(0, colon);
+            target = spec.substring(colon + 1);
+        }
+
+        switch (kind) {
+            case "memory" -> {
+                MemoryDatabase<LoadRecord> database = new MemoryDatabase<>(LoadRecord.class);
+                return new Backend(spec, database, database::close);
+            }
+            case "redis-like" -> {
+                return simulated(spec, Duration.ofNanos(150_000), Duration.ofNanos(100_000));
+            }
+            case "mongo-like" -> {
+                return simulated(spec, Duration.ofNanos(600_000), Duration.ofNanos(400_000));
+            }
+            case "sqlite" -> {
+                String path = target != null ? target : "build/loadtest.db";
+                TypedSerializer<LoadRecord> serializer = DataUtils.serializer(LoadRecord.class);
+                SQLiteDatabase<LoadRecord> database = new SQLiteDatabase<>(DatabaseConnectionBuilder.sqliteFile(path, TABLE), LoadRecord.class, rs -> {
+                    try {
+                        return serializer.fromString(rs.getString("data"));
+                    } catch (SQLException e) {
+                        throw new SQLDatabaseException("Failed to read load test record", e);
+                    }
+                });
+                return new Backend(spec, database, database::close);
+            }
+            case "redis" -> {
+                RedisDatabase<LoadRecord> database = new RedisDatabase<>(required(spec, target), LoadRecord.class);
+                return new Backend(spec, database, database::close);
+            }
+            case "mongo" -> {
+                MongoDatabase<LoadRecord> database = new MongoDatabase<>(MongoClients.create(required(spec, target)), TABLE, "records", LoadRecord.class);
+                return new Backend(spec, database, database::close);
+            }
+            default -> throw new IllegalArgumentException("Unknown backend: " + spec);
+        }
+    }
+
+    private static Backend simulated(String spec, Duration latency, Duration jitter) {
+        MemoryDatabase<LoadRecord> database = new MemoryDatabase<>(LoadRecord.class, MemoryOptions.builder()
+                .latency(latency)
+                .latencyJitter(jitter)
+                .build());
+        return new Backend(spec, database, database::close);
+    }
+
+    private static String required(String spec, String target) {
+        if (target == null || target.isEmpty()) throw new IllegalArgumentException("Backend " + spec + " needs a URL");
+        return target;
+    }
+}
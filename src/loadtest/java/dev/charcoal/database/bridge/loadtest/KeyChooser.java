@@ -0,0 +1,18 @@
+package dev.charcoal.database.bridge.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the index of the next key to operate on, in {@code [0, itemCount)}. Safe to share between threads.
+ */
+interface KeyChooser {
+
+    long next();
+
+    static KeyChooser of(KeyDistribution distribution, long itemCount, double zipfianConstant) {
+        return switch (distribution) {
+            case UNIFORM -> () -> ThreadLocalRandom.current().nextLong(itemCount);
+            case ZIPFIAN -> new ZipfianKeyChooser(itemCount, zipfianConstant);
+        };
+    }
+}
@@ -0,0 +1,8 @@
+package dev.charcoal.database.bridge.loadtest;
+
+public enum KeyDistribution {
+    /** Every loaded key is equally likely. */
+    UNIFORM,
+    /** A few keys get most of the traffic; popular keys are scattered over the key space like in YCSB. */
+    ZIPFIAN
+}
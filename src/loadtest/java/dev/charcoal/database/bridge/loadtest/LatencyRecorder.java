@@ -0,0 +1,94 @@
+package dev.charcoal.database.bridge.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-operation latency histograms in microseconds, safe to record into from any thread.
+ * <p>
+ * Two latencies are kept. Service time runs from the moment the call was made, and is what a naive benchmark
+ * reports. Response time runs from the moment the operation was due, so an operation stuck behind a slow one is
+ * charged for the wait too; without this a stall hides itself by holding back the very requests that would have
+ * observed it (coordinated omission).
+ */
+class LatencyRecorder {
+
+    /** Anything slower is recorded as this, rather than failing the run. */
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    LatencyRecorder() {
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    /**
+     * @param intendedNanos when the operation was scheduled to start
+     * @param startNanos    when it was actually sent
+     * @param endNanos      when it completed, successfully or not
+     */
+    void record(Operation operation, long intendedNanos, long startNanos, long endNanos, boolean success) {
+        Stats stat = stats.get(operation);
+        stat.response.recordValue(micros(endNanos - intendedNanos));
+        stat.service.recordValue(micros(endNanos - startNanos));
+        if (!success) stat.errors.increment();
+    }
+
+    /**
+     * For clients without a schedule, which send as soon as the previous call returns. There is no due time to
+     * measure from, so HdrHistogram back-fills the samples a client would have taken every
+     * {@code expectedIntervalMicros} while it was stuck.
+     */
+    void recordUnscheduled(Operation operation, long startNanos, long endNanos, long expectedIntervalMicros, boolean success) {
+        Stats stat = stats.get(operation);
+        long micros = micros(endNanos - startNanos);
+        stat.response.recordValueWithExpectedInterval(micros, expectedIntervalMicros);
+        stat.service.recordValue(micros);
+        if (!success) stat.errors.increment();
+    }
+
+    private static long micros(long nanos) {
+        return Math.min(HIGHEST_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    Histogram response(Operation operation) {
+        return stats.get(operation).response;
+    }
+
+    Histogram service(Operation operation) {
+        return stats.get(operation).service;
+    }
+
+    long errors(Operation operation) {
+        return stats.get(operation).errors.sum();
+    }
+
+    /**
+     * Service times of every operation type together.
+     */
+    Histogram totalService() {
+        Histogram total = new Histogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        for (Stats stat : stats.values()) total.add(stat.service);
+        return total;
+    }
+
+    Histogram totalResponse() {
+        Histogram total = new Histogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        for (Stats stat : stats.values()) total.add(stat.response);
+        return total;
+    }
+
+    private static class Stats {
+        private final Histogram response = new ConcurrentHistogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        private final Histogram service = new ConcurrentHistogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        private final LongAdder errors = new LongAdder();
+    }
+}
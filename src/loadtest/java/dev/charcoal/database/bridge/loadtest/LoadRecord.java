@@ -0,0 +1,27 @@
+package dev.charcoal.database.bridge.loadtest;
+
+import dev.charcoal.database.bridge.mongo.annotations.MongoId;
+import dev.charcoal.database.bridge.sql.annotations.Column;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Row written and read by the load test, mapped for every backend.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoadRecord {
+
+    @MongoId
+    @Column(name = "id", id = true)
+    private String id;
+
+    @Column(name = "data", type = "TEXT")
+    private String data;
+
+    private long updatedAt;
+}
@@ -0,0 +1,94 @@
+package dev.charcoal.database.bridge.loadtest;
+
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Result of one {@link LoadTest} run. Percentiles are response times, measured from when each operation was
+ * due; the service time column is what the backend alone took, and a wide gap between the two means requests
+ * were queueing.
+ */
+@Getter
+public class LoadReport {
+
+    private final String backend;
+    private final Workload workload;
+    private final LatencyRecorder recorder;
+    private final long elapsedNanos;
+
+    LoadReport(String backend, Workload workload, LatencyRecorder recorder, long elapsedNanos) {
+        this.backend = backend;
+        this.workload = workload;
+        this.recorder = recorder;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Completed operations per second, failed ones included.
+     */
+    public double getThroughput() {
+        return recorder.totalService().getTotalCount() / (elapsedNanos / 1e9);
+    }
+
+    public long getOperations(Operation operation) {
+        return recorder.service(operation).getTotalCount();
+    }
+
+    public long getErrors(Operation operation) {
+        return recorder.errors(operation);
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     */
+    public long getResponseMicros(Operation operation, double percentile) {
+        return recorder.response(operation).getValueAtPercentile(percentile);
+    }
+
+    public long getServiceMicros(Operation operation, double percentile) {
+        return recorder.service(operation).getValueAtPercentile(percentile);
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%n== %s: %s, %s keys, %d clients%s ==%n", backend, workload.getMode(), workload.getDistribution(),
+                workload.getClients(), workload.getTargetRate() > 0 ? String.format(", %.0f ops/s offered", workload.getTargetRate()) : "");
+        out.printf("%-8s %10s %8s %10s %10s %10s %10s %10s %10s %12s%n",
+                "op", "count", "errors", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "svc p99 us");
+
+        double seconds = elapsedNanos / 1e9;
+        for (Operation operation : Operation.values()) {
+            long count = getOperations(operation);
+            if (count == 0) continue;
+            row(out, operation.name(), count, getErrors(operation), count / seconds,
+                    recorder.response(operation), recorder.service(operation));
+        }
+        long errors = 0;
+        for (Operation operation : Operation.values()) errors += getErrors(operation);
+        Histogram service = recorder.totalService();
+        row(out, "TOTAL", service.getTotalCount(), errors, getThroughput(), recorder.totalResponse(), service);
+    }
+
+    private static void row(PrintStream out, String label, long count, long errors, double rate, Histogram response, Histogram service) {
+        out.printf("%-8s %10d %8d %10.0f %10d %10d %10d %10d %10d %12d%n", label, count, errors, rate,
+                response.getValueAtPercentile(50), response.getValueAtPercentile(90),
+                response.getValueAtPercentile(99), response.getValueAtPercentile(99.9),
+                response.getMaxValue(), service.getValueAtPercentile(99));
+    }
+
+    /**
+     * One line per backend, for comparing runs of the same workload.
+     */
+    public static void printComparison(PrintStream out, List<LoadReport> reports) {
+        out.printf("%n== comparison ==%n");
+        out.printf("%-20s %10s %10s %10s %10s %12s%n", "backend", "ops/s", "p50 us", "p99 us", "p99.9 us", "svc p99 us");
+        for (LoadReport report : reports) {
+            Histogram response = report.recorder.totalResponse();
+            out.printf("%-20s %10.0f %10d %10d %10d %12d%n", report.backend, report.getThroughput(),
+                    response.getValueAtPercentile(50), response.getValueAtPercentile(99),
+                    response.getValueAtPercentile(99.9), report.recorder.totalService().getValueAtPercentile(99));
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package dev.charcoal.database.bridge.loadtest;
+
+import dev.charcoal.database.bridge.AsyncDatabase;
+import dev.charcoal.database.bridge.ScannableDatabase;
+import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.sql.SQLDatabase;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Drives a {@link Workload} against one backend: loads the records, runs the warmup, then measures.
+ * <pre>{@code
+ * LoadReport report = new LoadTest("sqlite", database, Workload.core("b").clients(64).build()).run();
+ * report.print(System.out);
+ * }</pre>
+ */
+public class LoadTest {
+
+    private static final int LOAD_BATCH_SIZE = 500;
+    private static final String KEY_PREFIX = "user";
+
+    private final String name;
+    private final SyncDatabase<LoadRecord> database;
+    private final Workload workload;
+    private final KeyChooser keys;
+    private final AtomicLong nextInsert;
+    private final double[] cumulative;
+
+    public LoadTest(@NotNull String name, @NotNull SyncDatabase<LoadRecord> database, @NotNull Workload workload) {
+        if (workload.getMode() == ArrivalMode.OPEN && workload.getTargetRate() <= 0) {
+            throw new IllegalArgumentException("Open mode needs a target rate");
+        }
+        this.name = name;
+        this.database = database;
+        this.workload = workload;
+        this.keys = KeyChooser.of(workload.getDistribution(), workload.getRecordCount(), workload.getZipfianConstant());
+        this.nextInsert = new AtomicLong(workload.getRecordCount());
+
+        double[] weights = {
+                workload.getReadProportion(), workload.getUpdateProportion(),
+                workload.getInsertProportion(), workload.getScanProportion()
+        };
+        double sum = 0;
+        for (double weight : weights) sum += weight;
+        if (sum <= 0) throw new IllegalArgumentException("At least one operation proportion must be positive");
+        this.cumulative = new double[weights.length];
+        double running = 0;
+        for (int i = 0; i < weights.length; i++) {
+            running += weights[i] / sum;
+            cumulative[i] = running;
+        }
+    }
+
+    public LoadReport run() {
+        System.out.println("[LoadTest] " + name + ": loading " + workload.getRecordCount() + " records");
+        load();
+
+        ExecutorService executor = newExecutor();
+        try {
+            System.out.println("[LoadTest] " + name + ": warming up for " + workload.getWarmup().toSeconds() + "s");
+            LatencyRecorder warmup = new LatencyRecorder();
+            runPhase(executor, workload.getWarmup(), warmup, 0);
+
+            // unscheduled clients are back-filled at the pace they kept while warm
+            long expectedInterval = Math.max(1, (long) warmup.totalService().getMean());
+
+            System.out.println("[LoadTest] " + name + ": measuring for " + workload.getDuration().toSeconds() + "s");
+            LatencyRecorder recorder = new LatencyRecorder();
+            long started = System.nanoTime();
+            runPhase(executor, workload.getDuration(), recorder, expectedInterval);
+            long elapsed = System.nanoTime() - started;
+
+            return new LoadReport(name, workload, recorder, elapsed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /* ------------------ LOAD ------------------ */
+
+    @SuppressWarnings("unchecked")
+    private void load() {
+        if (database instanceof SQLDatabase<?> sql) {
+            Stream<LoadRecord> records = LongStream.range(0, workload.getRecordCount())
+                    .mapToObj(i -> newRecord(keyName(i)));
+            ((SQLDatabase<LoadRecord>) sql).bulkLoad(records);
+            return;
+        }
+
+        Map<String, LoadRecord> batch = new LinkedHashMap<>();
+        for (long i = 0; i < workload.getRecordCount(); i++) {
+            String key = keyName(i);
+            batch.put(key, newRecord(key));
+            if (batch.size() == LOAD_BATCH_SIZE) {
+                saveBatch(batch);
+                batch = new LinkedHashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) saveBatch(batch);
+    }
+
+    private void saveBatch(Map<String, LoadRecord> batch) {
+        if (!database.saveMany(batch)) {
+            throw new IllegalStateException("Failed to load records into " + name);
+        }
+    }
+
+    /* ------------------ PHASES ------------------ */
+
+    private void runPhase(ExecutorService executor, Duration length, LatencyRecorder recorder, long expectedInterval) {
+        long deadline = System.nanoTime() + length.toNanos();
+        if (workload.getMode() == ArrivalMode.OPEN) {
+            runOpen(executor, deadline, recorder);
+        } else {
+            runClosed(executor, deadline, recorder, expectedInterval);
+        }
+    }
+
+    /**
+     * Each client waits for its own call to return before sending the next. When paced, a client that fell
+     * behind sends straight away but is still measured from the slot it missed.
+     */
+    private void runClosed(ExecutorService executor, long deadline, LatencyRecorder recorder, long expectedInterval) {
+        int clients = workload.getClients();
+        long period = workload.getTargetRate() > 0 ? (long) (1e9 * clients / workload.getTargetRate()) : 0;
+
+        List<CompletableFuture<Void>> running = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            running.add(CompletableFuture.runAsync(() -> {
+                long intended = System.nanoTime() + ThreadLocalRandom.current().nextLong(Math.max(1, period));
+                while (!Thread.currentThread().isInterrupted()) {
+                    long start;
+                    if (period > 0) {
+                        if (intended >= deadline) break;
+                        parkUntil(intended);
+                        start = System.nanoTime();
+                    } else {
+                        start = System.nanoTime();
+                        if (start >= deadline) break;
+                    }
+
+                    Operation operation = nextOperation();
+                    boolean success = execute(operation);
+                    long end = System.nanoTime();
+
+                    if (period > 0) {
+                        recorder.record(operation, intended, start, end, success);
+                        intended += period;
+                    } else if (expectedInterval > 0) {
+                        recorder.recordUnscheduled(operation, start, end, expectedInterval, success);
+                    } else {
+                        recorder.record(operation, start, start, end, success);
+                    }
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * Operations are due on a fixed schedule whatever the backend does. Past {@code maxOutstanding} in-flight
+     * operations the dispatcher stalls, but each operation is still measured from its due time, so the stall
+     * shows up in the percentiles instead of lowering the offered load unnoticed.
+     */
+    private void runOpen(ExecutorService executor, long deadline, LatencyRecorder recorder) {
+        long period = Math.max(1, (long) (1e9 / workload.getTargetRate()));
+        Semaphore outstanding = new Semaphore(workload.getMaxOutstanding());
+        boolean async = workload.isAsync() && database instanceof AsyncDatabase;
+
+        long intended = System.nanoTime();
+        while (intended < deadline) {
+            parkUntil(intended);
+            outstanding.acquireUninterruptibly();
+
+            Operation operation = nextOperation();
+            long due = intended;
+            if (async) {
+                long start = System.nanoTime();
+                executeAsync(operation).whenComplete((success, error) -> {
+                    recorder.record(operation, due, start, System.nanoTime(), error == null && success);
+                    outstanding.release();
+                });
+            } else {
+                executor.execute(() -> {
+                    try {
+                        long start = System.nanoTime();
+                        boolean success = execute(operation);
+                        recorder.record(operation, due, start, System.nanoTime(), success);
+                    } finally {
+                        outstanding.release();
+                    }
+                });
+            }
+            intended += period;
+        }
+
+        // let the tail finish so slow operations are counted rather than dropped
+        outstanding.acquireUninterruptibly(workload.getMaxOutstanding());
+        outstanding.release(workload.getMaxOutstanding());
+    }
+
+    private static void parkUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /* ------------------ OPERATIONS ------------------ */
+
+    private Operation nextOperation() {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        Operation[] operations = Operation.values();
+        for (int i = 0; i < cumulative.length; i++) {
+            if (roll < cumulative[i]) return operations[i];
+        }
+        return operations[operations.length - 1];
+    }
+
+    /**
+     * @return whether the backend reported success; exceptions count as failures and are not rethrown
+     */
+    private boolean execute(Operation operation) {
+        try {
+            return switch (operation) {
+                case READ -> {
+                    database.fetch(keyName(keys.next()));
+                    yield true;
+                }
+                case UPDATE -> {
+                    String key = keyName(keys.next());
+                    yield database.save(key, newRecord(key));
+                }
+                case INSERT -> {
+                    String key = keyName(nextInsert.getAndIncrement());
+                    yield database.save(key, newRecord(key));
+                }
+                case SCAN -> {
+                    scan(keys.next());
+                    yield true;
+                }
+            };
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Boolean> executeAsync(Operation operation) {
+        AsyncDatabase<LoadRecord> async = (AsyncDatabase<LoadRecord>) database;
+        try {
+            return switch (operation) {
+                case READ -> async.fetchAsync(keyName(keys.next())).thenApply(value -> true);
+                case UPDATE -> {
+                    String key = keyName(keys.next());
+                    yield async.saveAsync(key, newRecord(key));
+                }
+                case INSERT -> {
+                    String key = keyName(nextInsert.getAndIncrement());
+                    yield async.saveAsync(key, newRecord(key));
+                }
+                case SCAN -> {
+                    long start = keys.next();
+                    yield async.fetchManyAsync(scanKeys(start)).thenApply(values -> true);
+                }
+            };
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * Backends that can page through keys in order do so; the others fetch the same range by key.
+     */
+    @SuppressWarnings("unchecked")
+    private void scan(long start) {
+        if (database instanceof ScannableDatabase<?> scannable) {
+            ((ScannableDatabase<LoadRecord>) scannable).scan(start == 0 ? null : keyName(start - 1), workload.getScanLength());
+        } else {
+            database.fetchMany(scanKeys(start));
+        }
+    }
+
+    private List<String> scanKeys(long start) {
+        long end = Math.min(start + workload.getScanLength(), workload.getRecordCount());
+        List<String> range = new ArrayList<>((int) (end - start));
+        for (long i = start; i < end; i++) range.add(keyName(i));
+        return range;
+    }
+
+    /**
+     * Zero padded so the lexical order scans page through matches the numeric one.
+     */
+    static String keyName(long index) {
+        return KEY_PREFIX + String.format("%012d", index);
+    }
+
+    private LoadRecord newRecord(String key) {
+        char[] data = new char[workload.getValueSize()];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new LoadRecord(key, new String(data), System.currentTimeMillis());
+    }
+
+    /* ------------------ THREADS ------------------ */
+
+    /**
+     * One virtual thread per client, so thousands of blocking clients cost no more than a few carrier threads.
+     */
+    private ExecutorService newExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -0,0 +1,90 @@
+package dev.charcoal.database.bridge.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line entry point, run through {@code gradle loadTest -Pargs="..."}. Every option is {@code --name=value}:
+ * <pre>
+ * --backend=memory,sqlite     comma separated, see {@link Backends}; several print a comparison at the end
+ * --workload=a                YCSB core mix a-e, overridden by --read/--update/--insert/--scan weights
+ * --records=10000 --value-size=100 --scan-length=100
+ * --distribution=zipfian      or uniform; --theta=0.99
+ * --mode=closed               or open, which needs --rate
+ * --clients=16 --rate=0 --max-outstanding=10000 --async=false
+ * --warmup=5s --duration=30s  in ms, s or m
+ * </pre>
+ */
+public final class LoadTestMain {
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        Workload workload = workload(options);
+
+        List<LoadReport> reports = new ArrayList<>();
+        for (String spec : options.getOrDefault("backend", "memory").split(",")) {
+            Backends.Backend backend = Backends.open(spec.trim());
+            try {
+                LoadReport report = new LoadTest(backend.name(), backend.database(), workload).run();
+                report.print(System.out);
+                reports.add(report);
+            } finally {
+                backend.closer().close();
+            }
+        }
+
+        if (reports.size() > 1) LoadReport.printComparison(System.out, reports);
+        // clients of some backends leave non-daemon threads behind
+        System.exit(0);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            int equals = arg.indexOf('=');
+            if (equals < 0) options.put(arg.substring(2), "true");
+            else options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    private static Workload workload(Map<String, String> options) {
+        Workload.WorkloadBuilder builder = Workload.core(options.getOrDefault("workload", "a"));
+        Workload defaults = Workload.defaults();
+
+        if (options.containsKey("read")) builder.readProportion(Double.parseDouble(options.get("read")));
+        if (options.containsKey("update")) builder.updateProportion(Double.parseDouble(options.get("update")));
+        if (options.containsKey("insert")) builder.insertProportion(Double.parseDouble(options.get("insert")));
+        if (options.containsKey("scan")) builder.scanProportion(Double.parseDouble(options.get("scan")));
+
+        return builder
+                .recordCount(Integer.parseInt(options.getOrDefault("records", String.valueOf(defaults.getRecordCount()))))
+                .valueSize(Integer.parseInt(options.getOrDefault("value-size", String.valueOf(defaults.getValueSize()))))
+                .scanLength(Integer.parseInt(options.getOrDefault("scan-length", String.valueOf(defaults.getScanLength()))))
+                .distribution(KeyDistribution.valueOf(options.getOrDefault("distribution", defaults.getDistribution().name()).toUpperCase()))
+                .zipfianConstant(Double.parseDouble(options.getOrDefault("theta", String.valueOf(defaults.getZipfianConstant()))))
+                .mode(ArrivalMode.valueOf(options.getOrDefault("mode", defaults.getMode().name()).toUpperCase()))
+                .clients(Integer.parseInt(options.getOrDefault("clients", String.valueOf(defaults.getClients()))))
+                .targetRate(Double.parseDouble(options.getOrDefault("rate", String.valueOf(defaults.getTargetRate()))))
+                .maxOutstanding(Integer.parseInt(options.getOrDefault("max-outstanding", String.valueOf(defaults.getMaxOutstanding()))))
+                .async(Boolean.parseBoolean(options.getOrDefault("async", String.valueOf(defaults.isAsync()))))
+                .warmup(duration(options.get("warmup"), defaults.getWarmup()))
+                .duration(duration(options.get("duration"), defaults.getDuration()))
+                .build();
+    }
+
+    private static Duration duration(String value, Duration fallback) {
+        if (value == null) return fallback;
+        if (value.endsWith("ms")) return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        if (value.endsWith("s")) return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        if (value.endsWith("m")) return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+}
@@ -0,0 +1,15 @@
+package dev.charcoal.database.bridge.loadtest;
+
+/**
+ * Operations of the YCSB core workloads.
+ */
+public enum Operation {
+    /** Fetch of an existing key. */
+    READ,
+    /** Save over an existing key. */
+    UPDATE,
+    /** Save of a key past the loaded ones. */
+    INSERT,
+    /** Page of consecutive keys starting at a chosen one. */
+    SCAN
+}
@@ -0,0 +1,79 @@
+package dev.charcoal.database.bridge.loadtest;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Shape of a load test run. Operation proportions are relative weights and need not add up to one; the
+ * defaults match YCSB workload A (half reads, half updates).
+ */
+@Getter
+@Builder(toBuilder = true)
+public class Workload {
+
+    /** Keys written before the run and targeted by reads, updates and scans. */
+    @Builder.Default
+    private int recordCount = 10_000;
+    /** Length of the random payload of every record. */
+    @Builder.Default
+    private int valueSize = 100;
+
+    @Builder.Default
+    private double readProportion = 0.5;
+    @Builder.Default
+    private double updateProportion = 0.5;
+    @Builder.Default
+    private double insertProportion = 0;
+    @Builder.Default
+    private double scanProportion = 0;
+    @Builder.Default
+    private int scanLength = 100;
+
+    @Builder.Default
+    private KeyDistribution distribution = KeyDistribution.ZIPFIAN;
+    /** Skew of the Zipfian distribution; YCSB uses 0.99. */
+    @Builder.Default
+    private double zipfianConstant = 0.99;
+
+    @Builder.Default
+    private ArrivalMode mode = ArrivalMode.CLOSED;
+    /** Concurrent clients in closed mode. */
+    @Builder.Default
+    private int clients = 16;
+    /** Operations per second; required in open mode, paces the clients in closed mode when positive. */
+    @Builder.Default
+    private double targetRate = 0;
+    /** Open mode stalls new arrivals once this many operations are outstanding; they are still measured from their scheduled time. */
+    @Builder.Default
+    private int maxOutstanding = 10_000;
+    /** In open mode, go through {@code AsyncDatabase} instead of a thread per operation when the backend offers it. */
+    @Builder.Default
+    private boolean async = false;
+
+    /** Run before measuring and discarded, so connection pools, JIT and caches settle. */
+    @Builder.Default
+    private Duration warmup = Duration.ofSeconds(5);
+    @Builder.Default
+    private Duration duration = Duration.ofSeconds(30);
+
+    public static Workload defaults() {
+        return builder().build();
+    }
+
+    /**
+     * Operation mix of a YCSB core workload: {@code a} update heavy, {@code b} read mostly, {@code c} read only,
+     * {@code d} read latest, approximated with inserts over a Zipfian read set, {@code e} short scans.
+     */
+    public static WorkloadBuilder core(String name) {
+        return switch (name.toLowerCase()) {
+            case "a" -> builder().readProportion(0.5).updateProportion(0.5);
+            case "b" -> builder().readProportion(0.95).updateProportion(0.05);
+            case "c" -> builder().readProportion(1).updateProportion(0);
+            case "d" -> builder().readProportion(0.95).updateProportion(0).insertProportion(0.05);
+            case "e" -> builder().readProportion(0).updateProportion(0).scanProportion(0.95).insertProportion(0.05);
+            default -> throw new IllegalArgumentException("Unknown core workload: " + name);
+        };
+    }
+}
@@ -0,0 +1,61 @@
+package dev.charcoal.database.bridge.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Zipfian ranks after Gray et al., "Quickly Generating Billion-Record Synthetic Databases", as in YCSB. The rank
+ * is hashed onto the key space so the popular keys do not all sit next to each other, which would otherwise
+ * favour range-partitioned backends and the first pages of scans.
+ */
+class ZipfianKeyChooser implements KeyChooser {
+
+    private final long items;
+    private final double theta;
+    private final double zetan;
+    private final double alpha;
+    private final double eta;
+    private final double halfPowTheta;
+
+    ZipfianKeyChooser(long items, double theta) {
+        if (items <= 0) throw new IllegalArgumentException("items must be positive");
+        if (theta <= 0 || theta >= 1) throw new IllegalArgumentException("zipfianConstant must be between 0 and 1");
+        this.items = items;
+        this.theta = theta;
+        this.zetan = zeta(items, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        double zeta2 = zeta(2, theta);
+        this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetan);
+        this.halfPowTheta = Math.pow(0.5, theta);
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+
+    @Override
+    public long next() {
+        return Math.floorMod(fnv64(rank()), items);
+    }
+
+    private long rank() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        double uz = u * zetan;
+        if (uz < 1) return 0;
+        if (uz < 1 + halfPowTheta) return 1;
+        return Math.min(items - 1, (long) (items * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    private static long fnv64(long value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < 8; i++) {
+            hash ^= value & 0xFF;
+            hash *= 0x100000001b3L;
+            value >>>= 8;
+        }
+        return hash;
+    }
+}
@@ -1,7 +1,11 @@
 package dev.charcoal.database.bridge;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public interface AsyncDatabase<T> {
@@ -10,10 +14,41 @@ public interface AsyncDatabase<T> {
 
     CompletableFuture<List<T>> fetchAllAsync();
 
+    /**
+     * Fetches several keys at once. Missing keys are left out of the result.
+     */
+    default CompletableFuture<Map<String, T>> fetchManyAsync(Collection<String> keys) {
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (String key : keys) {
+            futures.put(key, fetchAsync(key));
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    Map<String, T> result = new LinkedHashMap<>();
+                    futures.forEach((key, future) -> {
+                        T value = future.join();
+                        if (value != null) result.put(key, value);
+                    });
+                    return result;
+                });
+    }
+
     CompletableFuture<Boolean> saveAsync(String key, T value);
 
     CompletableFuture<Boolean> saveAsync(String key, T value, Duration timeout);
 
+    /**
+     * Saves several entries at once, without expiry. Backends override this with a single round trip.
+     *
+     * @return {@code true} if every entry was written
+     */
+    default CompletableFuture<Boolean> saveManyAsync(Map<String, T> values) {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(values.size());
+        values.forEach((key, value) -> futures.add(saveAsync(key, value)));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(v -> futures.stream().allMatch(CompletableFuture::join));
+    }
+
     CompletableFuture<Boolean> deleteAsync(String key);
 
 }
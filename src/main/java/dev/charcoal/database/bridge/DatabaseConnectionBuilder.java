@@ -1,5 +1,6 @@
 package dev.charcoal.database.bridge;
 
+import dev.charcoal.database.bridge.key.KeyCodec;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -7,7 +8,7 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 @Getter
-@AllArgsConstructor @Builder
+@AllArgsConstructor @Builder(toBuilder = true)
 public class DatabaseConnectionBuilder {
 
     private String ip;
@@ -16,6 +17,21 @@ public class DatabaseConnectionBuilder {
     private String username;
     private String password;
     private String table;
+    /**
+     * How SQL and Mongo backends store keys, fixed for the lifetime of the database: the id column or field must
+     * hold the codec's native type, and {@code keyed(codec)} only hands out views for this codec.
+     */
+    @Builder.Default
+    private KeyCodec<?> keyCodec = KeyCodec.strings();
+    /**
+     * Connections the pool may open, 0 for the backend's default. The priority gate of SQL and Mongo backends is
+     * sized from the pool, so background calls are limited against the connections that really exist.
+     */
+    private int maxPoolSize;
+
+    public DatabaseConnectionBuilder(String ip, int port, String database, String username, String password, String table) {
+        this(ip, port, database, username, password, table, KeyCodec.strings(), 0);
+    }
 
     @Contract("_, _, _, _ -> new")
     public static @NotNull DatabaseConnectionBuilder localhost(String database, String username, String password, String table) {
@@ -31,6 +47,10 @@ public class DatabaseConnectionBuilder {
         return new DatabaseConnectionBuilder("localhost", port, database, "root", "root", table);
     }
 
+    public static @NotNull DatabaseConnectionBuilder sqliteFile(String path, String table) {
+        return new DatabaseConnectionBuilder(null, 0, path, null, null, table);
+    }
+
     public static @NotNull DatabaseConnectionBuilder redisLocalhost() {
         return new DatabaseConnectionBuilder("localhost", 6379, null, "root", "root", null);
     }
@@ -48,6 +68,13 @@ public class DatabaseConnectionBuilder {
         return "mongodb://" + ip + ":" + port;
     }
 
+    /**
+     * The database name is the path of the SQLite file.
+     */
+    public String getSQLiteUrl() {
+        return "jdbc:sqlite:" + database;
+    }
+
     public String getRedisURL() {
         return "redis://" + ip + ":" + port;
     }
@@ -0,0 +1,35 @@
+package dev.charcoal.database.bridge;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * A database whose entries can be moved to another store without losing a concurrent write or delete, and
+ * without losing their expiry.
+ */
+public interface MigratableDatabase<T> {
+
+    /**
+     * @return the time {@code key} has left to live, or {@code null} if it never expires or does not exist
+     */
+    @Nullable Duration timeToLive(String key);
+
+    /**
+     * Stores {@code value} as it is, version included, only if {@code key} has no live entry.
+     *
+     * @param timeout {@code null} for no expiry
+     * @return {@code true} if the value was stored
+     */
+    boolean saveIfAbsent(String key, T value, @Nullable Duration timeout);
+
+    /**
+     * Deletes {@code key} only if its stored version still equals {@code expectedVersion}; {@code 0} also
+     * matches a value saved without a version.
+     *
+     * @return {@code true} if the entry was deleted
+     * @throws IllegalStateException if the type has no {@code @Version} field
+     */
+    boolean deleteIfVersion(String key, long expectedVersion);
+
+}
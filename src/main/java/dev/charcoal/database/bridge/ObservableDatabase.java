@@ -0,0 +1,17 @@
+package dev.charcoal.database.bridge;
+
+import dev.charcoal.database.bridge.change.ChangeListener;
+import dev.charcoal.database.bridge.change.Subscription;
+
+/**
+ * A database that pushes its changes to listeners, so consumers can update incrementally instead of polling
+ * {@link SyncDatabase#fetchAll()}.
+ */
+public interface ObservableDatabase<T> {
+
+    /**
+     * Delivers every insert, update and delete made after this call, by any client, until the returned
+     * subscription is closed.
+     */
+    Subscription subscribe(ChangeListener<T> listener);
+}
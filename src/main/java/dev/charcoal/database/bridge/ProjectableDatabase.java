@@ -0,0 +1,48 @@
+package dev.charcoal.database.bridge;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A database that can read only some fields of an entity, so listing pages do not pay to transfer and decode
+ * large fields they never show.
+ * <p>
+ * Fields are named by their Java field name. The fields that are not requested are left at the values set by
+ * the no-arg constructor. A projected entity is therefore meant for reading only: saving it overwrites the
+ * missing fields.
+ */
+public interface ProjectableDatabase<T> {
+
+    /**
+     * Reads {@code key} with only {@code fields} populated. The key field is always included.
+     *
+     * @throws IllegalArgumentException if a field does not exist on the entity
+     */
+    T fetch(String key, String... fields);
+
+    /**
+     * Projected version of {@link SyncDatabase#fetchMany}. Missing keys are left out of the result.
+     */
+    default Map<String, T> fetchMany(Collection<String> keys, String... fields) {
+        Map<String, T> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            T value = fetch(key, fields);
+            if (value != null) result.put(key, value);
+        }
+        return result;
+    }
+
+    /**
+     * Reads every field except the ones marked {@link dev.charcoal.database.bridge.annotations.Lazy @Lazy}.
+     */
+    T fetchShallow(String key);
+
+    /**
+     * Reads {@code fields} of {@code key} and copies them into {@code value}. Pass no fields to load every
+     * {@code @Lazy} field, which completes a value returned by {@link #fetchShallow}.
+     *
+     * @return {@code value}, or {@code null} if the key no longer exists
+     */
+    T loadLazy(String key, T value, String... fields);
+}
@@ -0,0 +1,16 @@
+package dev.charcoal.database.bridge;
+
+import dev.charcoal.database.bridge.ranking.RankedCollection;
+
+/**
+ * A database that can keep keys ordered by a score next to their values, so leaderboards are read a page at a
+ * time instead of loading and sorting every value.
+ */
+public interface RankableDatabase<T> {
+
+    /**
+     * The ranking called {@code name}, created empty on first use. Scores live apart from the values: saving or
+     * deleting a value does not change its rank, and ranked keys need not have a value at all.
+     */
+    RankedCollection<T> ranking(String name);
+}
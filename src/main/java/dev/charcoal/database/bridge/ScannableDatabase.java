@@ -0,0 +1,43 @@
+package dev.charcoal.database.bridge;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A database that can be read page by page in key order, so large copies never hold the whole data set and
+ * can resume from the last key they processed.
+ */
+public interface ScannableDatabase<T> {
+
+    /**
+     * Returns up to {@code limit} live entries whose key sorts strictly after {@code afterKey}, in key order.
+     *
+     * @param afterKey {@code null} to start from the first key
+     * @return an empty map once the end is reached
+     */
+    Map<String, T> scan(@Nullable String afterKey, int limit);
+
+    /**
+     * Adapts a database without native paging by loading it once through {@link SyncDatabase#fetchAll()}.
+     * Only meant for small sources such as file databases.
+     */
+    static <T> ScannableDatabase<T> materialized(SyncDatabase<T> database, Function<T, String> keyExtractor) {
+        NavigableMap<String, T> entries = new TreeMap<>();
+        for (T value : database.fetchAll()) {
+            entries.put(keyExtractor.apply(value), value);
+        }
+
+        return (afterKey, limit) -> {
+            Map<String, T> tail = afterKey == null ? entries : entries.tailMap(afterKey, false);
+            return tail.entrySet().stream()
+                    .limit(limit)
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+        };
+    }
+}
@@ -1,7 +1,10 @@
 package dev.charcoal.database.bridge;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface SyncDatabase<T> {
 
@@ -9,10 +12,35 @@ public interface SyncDatabase<T> {
 
     List<T> fetchAll();
 
+    /**
+     * Fetches several keys at once. Missing keys are left out of the result.
+     */
+    default Map<String, T> fetchMany(Collection<String> keys) {
+        Map<String, T> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            T value = fetch(key);
+            if (value != null) result.put(key, value);
+        }
+        return result;
+    }
+
     boolean save(String key, T value);
 
     boolean save(String key, T value, Duration timeout);
 
+    /**
+     * Saves several entries at once, without expiry. Backends override this with a single round trip.
+     *
+     * @return {@code true} if every entry was written
+     */
+    default boolean saveMany(Map<String, T> values) {
+        boolean saved = true;
+        for (Map.Entry<String, T> entry : values.entrySet()) {
+            saved &= save(entry.getKey(), entry.getValue());
+        }
+        return saved;
+    }
+
     boolean delete(String key);
 
 }
@@ -0,0 +1,19 @@
+package dev.charcoal.database.bridge;
+
+import java.time.Duration;
+
+/**
+ * Operations bound to a single {@link TransactionalDatabase#transaction} call. Writes are buffered and sent
+ * together at commit; {@link #fetch(String)} sees the transaction's own pending writes.
+ */
+public interface Transaction<T> {
+
+    T fetch(String key);
+
+    void save(String key, T value);
+
+    void save(String key, T value, Duration timeout);
+
+    void delete(String key);
+
+}
@@ -0,0 +1,18 @@
+package dev.charcoal.database.bridge;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+public interface TransactionalDatabase<T> {
+
+    /**
+     * Runs {@code work} against one connection/session and commits everything it wrote at once.
+     * Exceptions thrown by {@code work} roll the transaction back and are rethrown.
+     *
+     * @return {@code true} if the transaction committed
+     */
+    boolean transaction(Consumer<Transaction<T>> work);
+
+    CompletableFuture<Boolean> transactionAsync(Consumer<Transaction<T>> work);
+
+}
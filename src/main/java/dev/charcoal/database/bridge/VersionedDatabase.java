@@ -0,0 +1,43 @@
+package dev.charcoal.database.bridge;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
+
+/**
+ * A database that can write a value only if nobody changed it since it was read, using the {@code @Version}
+ * field of the type for optimistic concurrency.
+ */
+public interface VersionedDatabase<T> {
+
+    /**
+     * Saves {@code value} only if the stored {@code @Version} still equals {@code expectedVersion}
+     * ({@code 0} also matches a missing entry). On success the value's version is bumped to
+     * {@code expectedVersion + 1}; like {@link SyncDatabase#save(String, Object)}, any expiry is cleared.
+     *
+     * @return {@code false} if another writer got there first
+     * @throws IllegalStateException if the type has no {@code @Version} field
+     */
+    boolean compareAndSave(String key, long expectedVersion, T value);
+
+    /**
+     * Read-modify-write loop on top of {@link #compareAndSave(String, long, Object)}, retried on conflicts.
+     */
+    T update(String key, UnaryOperator<T> updater);
+
+    CompletableFuture<Boolean> compareAndSaveAsync(String key, long expectedVersion, T value);
+
+    CompletableFuture<T> updateAsync(String key, UnaryOperator<T> updater);
+
+    /**
+     * For wrappers whose delegate may lack the capability.
+     *
+     * @throws IllegalStateException if {@code database} is not a {@code VersionedDatabase}
+     */
+    @SuppressWarnings("unchecked")
+    static <T> VersionedDatabase<T> require(Object database) {
+        if (!(database instanceof VersionedDatabase<?>)) {
+            throw new IllegalStateException(database.getClass().getSimpleName() + " does not implement VersionedDatabase");
+        }
+        return (VersionedDatabase<T>) database;
+    }
+}
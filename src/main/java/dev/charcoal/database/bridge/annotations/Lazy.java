@@ -0,0 +1,15 @@
+package dev.charcoal.database.bridge.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an expensive field, such as a large embedded list, that {@code fetchShallow} leaves out. Load it on
+ * demand with {@code loadLazy}. Plain {@code fetch} still reads every field.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Lazy {
+}
@@ -0,0 +1,17 @@
+package dev.charcoal.database.bridge.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the {@code long}/{@code int} field used for optimistic concurrency by
+ * {@link dev.charcoal.database.bridge.VersionedDatabase#compareAndSave compareAndSave} and
+ * {@link dev.charcoal.database.bridge.VersionedDatabase#update update}. The bridge bumps it on every successful
+ * conditional write.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Version {
+}
@@ -0,0 +1,302 @@
+package dev.charcoal.database.bridge.batch;
+
+import dev.charcoal.database.bridge.AsyncDatabase;
+import dev.charcoal.database.bridge.VersionedDatabase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Coalesces independent {@code fetchAsync} and {@code saveAsync} calls into multi-key backend operations, in the
+ * style of a DataLoader. Calls are collected for a short window, or until a batch is full. Then the distinct keys
+ * are sent with one {@link AsyncDatabase#fetchManyAsync} or {@link AsyncDatabase#saveManyAsync}, and every caller
+ * gets its own future back.
+ * <p>
+ * Writes to a key keep their order: a batch, a delete or a conditional write only starts once the previous write to
+ * the same keys has finished. A fetch of a key with a buffered save flushes that save and reads after it. Callers
+ * that fetch the same key in the same window receive the same instance, so treat fetched values as read-only.
+ * All saves in a batch complete with the batch's result, as the multi-key operation only reports one.
+ * <pre>{@code
+ * BatchingDatabase<User> users = new BatchingDatabase<>(mongoUsers);
+ * users.fetchAsync(id).thenAccept(this::render); // joins whatever else is fetched within 2ms
+ * }</pre>
+ */
+public class BatchingDatabase<T> implements AsyncDatabase<T>, AutoCloseable {
+
+    public static final Duration DEFAULT_WINDOW = Duration.ofMillis(2);
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    private final AsyncDatabase<T> delegate;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+
+    private final Object lock = new Object();
+
+    // everything below is guarded by lock
+    private Map<String, CompletableFuture<T>> pendingFetches = new LinkedHashMap<>();
+    @Nullable
+    private ScheduledFuture<?> fetchTimer;
+
+    private Map<String, T> pendingSaves = new LinkedHashMap<>();
+    private CompletableFuture<Boolean> pendingSaveResult = new CompletableFuture<>();
+    @Nullable
+    private ScheduledFuture<?> saveTimer;
+
+    /**
+     * Latest write sent for each key. Every write waits for the previous one, so this is the only one to wait for.
+     */
+    private final Map<String, CompletableFuture<?>> inFlightWrites = new HashMap<>();
+
+    public BatchingDatabase(@NotNull AsyncDatabase<T> delegate) {
+        this(delegate, DEFAULT_WINDOW, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * @param window       how long the first call of a batch waits for others to join it
+     * @param maxBatchSize a batch is sent as soon as it holds this many distinct keys
+     */
+    public BatchingDatabase(@NotNull AsyncDatabase<T> delegate, @NotNull Duration window, int maxBatchSize) {
+        if (maxBatchSize <= 0) throw new IllegalArgumentException("maxBatchSize must be positive");
+        this.delegate = delegate;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BatchingDatabase-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /* ------------------ FETCH ------------------ */
+
+    @Override
+    public CompletableFuture<T> fetchAsync(String key) {
+        CompletableFuture<T> shared;
+        boolean full;
+        synchronized (lock) {
+            shared = pendingFetches.get(key);
+            if (shared == null) {
+                shared = new CompletableFuture<>();
+                pendingFetches.put(key, shared);
+                if (pendingFetches.size() == 1) {
+                    fetchTimer = scheduler.schedule(this::flushFetches, windowNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+            full = pendingFetches.size() >= maxBatchSize;
+        }
+
+        if (full) flushFetches();
+        // a caller completing or cancelling its future must not affect the others waiting on the same key
+        return shared.copy();
+    }
+
+    /**
+     * Sends the buffered fetches now instead of waiting for the window to end.
+     */
+    public void flushFetches() {
+        Map<String, CompletableFuture<T>> batch;
+        synchronized (lock) {
+            if (pendingFetches.isEmpty()) return;
+            batch = pendingFetches;
+            pendingFetches = new LinkedHashMap<>();
+            cancel(fetchTimer);
+            fetchTimer = null;
+        }
+
+        flushSavesFor(batch.keySet());
+        afterWrites(batch.keySet())
+                .thenCompose(v -> delegate.fetchManyAsync(batch.keySet()))
+                .whenComplete((values, error) -> batch.forEach((key, future) -> {
+                    if (error != null) future.completeExceptionally(error);
+                    else future.complete(values.get(key));
+                }));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> fetchAllAsync() {
+        flushSaves();
+        CompletableFuture<Void> barrier;
+        synchronized (lock) {
+            barrier = barrier(new ArrayList<>(inFlightWrites.values()));
+        }
+        return barrier.thenCompose(v -> delegate.fetchAllAsync());
+    }
+
+    /* ------------------ SAVE ------------------ */
+
+    @Override
+    public CompletableFuture<Boolean> saveAsync(String key, T value) {
+        CompletableFuture<Boolean> result;
+        boolean full;
+        synchronized (lock) {
+            pendingSaves.put(key, value); // a later save of the same key in the window replaces the earlier one
+            result = pendingSaveResult;
+            if (pendingSaves.size() == 1) {
+                saveTimer = scheduler.schedule(this::flushSaves, windowNanos, TimeUnit.NANOSECONDS);
+            }
+            full = pendingSaves.size() >= maxBatchSize;
+        }
+
+        if (full) flushSaves();
+        return result.copy();
+    }
+
+    /**
+     * Sends the buffered saves now instead of waiting for the window to end.
+     */
+    public void flushSaves() {
+        SaveBatch<T> batch;
+        synchronized (lock) {
+            batch = takeSaves();
+        }
+        if (batch != null) batch.send(delegate);
+    }
+
+    private void flushSavesFor(Collection<String> keys) {
+        SaveBatch<T> batch = null;
+        synchronized (lock) {
+            for (String key : keys) {
+                if (pendingSaves.containsKey(key)) {
+                    batch = takeSaves();
+                    break;
+                }
+            }
+        }
+        if (batch != null) batch.send(delegate);
+    }
+
+    private @Nullable SaveBatch<T> takeSaves() {
+        if (pendingSaves.isEmpty()) return null;
+
+        Map<String, T> values = pendingSaves;
+        CompletableFuture<Boolean> result = pendingSaveResult;
+        pendingSaves = new LinkedHashMap<>();
+        pendingSaveResult = new CompletableFuture<>();
+        cancel(saveTimer);
+        saveTimer = null;
+
+        CompletableFuture<Void> previous = afterWritesLocked(values.keySet());
+        track(values.keySet(), result);
+        return new SaveBatch<>(values, previous, result);
+    }
+
+    private record SaveBatch<T>(Map<String, T> values, CompletableFuture<Void> previous, CompletableFuture<Boolean> result) {
+
+        void send(AsyncDatabase<T> delegate) {
+            previous.thenCompose(v -> delegate.saveManyAsync(values))
+                    .whenComplete((saved, error) -> {
+                        if (error != null) result.completeExceptionally(error);
+                        else result.complete(saved);
+                    });
+        }
+    }
+
+    /* ------------------ SINGLE-KEY WRITES ------------------ */
+
+    @Override
+    public CompletableFuture<Boolean> saveAsync(String key, T value, Duration timeout) {
+        return ordered(key, () -> delegate.saveAsync(key, value, timeout));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String key) {
+        return ordered(key, () -> delegate.deleteAsync(key));
+    }
+
+    /**
+     * @see VersionedDatabase#compareAndSaveAsync
+     * @throws IllegalStateException if the delegate is not a {@link VersionedDatabase}
+     */
+    public CompletableFuture<Boolean> compareAndSaveAsync(String key, long expectedVersion, T value) {
+        VersionedDatabase<T> versioned = VersionedDatabase.require(delegate);
+        return ordered(key, () -> versioned.compareAndSaveAsync(key, expectedVersion, value));
+    }
+
+    /**
+     * @see VersionedDatabase#updateAsync
+     * @throws IllegalStateException if the delegate is not a {@link VersionedDatabase}
+     */
+    public CompletableFuture<T> updateAsync(String key, UnaryOperator<T> updater) {
+        VersionedDatabase<T> versioned = VersionedDatabase.require(delegate);
+        return ordered(key, () -> versioned.updateAsync(key, updater));
+    }
+
+    /**
+     * Runs a write that cannot be batched after every earlier write to {@code key}, and makes later ones wait for it.
+     */
+    private <R> CompletableFuture<R> ordered(String key, Supplier<CompletableFuture<R>> write) {
+        flushSavesFor(List.of(key));
+        synchronized (lock) {
+            CompletableFuture<R> result = afterWritesLocked(List.of(key)).thenCompose(v -> write.get());
+            track(List.of(key), result);
+            return result;
+        }
+    }
+
+    /* ------------------ ORDERING ------------------ */
+
+    private CompletableFuture<Void> afterWrites(Collection<String> keys) {
+        synchronized (lock) {
+            return afterWritesLocked(keys);
+        }
+    }
+
+    private CompletableFuture<Void> afterWritesLocked(Collection<String> keys) {
+        List<CompletableFuture<?>> writes = new ArrayList<>();
+        for (String key : keys) {
+            CompletableFuture<?> write = inFlightWrites.get(key);
+            if (write != null) writes.add(write);
+        }
+        return barrier(writes);
+    }
+
+    /**
+     * Completes once every write has finished, whether it succeeded or not.
+     */
+    private static CompletableFuture<Void> barrier(List<CompletableFuture<?>> writes) {
+        if (writes.isEmpty()) return CompletableFuture.completedFuture(null);
+        return CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).handle((v, error) -> null);
+    }
+
+    private void track(Collection<String> keys, CompletableFuture<?> write) {
+        for (String key : keys) {
+            inFlightWrites.put(key, write);
+        }
+        write.whenComplete((v, error) -> {
+            synchronized (lock) {
+                for (String key : keys) {
+                    inFlightWrites.remove(key, write);
+                }
+            }
+        });
+    }
+
+    private static void cancel(@Nullable ScheduledFuture<?> timer) {
+        if (timer != null) timer.cancel(false);
+    }
+
+    /**
+     * Sends whatever is buffered and stops the flush timer. The delegate is left open.
+     */
+    @Override
+    public void close() {
+        flushFetches();
+        flushSaves();
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,38 @@
+package dev.charcoal.database.bridge.bloom;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Settings of a {@link BloomGuardedDatabase}. Processes sharing a bitmap must use the same key count and rate,
+ * since they decide where each key's bits are.
+ */
+@Getter
+@Builder
+public class BloomGuardOptions {
+
+    /** Keys the filter is sized for; a larger data set raises the false positive rate. */
+    @Builder.Default
+    private long expectedKeys = 1_000_000;
+    @Builder.Default
+    private double falsePositiveRate = 0.01;
+    /** Page size of the key scans that build the filter. */
+    @Builder.Default
+    private int scanBatchSize = 1000;
+    /**
+     * Rebuild the filter from a fresh scan this often, dropping positives left by expired keys and repeated
+     * saves; {@code null} to only build it at startup.
+     */
+    @Nullable
+    private Duration rebuildInterval;
+    /** Redis key prefix of the bitmap shared with other processes; {@code null} when this process is the only writer. */
+    @Nullable
+    private String sharedBitmapKey;
+
+    public static BloomGuardOptions defaults() {
+        return builder().build();
+    }
+}
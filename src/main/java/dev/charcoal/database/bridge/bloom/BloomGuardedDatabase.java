@@ -0,0 +1,420 @@
+package dev.charcoal.database.bridge.bloom;
+
+import dev.charcoal.database.bridge.AsyncDatabase;
+import dev.charcoal.database.bridge.ScannableDatabase;
+import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.VersionedDatabase;
+import io.lettuce.core.BitFieldArgs;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Answers fetches of keys that certainly do not exist without a round trip, using a {@link CountingBloomFilter}
+ * of the stored keys. The filter is built from a key scan in the background; until the scan completes every
+ * fetch goes to the backend.
+ * <p>
+ * Keys are added before every write and removed after a delete the backend reports as successful, so the
+ * filter may hold keys that are gone but never misses one that exists. For that to hold, every write to the
+ * backend must go through this instance, or through instances sharing a Redis bitmap. In shared mode, writes
+ * also set the key's bits in the bitmap and a local miss is confirmed there with a single {@code BITFIELD} call,
+ * which still costs far less than a database query. The bitmap is never cleared, so deletes on shared data only
+ * make the filter less selective.
+ * <pre>{@code
+ * BloomGuardedDatabase<User> users = new BloomGuardedDatabase<>(mysqlUsers, BloomGuardOptions.builder()
+ *         .expectedKeys(5_000_000)
+ *         .rebuildInterval(Duration.ofHours(6))
+ *         .build());
+ * }</pre>
+ */
+public class BloomGuardedDatabase<T> implements SyncDatabase<T>, AsyncDatabase<T>, VersionedDatabase<T>, AutoCloseable {
+
+    private final SyncDatabase<T> syncDelegate;
+    private final AsyncDatabase<T> asyncDelegate;
+    private final ScannableDatabase<T> scanDelegate;
+    private final BloomGuardOptions options;
+
+    private final ScheduledExecutorService scheduler;
+    @Nullable
+    private final StatefulRedisConnection<String, String> sharedConnection;
+    @Nullable
+    private final String bitmapKey;
+
+    /**
+     * Writers hold the read side while announcing a key; starting a rebuild takes the write side, so no key is
+     * announced to the old filter only.
+     */
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private volatile CountingBloomFilter filter;
+    @Nullable
+    private volatile CountingBloomFilter rebuilding;
+    private volatile boolean ready;
+    /** Bumped on every swap, so a delete that straddles one leaves the new filter alone. */
+    private volatile long generation;
+    /** Keys added to the filter whose write has not finished yet, with the number of such writes. */
+    private final Map<String, Integer> pendingWrites = new ConcurrentHashMap<>();
+
+    private final LongAdder skippedFetches = new LongAdder();
+
+    public <D extends SyncDatabase<T> & AsyncDatabase<T> & ScannableDatabase<T>> BloomGuardedDatabase(@NotNull D delegate,
+                                                                                                      @NotNull BloomGuardOptions options) {
+        this(delegate, options, null);
+    }
+
+    /**
+     * @param sharedClient Redis holding the bitmap named by {@link BloomGuardOptions#getSharedBitmapKey()}
+     */
+    public <D extends SyncDatabase<T> & AsyncDatabase<T> & ScannableDatabase<T>> BloomGuardedDatabase(@NotNull D delegate,
+                                                                                                      @NotNull BloomGuardOptions options,
+                                                                                                      @Nullable RedisClient sharedClient) {
+        if (sharedClient != null && options.getSharedBitmapKey() == null) {
+            throw new IllegalArgumentException("A shared Redis client needs a sharedBitmapKey");
+        }
+        this.syncDelegate = delegate;
+        this.asyncDelegate = delegate;
+        this.scanDelegate = delegate;
+        this.options = options;
+        this.filter = newFilter();
+
+        if (sharedClient != null) {
+            this.sharedConnection = sharedClient.connect();
+            // the layout is part of the name so processes with different settings never mix bits
+            this.bitmapKey = options.getSharedBitmapKey() + ":" + filter.getCounters() + ":" + filter.getHashes();
+        } else {
+            this.sharedConnection = null;
+            this.bitmapKey = null;
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BloomGuardedDatabase-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(this::rebuild);
+        Duration interval = options.getRebuildInterval();
+        if (interval != null) {
+            scheduler.scheduleWithFixedDelay(this::rebuild, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private CountingBloomFilter newFilter() {
+        return new CountingBloomFilter(options.getExpectedKeys(), options.getFalsePositiveRate());
+    }
+
+    /**
+     * {@code false} until the first key scan has completed; fetches are not filtered before that.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Fetches answered locally because the key certainly does not exist.
+     */
+    public long getSkippedFetches() {
+        return skippedFetches.sum();
+    }
+
+    /* ------------------ FILTER ------------------ */
+
+    /**
+     * Builds a new filter from a full key scan and swaps it in. Writes made meanwhile go to both filters, and
+     * writes still in flight when the scan starts are added up front, since the scan may already be past them.
+     */
+    private void rebuild() {
+        CountingBloomFilter next = newFilter();
+        rebuildLock.writeLock().lock();
+        try {
+            rebuilding = next;
+            pendingWrites.keySet().forEach(next::add);
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+
+        try {
+            String afterKey = null;
+            long keys = 0;
+            while (true) {
+                Map<String, T> page = scanDelegate.scan(afterKey, options.getScanBatchSize());
+                if (page.isEmpty()) break;
+                for (String key : page.keySet()) {
+                    next.add(key);
+                    afterKey = key;
+                }
+                publish(page.keySet()).join();
+                keys += page.size();
+            }
+
+            rebuildLock.writeLock().lock();
+            try {
+                filter = next;
+                rebuilding = null;
+                generation++;
+            } finally {
+                rebuildLock.writeLock().unlock();
+            }
+            ready = true;
+            System.out.println("[BloomGuardedDatabase] Filter built from " + keys + " keys");
+        } catch (RuntimeException e) {
+            rebuilding = null;
+            System.err.println("[BloomGuardedDatabase] Cannot build filter, " + (ready ? "keeping the previous one" : "fetches stay unfiltered")
+                    + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds {@code keys} to the filters before they are written and marks them pending until {@code write}
+     * completes, however it completes. A failed write may still have reached the backend, so keys stay in.
+     */
+    private <R> CompletableFuture<R> announced(Collection<String> keys, Supplier<CompletableFuture<R>> write) {
+        rebuildLock.readLock().lock();
+        try {
+            for (String key : keys) {
+                filter.add(key);
+                CountingBloomFilter next = rebuilding;
+                if (next != null) next.add(key);
+                pendingWrites.merge(key, 1, Integer::sum);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+
+        CompletableFuture<R> result;
+        try {
+            result = publish(keys).thenCompose(v -> write.get());
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((value, error) -> {
+            for (String key : keys) {
+                pendingWrites.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+            }
+        });
+    }
+
+    private <R> R announcedSync(Collection<String> keys, Supplier<R> write) {
+        return join(announced(keys, () -> CompletableFuture.completedFuture(write.get())));
+    }
+
+    /**
+     * Called once the backend confirmed the key was deleted. A filter still being built skips it, as its scan
+     * may not have counted the key, and so does one swapped in while the delete ran.
+     */
+    private void forget(String key, long startGeneration) {
+        rebuildLock.readLock().lock();
+        try {
+            if (generation == startGeneration) filter.remove(key);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private boolean mightExistLocally(String key) {
+        return !ready || filter.mightContain(key);
+    }
+
+    private CompletableFuture<Boolean> mightExist(String key) {
+        if (mightExistLocally(key)) return CompletableFuture.completedFuture(true);
+        if (sharedConnection == null) return CompletableFuture.completedFuture(false);
+
+        BitFieldArgs args = new BitFieldArgs();
+        for (int index : filter.indexes(key)) {
+            args.get(BitFieldArgs.unsigned(1), index);
+        }
+        return sharedConnection.async().bitfield(bitmapKey, args).toCompletableFuture()
+                .thenApply(bits -> bits.stream().allMatch(bit -> bit != null && bit == 1))
+                .exceptionally(e -> true); // without the bitmap, only the backend knows
+    }
+
+    private CompletableFuture<Void> publish(Collection<String> keys) {
+        if (sharedConnection == null || keys.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        RedisAsyncCommands<String, String> commands = sharedConnection.async();
+        BitFieldArgs args = new BitFieldArgs();
+        for (String key : keys) {
+            for (int index : filter.indexes(key)) {
+                args.set(BitFieldArgs.unsigned(1), index, 1);
+            }
+        }
+        return commands.bitfield(bitmapKey, args).toCompletableFuture()
+                .handle((v, e) -> {
+                    if (e != null) {
+                        System.err.println("[BloomGuardedDatabase] Cannot publish keys to " + bitmapKey + ": " + e.getMessage());
+                    }
+                    return null;
+                });
+    }
+
+    private static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+
+    /* ------------------ READS ------------------ */
+
+    @Override
+    public T fetch(String key) {
+        if (!join(mightExist(key))) {
+            skippedFetches.increment();
+            return null;
+        }
+        return syncDelegate.fetch(key);
+    }
+
+    @Override
+    public CompletableFuture<T> fetchAsync(String key) {
+        return mightExist(key).thenCompose(exists -> {
+            if (exists) return asyncDelegate.fetchAsync(key);
+            skippedFetches.increment();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    @Override
+    public Map<String, T> fetchMany(Collection<String> keys) {
+        List<String> candidates = join(candidates(keys));
+        return candidates.isEmpty() ? new LinkedHashMap<>() : syncDelegate.fetchMany(candidates);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, T>> fetchManyAsync(Collection<String> keys) {
+        return candidates(keys).thenCompose(candidates -> candidates.isEmpty()
+                ? CompletableFuture.completedFuture(new LinkedHashMap<>())
+                : asyncDelegate.fetchManyAsync(candidates));
+    }
+
+    private CompletableFuture<List<String>> candidates(Collection<String> keys) {
+        Map<String, CompletableFuture<Boolean>> checks = new LinkedHashMap<>();
+        for (String key : keys) {
+            checks.put(key, mightExist(key));
+        }
+        return CompletableFuture.allOf(checks.values().toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    List<String> candidates = new ArrayList<>(checks.size());
+                    checks.forEach((key, check) -> {
+                        if (check.join()) candidates.add(key);
+                        else skippedFetches.increment();
+                    });
+                    return candidates;
+                });
+    }
+
+    @Override
+    public List<T> fetchAll() {
+        return syncDelegate.fetchAll();
+    }
+
+    @Override
+    public CompletableFuture<List<T>> fetchAllAsync() {
+        return asyncDelegate.fetchAllAsync();
+    }
+
+    /* ------------------ WRITES ------------------ */
+
+    @Override
+    public boolean save(String key, T value) {
+        return announcedSync(List.of(key), () -> syncDelegate.save(key, value));
+    }
+
+    @Override
+    public boolean save(String key, T value, Duration timeout) {
+        return announcedSync(List.of(key), () -> syncDelegate.save(key, value, timeout));
+    }
+
+    @Override
+    public boolean saveMany(Map<String, T> values) {
+        return announcedSync(values.keySet(), () -> syncDelegate.saveMany(values));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveAsync(String key, T value) {
+        return announced(List.of(key), () -> asyncDelegate.saveAsync(key, value));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveAsync(String key, T value, Duration timeout) {
+        return announced(List.of(key), () -> asyncDelegate.saveAsync(key, value, timeout));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveManyAsync(Map<String, T> values) {
+        return announced(values.keySet(), () -> asyncDelegate.saveManyAsync(values));
+    }
+
+    // conditional writes may create the entry, so they are announced like saves
+
+    @Override
+    public boolean compareAndSave(String key, long expectedVersion, T value) {
+        VersionedDatabase<T> versioned = VersionedDatabase.require(syncDelegate);
+        return announcedSync(List.of(key), () -> versioned.compareAndSave(key, expectedVersion, value));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> compareAndSaveAsync(String key, long expectedVersion, T value) {
+        VersionedDatabase<T> versioned = VersionedDatabase.require(asyncDelegate);
+        return announced(List.of(key), () -> versioned.compareAndSaveAsync(key, expectedVersion, value));
+    }
+
+    @Override
+    public T update(String key, UnaryOperator<T> updater) {
+        VersionedDatabase<T> versioned = VersionedDatabase.require(syncDelegate);
+        return announcedSync(List.of(key), () -> versioned.update(key, updater));
+    }
+
+    @Override
+    public CompletableFuture<T> updateAsync(String key, UnaryOperator<T> updater) {
+        VersionedDatabase<T> versioned = VersionedDatabase.require(asyncDelegate);
+        return announced(List.of(key), () -> versioned.updateAsync(key, updater));
+    }
+
+    @Override
+    public boolean delete(String key) {
+        long startGeneration = generation;
+        boolean deleted = syncDelegate.delete(key);
+        if (deleted) forget(key, startGeneration);
+        return deleted;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String key) {
+        long startGeneration = generation;
+        return asyncDelegate.deleteAsync(key).thenApply(deleted -> {
+            if (deleted) forget(key, startGeneration);
+            return deleted;
+        });
+    }
+
+    /**
+     * Stops rebuilding and closes the bitmap connection. The delegate is left open.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        if (sharedConnection != null) sharedConnection.close();
+    }
+}
@@ -0,0 +1,125 @@
+package dev.charcoal.database.bridge.bloom;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter with 4-bit counters instead of bits, so keys can be removed again. Counters saturate at 15 and a
+ * saturated counter is never decremented, which keeps the filter free of false negatives at the cost of a few
+ * permanent positives. The memory is a single primitive array, half a byte per counter.
+ */
+public class CountingBloomFilter {
+
+    private static final int MAX_COUNT = 15;
+    private static final int COUNTERS_PER_WORD = 16;
+
+    private final int counters;
+    private final int hashes;
+    private final AtomicLongArray words;
+
+    /**
+     * @param expectedKeys      keys the filter is sized for; beyond that the false positive rate grows
+     * @param falsePositiveRate target rate at {@code expectedKeys}
+     */
+    public CountingBloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys <= 0) throw new IllegalArgumentException("expectedKeys must be positive");
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        }
+        this.counters = optimalCounters(expectedKeys, falsePositiveRate);
+        this.hashes = optimalHashes(expectedKeys, counters);
+        this.words = new AtomicLongArray((counters + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+    }
+
+    static int optimalCounters(long expectedKeys, double falsePositiveRate) {
+        double counters = -expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        return (int) Math.max(64, Math.min(Integer.MAX_VALUE - COUNTERS_PER_WORD, Math.ceil(counters)));
+    }
+
+    static int optimalHashes(long expectedKeys, int counters) {
+        return Math.max(1, (int) Math.round((double) counters / expectedKeys * Math.log(2)));
+    }
+
+    public int getCounters() {
+        return counters;
+    }
+
+    public int getHashes() {
+        return hashes;
+    }
+
+    public void add(String key) {
+        for (int index : indexes(key)) {
+            update(index, 1);
+        }
+    }
+
+    /**
+     * Only call this for a key that was added and is known to be gone, or other keys may start to look absent.
+     */
+    public void remove(String key) {
+        for (int index : indexes(key)) {
+            update(index, -1);
+        }
+    }
+
+    /**
+     * @return {@code false} only if {@code key} was never added, or was removed since
+     */
+    public boolean mightContain(String key) {
+        for (int index : indexes(key)) {
+            if (count(index) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Counter positions of {@code key}. They only depend on the key and the filter size, so every process with
+     * the same settings computes the same ones, which lets filters be shared as plain bitmaps.
+     */
+    int[] indexes(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        int[] indexes = new int[hashes];
+        for (int i = 0; i < hashes; i++) {
+            int combined = h1 + i * h2;
+            indexes[i] = (combined & Integer.MAX_VALUE) % counters;
+        }
+        return indexes;
+    }
+
+    private int count(int index) {
+        int shift = (index % COUNTERS_PER_WORD) * 4;
+        return (int) ((words.get(index / COUNTERS_PER_WORD) >>> shift) & 0xF);
+    }
+
+    private void update(int index, int delta) {
+        int word = index / COUNTERS_PER_WORD;
+        int shift = (index % COUNTERS_PER_WORD) * 4;
+        while (true) {
+            long current = words.get(word);
+            int count = (int) ((current >>> shift) & 0xF);
+            // a saturated counter may stand for more additions than it can show, so it stays put
+            if (count == MAX_COUNT || (delta < 0 && count == 0)) return;
+            long next = (current & ~(0xFL << shift)) | ((long) (count + delta) << shift);
+            if (words.compareAndSet(word, current, next)) return;
+        }
+    }
+
+    /**
+     * FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer. Stable across JVMs, unlike
+     * identity-based hashes, which the shared bitmap relies on.
+     */
+    private static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
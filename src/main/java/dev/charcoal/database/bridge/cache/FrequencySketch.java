@@ -0,0 +1,79 @@
+package dev.charcoal.database.bridge.cache;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count-min sketch estimating how often a key was seen, with TinyLFU-style aging: once {@code sampleSize}
+ * increments have been recorded every counter is halved, so the estimates follow the recent workload.
+ * Estimates never undercount the last window but may overcount on hash collisions.
+ */
+public class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private final int width;
+    private final int mask;
+    private final AtomicIntegerArray table;
+    private final long sampleSize;
+    private final LongAdder additions = new LongAdder();
+
+    /**
+     * @param expectedKeys roughly how many distinct keys are active at once; sizes the table
+     */
+    public FrequencySketch(int expectedKeys) {
+        this.width = Integer.highestOneBit(Math.max(64, expectedKeys) * 2 - 1);
+        this.mask = width - 1;
+        this.table = new AtomicIntegerArray(DEPTH * width);
+        this.sampleSize = 10L * width;
+    }
+
+    /**
+     * Records one occurrence of {@code key}.
+     *
+     * @return the new frequency estimate
+     */
+    public int increment(String key) {
+        int hash = spread(key.hashCode());
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, table.incrementAndGet(index(hash, row)));
+        }
+
+        additions.increment();
+        if (additions.sum() >= sampleSize) age();
+        return estimate;
+    }
+
+    public int frequency(String key) {
+        int hash = spread(key.hashCode());
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, table.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    private synchronized void age() {
+        if (additions.sum() < sampleSize) return; // another thread already aged
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, table.get(i) >>> 1);
+        }
+        additions.reset();
+    }
+
+    private int index(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return row * width + ((int) h & mask);
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
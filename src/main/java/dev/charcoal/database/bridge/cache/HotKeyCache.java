@@ -0,0 +1,70 @@
+package dev.charcoal.database.bridge.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Samples fetched keys into a {@link FrequencySketch} and keeps a short-lived local copy of keys whose
+ * estimated frequency crosses the threshold, so the hottest keys stop hitting the backend on every read.
+ * Copies are dropped on local writes and otherwise expire after the TTL, which bounds how stale they can be.
+ */
+public class HotKeyCache<T> {
+
+    private final FrequencySketch sketch;
+    private final int threshold;
+    private final Cache<String, T> localCopies;
+
+    /**
+     * @param threshold   estimated accesses within the sketch window before a key is promoted
+     * @param ttl         lifetime of a local copy
+     * @param maxHotKeys  upper bound on promoted keys
+     */
+    public HotKeyCache(int threshold, Duration ttl, int maxHotKeys) {
+        this.sketch = new FrequencySketch(maxHotKeys * 64);
+        this.threshold = threshold;
+        this.localCopies = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxHotKeys)
+                .build();
+    }
+
+    /**
+     * Records an access to {@code key} and returns its local copy if it is currently promoted.
+     */
+    public @Nullable T get(String key) {
+        sketch.increment(key);
+        return localCopies.getIfPresent(key);
+    }
+
+    /**
+     * Offers a freshly fetched value; it is kept locally only if the key is hot.
+     */
+    public void offer(String key, @Nullable T value) {
+        if (value == null) return;
+        if (sketch.frequency(key) >= threshold) {
+            localCopies.put(key, value);
+        }
+    }
+
+    public void invalidate(String key) {
+        localCopies.invalidate(key);
+    }
+
+    /**
+     * @return the promoted keys with their estimated access frequency, hottest first
+     */
+    public Map<String, Integer> getHotKeys() {
+        Map<String, Integer> hot = new LinkedHashMap<>();
+        localCopies.asMap().keySet().stream()
+                .map(key -> Map.entry(key, sketch.frequency(key)))
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+                .forEach(entry -> hot.put(entry.getKey(), entry.getValue()));
+        return hot;
+    }
+}
@@ -0,0 +1,40 @@
+package dev.charcoal.database.bridge.cache;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Settings of an {@link OffHeapCachedDatabase}. The capacity is taken from direct memory, so the JVM needs a
+ * {@code -XX:MaxDirectMemorySize} at least this large (it defaults to the maximum heap size).
+ */
+@Getter
+@Builder
+public class OffHeapCacheOptions {
+
+    /** Off-heap bytes the cache may allocate, headers and slab slack included. */
+    @Builder.Default
+    private long capacityBytes = 256L * 1024 * 1024;
+    /** Independently locked partitions, lowered for small capacities so each keeps enough slabs to balance its size classes. */
+    @Builder.Default
+    private int stripes = 64;
+    /** Unit of allocation; serialized entries larger than this are not cached. */
+    @Builder.Default
+    private int slabSize = 1024 * 1024;
+    /** Upper bound on how long an entry is served without going back to the backend; {@code null} for no bound. */
+    @Nullable
+    @Builder.Default
+    private Duration ttl = Duration.ofMinutes(10);
+    /**
+     * Lifetime of every filled entry, since the cache does not look up the expiry a key has in the backend. Keeps
+     * a key that expires in the backend from being served long after.
+     */
+    @Builder.Default
+    private Duration unknownExpiryTtl = Duration.ofSeconds(5);
+
+    public static OffHeapCacheOptions defaults() {
+        return builder().build();
+    }
+}
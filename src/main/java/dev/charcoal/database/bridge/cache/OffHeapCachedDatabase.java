@@ -0,0 +1,241 @@
+package dev.charcoal.database.bridge.cache;
+
+import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.VersionedDatabase;
+import dev.charcoal.database.bridge.utils.DataUtils;
+import dev.charcoal.database.bridge.utils.TypedSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-through cache in front of another backend that keeps entries serialized in direct memory, so it can
+ * hold far more than an on-heap cache without lengthening GC pauses. Values are stored as JSON and deserialized
+ * on every hit, which also means callers never share or mutate a cached instance.
+ * <p>
+ * Writes drop the cached copy before and after going to the backend, so the next read loads what the backend
+ * really holds. As in {@code RedisClientCache}, every key maps to an epoch bumped by its writes, and a read only
+ * fills the cache if the epoch did not move while it was in flight. Changes made by other processes are not seen
+ * until the entry expires, so {@link OffHeapCacheOptions#getTtl()} bounds staleness. Reads do not ask the backend
+ * how long a key has left, which would cost a second round trip per miss; instead every filled entry lives at most
+ * {@link OffHeapCacheOptions#getUnknownExpiryTtl()}, so a key expiring in the backend is not served much longer.
+ * <pre>{@code
+ * SyncDatabase<User> users = new OffHeapCachedDatabase<>(redisUsers, User.class,
+ *         OffHeapCacheOptions.builder().capacityBytes(20L << 30).build());
+ * }</pre>
+ */
+public class OffHeapCachedDatabase<T> implements SyncDatabase<T> {
+
+    private static final int EPOCH_STRIPES = 1024;
+
+    private final SyncDatabase<T> delegate;
+    private final TypedSerializer<T> serializer;
+    private final OffHeapStore store;
+    // the shorter of the configured ttl and unknownExpiryTtl
+    private final Duration lifetime;
+    private final AtomicLongArray epochs = new AtomicLongArray(EPOCH_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OffHeapCachedDatabase(@NotNull SyncDatabase<T> delegate, @NotNull Class<T> type, @NotNull OffHeapCacheOptions options) {
+        this.delegate = delegate;
+        this.serializer = DataUtils.serializer(type);
+        this.store = new OffHeapStore(options.getCapacityBytes(), options.getStripes(), options.getSlabSize());
+        Duration ttl = options.getTtl();
+        Duration unknownExpiryTtl = options.getUnknownExpiryTtl();
+        this.lifetime = ttl == null || unknownExpiryTtl.compareTo(ttl) < 0 ? unknownExpiryTtl : ttl;
+    }
+
+    public OffHeapCachedDatabase(@NotNull SyncDatabase<T> delegate, @NotNull Class<T> type) {
+        this(delegate, type, OffHeapCacheOptions.defaults());
+    }
+
+    /* ------------------ CACHE ------------------ */
+
+    private @Nullable T cached(String key) {
+        byte[] bytes = store.get(key);
+        if (bytes == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return serializer.fromBytes(bytes);
+    }
+
+    /**
+     * Caches what a read returned, unless a write to the key started since {@code epoch} was taken.
+     */
+    private void fill(String key, @Nullable T value, long epoch) {
+        if (value == null) return;
+        int stripe = stripe(key);
+        if (epochs.get(stripe) != epoch) return;
+
+        store.put(key, serializer.toBytes(value), System.currentTimeMillis() + lifetime.toMillis());
+        // a write landing between the check and the put would otherwise be undone by it
+        if (epochs.get(stripe) != epoch) store.remove(key);
+    }
+
+    /**
+     * Drops every cached entry; the backend is untouched.
+     */
+    public void invalidateAll() {
+        for (int i = 0; i < EPOCH_STRIPES; i++) {
+            epochs.incrementAndGet(i);
+        }
+        store.clear();
+    }
+
+    public void invalidate(String key) {
+        epochs.incrementAndGet(stripe(key));
+        store.remove(key);
+    }
+
+    private long epoch(String key) {
+        return epochs.get(stripe(key));
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & 0x7fffffff) % EPOCH_STRIPES;
+    }
+
+    /**
+     * Runs a backend write with the key invalidated on both sides of it, so neither a read in flight nor the
+     * copy cached before the write survives it.
+     */
+    private <R> R writing(String key, Supplier<R> write) {
+        invalidate(key);
+        try {
+            return write.get();
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return store.evictions();
+    }
+
+    public long getCachedEntries() {
+        return store.size();
+    }
+
+    /**
+     * Direct memory taken by slabs so far; grows up to the configured capacity.
+     */
+    public long getAllocatedBytes() {
+        return store.allocatedBytes();
+    }
+
+    /* ------------------ READS ------------------ */
+
+    @Override
+    public T fetch(String key) {
+        T value = cached(key);
+        if (value != null) return value;
+
+        long epoch = epoch(key);
+        value = delegate.fetch(key);
+        fill(key, value, epoch);
+        return value;
+    }
+
+    @Override
+    public Map<String, T> fetchMany(Collection<String> keys) {
+        Map<String, T> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            T value = cached(key);
+            if (value != null) result.put(key, value);
+            else missing.add(key);
+        }
+        if (missing.isEmpty()) return result;
+
+        long[] sent = new long[missing.size()];
+        for (int i = 0; i < sent.length; i++) sent[i] = epoch(missing.get(i));
+        Map<String, T> loaded = delegate.fetchMany(missing);
+        for (int i = 0; i < sent.length; i++) {
+            String key = missing.get(i);
+            fill(key, loaded.get(key), sent[i]);
+        }
+
+        // keep the order the caller asked for
+        Map<String, T> ordered = new LinkedHashMap<>();
+        for (String key : keys) {
+            T value = result.containsKey(key) ? result.get(key) : loaded.get(key);
+            if (value != null) ordered.put(key, value);
+        }
+        return ordered;
+    }
+
+    /**
+     * Always read from the backend; a full scan would only flush the cache.
+     */
+    @Override
+    public List<T> fetchAll() {
+        return delegate.fetchAll();
+    }
+
+    /* ------------------ WRITES ------------------ */
+
+    @Override
+    public boolean save(String key, T value) {
+        return writing(key, () -> delegate.save(key, value));
+    }
+
+    @Override
+    public boolean save(String key, T value, Duration timeout) {
+        return writing(key, () -> delegate.save(key, value, timeout));
+    }
+
+    @Override
+    public boolean saveMany(Map<String, T> values) {
+        values.keySet().forEach(this::invalidate);
+        try {
+            return delegate.saveMany(values);
+        } finally {
+            values.keySet().forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return writing(key, () -> delegate.delete(key));
+    }
+
+    /**
+     * @see VersionedDatabase#compareAndSave
+     * @throws IllegalStateException if the delegate is not a {@link VersionedDatabase}
+     */
+    public boolean compareAndSave(String key, long expectedVersion, T value) {
+        VersionedDatabase<T> versioned = VersionedDatabase.require(delegate);
+        return writing(key, () -> versioned.compareAndSave(key, expectedVersion, value));
+    }
+
+    /**
+     * @see VersionedDatabase#update
+     * @throws IllegalStateException if the delegate is not a {@link VersionedDatabase}
+     */
+    public T update(String key, UnaryOperator<T> updater) {
+        VersionedDatabase<T> versioned = VersionedDatabase.require(delegate);
+        return writing(key, () -> versioned.update(key, updater));
+    }
+}
@@ -0,0 +1,513 @@
+package dev.charcoal.database.bridge.cache;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * Byte store kept in direct memory, so millions of entries cost the garbage collector a few arrays per stripe
+ * instead of millions of objects.
+ * <p>
+ * Keys are split over independently locked stripes. Each stripe allocates fixed-size slabs from its share of the
+ * capacity and carves them into chunks of a few size classes, like memcached. Entries, key included, live in
+ * the chunks; the stripe's index is an open-addressing table of chunk addresses held in a primitive array.
+ * When a size class runs out of room, the CLOCK algorithm evicts an entry that was not read since the hand last
+ * passed, which approximates LRU. A class that owns no slab at all takes one over from the largest class.
+ */
+class OffHeapStore {
+
+    private static final int MIN_CHUNK_SIZE = 64;
+    private static final double GROWTH_FACTOR = 1.25;
+    private static final int MIN_SLABS_PER_STRIPE = 16;
+
+    // chunk layout: flags, hash, key length, value length, expiry, key bytes, value bytes
+    private static final int FLAGS = 0;
+    private static final int HASH = 1;
+    private static final int KEY_LENGTH = 5;
+    private static final int VALUE_LENGTH = 9;
+    private static final int EXPIRY = 13;
+    private static final int HEADER_SIZE = 21;
+
+    private static final byte USED = 1;
+    private static final byte REFERENCED = 2;
+
+    private final int slabSize;
+    private final int[] chunkSizes;
+    private final Stripe[] stripes;
+
+    OffHeapStore(long capacityBytes, int stripeCount, int slabSize) {
+        if (stripeCount <= 0) throw new IllegalArgumentException("stripes must be positive");
+        if (slabSize < MIN_CHUNK_SIZE) throw new IllegalArgumentException("slabSize must be at least " + MIN_CHUNK_SIZE);
+
+        this.slabSize = slabSize;
+        this.chunkSizes = chunkSizes(slabSize);
+
+        // a stripe with only a few slabs keeps taking them away from its size classes, so small caches get fewer
+        // stripes; every stripe still gets at least one slab, so a tiny capacity caches something
+        long totalSlabs = Math.max(1, capacityBytes / slabSize);
+        int effectiveStripes = (int) Math.max(1, Math.min(stripeCount, totalSlabs / MIN_SLABS_PER_STRIPE));
+        int slabsPerStripe = (int) Math.min(Integer.MAX_VALUE, Math.max(1, totalSlabs / effectiveStripes));
+        this.stripes = new Stripe[effectiveStripes];
+        for (int i = 0; i < effectiveStripes; i++) {
+            stripes[i] = new Stripe(slabsPerStripe);
+        }
+    }
+
+    private static int[] chunkSizes(int slabSize) {
+        List<Integer> sizes = new ArrayList<>();
+        double size = MIN_CHUNK_SIZE;
+        while (size < slabSize) {
+            int aligned = ((int) size + 7) & ~7;
+            if (sizes.isEmpty() || aligned > sizes.get(sizes.size() - 1)) sizes.add(aligned);
+            size *= GROWTH_FACTOR;
+        }
+        sizes.add(slabSize);
+        return sizes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int sizeClass(int entrySize) {
+        int index = Arrays.binarySearch(chunkSizes, entrySize);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    private Stripe stripeFor(int hash) {
+        // multiply-shift range reduction picks the stripe from the high bits, the index uses the low ones
+        return stripes[(int) (((hash & 0xFFFFFFFFL) * stripes.length) >>> 32)];
+    }
+
+    /**
+     * @return a copy of the value, or {@code null} when absent or expired
+     */
+    byte @Nullable [] get(String key) {
+        int hash = hash(key);
+        return stripeFor(hash).get(hash, key.getBytes(StandardCharsets.UTF_8), System.currentTimeMillis());
+    }
+
+    /**
+     * @param expireAt epoch millis after which the entry is dropped, or {@code 0} for never
+     * @return {@code false} if the entry is too large to be cached; any previous value is removed then
+     */
+    boolean put(String key, byte[] value, long expireAt) {
+        int hash = hash(key);
+        return stripeFor(hash).put(hash, key.getBytes(StandardCharsets.UTF_8), value, expireAt);
+    }
+
+    void remove(String key) {
+        int hash = hash(key);
+        stripeFor(hash).remove(hash, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void clear() {
+        for (Stripe stripe : stripes) stripe.clear();
+    }
+
+    long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) size += stripe.count();
+        return size;
+    }
+
+    long evictions() {
+        long evictions = 0;
+        for (Stripe stripe : stripes) evictions += stripe.evictions();
+        return evictions;
+    }
+
+    long allocatedBytes() {
+        long slabs = 0;
+        for (Stripe stripe : stripes) slabs += stripe.slabCount();
+        return slabs * slabSize;
+    }
+
+    private static long address(int slab, int offset) {
+        return ((long) slab << 32) | offset;
+    }
+
+    private static int slabOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+
+    /**
+     * Growable stack of chunk addresses.
+     */
+    private static class LongStack {
+
+        private long[] values = new long[16];
+        private int size;
+
+        void push(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        long pop() {
+            return values[--size];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void removeIf(LongPredicate predicate) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!predicate.test(values[i])) values[kept++] = values[i];
+            }
+            size = kept;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    private class SizeClass {
+
+        final int chunkSize;
+        final int chunksPerSlab;
+        final LongStack free = new LongStack();
+        int[] slabs = new int[4];
+        int slabCount;
+
+        // slab being carved into chunks, -1 when none
+        int carveSlab = -1;
+        int carveOffset;
+
+        // CLOCK hand
+        int handSlab;
+        int handChunk;
+
+        SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+            this.chunksPerSlab = slabSize / chunkSize;
+        }
+
+        void addSlab(int slab) {
+            if (slabCount == slabs.length) slabs = Arrays.copyOf(slabs, slabCount * 2);
+            slabs[slabCount++] = slab;
+            carveSlab = slab;
+            carveOffset = 0;
+        }
+
+        void removeSlab(int position) {
+            int slab = slabs[position];
+            slabs[position] = slabs[--slabCount];
+            if (carveSlab == slab) carveSlab = -1;
+            free.removeIf(address -> slabOf(address) == slab);
+            if (handSlab >= slabCount) {
+                handSlab = 0;
+                handChunk = 0;
+            }
+        }
+    }
+
+    private class Stripe {
+
+        private static final long EMPTY = -1;
+
+        private final int maxSlabs;
+        private ByteBuffer[] slabs = new ByteBuffer[4];
+        private int slabCount;
+        private final SizeClass[] classes;
+
+        // index: chunk address and key hash per slot, linear probing
+        private long[] slots;
+        private int[] hashes;
+        private int count;
+        private long evictions;
+        // slabs left unassigned by clear()
+        private int spare;
+
+        Stripe(int maxSlabs) {
+            this.maxSlabs = maxSlabs;
+            this.classes = new SizeClass[chunkSizes.length];
+            for (int i = 0; i < classes.length; i++) {
+                classes[i] = new SizeClass(chunkSizes[i]);
+            }
+            initIndex(16);
+        }
+
+        private void initIndex(int capacity) {
+            slots = new long[capacity];
+            hashes = new int[capacity];
+            Arrays.fill(slots, EMPTY);
+        }
+
+        synchronized byte @Nullable [] get(int hash, byte[] key, long now) {
+            int slot = find(hash, key);
+            if (slot < 0) return null;
+
+            long address = slots[slot];
+            ByteBuffer slab = slabs[slabOf(address)];
+            int offset = offsetOf(address);
+            long expireAt = slab.getLong(offset + EXPIRY);
+            if (expireAt != 0 && expireAt <= now) {
+                removeSlot(slot);
+                release(address);
+                return null;
+            }
+
+            slab.put(offset + FLAGS, (byte) (USED | REFERENCED));
+            byte[] value = new byte[slab.getInt(offset + VALUE_LENGTH)];
+            slab.get(offset + HEADER_SIZE + key.length, value);
+            return value;
+        }
+
+        synchronized boolean put(int hash, byte[] key, byte[] value, long expireAt) {
+            int existing = find(hash, key);
+            if (existing >= 0) {
+                long address = slots[existing];
+                removeSlot(existing);
+                release(address);
+            }
+
+            long entrySize = (long) HEADER_SIZE + key.length + value.length;
+            if (entrySize > slabSize) return false;
+
+            // allocating may evict, so the slot is looked up afterwards
+            long address = allocate(sizeClass((int) entrySize));
+            ByteBuffer slab = slabs[slabOf(address)];
+            int offset = offsetOf(address);
+            slab.put(offset + FLAGS, USED);
+            slab.putInt(offset + HASH, hash);
+            slab.putInt(offset + KEY_LENGTH, key.length);
+            slab.putInt(offset + VALUE_LENGTH, value.length);
+            slab.putLong(offset + EXPIRY, expireAt);
+            slab.put(offset + HEADER_SIZE, key);
+            slab.put(offset + HEADER_SIZE + key.length, value);
+
+            insert(hash, address);
+            return true;
+        }
+
+        synchronized void remove(int hash, byte[] key) {
+            int slot = find(hash, key);
+            if (slot < 0) return;
+            long address = slots[slot];
+            removeSlot(slot);
+            release(address);
+        }
+
+        /**
+         * Drops every entry. The slabs stay allocated and are handed out again before new ones.
+         */
+        synchronized void clear() {
+            for (SizeClass sizeClass : classes) {
+                sizeClass.free.clear();
+                sizeClass.slabCount = 0;
+                sizeClass.carveSlab = -1;
+                sizeClass.handSlab = 0;
+                sizeClass.handChunk = 0;
+            }
+            spare = slabCount;
+            initIndex(16);
+            count = 0;
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized long evictions() {
+            return evictions;
+        }
+
+        synchronized int slabCount() {
+            return slabCount;
+        }
+
+        /* ------------------ ALLOCATION ------------------ */
+
+        private long allocate(int classIndex) {
+            SizeClass sizeClass = classes[classIndex];
+            if (!sizeClass.free.isEmpty()) return sizeClass.free.pop();
+
+            if (sizeClass.carveSlab >= 0 && sizeClass.carveOffset + sizeClass.chunkSize <= slabSize) {
+                return carve(sizeClass);
+            }
+
+            if (spare > 0) {
+                sizeClass.addSlab(slabCount - spare--);
+                return carve(sizeClass);
+            }
+
+            if (slabCount < maxSlabs) {
+                if (slabCount == slabs.length) slabs = Arrays.copyOf(slabs, Math.min(maxSlabs, slabCount * 2));
+                slabs[slabCount] = ByteBuffer.allocateDirect(slabSize);
+                sizeClass.addSlab(slabCount++);
+                return carve(sizeClass);
+            }
+
+            if (sizeClass.slabCount > 0) return evictFrom(sizeClass);
+
+            sizeClass.addSlab(stealSlab());
+            return carve(sizeClass);
+        }
+
+        private long carve(SizeClass sizeClass) {
+            long address = address(sizeClass.carveSlab, sizeClass.carveOffset);
+            sizeClass.carveOffset += sizeClass.chunkSize;
+            return address;
+        }
+
+        /**
+         * Runs the CLOCK hand over the class's chunks, clearing reference bits until it meets an entry that was not
+         * read since the last pass. Every chunk of the class is in use here, since free and uncarved ones are taken first.
+         */
+        private long evictFrom(SizeClass sizeClass) {
+            long now = System.currentTimeMillis();
+            while (true) {
+                if (sizeClass.handChunk >= sizeClass.chunksPerSlab) {
+                    sizeClass.handChunk = 0;
+                    sizeClass.handSlab = (sizeClass.handSlab + 1) % sizeClass.slabCount;
+                }
+                int slabIndex = sizeClass.slabs[sizeClass.handSlab];
+                int offset = sizeClass.handChunk++ * sizeClass.chunkSize;
+                ByteBuffer slab = slabs[slabIndex];
+
+                byte flags = slab.get(offset + FLAGS);
+                long expireAt = slab.getLong(offset + EXPIRY);
+                boolean expired = expireAt != 0 && expireAt <= now;
+                if ((flags & REFERENCED) != 0 && !expired) {
+                    slab.put(offset + FLAGS, USED);
+                    continue;
+                }
+
+                long address = address(slabIndex, offset);
+                unindex(slab.getInt(offset + HASH), address);
+                evictions++;
+                return address;
+            }
+        }
+
+        /**
+         * Takes the slab under the hand of the class owning the most slabs, evicting everything in it.
+         */
+        private int stealSlab() {
+            SizeClass victim = classes[0];
+            for (SizeClass sizeClass : classes) {
+                if (sizeClass.slabCount > victim.slabCount) victim = sizeClass;
+            }
+
+            int position = victim.handSlab;
+            int slab = victim.slabs[position];
+            releaseSlab(victim, slab);
+            victim.removeSlab(position);
+            return slab;
+        }
+
+        /**
+         * Drops the index entries of every live chunk in a slab of {@code owner}.
+         */
+        private void releaseSlab(SizeClass owner, int slabIndex) {
+            ByteBuffer slab = slabs[slabIndex];
+            int carved = owner.carveSlab == slabIndex ? owner.carveOffset : owner.chunksPerSlab * owner.chunkSize;
+            for (int offset = 0; offset < carved; offset += owner.chunkSize) {
+                if ((slab.get(offset + FLAGS) & USED) == 0) continue;
+                unindex(slab.getInt(offset + HASH), address(slabIndex, offset));
+                slab.put(offset + FLAGS, (byte) 0);
+                evictions++;
+            }
+        }
+
+        private void release(long address) {
+            ByteBuffer slab = slabs[slabOf(address)];
+            int offset = offsetOf(address);
+            int size = HEADER_SIZE + slab.getInt(offset + KEY_LENGTH) + slab.getInt(offset + VALUE_LENGTH);
+            slab.put(offset + FLAGS, (byte) 0);
+            classes[sizeClass(size)].free.push(address);
+        }
+
+        /* ------------------ INDEX ------------------ */
+
+        private int find(int hash, byte[] key) {
+            int mask = slots.length - 1;
+            for (int i = hash & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+                if (hashes[i] == hash && keyEquals(slots[i], key)) return i;
+            }
+            return -1;
+        }
+
+        private boolean keyEquals(long address, byte[] key) {
+            ByteBuffer slab = slabs[slabOf(address)];
+            int offset = offsetOf(address);
+            if (slab.getInt(offset + KEY_LENGTH) != key.length) return false;
+            for (int i = 0; i < key.length; i++) {
+                if (slab.get(offset + HEADER_SIZE + i) != key[i]) return false;
+            }
+            return true;
+        }
+
+        private void insert(int hash, long address) {
+            if ((count + 1) * 4L > slots.length * 3L) resize();
+            int mask = slots.length - 1;
+            int i = hash & mask;
+            while (slots[i] != EMPTY) i = (i + 1) & mask;
+            slots[i] = address;
+            hashes[i] = hash;
+            count++;
+        }
+
+        private void unindex(int hash, long address) {
+            int mask = slots.length - 1;
+            for (int i = hash & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+                if (slots[i] == address) {
+                    removeSlot(i);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Backward-shift deletion, so lookups never need tombstones.
+         */
+        private void removeSlot(int slot) {
+            int mask = slots.length - 1;
+            int hole = slot;
+            for (int i = (hole + 1) & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+                int home = hashes[i] & mask;
+                // move the entry back unless its home lies cyclically within (hole, i]
+                boolean stays = hole <= i ? (hole < home && home <= i) : (hole < home || home <= i);
+                if (!stays) {
+                    slots[hole] = slots[i];
+                    hashes[hole] = hashes[i];
+                    hole = i;
+                }
+            }
+            slots[hole] = EMPTY;
+            count--;
+        }
+
+        private void resize() {
+            long[] oldSlots = slots;
+            int[] oldHashes = hashes;
+            initIndex(oldSlots.length * 2);
+            int mask = slots.length - 1;
+            for (int j = 0; j < oldSlots.length; j++) {
+                if (oldSlots[j] == EMPTY) continue;
+                int i = oldHashes[j] & mask;
+                while (slots[i] != EMPTY) i = (i + 1) & mask;
+                slots[i] = oldSlots[j];
+                hashes[i] = oldHashes[j];
+            }
+        }
+    }
+}
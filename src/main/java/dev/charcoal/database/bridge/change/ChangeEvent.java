@@ -0,0 +1,18 @@
+package dev.charcoal.database.bridge.change;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.jetbrains.annotations.Nullable;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class ChangeEvent<T> {
+
+    private final ChangeType type;
+    private final String key;
+    /** The value after the change; {@code null} for deletes, or if the entry was already gone when read. */
+    @Nullable
+    private final T value;
+}
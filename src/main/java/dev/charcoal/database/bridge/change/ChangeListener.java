@@ -0,0 +1,10 @@
+package dev.charcoal.database.bridge.change;
+
+@FunctionalInterface
+public interface ChangeListener<T> {
+
+    /**
+     * Called on the subscription's own thread, one event at a time in the order the backend reported them.
+     */
+    void onChange(ChangeEvent<T> event);
+}
@@ -0,0 +1,7 @@
+package dev.charcoal.database.bridge.change;
+
+public enum ChangeType {
+    INSERT,
+    UPDATE,
+    DELETE
+}
@@ -0,0 +1,10 @@
+package dev.charcoal.database.bridge.change;
+
+public interface Subscription extends AutoCloseable {
+
+    /**
+     * Stops delivering events and releases the underlying cursor, connection or watcher.
+     */
+    @Override
+    void close();
+}
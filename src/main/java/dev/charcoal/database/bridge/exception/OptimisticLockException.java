@@ -0,0 +1,12 @@
+package dev.charcoal.database.bridge.exception;
+
+public class OptimisticLockException extends RuntimeException {
+
+    public OptimisticLockException(String message) {
+        super(message);
+    }
+
+    public OptimisticLockException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
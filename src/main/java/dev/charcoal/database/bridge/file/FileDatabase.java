@@ -1,14 +1,40 @@
 package dev.charcoal.database.bridge.file;
 
 
+import dev.charcoal.database.bridge.ObservableDatabase;
 import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.change.ChangeListener;
+import dev.charcoal.database.bridge.change.Subscription;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
+import java.util.Map;
 
-public abstract class FileDatabase<O> implements SyncDatabase<O> {
+public abstract class FileDatabase<O> implements SyncDatabase<O>, ObservableDatabase<O> {
 
     protected abstract void refreshDatabase();
 
+    protected abstract File getBaseFile();
+
+    /**
+     * Live view of the loaded entries.
+     */
+    protected abstract Map<String, O> entries();
+
+    /**
+     * Reloads the file whenever it changes on disk and reports the entries that were added, changed or removed.
+     */
+    @Override
+    public Subscription subscribe(ChangeListener<O> listener) {
+        try {
+            return new FileWatchSubscription<>(this, listener);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot watch " + getBaseFile().getAbsolutePath(), e);
+        }
+    }
+
     @Deprecated
     @Override
     public boolean save(String key, O value) {
@@ -0,0 +1,118 @@
+package dev.charcoal.database.bridge.file;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.charcoal.database.bridge.change.ChangeEvent;
+import dev.charcoal.database.bridge.change.ChangeListener;
+import dev.charcoal.database.bridge.change.ChangeType;
+import dev.charcoal.database.bridge.change.Subscription;
+import dev.charcoal.database.bridge.utils.DataUtils;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the database file and, whenever it changes on disk, reloads it and diffs the entries against the
+ * previous version. Values are compared by their JSON tree, so entity classes need no {@code equals}.
+ */
+class FileWatchSubscription<O> implements Subscription {
+
+    // editors often save in several writes, wait for the file to settle before parsing it
+    private static final long SETTLE_MILLIS = 100;
+
+    private final FileDatabase<O> database;
+    private final ChangeListener<O> listener;
+    private final Path file;
+    private final WatchService watcher;
+    private Map<String, JsonNode> known;
+
+    FileWatchSubscription(FileDatabase<O> database, ChangeListener<O> listener) throws IOException {
+        this.database = database;
+        this.listener = listener;
+        this.file = database.getBaseFile().toPath().toAbsolutePath();
+        this.watcher = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+        database.refreshDatabase();
+        this.known = contents();
+
+        Thread thread = new Thread(this::run, "FileDatabase-watch-" + file.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (file.getFileName().equals(event.context())) changed = true;
+                    }
+                    key.reset();
+                    TimeUnit.MILLISECONDS.sleep(SETTLE_MILLIS);
+                } while ((key = watcher.poll()) != null);
+
+                if (changed) reload();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException ignored) {
+            // closed
+        }
+    }
+
+    private void reload() {
+        try {
+            database.refreshDatabase();
+        } catch (RuntimeException e) {
+            System.err.println("[FileDatabase] Cannot reload " + file + ", waiting for the next change: " + e.getMessage());
+            return;
+        }
+
+        Map<String, JsonNode> current = contents();
+        Map<String, O> values = database.entries();
+        current.forEach((key, node) -> {
+            JsonNode previous = known.get(key);
+            if (previous == null) emit(ChangeType.INSERT, key, values.get(key));
+            else if (!previous.equals(node)) emit(ChangeType.UPDATE, key, values.get(key));
+        });
+        known.keySet().forEach(key -> {
+            if (!current.containsKey(key)) emit(ChangeType.DELETE, key, null);
+        });
+        known = current;
+    }
+
+    private Map<String, JsonNode> contents() {
+        Map<String, JsonNode> contents = new HashMap<>();
+        database.entries().forEach((key, value) -> contents.put(key, DataUtils.mapper.valueToTree(value)));
+        return contents;
+    }
+
+    private void emit(ChangeType type, String key, O value) {
+        try {
+            listener.onChange(new ChangeEvent<>(type, key, value));
+        } catch (RuntimeException e) {
+            System.err.println("[FileDatabase] Change listener failed for key " + key);
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
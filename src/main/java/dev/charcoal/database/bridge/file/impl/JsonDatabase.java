@@ -1,24 +1,29 @@
 package dev.charcoal.database.bridge.file.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.charcoal.database.bridge.ScannableDatabase;
 import dev.charcoal.database.bridge.file.FileDatabase;
 import dev.charcoal.database.bridge.file.exception.JsonDatabaseException;
 import dev.charcoal.database.bridge.utils.DataUtils;
 import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
 
-public class JsonDatabase<O> extends FileDatabase<O> {
+public class JsonDatabase<O> extends FileDatabase<O> implements ScannableDatabase<O> {
 
     private final File baseFile;
     private final ObjectMapper mapper;
 
-    private final Map<String, O> map;
+    // sorted so scan() can page through it by key, concurrent since subscriptions reload it from their own thread
+    private final NavigableMap<String, O> map;
 
     @Getter
     private boolean loaded = false;
@@ -28,7 +33,7 @@ public class JsonDatabase<O> extends FileDatabase<O> {
     public JsonDatabase(File baseFile, Class<O> type) {
         this.baseFile = baseFile;
         this.mapper = DataUtils.mapper;
-        this.map = new HashMap<>();
+        this.map = new ConcurrentSkipListMap<>();
         this.type = type;
     }
 
@@ -45,8 +50,9 @@ public class JsonDatabase<O> extends FileDatabase<O> {
                     mapper.getTypeFactory().constructMapType(Map.class, String.class, type)
             );
 
-            map.clear();
+            // never expose an empty map to concurrent readers
             map.putAll(resultMap);
+            map.keySet().retainAll(resultMap.keySet());
             loaded = true;
         } catch (IOException e) {
             loaded = false;
@@ -70,6 +76,18 @@ public class JsonDatabase<O> extends FileDatabase<O> {
         return List.copyOf(map.values());
     }
 
+    @Override
+    public Map<String, O> scan(@Nullable String afterKey, int limit) {
+        if (!loaded) refreshDatabase();
+
+        Map<String, O> page = new LinkedHashMap<>();
+        for (Map.Entry<String, O> entry : (afterKey == null ? map : map.tailMap(afterKey, false)).entrySet()) {
+            if (page.size() >= limit) break;
+            page.put(entry.getKey(), entry.getValue());
+        }
+        return page;
+    }
+
     public CompletableFuture<O> fetchAsync(String key) {
         return CompletableFuture.supplyAsync(() -> fetch(key));
     }
@@ -78,4 +96,13 @@ public class JsonDatabase<O> extends FileDatabase<O> {
         return CompletableFuture.supplyAsync(this::fetchAll);
     }
 
+    @Override
+    protected File getBaseFile() {
+        return baseFile;
+    }
+
+    @Override
+    protected Map<String, O> entries() {
+        return map;
+    }
 }
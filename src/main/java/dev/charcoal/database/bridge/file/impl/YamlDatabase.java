@@ -2,6 +2,7 @@ package dev.charcoal.database.bridge.file.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import dev.charcoal.database.bridge.ScannableDatabase;
 import dev.charcoal.database.bridge.file.FileDatabase;
 import dev.charcoal.database.bridge.file.exception.YamlDatabaseException;
 import lombok.Getter;
@@ -9,16 +10,19 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
-public class YamlDatabase<O> extends FileDatabase<O> {
+public class YamlDatabase<O> extends FileDatabase<O> implements ScannableDatabase<O> {
 
     private final File baseFile;
     private final ObjectMapper mapper;
-    private final Map<String, O> map;
+    // sorted so scan() can page through it by key
+    private final NavigableMap<String, O> map;
     private final Class<O> type;
     private final String rootKey;
 
@@ -38,7 +42,7 @@ public class YamlDatabase<O> extends FileDatabase<O> {
     public YamlDatabase(File file, Class<O> type, @Nullable String rootKey) {
         this.baseFile = file;
         this.mapper = new ObjectMapper(new YAMLFactory());
-        this.map = new ConcurrentHashMap<>();
+        this.map = new ConcurrentSkipListMap<>();
         this.type = type;
         this.rootKey = rootKey;
     }
@@ -80,8 +84,9 @@ public class YamlDatabase<O> extends FileDatabase<O> {
                 return;
             }
 
-            map.clear();
+            // never expose an empty map to concurrent readers
             map.putAll(loadedMap);
+            map.keySet().retainAll(loadedMap.keySet());
             loaded = true;
 
         } catch (IOException e) {
@@ -104,6 +109,18 @@ public class YamlDatabase<O> extends FileDatabase<O> {
         return List.copyOf(map.values());
     }
 
+    @Override
+    public Map<String, O> scan(@Nullable String afterKey, int limit) {
+        if (!loaded) refreshDatabase();
+
+        Map<String, O> page = new LinkedHashMap<>();
+        for (Map.Entry<String, O> entry : (afterKey == null ? map : map.tailMap(afterKey, false)).entrySet()) {
+            if (page.size() >= limit) break;
+            page.put(entry.getKey(), entry.getValue());
+        }
+        return page;
+    }
+
     public CompletableFuture<O> fetchAsync(String key) {
         return CompletableFuture.supplyAsync(() -> fetch(key));
     }
@@ -111,4 +128,14 @@ public class YamlDatabase<O> extends FileDatabase<O> {
     public CompletableFuture<List<O>> fetchAllAsync() {
         return CompletableFuture.supplyAsync(this::fetchAll);
     }
+
+    @Override
+    protected File getBaseFile() {
+        return baseFile;
+    }
+
+    @Override
+    protected Map<String, O> entries() {
+        return map;
+    }
 }
@@ -0,0 +1,66 @@
+package dev.charcoal.database.bridge.key;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Converts typed keys to and from the String keys of {@link dev.charcoal.database.bridge.SyncDatabase}. Backends
+ * that store {@link Long} or {@link UUID} keys natively decode the String form back to the typed key when they
+ * bind it, so a BIGINT or BINARY(16) column is compared as such instead of as text.
+ */
+public interface KeyCodec<K> {
+
+    Class<K> keyType();
+
+    String encode(K key);
+
+    /**
+     * @throws IllegalArgumentException if {@code key} is not in this codec's format
+     */
+    K decode(String key);
+
+    /**
+     * Keys used as they are.
+     */
+    static KeyCodec<String> strings() {
+        return SimpleKeyCodec.STRINGS;
+    }
+
+    /**
+     * Decimal keys, stored as BIGINT by SQL backends and as int64 by Mongo.
+     */
+    static KeyCodec<Long> longs() {
+        return SimpleKeyCodec.LONGS;
+    }
+
+    /**
+     * Canonical 36 character UUIDs, stored as 16 bytes by SQL backends and as binary subtype 4 by Mongo.
+     */
+    static KeyCodec<UUID> uuids() {
+        return SimpleKeyCodec.UUIDS;
+    }
+
+    /**
+     * UUIDs as 22 characters of unpadded URL-safe Base64: the same native storage as {@link #uuids()}, but
+     * shorter keys where they are stored as text, as in Redis.
+     */
+    static KeyCodec<UUID> compactUuids() {
+        return SimpleKeyCodec.COMPACT_UUIDS;
+    }
+
+    /**
+     * Big-endian most then least significant bits, which is what MySQL's {@code UUID_TO_BIN} produces.
+     */
+    static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    static UUID fromBytes(byte[] bytes) {
+        if (bytes.length != 16) throw new IllegalArgumentException("A UUID takes 16 bytes, got " + bytes.length);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,31 @@
+package dev.charcoal.database.bridge.key;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link dev.charcoal.database.bridge.AsyncDatabase} with keys of type {@code K}.
+ */
+public interface KeyedAsyncDatabase<K, T> {
+
+    CompletableFuture<T> fetchAsync(K key);
+
+    CompletableFuture<List<T>> fetchAllAsync();
+
+    /**
+     * Fetches several keys at once. Missing keys are left out of the result.
+     */
+    CompletableFuture<Map<K, T>> fetchManyAsync(Collection<K> keys);
+
+    CompletableFuture<Boolean> saveAsync(K key, T value);
+
+    CompletableFuture<Boolean> saveAsync(K key, T value, Duration timeout);
+
+    CompletableFuture<Boolean> saveManyAsync(Map<K, T> values);
+
+    CompletableFuture<Boolean> deleteAsync(K key);
+
+}
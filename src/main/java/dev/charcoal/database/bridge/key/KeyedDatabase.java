@@ -0,0 +1,174 @@
+package dev.charcoal.database.bridge.key;
+
+import dev.charcoal.database.bridge.AsyncDatabase;
+import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.VersionedDatabase;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
+
+/**
+ * Typed-key view of a String-keyed database. Keys are encoded with the {@link KeyCodec} on the way in; results
+ * are mapped back to the caller's own key objects, so nothing is decoded on the way out.
+ * <p>
+ * SQL and Mongo backends built with a codec (see {@code DatabaseConnectionBuilder.keyCodec}) bind the keys natively
+ * and hand these out from {@code keyed(codec)}.
+ * Over any other backend the keys are stored in their encoded form:
+ * <pre>{@code
+ * KeyedDatabase<UUID, Session> sessions = new KeyedDatabase<>(redisSessions, KeyCodec.compactUuids());
+ * }</pre>
+ */
+public class KeyedDatabase<K, T> implements KeyedSyncDatabase<K, T>, KeyedAsyncDatabase<K, T> {
+
+    private final SyncDatabase<T> syncDelegate;
+    private final AsyncDatabase<T> asyncDelegate;
+    private final KeyCodec<K> codec;
+
+    public <D extends SyncDatabase<T> & AsyncDatabase<T>> KeyedDatabase(@NotNull D delegate, @NotNull KeyCodec<K> codec) {
+        this.syncDelegate = delegate;
+        this.asyncDelegate = delegate;
+        this.codec = codec;
+    }
+
+    public KeyCodec<K> getCodec() {
+        return codec;
+    }
+
+    private String encode(K key) {
+        return codec.encode(key);
+    }
+
+    /**
+     * Encoded keys in iteration order, to be matched up again by {@link #byKey}.
+     */
+    private List<String> encodeAll(Collection<K> keys) {
+        List<String> encoded = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            encoded.add(encode(key));
+        }
+        return encoded;
+    }
+
+    private Map<K, T> byKey(Collection<K> keys, List<String> encoded, Map<String, T> found) {
+        Map<K, T> result = new LinkedHashMap<>();
+        int i = 0;
+        for (K key : keys) {
+            T value = found.get(encoded.get(i++));
+            if (value != null) result.put(key, value);
+        }
+        return result;
+    }
+
+    private Map<String, T> encodeEntries(Map<K, T> values) {
+        Map<String, T> encoded = new LinkedHashMap<>();
+        values.forEach((key, value) -> encoded.put(encode(key), value));
+        return encoded;
+    }
+
+    /* ------------------ SYNC ------------------ */
+
+    @Override
+    public T fetch(K key) {
+        return syncDelegate.fetch(encode(key));
+    }
+
+    @Override
+    public List<T> fetchAll() {
+        return syncDelegate.fetchAll();
+    }
+
+    @Override
+    public Map<K, T> fetchMany(Collection<K> keys) {
+        List<String> encoded = encodeAll(keys);
+        return byKey(keys, encoded, syncDelegate.fetchMany(encoded));
+    }
+
+    @Override
+    public boolean save(K key, T value) {
+        return syncDelegate.save(encode(key), value);
+    }
+
+    @Override
+    public boolean save(K key, T value, Duration timeout) {
+        return syncDelegate.save(encode(key), value, timeout);
+    }
+
+    @Override
+    public boolean saveMany(Map<K, T> values) {
+        return syncDelegate.saveMany(encodeEntries(values));
+    }
+
+    @Override
+    public boolean delete(K key) {
+        return syncDelegate.delete(encode(key));
+    }
+
+    /**
+     * @see VersionedDatabase#compareAndSave
+     * @throws IllegalStateException if the delegate is not a {@link VersionedDatabase}
+     */
+    public boolean compareAndSave(K key, long expectedVersion, T value) {
+        return VersionedDatabase.<T>require(syncDelegate).compareAndSave(encode(key), expectedVersion, value);
+    }
+
+    /**
+     * @see VersionedDatabase#update
+     * @throws IllegalStateException if the delegate is not a {@link VersionedDatabase}
+     */
+    public T update(K key, UnaryOperator<T> updater) {
+        return VersionedDatabase.<T>require(syncDelegate).update(encode(key), updater);
+    }
+
+    /* ------------------ ASYNC ------------------ */
+
+    @Override
+    public CompletableFuture<T> fetchAsync(K key) {
+        return asyncDelegate.fetchAsync(encode(key));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> fetchAllAsync() {
+        return asyncDelegate.fetchAllAsync();
+    }
+
+    @Override
+    public CompletableFuture<Map<K, T>> fetchManyAsync(Collection<K> keys) {
+        List<String> encoded = encodeAll(keys);
+        return asyncDelegate.fetchManyAsync(encoded).thenApply(found -> byKey(keys, encoded, found));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveAsync(K key, T value) {
+        return asyncDelegate.saveAsync(encode(key), value);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveAsync(K key, T value, Duration timeout) {
+        return asyncDelegate.saveAsync(encode(key), value, timeout);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveManyAsync(Map<K, T> values) {
+        return asyncDelegate.saveManyAsync(encodeEntries(values));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(K key) {
+        return asyncDelegate.deleteAsync(encode(key));
+    }
+
+    public CompletableFuture<Boolean> compareAndSaveAsync(K key, long expectedVersion, T value) {
+        return VersionedDatabase.<T>require(asyncDelegate).compareAndSaveAsync(encode(key), expectedVersion, value);
+    }
+
+    public CompletableFuture<T> updateAsync(K key, UnaryOperator<T> updater) {
+        return VersionedDatabase.<T>require(asyncDelegate).updateAsync(encode(key), updater);
+    }
+}
@@ -0,0 +1,35 @@
+package dev.charcoal.database.bridge.key;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link dev.charcoal.database.bridge.SyncDatabase} with keys of type {@code K}.
+ */
+public interface KeyedSyncDatabase<K, T> {
+
+    T fetch(K key);
+
+    List<T> fetchAll();
+
+    /**
+     * Fetches several keys at once. Missing keys are left out of the result.
+     */
+    Map<K, T> fetchMany(Collection<K> keys);
+
+    boolean save(K key, T value);
+
+    boolean save(K key, T value, Duration timeout);
+
+    /**
+     * Saves several entries at once, without expiry.
+     *
+     * @return {@code true} if every entry was written
+     */
+    boolean saveMany(Map<K, T> values);
+
+    boolean delete(K key);
+
+}
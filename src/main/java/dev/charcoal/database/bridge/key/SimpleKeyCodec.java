@@ -0,0 +1,25 @@
+package dev.charcoal.database.bridge.key;
+
+import java.util.Base64;
+import java.util.UUID;
+import java.util.function.Function;
+
+record SimpleKeyCodec<K>(Class<K> keyType, Function<K, String> encoder, Function<String, K> decoder) implements KeyCodec<K> {
+
+    static final KeyCodec<String> STRINGS = new SimpleKeyCodec<>(String.class, key -> key, key -> key);
+    static final KeyCodec<Long> LONGS = new SimpleKeyCodec<>(Long.class, String::valueOf, Long::parseLong);
+    static final KeyCodec<UUID> UUIDS = new SimpleKeyCodec<>(UUID.class, UUID::toString, UUID::fromString);
+    static final KeyCodec<UUID> COMPACT_UUIDS = new SimpleKeyCodec<>(UUID.class,
+            uuid -> Base64.getUrlEncoder().withoutPadding().encodeToString(KeyCodec.toBytes(uuid)),
+            key -> KeyCodec.fromBytes(Base64.getUrlDecoder().decode(key)));
+
+    @Override
+    public String encode(K key) {
+        return encoder.apply(key);
+    }
+
+    @Override
+    public K decode(String key) {
+        return decoder.apply(key);
+    }
+}
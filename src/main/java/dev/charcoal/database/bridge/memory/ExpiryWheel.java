@@ -0,0 +1,87 @@
+package dev.charcoal.database.bridge.memory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Hashed timer wheel for entry expiry: scheduling is a queue append into the slot of the deadline's tick, and
+ * each tick only looks at its own slot. Deadlines more than one revolution away are put back until their turn.
+ * The wheel only removes entries eventually; reads check the deadline themselves.
+ */
+class ExpiryWheel {
+
+    interface ExpiryHandler {
+        void expire(String key, long expiresAt);
+    }
+
+    private static final long TICK_MILLIS = 100;
+    private static final int SLOTS = 1024; // ~100s per revolution
+
+    private static final class Timer {
+        final String key;
+        final long expiresAt;
+
+        Timer(String key, long expiresAt) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final AtomicReferenceArray<Queue<Timer>> slots = new AtomicReferenceArray<>(SLOTS);
+    private final ExpiryHandler handler;
+    private final ScheduledExecutorService ticker;
+    private volatile long lastTick;
+
+    ExpiryWheel(String name, ExpiryHandler handler) {
+        this.handler = handler;
+        for (int i = 0; i < SLOTS; i++) slots.set(i, new ConcurrentLinkedQueue<>());
+
+        this.lastTick = System.currentTimeMillis() / TICK_MILLIS;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MemoryDatabase-expiry-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(this::advance, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    void schedule(String key, long expiresAt) {
+        // rounded up so the slot is only visited once the deadline has passed, and never into a visited tick
+        long tick = Math.max((expiresAt + TICK_MILLIS - 1) / TICK_MILLIS, lastTick + 1);
+        slots.get(slotOf(tick)).add(new Timer(key, expiresAt));
+    }
+
+    private void advance() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / TICK_MILLIS;
+        // catches up on ticks missed by a late run, at most one revolution
+        for (long tick = Math.max(lastTick + 1, currentTick - SLOTS + 1); tick <= currentTick; tick++) {
+            int slot = slotOf(tick);
+            lastTick = tick;
+            Queue<Timer> due = slots.getAndSet(slot, new ConcurrentLinkedQueue<>());
+            for (Timer timer : due) {
+                if (timer.expiresAt > now) {
+                    schedule(timer.key, timer.expiresAt);
+                } else {
+                    try {
+                        handler.expire(timer.key, timer.expiresAt);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    private static int slotOf(long tick) {
+        return (int) (tick & (SLOTS - 1));
+    }
+
+    void close() {
+        ticker.shutdownNow();
+    }
+}
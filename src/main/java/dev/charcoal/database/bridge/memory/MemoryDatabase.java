@@ -0,0 +1,613 @@
+package dev.charcoal.database.bridge.memory;
+
+import dev.charcoal.database.bridge.AsyncDatabase;
+import dev.charcoal.database.bridge.MigratableDatabase;
+import dev.charcoal.database.bridge.ObservableDatabase;
+import dev.charcoal.database.bridge.RankableDatabase;
+import dev.charcoal.database.bridge.ScannableDatabase;
+import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.Transaction;
+import dev.charcoal.database.bridge.TransactionalDatabase;
+import dev.charcoal.database.bridge.VersionedDatabase;
+import dev.charcoal.database.bridge.change.ChangeEvent;
+import dev.charcoal.database.bridge.change.ChangeListener;
+import dev.charcoal.database.bridge.change.ChangeType;
+import dev.charcoal.database.bridge.change.Subscription;
+import dev.charcoal.database.bridge.memory.exception.MemoryDatabaseException;
+import dev.charcoal.database.bridge.migration.SnapshotReader;
+import dev.charcoal.database.bridge.migration.SnapshotWriter;
+import dev.charcoal.database.bridge.ranking.RankedCollection;
+import dev.charcoal.database.bridge.ranking.SkipListRanking;
+import dev.charcoal.database.bridge.utils.DataUtils;
+import dev.charcoal.database.bridge.utils.TypedSerializer;
+import dev.charcoal.database.bridge.utils.VersionAccessor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-process backend on a sorted concurrent map. It implements every capability of the remote backends
+ * (TTL, versioned writes, transactions, key-ordered scans and change subscriptions), so it can stand in for them
+ * in tests and benchmarks or serve single-node deployments that need no external store.
+ * <p>
+ * Expired entries are hidden from reads as soon as their deadline passes and removed by a timer wheel shortly
+ * after. Latency and failures can be injected to exercise callers' timeout and retry paths.
+ */
+public class MemoryDatabase<T> implements SyncDatabase<T>, AsyncDatabase<T>, TransactionalDatabase<T>,
+        ScannableDatabase<T>, ObservableDatabase<T>, RankableDatabase<T>, MigratableDatabase<T>,
+        VersionedDatabase<T> {
+
+    static final class Entry {
+        /** The value itself, or its JSON bytes when stored by value. */
+        final Object payload;
+        /** Epoch millis, or {@code 0} for no expiry. */
+        final long expiresAt;
+        final long version;
+
+        Entry(Object payload, long expiresAt, long version) {
+            this.payload = payload;
+            this.expiresAt = expiresAt;
+            this.version = version;
+        }
+
+        boolean isLive(long now) {
+            return expiresAt == 0 || expiresAt > now;
+        }
+    }
+
+    private final ConcurrentNavigableMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private final Class<T> type;
+    private final TypedSerializer<T> serializer;
+    private final boolean storeByValue;
+    @Nullable
+    private final VersionAccessor<T> versionAccessor;
+    private final ExpiryWheel expiryWheel;
+
+    // single writes share the read lock; a transaction commit takes the write lock to validate and apply atomically
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private final List<MemorySubscription<T>> subscriptions = new CopyOnWriteArrayList<>();
+    private final Map<String, SkipListRanking<T>> rankings = new ConcurrentHashMap<>();
+    private final ExecutorService executorService;
+
+    @Nullable
+    private final Path snapshotFile;
+    @Nullable
+    private final ScheduledExecutorService snapshotter;
+
+    private volatile long latencyNanos;
+    private volatile long latencyJitterNanos;
+    private volatile double failureRate;
+
+    public MemoryDatabase(@NotNull Class<T> type) {
+        this(type, MemoryOptions.defaults());
+    }
+
+    public MemoryDatabase(@NotNull Class<T> type, @NotNull MemoryOptions options) {
+        this.type = type;
+        this.serializer = DataUtils.serializer(type);
+        this.storeByValue = options.isStoreByValue();
+        this.versionAccessor = VersionAccessor.find(type);
+        this.expiryWheel = new ExpiryWheel(type.getSimpleName(), this::expire);
+        this.executorService = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "MemoryDatabase-async-" + type.getSimpleName());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        setLatency(options.getLatency());
+        setLatencyJitter(options.getLatencyJitter());
+        setFailureRate(options.getFailureRate());
+
+        this.snapshotFile = options.getSnapshotFile();
+        if (snapshotFile != null && Files.exists(snapshotFile)) restore(snapshotFile);
+
+        Duration interval = options.getSnapshotInterval();
+        if (snapshotFile != null && interval != null) {
+            this.snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "MemoryDatabase-snapshot-" + type.getSimpleName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            this.snapshotter = null;
+        }
+    }
+
+    /* ------------------ FAULT INJECTION ------------------ */
+
+    public void setLatency(@NotNull Duration latency) {
+        this.latencyNanos = latency.toNanos();
+    }
+
+    public void setLatencyJitter(@NotNull Duration jitter) {
+        this.latencyJitterNanos = jitter.toNanos();
+    }
+
+    public void setFailureRate(double failureRate) {
+        if (failureRate < 0 || failureRate > 1) throw new IllegalArgumentException("Failure rate must be between 0 and 1");
+        this.failureRate = failureRate;
+    }
+
+    private void simulate(String operation) {
+        long delay = latencyNanos;
+        if (latencyJitterNanos > 0) delay += ThreadLocalRandom.current().nextLong(latencyJitterNanos + 1);
+        if (delay > 0) LockSupport.parkNanos(delay);
+
+        double rate = failureRate;
+        if (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate) {
+            throw new MemoryDatabaseException("Injected failure in " + operation);
+        }
+    }
+
+    /* ------------------ STORAGE ------------------ */
+
+    private Object toPayload(T value) {
+        return storeByValue ? serializer.toBytes(value) : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T fromPayload(Object payload) {
+        return storeByValue ? serializer.fromBytes((byte[]) payload) : (T) payload;
+    }
+
+    @Nullable Entry liveEntry(String key) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.isLive(System.currentTimeMillis()) ? entry : null;
+    }
+
+    @Nullable T read(@Nullable Entry entry) {
+        return entry == null ? null : fromPayload(entry.payload);
+    }
+
+    void put(String key, T value, long expiresAt) {
+        Entry entry = new Entry(toPayload(value), expiresAt, versionAccessor == null ? 0 : versionAccessor.get(value));
+        Entry previous;
+        commitLock.readLock().lock();
+        try {
+            previous = entries.put(key, entry);
+        } finally {
+            commitLock.readLock().unlock();
+        }
+
+        if (expiresAt > 0) expiryWheel.schedule(key, expiresAt);
+        boolean existed = previous != null && previous.isLive(System.currentTimeMillis());
+        publish(existed ? ChangeType.UPDATE : ChangeType.INSERT, key, entry);
+    }
+
+    boolean remove(String key) {
+        Entry previous;
+        commitLock.readLock().lock();
+        try {
+            previous = entries.remove(key);
+        } finally {
+            commitLock.readLock().unlock();
+        }
+
+        boolean existed = previous != null && previous.isLive(System.currentTimeMillis());
+        if (existed) publish(ChangeType.DELETE, key, null);
+        return existed;
+    }
+
+    private void expire(String key, long expiresAt) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAt != expiresAt || entry.isLive(System.currentTimeMillis())) return;
+
+        boolean removed;
+        commitLock.readLock().lock();
+        try {
+            removed = entries.remove(key, entry);
+        } finally {
+            commitLock.readLock().unlock();
+        }
+        if (removed) publish(ChangeType.DELETE, key, null);
+    }
+
+    /**
+     * Applies a transaction if nothing it read has changed since.
+     *
+     * @param reads entry observed per key, {@code null} where the key was absent
+     */
+    boolean commit(Map<String, Entry> reads, Map<String, MemoryTransaction.Write<T>> writes) {
+        commitLock.writeLock().lock();
+        try {
+            for (Map.Entry<String, Entry> read : reads.entrySet()) {
+                if (liveEntry(read.getKey()) != read.getValue()) return false;
+            }
+            writes.forEach((key, write) -> {
+                if (write.isDelete()) remove(key);
+                else put(key, write.getValue(), write.getExpiresAt());
+            });
+            return true;
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+    }
+
+    /* ------------------ SYNC ------------------ */
+
+    @Override
+    public T fetch(String key) {
+        simulate("fetch");
+        return read(liveEntry(key));
+    }
+
+    @Override
+    public List<T> fetchAll() {
+        simulate("fetchAll");
+        long now = System.currentTimeMillis();
+        List<T> values = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.isLive(now)) values.add(fromPayload(entry.payload));
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, T> fetchMany(Collection<String> keys) {
+        simulate("fetchMany");
+        Map<String, T> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            T value = read(liveEntry(key));
+            if (value != null) result.put(key, value);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean save(String key, T value) {
+        simulate("save");
+        put(key, value, 0);
+        return true;
+    }
+
+    @Override
+    public boolean save(String key, T value, Duration timeout) {
+        simulate("save");
+        put(key, value, System.currentTimeMillis() + timeout.toMillis());
+        return true;
+    }
+
+    @Override
+    public boolean saveMany(Map<String, T> values) {
+        simulate("saveMany");
+        values.forEach((key, value) -> put(key, value, 0));
+        return true;
+    }
+
+    @Override
+    public boolean delete(String key) {
+        simulate("delete");
+        return remove(key);
+    }
+
+    @Override
+    public boolean compareAndSave(String key, long expectedVersion, T value) {
+        simulate("compareAndSave");
+        VersionAccessor<T> accessor = VersionAccessor.require(versionAccessor, type);
+        long previousVersion = accessor.get(value);
+        accessor.set(value, expectedVersion + 1);
+
+        Entry entry = new Entry(toPayload(value), 0, expectedVersion + 1);
+        boolean[] saved = {false};
+        boolean[] existed = {false};
+        commitLock.readLock().lock();
+        try {
+            // the skip list may run this more than once, so every run overwrites the outcome
+            entries.compute(key, (k, current) -> {
+                Entry live = current != null && current.isLive(System.currentTimeMillis()) ? current : null;
+                saved[0] = (live == null ? 0 : live.version) == expectedVersion;
+                existed[0] = live != null;
+                return saved[0] ? entry : current;
+            });
+        } finally {
+            commitLock.readLock().unlock();
+        }
+
+        if (!saved[0]) {
+            accessor.set(value, previousVersion);
+            return false;
+        }
+        publish(existed[0] ? ChangeType.UPDATE : ChangeType.INSERT, key, entry);
+        return true;
+    }
+
+    @Override
+    public T update(String key, UnaryOperator<T> updater) {
+        return VersionAccessor.require(versionAccessor, type).update(this, key, updater);
+    }
+
+    /**
+     * Optimistic transaction: reads are recorded, writes buffered, and the commit is rejected if any key read
+     * changed in the meantime.
+     *
+     * @return {@code false} on a conflicting write
+     */
+    @Override
+    public boolean transaction(Consumer<Transaction<T>> work) {
+        simulate("transaction");
+        MemoryTransaction<T> tx = new MemoryTransaction<>(this);
+        work.accept(tx);
+        return tx.commit();
+    }
+
+    /* ------------------ MIGRATION ------------------ */
+
+    @Override
+    public @Nullable Duration timeToLive(String key) {
+        simulate("timeToLive");
+        Entry entry = liveEntry(key);
+        if (entry == null || entry.expiresAt == 0) return null;
+        return Duration.ofMillis(Math.max(1, entry.expiresAt - System.currentTimeMillis()));
+    }
+
+    @Override
+    public boolean saveIfAbsent(String key, T value, @Nullable Duration timeout) {
+        simulate("saveIfAbsent");
+        long expiresAt = timeout == null ? 0 : System.currentTimeMillis() + timeout.toMillis();
+        Entry entry = new Entry(toPayload(value), expiresAt, versionAccessor == null ? 0 : versionAccessor.get(value));
+        boolean[] saved = {false};
+        commitLock.readLock().lock();
+        try {
+            entries.compute(key, (k, current) -> {
+                saved[0] = current == null || !current.isLive(System.currentTimeMillis());
+                return saved[0] ? entry : current;
+            });
+        } finally {
+            commitLock.readLock().unlock();
+        }
+
+        if (!saved[0]) return false;
+        if (expiresAt > 0) expiryWheel.schedule(key, expiresAt);
+        publish(ChangeType.INSERT, key, entry);
+        return true;
+    }
+
+    @Override
+    public boolean deleteIfVersion(String key, long expectedVersion) {
+        simulate("deleteIfVersion");
+        VersionAccessor.require(versionAccessor, type);
+        boolean[] deleted = {false};
+        commitLock.readLock().lock();
+        try {
+            entries.computeIfPresent(key, (k, current) -> {
+                deleted[0] = current.isLive(System.currentTimeMillis()) && current.version == expectedVersion;
+                return deleted[0] ? null : current;
+            });
+        } finally {
+            commitLock.readLock().unlock();
+        }
+
+        if (deleted[0]) publish(ChangeType.DELETE, key, null);
+        return deleted[0];
+    }
+
+    /* ------------------ SCANS ------------------ */
+
+    @Override
+    public Map<String, T> scan(@Nullable String afterKey, int limit) {
+        simulate("scan");
+        return collect(afterKey == null ? entries : entries.tailMap(afterKey, false), null, limit);
+    }
+
+    /**
+     * @return live entries whose key starts with {@code prefix}, in key order
+     */
+    public Map<String, T> scanPrefix(@NotNull String prefix) {
+        simulate("scanPrefix");
+        return collect(entries.tailMap(prefix, true), prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return live entries with {@code fromInclusive <= key < toExclusive}, in key order
+     */
+    public Map<String, T> range(@NotNull String fromInclusive, @NotNull String toExclusive) {
+        simulate("range");
+        return collect(entries.subMap(fromInclusive, true, toExclusive, false), null, Integer.MAX_VALUE);
+    }
+
+    private Map<String, T> collect(Map<String, Entry> source, @Nullable String prefix, int limit) {
+        long now = System.currentTimeMillis();
+        Map<String, T> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> entry : source.entrySet()) {
+            if (result.size() >= limit) break;
+            if (prefix != null && !entry.getKey().startsWith(prefix)) break;
+            if (entry.getValue().isLive(now)) result.put(entry.getKey(), fromPayload(entry.getValue().payload));
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of live entries; counts them, so it is linear in the size of the map
+     */
+    public int size() {
+        long now = System.currentTimeMillis();
+        return (int) entries.values().stream().filter(entry -> entry.isLive(now)).count();
+    }
+
+    public void clear() {
+        entries.keySet().forEach(this::remove);
+    }
+
+    /**
+     * Rankings live in memory next to the entries but are not part of snapshots.
+     */
+    @Override
+    public RankedCollection<T> ranking(String name) {
+        return rankings.computeIfAbsent(name, ignored -> new SkipListRanking<>(this));
+    }
+
+    /* ------------------ CHANGES ------------------ */
+
+    @Override
+    public Subscription subscribe(ChangeListener<T> listener) {
+        MemorySubscription<T> subscription = new MemorySubscription<>(listener, subscriptions::remove);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    private void publish(ChangeType type, String key, @Nullable Entry entry) {
+        if (subscriptions.isEmpty()) return;
+        ChangeEvent<T> event = new ChangeEvent<>(type, key, read(entry));
+        subscriptions.forEach(subscription -> subscription.publish(event));
+    }
+
+    /* ------------------ SNAPSHOTS ------------------ */
+
+    /**
+     * Writes every live entry, with its expiry, to the configured snapshot file. The file is replaced atomically,
+     * so a crash mid-write leaves the previous snapshot intact.
+     *
+     * @return the number of entries written
+     */
+    public long snapshot() {
+        if (snapshotFile == null) throw new MemoryDatabaseException("No snapshot file configured");
+
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        long now = System.currentTimeMillis();
+        long count;
+        try (SnapshotWriter<T> writer = new SnapshotWriter<>(temp, type)) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Entry value = entry.getValue();
+                if (!value.isLive(now)) continue;
+                if (storeByValue) writer.writeSerialized(entry.getKey(), (byte[]) value.payload, value.expiresAt);
+                else writer.write(entry.getKey(), fromPayload(value.payload), value.expiresAt);
+            }
+            writer.finish();
+            count = writer.getCount();
+        } catch (IOException e) {
+            throw new MemoryDatabaseException("Cannot write snapshot " + snapshotFile, e);
+        }
+
+        try {
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new MemoryDatabaseException("Cannot replace snapshot " + snapshotFile, e);
+        }
+        return count;
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void restore(Path file) {
+        long now = System.currentTimeMillis();
+        try (SnapshotReader<T> reader = new SnapshotReader<>(file, type)) {
+            reader.forEachRemaining((key, value, expiresAt) -> {
+                if (expiresAt != 0 && expiresAt <= now) return;
+                entries.put(key, new Entry(toPayload(value), expiresAt, versionAccessor == null ? 0 : versionAccessor.get(value)));
+                if (expiresAt > 0) expiryWheel.schedule(key, expiresAt);
+            });
+            System.out.println("[MemoryDatabase] Restored " + entries.size() + " entries from " + file);
+        } catch (IOException e) {
+            throw new MemoryDatabaseException("Cannot read snapshot " + file, e);
+        }
+    }
+
+    /* ------------------ ASYNC ------------------ */
+
+    /**
+     * Without injected latency the work is cheaper than a thread hop, so it completes on the calling thread.
+     */
+    private <R> CompletableFuture<R> async(Supplier<R> work) {
+        if (latencyNanos == 0 && latencyJitterNanos == 0) {
+            try {
+                return CompletableFuture.completedFuture(work.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(work, executorService);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> transactionAsync(Consumer<Transaction<T>> work) {
+        return async(() -> transaction(work));
+    }
+
+    @Override
+    public CompletableFuture<T> fetchAsync(String key) {
+        return async(() -> fetch(key));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> fetchAllAsync() {
+        return async(this::fetchAll);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, T>> fetchManyAsync(Collection<String> keys) {
+        return async(() -> fetchMany(keys));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveAsync(String key, T value) {
+        return async(() -> save(key, value));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveAsync(String key, T value, Duration timeout) {
+        return async(() -> save(key, value, timeout));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveManyAsync(Map<String, T> values) {
+        return async(() -> saveMany(values));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String key) {
+        return async(() -> delete(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> compareAndSaveAsync(String key, long expectedVersion, T value) {
+        return async(() -> compareAndSave(key, expectedVersion, value));
+    }
+
+    @Override
+    public CompletableFuture<T> updateAsync(String key, UnaryOperator<T> updater) {
+        return async(() -> update(key, updater));
+    }
+
+    /**
+     * Writes a final snapshot when one is configured and stops the background threads.
+     */
+    public void close() {
+        if (snapshotter != null) snapshotter.shutdownNow();
+        if (snapshotFile != null) snapshot();
+        expiryWheel.close();
+        executorService.shutdown();
+        subscriptions.forEach(MemorySubscription::close);
+    }
+}
@@ -0,0 +1,44 @@
+package dev.charcoal.database.bridge.memory;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of a {@link MemoryDatabase}. Latency and failure injection can also be changed at runtime.
+ */
+@Getter
+@Builder
+public class MemoryOptions {
+
+    /**
+     * Store serialized copies, like the remote backends do, so callers mutating a fetched or saved object never
+     * change what is stored. Turn off for zero-copy embedded use.
+     */
+    @Builder.Default
+    private boolean storeByValue = true;
+
+    /** Loaded on startup when it exists and written on {@link MemoryDatabase#close()}. */
+    @Nullable
+    private Path snapshotFile;
+    /** Also write the snapshot periodically; {@code null} for close and manual {@link MemoryDatabase#snapshot()} only. */
+    @Nullable
+    private Duration snapshotInterval;
+
+    /** Added to every operation. */
+    @Builder.Default
+    private Duration latency = Duration.ZERO;
+    /** Random extra latency, uniformly between zero and this. */
+    @Builder.Default
+    private Duration latencyJitter = Duration.ZERO;
+    /** Probability, between 0 and 1, that an operation fails with a {@code MemoryDatabaseException}. */
+    @Builder.Default
+    private double failureRate = 0;
+
+    public static MemoryOptions defaults() {
+        return builder().build();
+    }
+}
@@ -0,0 +1,50 @@
+package dev.charcoal.database.bridge.memory;
+
+import dev.charcoal.database.bridge.change.ChangeEvent;
+import dev.charcoal.database.bridge.change.ChangeListener;
+import dev.charcoal.database.bridge.change.Subscription;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Delivers events on its own thread so a slow listener never holds up writers.
+ */
+class MemorySubscription<T> implements Subscription {
+
+    private final ChangeListener<T> listener;
+    private final Consumer<MemorySubscription<T>> onClose;
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "MemoryDatabase-changes");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    MemorySubscription(ChangeListener<T> listener, Consumer<MemorySubscription<T>> onClose) {
+        this.listener = listener;
+        this.onClose = onClose;
+    }
+
+    void publish(ChangeEvent<T> event) {
+        try {
+            dispatcher.execute(() -> {
+                try {
+                    listener.onChange(event);
+                } catch (RuntimeException e) {
+                    System.err.println("[MemoryDatabase] Change listener failed for key " + event.getKey());
+                    e.printStackTrace();
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // closed
+        }
+    }
+
+    @Override
+    public void close() {
+        onClose.accept(this);
+        dispatcher.shutdown();
+    }
+}
@@ -0,0 +1,63 @@
+package dev.charcoal.database.bridge.memory;
+
+import dev.charcoal.database.bridge.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records the entry seen for every key read and buffers writes until commit, where
+ * {@link MemoryDatabase#commit} checks the reads are still current.
+ */
+class MemoryTransaction<T> implements Transaction<T> {
+
+    @Getter
+    @AllArgsConstructor
+    static class Write<T> {
+        private final T value;
+        private final long expiresAt;
+        private final boolean delete;
+    }
+
+    private final MemoryDatabase<T> database;
+    private final Map<String, MemoryDatabase.Entry> reads = new HashMap<>();
+    private final Map<String, Write<T>> writes = new LinkedHashMap<>();
+
+    MemoryTransaction(MemoryDatabase<T> database) {
+        this.database = database;
+    }
+
+    @Override
+    public T fetch(String key) {
+        Write<T> write = writes.get(key);
+        if (write != null) return write.isDelete() ? null : write.getValue();
+
+        MemoryDatabase.Entry entry = database.liveEntry(key);
+        if (!reads.containsKey(key)) reads.put(key, entry);
+        return database.read(reads.get(key));
+    }
+
+    @Override
+    public void save(String key, T value) {
+        writes.put(key, new Write<>(value, 0, false));
+    }
+
+    @Override
+    public void save(String key, T value, Duration timeout) {
+        writes.put(key, new Write<>(value, System.currentTimeMillis() + timeout.toMillis(), false));
+    }
+
+    @Override
+    public void delete(String key) {
+        writes.put(key, new Write<>(null, 0, true));
+    }
+
+    boolean commit() {
+        if (writes.isEmpty()) return true;
+        return database.commit(reads, writes);
+    }
+}
@@ -0,0 +1,12 @@
+package dev.charcoal.database.bridge.memory.exception;
+
+public class MemoryDatabaseException extends RuntimeException {
+
+    public MemoryDatabaseException(String message) {
+        super(message);
+    }
+
+    public MemoryDatabaseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
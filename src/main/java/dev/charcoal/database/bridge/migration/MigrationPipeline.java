@@ -0,0 +1,236 @@
+package dev.charcoal.database.bridge.migration;
+
+import dev.charcoal.database.bridge.ScannableDatabase;
+import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.migration.exception.MigrationException;
+import dev.charcoal.database.bridge.priority.OperationClass;
+import lombok.Builder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Copies every entry of a {@link ScannableDatabase} into a {@link SyncDatabase}.
+ * <p>
+ * One thread reads the source page by page in key order while a pool of writers stores each page with
+ * {@link SyncDatabase#saveMany}, so at most {@code writerThreads * 2} pages are held in memory. Since pages
+ * finish out of order, the checkpoint only advances to the last key of the longest run of completed pages;
+ * a restarted pipeline resumes after it and at worst rewrites a few pages, which upserts make harmless.
+ * <p>
+ * Reads and writes run as {@link OperationClass#BACKGROUND} calls unless {@link #run()} is called from an
+ * interactive block, so the copy yields connections to live traffic on both ends.
+ * <pre>{@code
+ * MigrationPipeline.<User>builder()
+ *         .source(mysqlUsers)
+ *         .target(mongoUsers)
+ *         .checkpointFile(Path.of("users.checkpoint"))
+ *         .maxRecordsPerSecond(50_000)
+ *         .build()
+ *         .run();
+ * }</pre>
+ */
+public class MigrationPipeline<T> {
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_WRITER_THREADS = 4;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final Duration DEFAULT_PROGRESS_INTERVAL = Duration.ofSeconds(10);
+
+    private final ScannableDatabase<T> source;
+    private final SyncDatabase<T> target;
+    private final int batchSize;
+    private final int writerThreads;
+    private final long maxRecordsPerSecond;
+    private final int maxRetries;
+    @Nullable
+    private final Path checkpointFile;
+    private final Duration progressInterval;
+    private final Consumer<MigrationProgress> progressListener;
+
+    private final LongAdder read = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private long startNanos;
+
+    // pages that finished ahead of an older, still running one
+    private final TreeMap<Long, String> completedPages = new TreeMap<>();
+    private long nextPageToCommit;
+    @Nullable
+    private volatile String checkpointKey;
+
+    /**
+     * @param maxRecordsPerSecond 0 for no throttling
+     * @param checkpointFile      where the last contiguous key is kept; the run resumes from it when it exists.
+     *                            Delete it to start over.
+     * @param progressListener    defaults to logging to stdout
+     */
+    @Builder
+    private MigrationPipeline(@NotNull ScannableDatabase<T> source, @NotNull SyncDatabase<T> target,
+                              int batchSize, int writerThreads, long maxRecordsPerSecond, int maxRetries,
+                              @Nullable Path checkpointFile, @Nullable Duration progressInterval,
+                              @Nullable Consumer<MigrationProgress> progressListener) {
+        this.source = source;
+        this.target = target;
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+        this.writerThreads = writerThreads > 0 ? writerThreads : DEFAULT_WRITER_THREADS;
+        this.maxRecordsPerSecond = maxRecordsPerSecond;
+        this.maxRetries = maxRetries > 0 ? maxRetries : DEFAULT_MAX_RETRIES;
+        this.checkpointFile = checkpointFile;
+        this.progressInterval = progressInterval != null ? progressInterval : DEFAULT_PROGRESS_INTERVAL;
+        this.progressListener = progressListener != null
+                ? progressListener
+                : progress -> System.out.println("[MigrationPipeline] " + progress);
+    }
+
+    /**
+     * Runs the copy on the calling thread until the source is exhausted.
+     *
+     * @throws MigrationException if a page still fails after the retries; the checkpoint is left at the last
+     *                            key known to be written
+     */
+    public MigrationProgress run() {
+        String afterKey = readCheckpoint();
+        checkpointKey = afterKey;
+        if (afterKey != null) System.out.println("[MigrationPipeline] Resuming after key " + afterKey);
+
+        startNanos = System.nanoTime();
+        OperationClass operationClass = OperationClass.currentOr(OperationClass.BACKGROUND);
+        TokenBucket throttle = maxRecordsPerSecond > 0 ? new TokenBucket(maxRecordsPerSecond) : null;
+        Semaphore inFlight = new Semaphore(writerThreads * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "MigrationPipeline-writer-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MigrationPipeline-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = progressInterval.toMillis();
+        reporter.scheduleAtFixedRate(() -> progressListener.accept(progress()), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            long pageNumber = 0;
+            while (failure.get() == null) {
+                String pageAfter = afterKey;
+                Map<String, T> page = operationClass.call(() -> source.scan(pageAfter, batchSize));
+                if (page.isEmpty()) break;
+
+                read.add(page.size());
+                for (String key : page.keySet()) afterKey = key;
+                if (throttle != null) throttle.acquire(page.size());
+
+                inFlight.acquireUninterruptibly();
+                long number = pageNumber++;
+                String lastKey = afterKey;
+                writers.execute(() -> {
+                    try {
+                        operationClass.run(() -> writePage(page));
+                        written.add(page.size());
+                        pageCompleted(number, lastKey);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+
+            writers.shutdown();
+            if (!writers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                throw new MigrationException("Writers did not finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Migration interrupted, checkpoint at " + checkpointKey, e);
+        } finally {
+            writers.shutdownNow();
+            reporter.shutdownNow();
+        }
+
+        MigrationProgress progress = progress();
+        if (failure.get() != null) {
+            throw new MigrationException("Migration stopped, checkpoint at " + checkpointKey, failure.get());
+        }
+        progressListener.accept(progress);
+        return progress;
+    }
+
+    public MigrationProgress progress() {
+        return new MigrationProgress(read.sum(), written.sum(), retries.sum(),
+                Duration.ofNanos(System.nanoTime() - startNanos), checkpointKey);
+    }
+
+    private void writePage(Map<String, T> page) {
+        RuntimeException lastError = null;
+        for (int attempt = 1; attempt <= maxRetries; attempt++) {
+            try {
+                if (target.saveMany(page)) return;
+            } catch (RuntimeException e) {
+                lastError = e;
+            }
+
+            if (attempt < maxRetries) {
+                retries.increment();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100L << attempt));
+            }
+        }
+        throw new MigrationException("Failed to write " + page.size() + " entries after " + maxRetries + " attempts", lastError);
+    }
+
+    private synchronized void pageCompleted(long number, String lastKey) {
+        completedPages.put(number, lastKey);
+        String advancedTo = null;
+        while (completedPages.containsKey(nextPageToCommit)) {
+            advancedTo = completedPages.remove(nextPageToCommit++);
+        }
+
+        if (advancedTo != null) {
+            checkpointKey = advancedTo;
+            writeCheckpoint(advancedTo);
+        }
+    }
+
+    private @Nullable String readCheckpoint() {
+        if (checkpointFile == null || !Files.exists(checkpointFile)) return null;
+        try {
+            String key = Files.readString(checkpointFile, StandardCharsets.UTF_8);
+            return key.isEmpty() ? null : key;
+        } catch (IOException e) {
+            throw new MigrationException("Cannot read checkpoint " + checkpointFile, e);
+        }
+    }
+
+    private void writeCheckpoint(String key) {
+        if (checkpointFile == null) return;
+        try {
+            Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            Files.writeString(temp, key, StandardCharsets.UTF_8);
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new MigrationException("Cannot write checkpoint " + checkpointFile, e);
+        }
+    }
+}
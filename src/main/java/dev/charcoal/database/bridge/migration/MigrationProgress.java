@@ -0,0 +1,35 @@
+package dev.charcoal.database.bridge.migration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Point-in-time counters of a running {@link MigrationPipeline}.
+ */
+@Getter
+@AllArgsConstructor
+public class MigrationProgress {
+
+    private final long read;
+    private final long written;
+    /** Batch writes that failed and were retried. */
+    private final long retries;
+    private final Duration elapsed;
+    /** Every key up to and including this one has been written; {@code null} before the first batch lands. */
+    @Nullable
+    private final String checkpointKey;
+
+    public double getRecordsPerSecond() {
+        long millis = elapsed.toMillis();
+        return millis == 0 ? 0 : written * 1000d / millis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d read, %,d written (%,.0f/s), %d retries, %ds elapsed, checkpoint=%s",
+                read, written, getRecordsPerSecond(), retries, elapsed.toSeconds(), checkpointKey);
+    }
+}
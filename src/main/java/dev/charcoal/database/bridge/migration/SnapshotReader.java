@@ -0,0 +1,180 @@
+package dev.charcoal.database.bridge.migration;
+
+import dev.charcoal.database.bridge.ScannableDatabase;
+import dev.charcoal.database.bridge.migration.exception.MigrationException;
+import dev.charcoal.database.bridge.utils.Compression;
+import dev.charcoal.database.bridge.utils.DataUtils;
+import dev.charcoal.database.bridge.utils.TypedSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Reads a snapshot written by {@link SnapshotWriter}. It is forward-only: {@link #scan} must be called with the
+ * last key of the previous page, except for the first call, which may pass a checkpoint key to skip everything
+ * up to and including it. That makes it a valid {@link MigrationPipeline} source for resumable imports.
+ */
+public class SnapshotReader<T> implements ScannableDatabase<T>, Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final DataInputStream in;
+    private final TypedSerializer<T> serializer;
+    private final Compression compression;
+    private final int version;
+
+    private boolean started;
+    private boolean finished;
+    @Nullable
+    private String lastKey;
+    private long count;
+
+    public SnapshotReader(@NotNull Path file, @NotNull Class<T> type) throws IOException {
+        this(Files.newInputStream(file), type);
+    }
+
+    public SnapshotReader(@NotNull InputStream input, @NotNull Class<T> type) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(input, BUFFER_SIZE));
+        this.serializer = DataUtils.serializer(type);
+        this.compression = Compression.lz4(); // decompression only looks at the header byte
+
+        byte[] magic = new byte[SnapshotWriter.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, SnapshotWriter.MAGIC)) {
+            throw new MigrationException("Not a snapshot file");
+        }
+        this.version = in.readUnsignedByte();
+        if (version < 1 || version > SnapshotWriter.FORMAT_VERSION) {
+            throw new MigrationException("Unsupported snapshot version " + version);
+        }
+    }
+
+    @Override
+    public synchronized Map<String, T> scan(@Nullable String afterKey, int limit) {
+        Map<String, T> page = new LinkedHashMap<>();
+        try {
+            if (!started) {
+                started = true;
+                if (afterKey != null) skipThrough(afterKey);
+            } else if (!Objects.equals(afterKey, lastKey)) {
+                throw new MigrationException("Snapshot can only be read forward, expected scan after " + lastKey);
+            }
+
+            while (page.size() < limit && !finished) {
+                String key = readKey();
+                if (key == null) break;
+                readExpiry();
+                page.put(key, serializer.fromBytes(compression.decompress(readBytes())));
+                lastKey = key;
+            }
+        } catch (IOException e) {
+            throw new MigrationException("Cannot read snapshot", e);
+        }
+        return page;
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler<T> {
+        /**
+         * @param expiresAt epoch millis, or {@code 0} for no expiry
+         */
+        void accept(String key, T value, long expiresAt);
+    }
+
+    /**
+     * Hands every remaining record, with its expiry, to {@code handler}. Unlike {@link #scan}, entries that
+     * expire are included so the caller decides what to do with them.
+     *
+     * @return the number of records read
+     */
+    public synchronized long forEachRemaining(RecordHandler<T> handler) {
+        started = true;
+        long read = 0;
+        try {
+            String key;
+            while (!finished && (key = readKey()) != null) {
+                long expiresAt = readExpiry();
+                handler.accept(key, serializer.fromBytes(compression.decompress(readBytes())), expiresAt);
+                lastKey = key;
+                read++;
+            }
+        } catch (IOException e) {
+            throw new MigrationException("Cannot read snapshot", e);
+        }
+        return read;
+    }
+
+    private long readExpiry() throws IOException {
+        return version >= 2 ? readVarInt() : 0;
+    }
+
+    private void skipThrough(String checkpointKey) throws IOException {
+        String key;
+        while ((key = readKey()) != null) {
+            readExpiry();
+            in.skipNBytes(readVarInt());
+            lastKey = key;
+            if (key.equals(checkpointKey)) return;
+        }
+        throw new MigrationException("Checkpoint key " + checkpointKey + " is not in this snapshot");
+    }
+
+    /**
+     * @return the next key, or {@code null} at the end marker
+     */
+    private @Nullable String readKey() throws IOException {
+        int tag;
+        try {
+            tag = in.readUnsignedByte();
+        } catch (EOFException e) {
+            throw new MigrationException("Snapshot is truncated after " + count + " records", e);
+        }
+
+        if (tag == SnapshotWriter.END) {
+            long expected = readVarInt();
+            finished = true;
+            if (expected != count) {
+                throw new MigrationException("Snapshot declares " + expected + " records but holds " + count);
+            }
+            return null;
+        }
+        if (tag != SnapshotWriter.RECORD) throw new MigrationException("Corrupt snapshot, unknown tag " + tag);
+
+        count++;
+        return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes() throws IOException {
+        byte[] bytes = new byte[(int) readVarInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private long readVarInt() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new MigrationException("Corrupt snapshot, varint too long");
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
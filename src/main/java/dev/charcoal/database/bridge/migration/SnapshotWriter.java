@@ -0,0 +1,187 @@
+package dev.charcoal.database.bridge.migration;
+
+import dev.charcoal.database.bridge.MigratableDatabase;
+import dev.charcoal.database.bridge.ScannableDatabase;
+import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.migration.exception.MigrationException;
+import dev.charcoal.database.bridge.utils.Compression;
+import dev.charcoal.database.bridge.utils.DataUtils;
+import dev.charcoal.database.bridge.utils.TypedSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes a binary snapshot: the {@link #MAGIC} header and a format version, then one record per entry
+ * (tag {@code 1}, varint key length, UTF-8 key, varint expiry in epoch millis or {@code 0}, varint payload length,
+ * JSON payload compressed with {@link Compression}), and finally tag {@code 0} followed by the varint record
+ * count so truncated files are detected on import. Read it back with {@link SnapshotReader}.
+ * <p>
+ * The trailer is only written by {@link #finish()}. Closing an unfinished writer leaves its stream without one,
+ * so a failed export is never mistaken for a complete snapshot, and deletes the file when it was opened by path.
+ */
+public class SnapshotWriter<T> implements Closeable {
+
+    static final byte[] MAGIC = {'D', 'B', 'S', 'N'};
+    static final int FORMAT_VERSION = 2; // 1 had no expiry field
+    static final int RECORD = 1;
+    static final int END = 0;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
+    private final DataOutputStream out;
+    private final TypedSerializer<T> serializer;
+    private final Compression compression;
+    @Nullable
+    private final Path file;
+    private long count;
+    private boolean finished;
+
+    public SnapshotWriter(@NotNull Path file, @NotNull Class<T> type) throws IOException {
+        this(Files.newOutputStream(file), type, Compression.lz4(), file);
+    }
+
+    public SnapshotWriter(@NotNull OutputStream output, @NotNull Class<T> type, @NotNull Compression compression) throws IOException {
+        this(output, type, compression, null);
+    }
+
+    private SnapshotWriter(OutputStream output, Class<T> type, Compression compression, @Nullable Path file) throws IOException {
+        this.file = file;
+        this.out = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+        this.serializer = DataUtils.serializer(type);
+        this.compression = compression;
+
+        out.write(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+    }
+
+    /**
+     * Streams every entry of {@code source} into {@code file} in key order, one page at a time. Entries of a
+     * {@link MigratableDatabase} keep their expiry; other sources are written without one.
+     *
+     * @return the number of records written
+     */
+    public static <T> long export(@NotNull ScannableDatabase<T> source, @NotNull Class<T> type, @NotNull Path file) {
+        try (SnapshotWriter<T> writer = new SnapshotWriter<>(file, type)) {
+            String afterKey = null;
+            Map<String, T> page;
+            while (!(page = source.scan(afterKey, EXPORT_PAGE_SIZE)).isEmpty()) {
+                Map<String, Long> expiries = expiries(source, page);
+                for (Map.Entry<String, T> entry : page.entrySet()) {
+                    Long expiresAt = expiries.get(entry.getKey());
+                    if (expiresAt != null) writer.write(entry.getKey(), entry.getValue(), expiresAt);
+                    afterKey = entry.getKey();
+                }
+            }
+            writer.finish();
+            return writer.count;
+        } catch (IOException e) {
+            throw new MigrationException("Cannot export snapshot to " + file, e);
+        }
+    }
+
+    /**
+     * Looks up when every entry of a scanned page expires, leaving out those gone since the scan: a key with no
+     * time to live either never expires or no longer exists, and a vanished one written without expiry would
+     * come back for good on import.
+     */
+    private static <T> Map<String, Long> expiries(ScannableDatabase<T> source, Map<String, T> page) {
+        Map<String, Long> expiries = new HashMap<>();
+        if (!(source instanceof MigratableDatabase<?> migratable)) {
+            for (String key : page.keySet()) expiries.put(key, 0L);
+            return expiries;
+        }
+
+        List<String> unexpiring = new ArrayList<>();
+        for (String key : page.keySet()) {
+            Duration timeToLive = migratable.timeToLive(key);
+            if (timeToLive != null) expiries.put(key, System.currentTimeMillis() + timeToLive.toMillis());
+            else unexpiring.add(key);
+        }
+        if (unexpiring.isEmpty()) return expiries;
+
+        Set<String> live = source instanceof SyncDatabase<?> database
+                ? database.fetchMany(unexpiring).keySet()
+                : Set.copyOf(unexpiring);
+        for (String key : unexpiring) {
+            if (live.contains(key)) expiries.put(key, 0L);
+        }
+        return expiries;
+    }
+
+    public void write(String key, T value) throws IOException {
+        write(key, value, 0);
+    }
+
+    /**
+     * @param expiresAt epoch millis, or {@code 0} for no expiry
+     */
+    public void write(String key, T value, long expiresAt) throws IOException {
+        writeSerialized(key, serializer.toBytes(value), expiresAt);
+    }
+
+    /**
+     * Writes a value that is already serialized to JSON, skipping a decode/encode round trip.
+     */
+    public void writeSerialized(String key, byte[] json, long expiresAt) throws IOException {
+        if (finished) throw new IllegalStateException("Snapshot already finished");
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = compression.compress(json);
+
+        out.writeByte(RECORD);
+        writeVarInt(out, keyBytes.length);
+        out.write(keyBytes);
+        writeVarInt(out, expiresAt);
+        writeVarInt(out, payload.length);
+        out.write(payload);
+        count++;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Writes the trailer once every record is written. Call it only on success: without a trailer the file is
+     * rejected as truncated on import.
+     */
+    public void finish() throws IOException {
+        if (finished) return;
+        out.writeByte(END);
+        writeVarInt(out, count);
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            if (!finished && file != null) Files.deleteIfExists(file);
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
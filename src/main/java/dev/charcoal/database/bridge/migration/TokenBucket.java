@@ -0,0 +1,36 @@
+package dev.charcoal.database.bridge.migration;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Throughput throttle allowing a one-second burst. A request larger than the bucket runs into debt, so batches
+ * bigger than the per-second rate still pass, just spaced out.
+ */
+class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(long tokensPerSecond) {
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.capacity = tokensPerSecond;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    void acquire(int permits) {
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) LockSupport.parkNanos(waitNanos);
+    }
+
+    private synchronized long reserve(int permits) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+
+        tokens -= permits;
+        return tokens >= 0 ? 0 : (long) (-tokens / tokensPerNano);
+    }
+}
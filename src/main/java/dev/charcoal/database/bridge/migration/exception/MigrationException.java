@@ -0,0 +1,12 @@
+package dev.charcoal.database.bridge.migration.exception;
+
+public class MigrationException extends RuntimeException {
+
+    public MigrationException(String message) {
+        super(message);
+    }
+
+    public MigrationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,114 @@
+package dev.charcoal.database.bridge.mongo;
+
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import dev.charcoal.database.bridge.change.ChangeEvent;
+import dev.charcoal.database.bridge.change.ChangeListener;
+import dev.charcoal.database.bridge.change.ChangeType;
+import dev.charcoal.database.bridge.change.Subscription;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tails a collection change stream on its own thread. The resume token is kept after every batch, so a dropped
+ * connection resumes where it stopped instead of losing events. Change streams need a replica set or sharded
+ * cluster; on a standalone server the stream fails and keeps retrying.
+ * <p>
+ * When the key is not mapped to {@code _id}, deletes are resolved through document pre-images, which are enabled
+ * on the collection when subscribing.
+ */
+class MongoChangeStream<T> implements Subscription {
+
+    private static final long MAX_AWAIT_MILLIS = 500;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final MongoDatabase<T> database;
+    private final ChangeListener<T> listener;
+    private final Thread thread;
+    private volatile boolean closed;
+    private BsonDocument resumeToken;
+
+    MongoChangeStream(MongoDatabase<T> database, ChangeListener<T> listener) {
+        this.database = database;
+        this.listener = listener;
+        database.ensurePreImages();
+
+        // opened on the caller's thread so nothing written after subscribe() returns is missed
+        MongoChangeStreamCursor<ChangeStreamDocument<T>> first = open();
+        this.thread = new Thread(() -> run(first), "MongoDatabase-changes-" + database.getCollection().getNamespace());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<T>> open() {
+        ChangeStreamIterable<T> stream = database.getCollection()
+                .watch()
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(MAX_AWAIT_MILLIS, TimeUnit.MILLISECONDS);
+        if (!database.getMongoIdName().equals("_id")) {
+            stream = stream.fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE);
+        }
+        if (resumeToken != null) stream = stream.startAfter(resumeToken);
+        return stream.cursor();
+    }
+
+    private void run(MongoChangeStreamCursor<ChangeStreamDocument<T>> cursor) {
+        while (!closed) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<T>> current = cursor != null ? cursor : open()) {
+                cursor = null;
+                while (!closed) {
+                    ChangeStreamDocument<T> change = current.tryNext();
+                    if (current.getResumeToken() != null) resumeToken = current.getResumeToken();
+                    if (change != null) dispatch(change);
+                }
+            } catch (Exception e) {
+                if (closed) return;
+                System.err.println("[MongoDatabase] Change stream interrupted, resuming: " + e.getMessage());
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RETRY_DELAY_MILLIS));
+            }
+        }
+    }
+
+    private void dispatch(ChangeStreamDocument<T> change) {
+        ChangeEvent<T> event = switch (change.getOperationType()) {
+            case INSERT -> new ChangeEvent<>(ChangeType.INSERT, keyOf(change), change.getFullDocument());
+            case UPDATE, REPLACE -> new ChangeEvent<>(ChangeType.UPDATE, keyOf(change), change.getFullDocument());
+            case DELETE -> new ChangeEvent<>(ChangeType.DELETE, keyOf(change), null);
+            default -> null; // drop, rename and invalidate carry no entry
+        };
+        if (event == null) return;
+        if (event.getKey() == null) {
+            // pre-images expire with the oplog, so a delete replayed late may have lost its own
+            System.err.println("[MongoDatabase] Dropped a " + event.getType() + " event without a key, its pre-image is gone");
+            return;
+        }
+
+        try {
+            listener.onChange(event);
+        } catch (RuntimeException e) {
+            System.err.println("[MongoDatabase] Change listener failed for key " + event.getKey());
+            e.printStackTrace();
+        }
+    }
+
+    private String keyOf(ChangeStreamDocument<T> change) {
+        if (change.getFullDocument() != null) return database.keyOf(change.getFullDocument());
+        if (change.getFullDocumentBeforeChange() != null) return database.keyOf(change.getFullDocumentBeforeChange());
+
+        // the document key holds _id, and the key field only when it is _id or part of the shard key
+        BsonDocument documentKey = change.getDocumentKey();
+        BsonValue id = documentKey == null ? null : documentKey.get(database.getMongoIdName());
+        return id == null ? null : database.keyOf(id);
+    }
+
+    @Override
+    public void close() {
+        closed = true; // the cursor is closed by its own thread within MAX_AWAIT_MILLIS
+    }
+}
@@ -1,92 +1,376 @@
 package dev.charcoal.database.bridge.mongo;
 
 import com.mongodb.ConnectionString;
+import com.mongodb.ErrorCategory;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
 import dev.charcoal.database.bridge.AsyncDatabase;
 import dev.charcoal.database.bridge.DatabaseConnectionBuilder;
+import dev.charcoal.database.bridge.MigratableDatabase;
+import dev.charcoal.database.bridge.ObservableDatabase;
+import dev.charcoal.database.bridge.ProjectableDatabase;
+import dev.charcoal.database.bridge.ScannableDatabase;
 import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.Transaction;
+import dev.charcoal.database.bridge.TransactionalDatabase;
+import dev.charcoal.database.bridge.VersionedDatabase;
+import dev.charcoal.database.bridge.change.ChangeListener;
+import dev.charcoal.database.bridge.change.Subscription;
+import dev.charcoal.database.bridge.key.KeyCodec;
+import dev.charcoal.database.bridge.key.KeyedDatabase;
 import dev.charcoal.database.bridge.mongo.annotations.MongoId;
+import dev.charcoal.database.bridge.mongo.codec.GeneratedCodecProvider;
 import dev.charcoal.database.bridge.mongo.exception.MongoDatabaseException;
+import dev.charcoal.database.bridge.priority.OperationClass;
+import dev.charcoal.database.bridge.priority.PriorityGate;
+import dev.charcoal.database.bridge.priority.PriorityOptions;
 import dev.charcoal.database.bridge.sql.annotations.Column;
+import dev.charcoal.database.bridge.utils.FieldProjection;
+import dev.charcoal.database.bridge.utils.VersionAccessor;
+import org.bson.BsonBinary;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonString;
+import org.bson.BsonValue;
 import org.bson.UuidRepresentation;
+import org.bson.codecs.EncoderContext;
 import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
 import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.codecs.pojo.annotations.BsonProperty;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Field;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
 import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
 
-public class MongoDatabase<T> implements AsyncDatabase<T>, SyncDatabase<T> {
+public class MongoDatabase<T> implements AsyncDatabase<T>, SyncDatabase<T>, TransactionalDatabase<T>, ScannableDatabase<T>,
+        ObservableDatabase<T>, ProjectableDatabase<T>, MigratableDatabase<T>,
+        VersionedDatabase<T> {
 
-    private static MongoClient sharedClient; //Global shared client
-    private static CodecRegistry sharedCodecRegistry;
+    /**
+     * Date field written next to the entity by {@link #save(String, Object, Duration)}, backed by a TTL index.
+     */
+    public static final String EXPIRY_FIELD = "_expireAt";
 
+    private static MongoClient sharedClient; //Global shared client
+    private static MongoClientSettings sharedSettings;
+    private static volatile CodecRegistry sharedCodecRegistry;
+    /**
+     * One gate per client, shared by every collection on it, since they all draw from the client's single pool.
+     */
+    private static final Map<MongoClient, ClientGate> clientGates = new WeakHashMap<>();
+
+    private final MongoClient client;
     private final MongoCollection<T> collection;
+    private final MongoCollection<BsonDocument> rawCollection;
     private final ExecutorService executorService = Executors.newCachedThreadPool();
     private final Field idField;
     private final String mongoIdName;
-
+    private final Class<T> type;
+    @Nullable
+    private final VersionAccessor<T> versionAccessor;
+    private final FieldProjection<T> projection;
+    private final KeyCodec<?> keyCodec;
+    private final ClientGate clientGate;
+
+    /**
+     * Assumes {@code client} was created with the driver's default connection pool.
+     */
     public MongoDatabase(@NotNull MongoClient client, String databaseName, String collectionName, Class<T> clazz) {
+        this(client, MongoClientSettings.builder().build(), databaseName, collectionName, clazz, KeyCodec.strings());
+    }
+
+    /**
+     * @param settings the settings {@code client} was created with, which size the priority gate
+     * @param keyCodec how keys are stored, fixed for the lifetime of this database; see {@link #keyed}
+     */
+    public MongoDatabase(@NotNull MongoClient client, @NotNull MongoClientSettings settings, String databaseName,
+                         String collectionName, Class<T> clazz, @NotNull KeyCodec<?> keyCodec) {
         initSharedCodecRegistry(); // ensure codec registry initialized
 
+        this.client = client;
         this.collection = client
                 .getDatabase(databaseName)
                 .withCodecRegistry(sharedCodecRegistry)
                 .getCollection(collectionName, clazz);
+        this.rawCollection = collection.withDocumentClass(BsonDocument.class);
 
         this.idField = findIdField(clazz);
         this.idField.setAccessible(true);
         this.mongoIdName = resolveIdName(idField);
+        this.keyCodec = keyCodec;
+        this.type = clazz;
+        this.versionAccessor = VersionAccessor.find(clazz);
+        this.projection = FieldProjection.of(clazz);
+        this.clientGate = gateOf(client, settings.getConnectionPoolSettings().getMaxSize());
+        ensureExpiryIndex();
+        ensureKeyIndex();
     }
 
     public MongoDatabase(@NotNull DatabaseConnectionBuilder connectionBuilder, Class<T> clazz) {
         initSharedCodecRegistry();
 
+        int requestedPoolSize = connectionBuilder.getMaxPoolSize();
+        MongoClientSettings settings;
         synchronized (MongoDatabase.class) {
             if (sharedClient == null) {
-                MongoClientSettings settings = MongoClientSettings.builder()
+                sharedSettings = MongoClientSettings.builder()
                         .applyConnectionString(new ConnectionString(connectionBuilder.getMongoURL()))
                         .uuidRepresentation(UuidRepresentation.STANDARD)
                         .codecRegistry(sharedCodecRegistry)
+                        .applyToConnectionPoolSettings(pool -> {
+                            if (requestedPoolSize > 0) pool.maxSize(requestedPoolSize);
+                        })
                         .build();
 
-                sharedClient = MongoClients.create(settings);
+                sharedClient = MongoClients.create(sharedSettings);
                 System.out.println("[MongoDatabase] Shared MongoClient initialized");
+            } else if (requestedPoolSize > 0 && requestedPoolSize != sharedSettings.getConnectionPoolSettings().getMaxSize()) {
+                System.out.println("[MongoDatabase] Shared MongoClient already has a pool of "
+                        + sharedSettings.getConnectionPoolSettings().getMaxSize() + ", ignoring maxPoolSize " + requestedPoolSize
+                        + " for " + connectionBuilder.getTable());
             }
+            settings = sharedSettings;
         }
 
+        this.client = sharedClient;
         this.collection = sharedClient
                 .getDatabase(connectionBuilder.getDatabase())
                 .withCodecRegistry(sharedCodecRegistry)
                 .getCollection(connectionBuilder.getTable(), clazz);
+        this.rawCollection = collection.withDocumentClass(BsonDocument.class);
 
         this.idField = findIdField(clazz);
         this.idField.setAccessible(true);
         this.mongoIdName = resolveIdName(idField);
+        this.keyCodec = connectionBuilder.getKeyCodec();
+        this.type = clazz;
+        this.versionAccessor = VersionAccessor.find(clazz);
+        this.projection = FieldProjection.of(clazz);
+        this.clientGate = gateOf(client, settings.getConnectionPoolSettings().getMaxSize());
+        ensureExpiryIndex();
+        ensureKeyIndex();
     }
 
-    private static void initSharedCodecRegistry() {
+    private static synchronized ClientGate gateOf(MongoClient client, int poolSize) {
+        return clientGates.computeIfAbsent(client, ignored -> new ClientGate(poolSize));
+    }
+
+    /**
+     * Gate of a client, replaced as a whole by {@link #setPriorityOptions}. Background calls of all its collections
+     * may hold all but the reserved connections of its pool, and interactive latency on any of them throttles them.
+     */
+    private static final class ClientGate {
+
+        private final int poolSize;
+        private volatile PriorityGate gate;
+
+        ClientGate(int poolSize) {
+            this.poolSize = poolSize;
+            this.gate = new PriorityGate("MongoDatabase", poolSize, PriorityOptions.defaults());
+        }
+    }
+
+    /**
+     * Codecs generated by {@code BsonCodecProcessor} take precedence, the automatic POJO codec covers the rest.
+     */
+    private static synchronized void initSharedCodecRegistry() {
         if (sharedCodecRegistry == null) {
             sharedCodecRegistry = fromRegistries(
                     MongoClientSettings.getDefaultCodecRegistry(),
-                    fromProviders(PojoCodecProvider.builder().automatic(true).build())
+                    fromProviders(
+                            new GeneratedCodecProvider(),
+                            PojoCodecProvider.builder().automatic(true).build()
+                    )
             );
         }
     }
 
+    private void ensureExpiryIndex() {
+        try {
+            // expireAfter(0) removes each document once its own EXPIRY_FIELD date has passed
+            collection.createIndex(
+                    Indexes.ascending(EXPIRY_FIELD),
+                    new IndexOptions().name("bridge_ttl").expireAfter(0L, TimeUnit.SECONDS)
+            );
+        } catch (Exception e) {
+            throw new MongoDatabaseException("Cannot create TTL index", e);
+        }
+    }
+
+    /**
+     * Only {@code _id} is unique by default. A key mapped to another field needs its own unique index, or the
+     * version 0 upsert of {@link #compareAndSave} would insert a second document for an existing key.
+     */
+    private void ensureKeyIndex() {
+        if (mongoIdName.equals("_id")) return;
+        try {
+            collection.createIndex(Indexes.ascending(mongoIdName), new IndexOptions().name("bridge_key").unique(true));
+        } catch (Exception e) {
+            throw new MongoDatabaseException("Cannot create unique index on " + mongoIdName, e);
+        }
+    }
+
+    /**
+     * Delete events, TTL removals included, only carry {@code _id}. A key mapped to another field is read from
+     * the pre-image of the document instead, which the collection must record (MongoDB 6.0 or later).
+     */
+    void ensurePreImages() {
+        if (mongoIdName.equals("_id")) return;
+        MongoNamespace namespace = collection.getNamespace();
+        try {
+            client.getDatabase(namespace.getDatabaseName()).runCommand(
+                    new BsonDocument("collMod", new BsonString(namespace.getCollectionName()))
+                            .append("changeStreamPreAndPostImages", new BsonDocument("enabled", BsonBoolean.TRUE)));
+        } catch (Exception e) {
+            throw new MongoDatabaseException("Cannot enable change stream pre-images on " + namespace
+                    + ", which subscriptions need to see deletes of keys mapped to " + mongoIdName, e);
+        }
+    }
+
+    /**
+     * The TTL monitor only runs about once a minute, so expired documents are also filtered on read.
+     */
+    static Bson notExpired() {
+        return Filters.or(
+                Filters.exists(EXPIRY_FIELD, false),
+                Filters.gt(EXPIRY_FIELD, new Date())
+        );
+    }
+
+    /**
+     * Encodes {@code value} with the collection codec so extra fields such as the expiry can be attached.
+     *
+     * @param expiresAt epoch millis, or {@code 0} for no expiry
+     */
+    BsonDocument toDocument(T value, long expiresAt) {
+        BsonDocument document = new BsonDocument();
+        collection.getCodecRegistry()
+                .get(collection.getDocumentClass())
+                .encode(new BsonDocumentWriter(document), value, EncoderContext.builder().build());
+        if (expiresAt > 0) {
+            document.put(EXPIRY_FIELD, new BsonDateTime(expiresAt));
+        }
+        return document;
+    }
+
+    Bson byKey(String key) {
+        return Filters.eq(mongoIdName, nativeKey(key));
+    }
+
+    /**
+     * {@code key} as stored in the id field: an int64, a subtype 4 binary, or the String itself. UUIDs are
+     * encoded here rather than by the client, so they match whatever UUID representation the client uses.
+     */
+    private Object nativeKey(String key) {
+        Object nativeKey = keyCodec.decode(key);
+        if (nativeKey instanceof UUID uuid) return new BsonBinary(uuid, UuidRepresentation.STANDARD);
+        return nativeKey instanceof Long ? nativeKey : key;
+    }
+
+    private List<Object> nativeKeys(Collection<String> keys) {
+        List<Object> nativeKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            nativeKeys.add(nativeKey(key));
+        }
+        return nativeKeys;
+    }
+
+    /**
+     * Returns a view taking keys of the codec's type. The codec must be the one this database was built with,
+     * which decides how keys are stored: {@link KeyCodec#longs()} as int64 and the UUID codecs as binary
+     * subtype 4, which is also how the id field of the entity is written when it is a {@code long} or a
+     * {@link UUID}.
+     *
+     * @throws IllegalArgumentException if {@code codec} is not the codec this database was built with
+     */
+    public <K> KeyedDatabase<K, T> keyed(@NotNull KeyCodec<K> codec) {
+        if (!codec.equals(keyCodec)) {
+            throw new IllegalArgumentException("Collection " + collection.getNamespace().getCollectionName()
+                    + " was built with a different key codec (" + keyCodec.keyType().getSimpleName() + " keys)");
+        }
+        return new KeyedDatabase<>(this, codec);
+    }
+
+    /**
+     * Replaces the limits of background calls for every collection of this client; slots held under the previous
+     * options are returned to them.
+     */
+    public void setPriorityOptions(@NotNull PriorityOptions options) {
+        clientGate.gate = new PriorityGate("MongoDatabase", clientGate.poolSize, options);
+    }
+
+    /**
+     * The gate shared by every collection of this database's client.
+     */
+    public PriorityGate getPriorityGate() {
+        return clientGate.gate;
+    }
+
+    MongoCollection<BsonDocument> getRawCollection() {
+        return rawCollection;
+    }
+
+    String getMongoIdName() {
+        return mongoIdName;
+    }
+
+    String keyOf(T value) {
+        Object id = getIdValue(value);
+        return keyCodec.keyType().isInstance(id) ? encodeKey(id) : String.valueOf(id);
+    }
+
+    /**
+     * String form of a raw id, as found in the document key of a change event.
+     */
+    String keyOf(BsonValue id) {
+        if (id.isString()) return id.asString().getValue();
+        if (id.isInt64() && keyCodec.keyType() == Long.class) return encodeKey(id.asInt64().getValue());
+        if (id.isBinary() && keyCodec.keyType() == UUID.class) return encodeKey(id.asBinary().asUuid());
+        return id.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private String encodeKey(Object nativeKey) {
+        return ((KeyCodec<Object>) keyCodec).encode(nativeKey);
+    }
+
     private String resolveIdName(Field idField) {
         if (idField.isAnnotationPresent(MongoId.class)) {
             String value = idField.getAnnotation(MongoId.class).value();
@@ -115,73 +399,362 @@ public class MongoDatabase<T> implements AsyncDatabase<T>, SyncDatabase<T> {
 
     @Override
     public T fetch(String key) {
-        try {
-            return collection.find(Filters.eq(mongoIdName, key)).first();
-        } catch (Exception e) {
-            throw new MongoDatabaseException("Cannot find id field", e);
+        return clientGate.gate.call(OperationClass.INTERACTIVE, () -> {
+            try {
+                return collection.find(Filters.and(byKey(key), notExpired())).first();
+            } catch (Exception e) {
+                throw new MongoDatabaseException("Cannot find id field", e);
+            }
+        });
+    }
+
+    /**
+     * Only the requested fields are sent by the server and decoded; the rest keep their constructor defaults.
+     */
+    @Override
+    public T fetch(String key, String... fields) {
+        return clientGate.gate.call(OperationClass.INTERACTIVE, () -> {
+            Bson include = projectionOf(fields);
+            try {
+                return collection.find(Filters.and(byKey(key), notExpired())).projection(include).first();
+            } catch (Exception e) {
+                throw new MongoDatabaseException("Cannot fetch projection of " + key, e);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, T> fetchMany(Collection<String> keys, String... fields) {
+        return findMany(keys, projectionOf(fields));
+    }
+
+    /**
+     * One {@code $in} query for all keys, in the caller's key order.
+     */
+    @Override
+    public Map<String, T> fetchMany(Collection<String> keys) {
+        return findMany(keys, null);
+    }
+
+    private Map<String, T> findMany(Collection<String> keys, @Nullable Bson include) {
+        if (keys.isEmpty()) return Map.of();
+        return clientGate.gate.call(OperationClass.INTERACTIVE, () -> {
+            try {
+                Map<String, T> found = new LinkedHashMap<>();
+                for (T value : collection.find(Filters.and(Filters.in(mongoIdName, nativeKeys(keys)), notExpired())).projection(include)) {
+                    found.put(keyOf(value), value);
+                }
+
+                Map<String, T> result = new LinkedHashMap<>();
+                for (String key : keys) {
+                    T value = found.get(key);
+                    if (value != null) result.put(key, value);
+                }
+                return result;
+            } catch (Exception e) {
+                throw new MongoDatabaseException("Cannot fetch " + keys.size() + " keys", e);
+            }
+        });
+    }
+
+    @Override
+    public T fetchShallow(String key) {
+        return fetch(key, projection.getEagerFieldNames());
+    }
+
+    @Override
+    public T loadLazy(String key, T value, String... fields) {
+        String[] names = fields.length == 0 ? projection.getLazyFieldNames() : fields;
+        T loaded = fetch(key, names);
+        if (loaded == null) return null;
+        projection.copy(loaded, value, projection.resolve(names));
+        return value;
+    }
+
+    private Bson projectionOf(String... fields) {
+        List<String> names = new ArrayList<>();
+        for (Field field : projection.resolve(fields)) {
+            names.add(storedName(field));
         }
+        return Projections.include(names);
+    }
+
+    /**
+     * Name {@code field} is stored under in the document, which {@code @BsonProperty} may have changed.
+     */
+    private String storedName(Field field) {
+        if (field.equals(idField)) return mongoIdName;
+
+        BsonProperty property = field.getAnnotation(BsonProperty.class);
+        return property != null && !property.value().isEmpty() ? property.value() : field.getName();
     }
 
     @Override
     public List<T> fetchAll() {
-        try {
-            List<T> list = new ArrayList<>();
-            collection.find().into(list);
-            return list;
-        } catch (Exception e) {
-            throw new MongoDatabaseException("Cannot fetch all", e);
-        }
+        return clientGate.gate.call(OperationClass.BACKGROUND, () -> {
+            try {
+                List<T> list = new ArrayList<>();
+                collection.find(notExpired()).into(list);
+                return list;
+            } catch (Exception e) {
+                throw new MongoDatabaseException("Cannot fetch all", e);
+            }
+        });
     }
 
     @Override
     public boolean save(String key, T value) {
-        try {
-            ReplaceOptions options = new ReplaceOptions().upsert(true);
-            collection.replaceOne(Filters.eq(mongoIdName, key), value, options);
-            return true;
-        } catch (Exception e) {
-            throw new MongoDatabaseException("Cannot save value", e);
-        }
+        return clientGate.gate.call(OperationClass.INTERACTIVE, () -> {
+            try {
+                ReplaceOptions options = new ReplaceOptions().upsert(true);
+                collection.replaceOne(byKey(key), value, options);
+                return true;
+            } catch (Exception e) {
+                throw new MongoDatabaseException("Cannot save value", e);
+            }
+        });
+    }
+
+    /**
+     * Sends every entry as one unordered bulk write of upserts.
+     */
+    @Override
+    public boolean saveMany(Map<String, T> values) {
+        if (values.isEmpty()) return true;
+        return clientGate.gate.call(OperationClass.INTERACTIVE, () -> {
+            try {
+                ReplaceOptions upsert = new ReplaceOptions().upsert(true);
+                List<WriteModel<T>> models = new ArrayList<>(values.size());
+                values.forEach((key, value) -> models.add(new ReplaceOneModel<>(byKey(key), value, upsert)));
+                collection.bulkWrite(models, new BulkWriteOptions().ordered(false));
+                return true;
+            } catch (Exception e) {
+                throw new MongoDatabaseException("Cannot save values", e);
+            }
+        });
+    }
+
+    /**
+     * Pages through live documents in id order; backed by the primary key index.
+     */
+    @Override
+    public Map<String, T> scan(@Nullable String afterKey, int limit) {
+        return clientGate.gate.call(OperationClass.BACKGROUND, () -> {
+            try {
+                Bson filter = afterKey == null ? notExpired() : Filters.and(Filters.gt(mongoIdName, nativeKey(afterKey)), notExpired());
+                Map<String, T> page = new LinkedHashMap<>();
+                for (T value : collection.find(filter).sort(Sorts.ascending(mongoIdName)).limit(limit)) {
+                    page.put(keyOf(value), value);
+                }
+                return page;
+            } catch (Exception e) {
+                throw new MongoDatabaseException("Cannot scan after key: " + afterKey, e);
+            }
+        });
     }
 
     @Override
     public boolean save(String key, T value, Duration timeout) {
-        return save(key, value);
+        return clientGate.gate.call(OperationClass.INTERACTIVE, () -> {
+            try {
+                BsonDocument document = toDocument(value, System.currentTimeMillis() + timeout.toMillis());
+
+                ReplaceOptions options = new ReplaceOptions().upsert(true);
+                rawCollection.replaceOne(byKey(key), document, options);
+                return true;
+            } catch (Exception e) {
+                throw new MongoDatabaseException("Cannot save value", e);
+            }
+        });
+    }
+
+
+    @Override
+    public boolean compareAndSave(String key, long expectedVersion, T value) {
+        return clientGate.gate.call(OperationClass.INTERACTIVE, () -> {
+            VersionAccessor<T> accessor = VersionAccessor.require(versionAccessor, type);
+            String versionName = storedName(accessor.getField());
+
+            long previousVersion = accessor.get(value);
+            accessor.set(value, expectedVersion + 1);
+
+            boolean saved = false;
+            try {
+                Bson filter;
+                if (expectedVersion == 0) {
+                    // An expired document still holds the id until the TTL monitor removes it
+                    collection.deleteOne(Filters.and(byKey(key), Filters.lte(EXPIRY_FIELD, new Date())));
+                    filter = Filters.and(
+                            byKey(key),
+                            Filters.or(Filters.eq(versionName, 0), Filters.exists(versionName, false))
+                    );
+                } else {
+                    filter = Filters.and(byKey(key), Filters.eq(versionName, expectedVersion), notExpired());
+                }
+
+                // Upserting on version 0 turns a concurrent insert into a duplicate key error instead of a lost update
+                ReplaceOptions options = new ReplaceOptions().upsert(expectedVersion == 0);
+                UpdateResult result = collection.replaceOne(filter, value, options);
+                saved = result.getMatchedCount() > 0 || result.getUpsertedId() != null;
+                return saved;
+            } catch (MongoWriteException e) {
+                if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) return false;
+                throw new MongoDatabaseException("Cannot save value", e);
+            } catch (Exception e) {
+                throw new MongoDatabaseException("Cannot save value", e);
+            } finally {
+                if (!saved) accessor.set(value, previousVersion);
+            }
+        });
     }
 
+    @Override
+    public T update(String key, UnaryOperator<T> updater) {
+        return VersionAccessor.require(versionAccessor, type).update(this, key, updater);
+    }
 
     @Override
     public boolean delete(String key) {
-        try {
-            return collection.deleteOne(Filters.eq(mongoIdName, key)).getDeletedCount() > 0;
-        } catch (Exception e) {
-            throw new MongoDatabaseException("Cannot delete document with id " + key, e);
+        return clientGate.gate.call(OperationClass.INTERACTIVE, () -> {
+            try {
+                return collection.deleteOne(byKey(key)).getDeletedCount() > 0;
+            } catch (Exception e) {
+                throw new MongoDatabaseException("Cannot delete document with id " + key, e);
+            }
+        });
+    }
+
+    /* ------------------ MIGRATION ------------------ */
+
+    @Override
+    public @Nullable Duration timeToLive(String key) {
+        return clientGate.gate.call(OperationClass.INTERACTIVE, () -> {
+            try {
+                BsonDocument document = rawCollection.find(Filters.and(byKey(key), notExpired()))
+                        .projection(Projections.include(EXPIRY_FIELD))
+                        .first();
+                if (document == null || !document.isDateTime(EXPIRY_FIELD)) return null;
+                long remaining = document.getDateTime(EXPIRY_FIELD).getValue() - System.currentTimeMillis();
+                return Duration.ofMillis(Math.max(1, remaining));
+            } catch (Exception e) {
+                throw new MongoDatabaseException("Cannot read the expiry of document with id " + key, e);
+            }
+        });
+    }
+
+    @Override
+    public boolean saveIfAbsent(String key, T value, @Nullable Duration timeout) {
+        return clientGate.gate.call(OperationClass.INTERACTIVE, () -> {
+            try {
+                // An expired document still holds the id until the TTL monitor removes it
+                rawCollection.deleteOne(Filters.and(byKey(key), Filters.lte(EXPIRY_FIELD, new Date())));
+                rawCollection.insertOne(toDocument(value, timeout == null ? 0 : System.currentTimeMillis() + timeout.toMillis()));
+                return true;
+            } catch (MongoWriteException e) {
+                if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) return false;
+                throw new MongoDatabaseException("Cannot insert document with id " + key, e);
+            } catch (Exception e) {
+                throw new MongoDatabaseException("Cannot insert document with id " + key, e);
+            }
+        });
+    }
+
+    @Override
+    public boolean deleteIfVersion(String key, long expectedVersion) {
+        String versionName = storedName(VersionAccessor.require(versionAccessor, type).getField());
+        Bson version = expectedVersion == 0
+                ? Filters.or(Filters.eq(versionName, 0), Filters.exists(versionName, false))
+                : Filters.eq(versionName, expectedVersion);
+
+        return clientGate.gate.call(OperationClass.INTERACTIVE, () -> {
+            try {
+                return collection.deleteOne(Filters.and(byKey(key), version, notExpired())).getDeletedCount() > 0;
+            } catch (Exception e) {
+                throw new MongoDatabaseException("Cannot delete document with id " + key, e);
+            }
+        });
+    }
+
+    /**
+     * Runs {@code work} in a multi-document transaction (requires a replica set or sharded cluster).
+     * Buffered writes are sent as one bulk write before the commit. The driver retries the whole body on
+     * transient transaction errors, so {@code work} may run more than once.
+     */
+    @Override
+    public boolean transaction(Consumer<Transaction<T>> work) {
+        try (ClientSession session = client.startSession()) {
+            return session.withTransaction(() -> {
+                MongoTransaction<T> tx = new MongoTransaction<>(this, session);
+                work.accept(tx);
+                tx.flush();
+                return true;
+            });
+        } catch (MongoException e) {
+            throw new MongoDatabaseException("Transaction failed", e);
         }
     }
 
+    @Override
+    public CompletableFuture<Boolean> transactionAsync(Consumer<Transaction<T>> work) {
+        return CompletableFuture.supplyAsync(OperationClass.propagate(() -> transaction(work)), executorService);
+    }
+
     @Override
     public CompletableFuture<T> fetchAsync(String key) {
-        return CompletableFuture.supplyAsync(() -> fetch(key), executorService);
+        return CompletableFuture.supplyAsync(OperationClass.propagate(() -> fetch(key)), executorService);
     }
 
     @Override
     public CompletableFuture<List<T>> fetchAllAsync() {
-        return CompletableFuture.supplyAsync(this::fetchAll, executorService);
+        return CompletableFuture.supplyAsync(OperationClass.propagate(this::fetchAll), executorService);
     }
 
     @Override
     public CompletableFuture<Boolean> saveAsync(String key, T value) {
-        return CompletableFuture.supplyAsync(() -> save(key, value), executorService);
+        return CompletableFuture.supplyAsync(OperationClass.propagate(() -> save(key, value)), executorService);
     }
 
     @Override
     public CompletableFuture<Boolean> saveAsync(String key, T value, Duration timeout) {
-        return CompletableFuture.supplyAsync(() -> save(key, value, timeout), executorService);
+        return CompletableFuture.supplyAsync(OperationClass.propagate(() -> save(key, value, timeout)), executorService);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, T>> fetchManyAsync(Collection<String> keys) {
+        return CompletableFuture.supplyAsync(OperationClass.propagate(() -> fetchMany(keys)), executorService);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveManyAsync(Map<String, T> values) {
+        return CompletableFuture.supplyAsync(OperationClass.propagate(() -> saveMany(values)), executorService);
     }
 
     @Override
     public CompletableFuture<Boolean> deleteAsync(String key) {
-        return CompletableFuture.supplyAsync(() -> delete(key), executorService);
+        return CompletableFuture.supplyAsync(OperationClass.propagate(() -> delete(key)), executorService);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> compareAndSaveAsync(String key, long expectedVersion, T value) {
+        return CompletableFuture.supplyAsync(OperationClass.propagate(() -> compareAndSave(key, expectedVersion, value)), executorService);
+    }
+
+    @Override
+    public CompletableFuture<T> updateAsync(String key, UnaryOperator<T> updater) {
+        return CompletableFuture.supplyAsync(OperationClass.propagate(() -> update(key, updater)), executorService);
+    }
+
+    /**
+     * Streams changes through a MongoDB change stream, including deletions made by the TTL monitor.
+     * Requires a replica set or sharded cluster.
+     */
+    @Override
+    public Subscription subscribe(ChangeListener<T> listener) {
+        try {
+            return new MongoChangeStream<>(this, listener);
+        } catch (Exception e) {
+            throw new MongoDatabaseException("Cannot open change stream", e);
+        }
     }
 
     public void close() {
@@ -194,6 +767,9 @@ public class MongoDatabase<T> implements AsyncDatabase<T>, SyncDatabase<T> {
 
     public static void closeSharedClient() {
         if (sharedClient != null) {
+            synchronized (MongoDatabase.class) {
+                clientGates.remove(sharedClient);
+            }
             sharedClient.close();
             sharedClient = null;
             System.out.println("[MongoDatabase] Shared MongoClient closed");
@@ -0,0 +1,82 @@
+package dev.charcoal.database.bridge.mongo;
+
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import dev.charcoal.database.bridge.Transaction;
+import org.bson.BsonDocument;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Buffers writes per key (last write wins) and sends them as one bulk write inside the session's transaction.
+ */
+class MongoTransaction<T> implements Transaction<T> {
+
+    private final MongoDatabase<T> database;
+    private final ClientSession session;
+    private final Map<String, T> values = new LinkedHashMap<>();
+    private final Map<String, BsonDocument> documents = new LinkedHashMap<>();
+    private final Set<String> deletes = new LinkedHashSet<>();
+
+    MongoTransaction(MongoDatabase<T> database, ClientSession session) {
+        this.database = database;
+        this.session = session;
+    }
+
+    @Override
+    public T fetch(String key) {
+        if (deletes.contains(key)) return null;
+        if (values.containsKey(key)) return values.get(key);
+
+        return database.getCollection()
+                .find(session, Filters.and(database.byKey(key), MongoDatabase.notExpired()))
+                .first();
+    }
+
+    @Override
+    public void save(String key, T value) {
+        put(key, value, 0L);
+    }
+
+    @Override
+    public void save(String key, T value, Duration timeout) {
+        put(key, value, System.currentTimeMillis() + timeout.toMillis());
+    }
+
+    private void put(String key, T value, long expiresAt) {
+        deletes.remove(key);
+        values.put(key, value);
+        documents.put(key, database.toDocument(value, expiresAt));
+    }
+
+    @Override
+    public void delete(String key) {
+        values.remove(key);
+        documents.remove(key);
+        deletes.add(key);
+    }
+
+    void flush() {
+        List<WriteModel<BsonDocument>> models = new ArrayList<>();
+        for (String key : deletes) {
+            models.add(new DeleteOneModel<>(database.byKey(key)));
+        }
+
+        ReplaceOptions upsert = new ReplaceOptions().upsert(true);
+        documents.forEach((key, document) -> models.add(new ReplaceOneModel<>(database.byKey(key), document, upsert)));
+
+        if (!models.isEmpty()) {
+            database.getRawCollection().bulkWrite(session, models);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package dev.charcoal.database.bridge.mongo.codec;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Codecs for the element-typed collections of generated entity codecs. Like the POJO codec, collections are
+ * written as BSON arrays and maps as documents, and null elements are kept.
+ */
+public final class CollectionCodecs {
+
+    private CollectionCodecs() {
+    }
+
+    public static <E> Codec<List<E>> list(@NotNull Codec<E> elementCodec) {
+        return new ArrayCodec<>(elementCodec, ArrayList::new);
+    }
+
+    public static <E> Codec<Set<E>> set(@NotNull Codec<E> elementCodec) {
+        return new ArrayCodec<>(elementCodec, LinkedHashSet::new);
+    }
+
+    public static <V> Codec<Map<String, V>> map(@NotNull Codec<V> valueCodec) {
+        return new MapCodec<>(valueCodec);
+    }
+
+    private interface CollectionFactory<C> {
+        C create();
+    }
+
+    private static class ArrayCodec<E, C extends Collection<E>> implements Codec<C> {
+
+        private final Codec<E> elementCodec;
+        private final CollectionFactory<C> factory;
+
+        ArrayCodec(Codec<E> elementCodec, CollectionFactory<C> factory) {
+            this.elementCodec = elementCodec;
+            this.factory = factory;
+        }
+
+        @Override
+        public void encode(BsonWriter writer, C value, EncoderContext context) {
+            writer.writeStartArray();
+            for (E element : value) {
+                if (element == null) writer.writeNull();
+                else context.encodeWithChildContext(elementCodec, writer, element);
+            }
+            writer.writeEndArray();
+        }
+
+        @Override
+        public C decode(BsonReader reader, DecoderContext context) {
+            C collection = factory.create();
+            reader.readStartArray();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                if (reader.getCurrentBsonType() == BsonType.NULL) {
+                    reader.readNull();
+                    collection.add(null);
+                } else {
+                    collection.add(context.decodeWithChildContext(elementCodec, reader));
+                }
+            }
+            reader.readEndArray();
+            return collection;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Class<C> getEncoderClass() {
+            return (Class<C>) (Class<?>) Collection.class;
+        }
+    }
+
+    private static class MapCodec<V> implements Codec<Map<String, V>> {
+
+        private final Codec<V> valueCodec;
+
+        MapCodec(Codec<V> valueCodec) {
+            this.valueCodec = valueCodec;
+        }
+
+        @Override
+        public void encode(BsonWriter writer, Map<String, V> value, EncoderContext context) {
+            writer.writeStartDocument();
+            for (Map.Entry<String, V> entry : value.entrySet()) {
+                writer.writeName(entry.getKey());
+                if (entry.getValue() == null) writer.writeNull();
+                else context.encodeWithChildContext(valueCodec, writer, entry.getValue());
+            }
+            writer.writeEndDocument();
+        }
+
+        @Override
+        public Map<String, V> decode(BsonReader reader, DecoderContext context) {
+            Map<String, V> map = new LinkedHashMap<>();
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                if (reader.getCurrentBsonType() == BsonType.NULL) {
+                    reader.readNull();
+                    map.put(name, null);
+                } else {
+                    map.put(name, context.decodeWithChildContext(valueCodec, reader));
+                }
+            }
+            reader.readEndDocument();
+            return map;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Class<Map<String, V>> getEncoderClass() {
+            return (Class<Map<String, V>>) (Class<?>) Map.class;
+        }
+    }
+}
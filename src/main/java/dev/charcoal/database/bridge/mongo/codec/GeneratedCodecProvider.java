@@ -0,0 +1,51 @@
+package dev.charcoal.database.bridge.mongo.codec;
+
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Supplies the codecs generated at compile time by {@code BsonCodecProcessor}. A class {@code com.example.User}
+ * is served by {@code com.example.User_BsonCodec}, and a nested {@code Outer.Inner} by {@code Outer_Inner_BsonCodec}.
+ * Returns {@code null} for classes without a generated codec so the next provider, usually the automatic
+ * {@code PojoCodecProvider}, handles them.
+ */
+public class GeneratedCodecProvider implements CodecProvider {
+
+    public static final String CODEC_SUFFIX = "_BsonCodec";
+
+    private final Map<Class<?>, Optional<Constructor<?>>> constructors = new ConcurrentHashMap<>();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+        Optional<Constructor<?>> constructor = constructors.computeIfAbsent(clazz, GeneratedCodecProvider::findConstructor);
+        if (constructor.isEmpty()) return null;
+
+        try {
+            return (Codec<T>) constructor.get().newInstance(registry);
+        } catch (ReflectiveOperationException e) {
+            throw new CodecConfigurationException("Cannot create generated codec for " + clazz.getName(), e);
+        }
+    }
+
+    private static Optional<Constructor<?>> findConstructor(Class<?> clazz) {
+        if (clazz.isPrimitive() || clazz.isArray()) return Optional.empty();
+
+        String packageName = clazz.getPackageName();
+        String binaryName = clazz.getName().substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+        String codecName = (packageName.isEmpty() ? "" : packageName + ".") + binaryName.replace('$', '_') + CODEC_SUFFIX;
+        try {
+            Class<?> codecClass = Class.forName(codecName, false, clazz.getClassLoader());
+            return Optional.of(codecClass.getConstructor(CodecRegistry.class));
+        } catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+            return Optional.empty();
+        }
+    }
+}
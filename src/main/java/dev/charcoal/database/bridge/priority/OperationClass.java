@@ -0,0 +1,72 @@
+package dev.charcoal.database.bridge.priority;
+
+import java.util.function.Supplier;
+
+/**
+ * Lane a database call runs in. Interactive calls are the ones someone is waiting on; background calls are
+ * scans, exports and migrations whose throughput matters more than their latency, and they get only the
+ * connections and concurrency a {@link PriorityGate} leaves them.
+ * <p>
+ * The class is a property of the calling thread, set for a block of work:
+ * <pre>{@code
+ * OperationClass.BACKGROUND.run(() -> exportAll(users));
+ * }</pre>
+ * Calls outside any block are interactive, except full reads such as {@code fetchAll} and {@code scan}, and bulk
+ * loads, which are background unless called from an explicit interactive block.
+ */
+public enum OperationClass {
+
+    INTERACTIVE,
+    BACKGROUND;
+
+    private static final ThreadLocal<OperationClass> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Class of the innermost block running on this thread, or {@link #INTERACTIVE} outside any.
+     */
+    public static OperationClass current() {
+        return currentOr(INTERACTIVE);
+    }
+
+    /**
+     * Class of the innermost block running on this thread, or {@code fallback} outside any.
+     */
+    public static OperationClass currentOr(OperationClass fallback) {
+        OperationClass current = CURRENT.get();
+        return current != null ? current : fallback;
+    }
+
+    /**
+     * Runs {@code work} in the class of the thread's block, or in {@code fallback} outside any. For calls that
+     * are background by nature but may be called on someone's behalf.
+     */
+    public static <R> R withDefault(OperationClass fallback, Supplier<R> work) {
+        return currentOr(fallback).call(work);
+    }
+
+    public <R> R call(Supplier<R> work) {
+        OperationClass previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        }
+    }
+
+    public void run(Runnable work) {
+        call(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Wraps {@code work} so it keeps this thread's class when an executor runs it on another thread.
+     */
+    public static <R> Supplier<R> propagate(Supplier<R> work) {
+        OperationClass current = CURRENT.get();
+        return current == null ? work : () -> current.call(work);
+    }
+}
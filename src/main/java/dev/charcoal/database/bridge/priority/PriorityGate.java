@@ -0,0 +1,184 @@
+package dev.charcoal.database.bridge.priority;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Limits how many slots of a shared resource, such as a connection pool, background calls may hold, and adapts
+ * that limit to the latency interactive calls are seeing. Interactive calls are never held back; they only
+ * report their latency. Whenever the mean over an adjustment interval exceeds the target, the background limit
+ * is halved, and every interval within the target gives one slot back, up to the capacity minus the reserved
+ * slots. Background work so yields as soon as interactive latency rises and reclaims the resource once it is
+ * quiet again.
+ * <p>
+ * A thread that already holds a slot of this gate gets nested ones for free, so a background call that borrows
+ * a second connection cannot wait on itself.
+ */
+public class PriorityGate {
+
+    private final String name;
+    private final int maxLimit;
+    private final int minLimit;
+    private final long latencyTargetNanos;
+    private final long adjustIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private volatile int limit;
+    private int inFlight;
+    private final ThreadLocal<Integer> held = ThreadLocal.withInitial(() -> 0);
+
+    private final LongAdder windowNanos = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private volatile long windowStart = System.nanoTime();
+
+    /**
+     * @param capacity slots of the resource shared by both classes, such as the pool size
+     */
+    public PriorityGate(@NotNull String name, int capacity, @NotNull PriorityOptions options) {
+        this.name = name;
+        this.minLimit = Math.max(1, options.getMinBackground());
+        this.maxLimit = Math.max(minLimit, capacity - options.getReservedInteractive());
+        this.latencyTargetNanos = options.getLatencyTarget().toNanos();
+        this.adjustIntervalNanos = options.getAdjustInterval().toNanos();
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Takes a background slot, waiting while the limit is reached.
+     */
+    public void acquire() throws InterruptedException {
+        int nested = held.get();
+        if (nested > 0) {
+            held.set(nested + 1);
+            return;
+        }
+
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= limit) {
+                // wake up now and then so a raised limit is noticed even if nothing is released
+                slotFreed.awaitNanos(adjustIntervalNanos);
+                adjust(System.nanoTime());
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+        held.set(1);
+    }
+
+    public void release() {
+        int nested = held.get();
+        if (nested > 1) {
+            held.set(nested - 1);
+            return;
+        }
+        held.remove();
+
+        lock.lock();
+        try {
+            inFlight--;
+            slotFreed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reports how long an interactive call took, or waited for the resource.
+     */
+    public void recordInteractive(long nanos) {
+        windowNanos.add(nanos);
+        windowSamples.increment();
+        long now = System.nanoTime();
+        if (now - windowStart >= adjustIntervalNanos && lock.tryLock()) {
+            try {
+                adjust(now);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs {@code work} as a call of the thread's class, or of {@code defaultClass} outside any block: background
+     * calls hold a slot while they run, interactive calls report their latency.
+     *
+     * @throws CancellationException if interrupted while waiting for a slot
+     */
+    public <R> R call(@NotNull OperationClass defaultClass, @NotNull Supplier<R> work) {
+        if (OperationClass.currentOr(defaultClass) == OperationClass.BACKGROUND) {
+            try {
+                acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for a background slot of " + name);
+            }
+            try {
+                return OperationClass.BACKGROUND.call(work);
+            } finally {
+                release();
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            recordInteractive(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Must hold {@link #lock}.
+     */
+    private void adjust(long now) {
+        if (now - windowStart < adjustIntervalNanos) return;
+        long samples = windowSamples.sumThenReset();
+        long total = windowNanos.sumThenReset();
+        windowStart = now;
+
+        int previous = limit;
+        if (samples > 0 && total / samples > latencyTargetNanos) {
+            limit = Math.max(minLimit, previous / 2);
+        } else if (previous < maxLimit) {
+            limit = previous + 1;
+            slotFreed.signal();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Background slots currently allowed.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + " background " + getInFlight() + "/" + limit + " (max " + maxLimit + ")";
+    }
+}
@@ -0,0 +1,31 @@
+package dev.charcoal.database.bridge.priority;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Settings of a {@link PriorityGate}.
+ */
+@Getter
+@Builder
+public class PriorityOptions {
+
+    /** Slots, such as pooled connections, never handed to background calls. */
+    @Builder.Default
+    private int reservedInteractive = 2;
+    /** Floor of the background limit, so background work keeps moving under any interactive load. */
+    @Builder.Default
+    private int minBackground = 1;
+    /** Mean interactive latency above which the background limit is halved. */
+    @Builder.Default
+    private Duration latencyTarget = Duration.ofMillis(20);
+    /** How often the limit is reconsidered; it grows back by one slot per interval within the target. */
+    @Builder.Default
+    private Duration adjustInterval = Duration.ofSeconds(1);
+
+    public static PriorityOptions defaults() {
+        return builder().build();
+    }
+}
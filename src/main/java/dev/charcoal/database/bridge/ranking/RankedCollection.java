@@ -0,0 +1,58 @@
+package dev.charcoal.database.bridge.ranking;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Keys ordered by score, highest first; equal scores are ordered by key, descending, like a Redis sorted set
+ * read with ZREVRANGE. Rank and page reads cost O(log N + page) on every backend except SQL, where finding
+ * the rank of a key counts the index entries ahead of it.
+ */
+public interface RankedCollection<T> {
+
+    void setScore(String key, double score);
+
+    /**
+     * Adds {@code delta} to the score of {@code key}, starting from zero for an unranked key.
+     *
+     * @return the new score
+     */
+    double incrementScore(String key, double delta);
+
+    /**
+     * @return {@code null} if the key is not ranked
+     */
+    @Nullable Double getScore(String key);
+
+    /**
+     * @return zero-based position, highest score first, or {@code null} if the key is not ranked
+     */
+    @Nullable Long getRank(String key);
+
+    /**
+     * @return whether the key was ranked
+     */
+    boolean remove(String key);
+
+    long size();
+
+    /**
+     * Keys ranked {@code offset} to {@code offset + limit - 1}, without values.
+     */
+    List<RankedEntry<T>> range(long offset, int limit);
+
+    /**
+     * {@link #range} plus the value of every key, read in one batch. Keys without a value are left out, so the
+     * page can come back shorter than {@code limit}.
+     */
+    List<RankedEntry<T>> rangeWithValues(long offset, int limit);
+
+    default List<RankedEntry<T>> top(int limit) {
+        return range(0, limit);
+    }
+
+    default List<RankedEntry<T>> topWithValues(int limit) {
+        return rangeWithValues(0, limit);
+    }
+}
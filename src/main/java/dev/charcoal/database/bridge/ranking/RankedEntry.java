@@ -0,0 +1,44 @@
+package dev.charcoal.database.bridge.ranking;
+
+import dev.charcoal.database.bridge.SyncDatabase;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One position of a {@link RankedCollection}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class RankedEntry<T> {
+
+    private final String key;
+    /** Zero-based, highest score first. */
+    private final long rank;
+    private final double score;
+    /** Only set by the reads that also fetch values. */
+    @Nullable
+    private final T value;
+
+    /**
+     * Copies of {@code page} carrying their values, read with one {@link SyncDatabase#fetchMany} call. Entries
+     * without a value are dropped.
+     */
+    public static <T> List<RankedEntry<T>> withValues(List<RankedEntry<T>> page, SyncDatabase<T> database) {
+        if (page.isEmpty()) return List.of();
+        Map<String, T> values = database.fetchMany(page.stream().map(RankedEntry::getKey).toList());
+
+        List<RankedEntry<T>> result = new ArrayList<>(page.size());
+        for (RankedEntry<T> entry : page) {
+            T value = values.get(entry.getKey());
+            if (value != null) result.add(new RankedEntry<>(entry.getKey(), entry.getRank(), entry.getScore(), value));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,180 @@
+package dev.charcoal.database.bridge.ranking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Skip list of (key, score) pairs, highest score first, where every link also records how many nodes it skips
+ * over. Summing those spans along a search gives the rank of a node, and following them finds the node at a
+ * rank, both in O(log N), which a plain sorted set cannot do. This is the structure behind Redis sorted sets.
+ * Not thread-safe.
+ */
+final class ScoreSkipList {
+
+    private static final int MAX_LEVEL = 32;
+    private static final double LEVEL_PROBABILITY = 0.25;
+
+    static final class Node {
+        final String key;
+        final double score;
+        final Node[] next;
+        final long[] span;
+
+        private Node(String key, double score, int level) {
+            this.key = key;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new long[level];
+        }
+    }
+
+    private final Node head = new Node(null, 0, MAX_LEVEL);
+    private int level = 1;
+    private long length;
+
+    long size() {
+        return length;
+    }
+
+    /**
+     * The key must not be in the list yet.
+     */
+    void insert(String key, double score) {
+        Node[] update = new Node[MAX_LEVEL];
+        long[] rank = new long[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && precedes(x.next[i], key, score)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                update[i].span[i] = length;
+            }
+            level = nodeLevel;
+        }
+
+        Node node = new Node(key, score, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        // the new node sits below the links on the higher levels, which now skip one more node
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        length++;
+    }
+
+    /**
+     * @return whether the pair was in the list
+     */
+    boolean delete(String key, double score) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && precedes(x.next[i], key, score)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        x = x.next[0];
+        if (x == null || x.score != score || !x.key.equals(key)) return false;
+
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == x) {
+                update[i].span[i] += x.span[i] - 1;
+                update[i].next[i] = x.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        length--;
+        return true;
+    }
+
+    /**
+     * @return zero-based rank, or -1 if the pair is not in the list
+     */
+    long rank(String key, double score) {
+        long rank = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && (precedes(x.next[i], key, score) || matches(x.next[i], key, score))) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x != head && x.key.equals(key)) return rank - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Nodes ranked {@code offset} to {@code offset + limit - 1}, found by rank and then walked in order.
+     */
+    List<Node> range(long offset, int limit) {
+        if (offset < 0 || offset >= length || limit <= 0) return List.of();
+        List<Node> nodes = new ArrayList<>((int) Math.min(limit, length - offset));
+
+        long traversed = 0;
+        long target = offset + 1;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= target) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == target) break;
+        }
+
+        while (x != null && nodes.size() < limit) {
+            nodes.add(x);
+            x = x.next[0];
+        }
+        return nodes;
+    }
+
+    void clear() {
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.next[i] = null;
+            head.span[i] = 0;
+        }
+        level = 1;
+        length = 0;
+    }
+
+    /**
+     * Whether {@code node} ranks ahead of ({@code key}, {@code score}): higher score, or same score and larger key.
+     */
+    private static boolean precedes(Node node, String key, double score) {
+        return node.score > score || (node.score == score && node.key.compareTo(key) > 0);
+    }
+
+    private static boolean matches(Node node, String key, double score) {
+        return node.score == score && node.key.equals(key);
+    }
+
+    private static int randomLevel() {
+        int level = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (level < MAX_LEVEL && random.nextDouble() < LEVEL_PROBABILITY) {
+            level++;
+        }
+        return level;
+    }
+}
@@ -0,0 +1,138 @@
+package dev.charcoal.database.bridge.ranking;
+
+import dev.charcoal.database.bridge.SyncDatabase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process ranking over an indexed skip list, for backends without a sorted set of their own or for tests.
+ * Scores are not persisted. Values are read from {@code values}, which can be any backend.
+ */
+public class SkipListRanking<T> implements RankedCollection<T> {
+
+    private final SyncDatabase<T> values;
+    private final Map<String, Double> scores = new HashMap<>();
+    private final ScoreSkipList order = new ScoreSkipList();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SkipListRanking(@NotNull SyncDatabase<T> values) {
+        this.values = values;
+    }
+
+    @Override
+    public void setScore(String key, double score) {
+        checkScore(score);
+        lock.writeLock().lock();
+        try {
+            place(key, score);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public double incrementScore(String key, double delta) {
+        checkScore(delta);
+        lock.writeLock().lock();
+        try {
+            double score = scores.getOrDefault(key, 0.0) + delta;
+            checkScore(score);
+            place(key, score);
+            return score;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void place(String key, double score) {
+        Double previous = scores.put(key, score);
+        if (previous != null) order.delete(key, previous);
+        order.insert(key, score);
+    }
+
+    private static void checkScore(double score) {
+        if (Double.isNaN(score)) throw new IllegalArgumentException("Score must be a number");
+    }
+
+    @Override
+    public @Nullable Double getScore(String key) {
+        lock.readLock().lock();
+        try {
+            return scores.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public @Nullable Long getRank(String key) {
+        lock.readLock().lock();
+        try {
+            Double score = scores.get(key);
+            return score == null ? null : order.rank(key, score);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(String key) {
+        lock.writeLock().lock();
+        try {
+            Double previous = scores.remove(key);
+            if (previous == null) return false;
+            order.delete(key, previous);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return order.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<RankedEntry<T>> range(long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<RankedEntry<T>> page = new ArrayList<>();
+            long rank = offset;
+            for (ScoreSkipList.Node node : order.range(offset, limit)) {
+                page.add(new RankedEntry<>(node.key, rank++, node.score, null));
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<RankedEntry<T>> rangeWithValues(long offset, int limit) {
+        // values are read outside the lock, so a slow backend does not hold up score updates
+        return RankedEntry.withValues(range(offset, limit), values);
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            scores.clear();
+            order.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package dev.charcoal.database.bridge.redis;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settings of {@link RedisDatabase#enableClientSideCaching(ClientCacheOptions)}.
+ */
+@Getter
+@Builder
+public class ClientCacheOptions {
+
+    /** Entries kept locally; the least recently used go first. */
+    @Builder.Default
+    private long maximumSize = 10_000;
+    /**
+     * Have Redis announce every change under {@link #prefixes} instead of remembering which keys this client
+     * read. Costs the server no memory per key, but sends invalidations for keys this client never cached.
+     */
+    @Builder.Default
+    private boolean broadcast = false;
+    /** Broadcast mode only: the key prefixes announced, and the only keys cached; empty for every key. */
+    @Builder.Default
+    private List<String> prefixes = List.of();
+    /** Safety net on how long an entry is served without an invalidation; {@code null} for no bound. */
+    @Nullable
+    @Builder.Default
+    private Duration ttl = Duration.ofMinutes(30);
+
+    public static ClientCacheOptions defaults() {
+        return builder().build();
+    }
+}
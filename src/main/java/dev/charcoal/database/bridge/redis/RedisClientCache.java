@@ -0,0 +1,277 @@
+package dev.charcoal.database.bridge.redis;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.StatefulRedisConnectionImpl;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.push.PushListener;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local copies of values read through a dedicated RESP3 connection with CLIENT TRACKING enabled, so Redis pushes
+ * an invalidation on that connection as soon as a cached key is changed by any client. Misses are cached too,
+ * since reading an absent key tracks it all the same.
+ * <p>
+ * A reply can be overtaken by the invalidation that follows it, because replies are consumed by the calling
+ * thread while invalidations are handled on the event loop. Every key therefore maps to an epoch bumped by its
+ * invalidations, and a read only fills the cache if its epoch did not move while the read was in flight.
+ * A disconnect drops everything, since invalidations sent meanwhile are lost, and caching resumes once tracking
+ * is enabled again on the new connection.
+ */
+class RedisClientCache<T> implements PushListener, RedisConnectionStateListener {
+
+    private static final int EPOCH_STRIPES = 1024;
+
+    private final RedisDatabase<T> database;
+    private final StatefulRedisConnection<String, byte[]> connection;
+    private final RedisAsyncCommands<String, byte[]> commands;
+    private final TrackingArgs trackingArgs;
+    @Nullable
+    private final List<String> broadcastPrefixes;
+    private final Cache<String, Optional<T>> cache;
+
+    private final AtomicLongArray epochs = new AtomicLongArray(EPOCH_STRIPES);
+    private volatile boolean tracking;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    RedisClientCache(RedisClient client, RedisDatabase<T> database, ClientCacheOptions options, Duration timeout) {
+        this.database = database;
+        this.broadcastPrefixes = options.isBroadcast() ? List.copyOf(options.getPrefixes()) : null;
+
+        TrackingArgs args = TrackingArgs.Builder.enabled();
+        if (options.isBroadcast()) {
+            args.bcast();
+            if (!options.getPrefixes().isEmpty()) args.prefixes(options.getPrefixes().toArray(new String[0]));
+        }
+        this.trackingArgs = args;
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(options.getMaximumSize());
+        if (options.getTtl() != null) builder.expireAfterWrite(options.getTtl());
+        this.cache = builder.build();
+
+        this.connection = client.connect(RedisDatabase.CODEC);
+        this.connection.setTimeout(timeout);
+        // over RESP2 invalidations would need a separate pub/sub connection; without it they are silently lost
+        if (connection instanceof StatefulRedisConnectionImpl<?, ?> impl
+                && impl.getConnectionState().getNegotiatedProtocolVersion() != ProtocolVersion.RESP3) {
+            connection.close();
+            throw new IllegalStateException("Client-side caching needs a RESP3 connection (Redis 6 or later)");
+        }
+        this.commands = connection.async();
+
+        connection.addListener((PushListener) this);
+        connection.addListener((RedisConnectionStateListener) this);
+        connection.sync().clientTracking(trackingArgs);
+        this.tracking = true;
+    }
+
+    /* ------------------ READS ------------------ */
+
+    T fetch(String key) {
+        Optional<T> local = cache.getIfPresent(key);
+        if (local != null) {
+            hits.increment();
+            return local.orElse(null);
+        }
+        misses.increment();
+
+        long epoch = epoch(key);
+        boolean tracked = tracking;
+        T value = database.decode(key, connection.sync().get(key));
+        fill(key, value, epoch, tracked);
+        return value;
+    }
+
+    CompletableFuture<T> fetchAsync(String key) {
+        Optional<T> local = cache.getIfPresent(key);
+        if (local != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(local.orElse(null));
+        }
+        misses.increment();
+
+        long epoch = epoch(key);
+        boolean tracked = tracking;
+        return commands.get(key)
+                .thenApply(payload -> {
+                    T value = database.decode(key, payload);
+                    fill(key, value, epoch, tracked);
+                    return value;
+                })
+                .toCompletableFuture();
+    }
+
+    /**
+     * Serves what it can locally and reads the rest with a single MGET, which tracks every key it asks for.
+     */
+    CompletableFuture<Map<String, T>> fetchManyAsync(Collection<String> keys) {
+        Map<String, T> local = new LinkedHashMap<>();
+        List<String> remote = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Optional<T> cached = cache.getIfPresent(key);
+            if (cached == null) {
+                remote.add(key);
+            } else {
+                cached.ifPresent(value -> local.put(key, value));
+            }
+        }
+        hits.add(keys.size() - remote.size());
+        misses.add(remote.size());
+        if (remote.isEmpty()) return CompletableFuture.completedFuture(local);
+
+        long[] sent = new long[remote.size()];
+        for (int i = 0; i < sent.length; i++) sent[i] = epoch(remote.get(i));
+        boolean tracked = tracking;
+
+        return commands.mget(remote.toArray(new String[0]))
+                .thenApply(values -> {
+                    Map<String, T> fetched = new LinkedHashMap<>(local);
+                    // MGET answers in request order, absent keys included
+                    for (int i = 0; i < values.size(); i++) {
+                        KeyValue<String, byte[]> keyValue = values.get(i);
+                        T value = keyValue.hasValue() ? database.decode(keyValue.getKey(), keyValue.getValue()) : null;
+                        fill(keyValue.getKey(), value, sent[i], tracked);
+                        if (value != null) fetched.put(keyValue.getKey(), value);
+                    }
+
+                    Map<String, T> result = new LinkedHashMap<>();
+                    for (String key : keys) {
+                        T value = fetched.get(key);
+                        if (value != null) result.put(key, value);
+                    }
+                    return result;
+                })
+                .toCompletableFuture();
+    }
+
+    private void fill(String key, @Nullable T value, long epoch, boolean tracked) {
+        if (!tracked || !tracking || !cacheable(key)) return;
+        int stripe = stripe(key);
+        if (epochs.get(stripe) != epoch) return;
+
+        cache.put(key, Optional.ofNullable(value));
+        // an invalidation landing between the check and the put would otherwise be undone by it
+        if (epochs.get(stripe) != epoch) cache.invalidate(key);
+    }
+
+    /**
+     * In broadcast mode Redis only announces changes under the subscribed prefixes, so nothing else may be kept.
+     */
+    private boolean cacheable(String key) {
+        if (broadcastPrefixes == null || broadcastPrefixes.isEmpty()) return true;
+        for (String prefix : broadcastPrefixes) {
+            if (key.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    /* ------------------ INVALIDATION ------------------ */
+
+    void invalidate(String key) {
+        epochs.incrementAndGet(stripe(key));
+        cache.invalidate(key);
+    }
+
+    void invalidateAll() {
+        for (int i = 0; i < EPOCH_STRIPES; i++) {
+            epochs.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    private long epoch(String key) {
+        return epochs.get(stripe(key));
+    }
+
+    private static int stripe(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (EPOCH_STRIPES - 1);
+    }
+
+    /**
+     * {@code invalidate} carries the changed keys, or nothing when the server was flushed.
+     */
+    @Override
+    public void onPushMessage(PushMessage message) {
+        if (!"invalidate".equals(message.getType())) return;
+
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        Object keys = content.size() > 1 ? content.get(1) : null;
+        if (keys instanceof List<?> list) {
+            for (Object key : list) {
+                invalidate(String.valueOf(key));
+            }
+        } else {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public void onRedisDisconnected(RedisChannelHandler<?, ?> handler) {
+        tracking = false;
+        invalidateAll();
+    }
+
+    /**
+     * Tracking belongs to the server-side connection, so a reconnect starts without it. Reads sent before it is
+     * back are answered but not cached.
+     */
+    @Override
+    public void onRedisConnected(RedisChannelHandler<?, ?> handler, SocketAddress address) {
+        commands.clientTracking(trackingArgs).whenComplete((reply, error) -> {
+            if (error != null) {
+                System.err.println("[RedisDatabase] Failed to re-enable client tracking, local cache stays off: " + error.getMessage());
+                return;
+            }
+            invalidateAll();
+            tracking = true;
+        });
+    }
+
+    /* ------------------ STATS ------------------ */
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long missCount() {
+        return misses.sum();
+    }
+
+    long size() {
+        return cache.estimatedSize();
+    }
+
+    void setTimeout(Duration timeout) {
+        connection.setTimeout(timeout);
+    }
+
+    void close() {
+        tracking = false;
+        connection.close();
+        cache.invalidateAll();
+    }
+}
@@ -1,164 +1,836 @@
 package dev.charcoal.database.bridge.redis;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
 import dev.charcoal.database.bridge.AsyncDatabase;
+import dev.charcoal.database.bridge.MigratableDatabase;
+import dev.charcoal.database.bridge.ObservableDatabase;
+import dev.charcoal.database.bridge.RankableDatabase;
+import dev.charcoal.database.bridge.cache.HotKeyCache;
+import dev.charcoal.database.bridge.change.ChangeListener;
+import dev.charcoal.database.bridge.change.Subscription;
+import dev.charcoal.database.bridge.priority.OperationClass;
+import dev.charcoal.database.bridge.priority.PriorityGate;
+import dev.charcoal.database.bridge.priority.PriorityOptions;
+import dev.charcoal.database.bridge.ranking.RankedCollection;
+import dev.charcoal.database.bridge.utils.Compression;
 import dev.charcoal.database.bridge.utils.DataUtils;
 import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.Transaction;
+import dev.charcoal.database.bridge.TransactionalDatabase;
+import dev.charcoal.database.bridge.VersionedDatabase;
+import dev.charcoal.database.bridge.utils.TypedSerializer;
+import dev.charcoal.database.bridge.utils.VersionAccessor;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.KeyValue;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.TimeoutOptions;
 import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
-public class RedisDatabase<T> implements AsyncDatabase<T>, SyncDatabase<T> {
+public class RedisDatabase<T> implements AsyncDatabase<T>, SyncDatabase<T>, TransactionalDatabase<T>, ObservableDatabase<T>,
+        RankableDatabase<T>, MigratableDatabase<T>, VersionedDatabase<T> {
+
+    /**
+     * Keys stay strings, values travel as raw bytes so JSON is never decoded into an intermediate String.
+     */
+    static final RedisCodec<String, byte[]> CODEC = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+
+    public static final Duration DEFAULT_COMMAND_TIMEOUT = Duration.ofSeconds(2);
+
+    public static final int DEFAULT_SCAN_BATCH_SIZE = 500;
+    public static final int DEFAULT_SCAN_MAX_IN_FLIGHT = 4;
+
+    /**
+     * Sets ARGV[3] if the version property ARGV[1] of the stored JSON equals ARGV[2], a missing key being version
+     * 0; an empty ARGV[3] deletes the key instead. Returns 1 when written, 0 on a version mismatch or nothing to
+     * delete, and -1 when the stored value is compressed or not JSON.
+     */
+    private static final String COMPARE_VERSION_SCRIPT = """
+            local current = redis.call('GET', KEYS[1])
+            local version = 0
+            if current then
+              if string.byte(current, 1) == 1 then return -1 end
+              local ok, doc = pcall(cjson.decode, current)
+              if not ok or type(doc) ~= 'table' then return -1 end
+              version = tonumber(doc[ARGV[1]]) or 0
+            end
+            if version ~= tonumber(ARGV[2]) then return 0 end
+            if ARGV[3] == '' then return redis.call('DEL', KEYS[1]) end
+            redis.call('SET', KEYS[1], ARGV[3])
+            return 1
+            """;
+
+    /**
+     * Sets ARGV[2] if the stored value still equals ARGV[1], an empty ARGV[1] standing for a missing key and an
+     * empty ARGV[2] for a delete.
+     */
+    private static final String COMPARE_BYTES_SCRIPT = """
+            local current = redis.call('GET', KEYS[1]) or ''
+            if current ~= ARGV[1] then return 0 end
+            if ARGV[2] == '' then return redis.call('DEL', KEYS[1]) end
+            redis.call('SET', KEYS[1], ARGV[2])
+            return 1
+            """;
+
+    private static final Map<String, String> SCRIPT_SHAS = new ConcurrentHashMap<>();
+
+    /**
+     * Slots the scan windows of background streams are scaled against; there is no pool to share, so this only
+     * sets how finely the window narrows.
+     */
+    private static final int PRIORITY_CAPACITY = 10;
+
+    /**
+     * Transactions that can run at once, each on a connection of its own.
+     */
+    private static final int TRANSACTION_CONNECTIONS = 8;
+
+    /**
+     * Threads running async versioned writes. Their scripts go over the shared connection, but {@code update}
+     * sleeps between conflicting attempts, which must not tie up the common pool.
+     */
+    private static final int VERSIONED_WRITE_THREADS = 8;
 
     private final RedisClient client;
-    private final StatefulRedisConnection<String, String> connection;
-    private final RedisCommands<String, String> syncCommands;
-    private final RedisAsyncCommands<String, String> asyncCommands;
-    private final ObjectMapper mapper = DataUtils.mapper;
+    private final StatefulRedisConnection<String, byte[]> connection;
+    private final RedisCommands<String, byte[]> syncCommands;
+    private final RedisAsyncCommands<String, byte[]> asyncCommands;
+    private final TypedSerializer<T> serializer;
+    private final Compression compression;
     private final Class<T> typeClass;
+    @Nullable
+    private final VersionAccessor<T> versionAccessor;
+    @Nullable
+    private final String versionProperty;
+
+    // WATCH/MULTI state is per connection, so each running transaction borrows one of a small pool
+    private final Semaphore transactionPermits = new Semaphore(TRANSACTION_CONNECTIONS);
+    private final Deque<StatefulRedisConnection<String, byte[]>> idleTransactionConnections = new ConcurrentLinkedDeque<>();
+    private final Set<StatefulRedisConnection<String, byte[]>> transactionConnections = ConcurrentHashMap.newKeySet();
+    private final ExecutorService transactionExecutor = Executors.newFixedThreadPool(TRANSACTION_CONNECTIONS, runnable -> {
+        Thread thread = new Thread(runnable, "RedisDatabase-transaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ExecutorService versionedWriteExecutor = Executors.newFixedThreadPool(VERSIONED_WRITE_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "RedisDatabase-versioned");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // background scans get their own connection, so their replies never queue ahead of interactive ones
+    private final Object backgroundConnectionLock = new Object();
+    private StatefulRedisConnection<String, byte[]> backgroundConnection;
+    private volatile PriorityGate priorityGate = new PriorityGate("RedisDatabase", PRIORITY_CAPACITY, PriorityOptions.defaults());
+
+    @Nullable
+    private volatile HotKeyCache<T> hotKeys;
+    @Nullable
+    private volatile RedisClientCache<T> clientCache;
 
     public RedisDatabase(@NotNull String redisUrl, @NotNull Class<T> typeClass) {
-        this(RedisClient.create(redisUrl), typeClass);
+        this(createClient(redisUrl), typeClass);
     }
 
     public RedisDatabase(@NotNull RedisClient redisClient, @NotNull Class<T> typeClass) {
+        this(redisClient, typeClass, Compression.NONE);
+    }
+
+    /**
+     * @param redisClient its options are left as they are; enable {@link TimeoutOptions} on it so async commands
+     *                    honour the command timeout too
+     * @param compression applied to values above its size threshold; compressed and plain values can coexist
+     *                    under the same prefix and are told apart by their header byte
+     */
+    public RedisDatabase(@NotNull RedisClient redisClient, @NotNull Class<T> typeClass, @NotNull Compression compression) {
         this.client = redisClient;
-        this.connection = redisClient.connect();
+        this.compression = compression;
+        if (!redisClient.getOptions().getTimeoutOptions().isTimeoutCommands()) {
+            System.err.println("[RedisDatabase] Client has no command timeouts, async commands wait forever on a stalled server");
+        }
+        this.connection = redisClient.connect(CODEC);
+        this.connection.setTimeout(DEFAULT_COMMAND_TIMEOUT);
         this.syncCommands = connection.sync();
         this.asyncCommands = connection.async();
+        this.serializer = DataUtils.serializer(typeClass);
         this.typeClass = typeClass;
+        this.versionAccessor = VersionAccessor.find(typeClass);
+        this.versionProperty = versionAccessor != null ? jsonName(typeClass, versionAccessor.getField()) : null;
+    }
+
+    /**
+     * Lettuce only times out sync calls by default; async commands, including timed saves, would wait forever on
+     * a stalled server. A client created here makes every command honour the connection timeout; clients passed
+     * in belong to the caller, who may share them, so their options are never changed.
+     */
+    private static RedisClient createClient(String redisUrl) {
+        RedisClient client = RedisClient.create(redisUrl);
+        client.setOptions(ClientOptions.builder().timeoutOptions(TimeoutOptions.enabled()).build());
+        return client;
+    }
+
+    /**
+     * Deadline for every command issued by this database, sync and async. Defaults to {@link #DEFAULT_COMMAND_TIMEOUT}.
+     */
+    public void setCommandTimeout(@NotNull Duration timeout) {
+        connection.setTimeout(timeout);
+        RedisClientCache<T> tracked = clientCache;
+        if (tracked != null) tracked.setTimeout(timeout);
+        transactionConnections.forEach(transaction -> transaction.setTimeout(timeout));
+        synchronized (backgroundConnectionLock) {
+            if (backgroundConnection != null) backgroundConnection.setTimeout(timeout);
+        }
+    }
+
+    /**
+     * Replaces the limits of background streams. Streams already running keep the previous limits.
+     */
+    public void setPriorityOptions(@NotNull PriorityOptions options) {
+        this.priorityGate = new PriorityGate("RedisDatabase", PRIORITY_CAPACITY, options);
+    }
+
+    public PriorityGate getPriorityGate() {
+        return priorityGate;
+    }
+
+    private RedisAsyncCommands<String, byte[]> backgroundCommands() {
+        synchronized (backgroundConnectionLock) {
+            if (backgroundConnection == null) {
+                backgroundConnection = client.connect(CODEC);
+                backgroundConnection.setTimeout(connection.getTimeout());
+            }
+            return backgroundConnection.async();
+        }
+    }
+
+    /**
+     * Reports the round trip of an interactive read once {@code future} completes; reads served locally are
+     * not reported.
+     */
+    private <R> CompletableFuture<R> recordingLatency(long start, CompletableFuture<R> future) {
+        if (OperationClass.current() != OperationClass.INTERACTIVE) return future;
+        PriorityGate gate = priorityGate;
+        return future.whenComplete((result, e) -> gate.recordInteractive(System.nanoTime() - start));
+    }
+
+    byte[] encode(String key, T value) {
+        try {
+            return compression.compress(serializer.toBytes(value));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Failed to serialize object for key: " + key, e);
+        }
+    }
+
+    T decode(String key, byte[] payload) {
+        if (payload == null) return null;
+        try {
+            return serializer.fromBytes(compression.decompress(payload));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Failed to deserialize object for key: " + key, e);
+        }
+    }
+
+    /**
+     * Serves keys read more than {@code threshold} times per sketch window from a local copy for up to {@code ttl},
+     * taking their load off the Redis node that owns them. Writes made through this instance drop the local copy;
+     * writes from other clients become visible once it expires, so keep the TTL short. Hot reads return the
+     * same shared instance, so treat fetched values as read-only.
+     */
+    public void enableHotKeyReplication(int threshold, @NotNull Duration ttl, int maxHotKeys) {
+        this.hotKeys = new HotKeyCache<>(threshold, ttl, maxHotKeys);
+    }
+
+    public void disableHotKeyReplication() {
+        this.hotKeys = null;
+    }
+
+    /**
+     * @return keys currently served locally with their estimated access frequency, hottest first
+     */
+    public Map<String, Integer> getHotKeys() {
+        HotKeyCache<T> cache = hotKeys;
+        return cache == null ? Map.of() : cache.getHotKeys();
+    }
+
+    /**
+     * Keeps a local copy of every value read, which Redis keeps coherent: CLIENT TRACKING on a dedicated RESP3
+     * connection makes the server push an invalidation whenever a cached key changes, whoever changed it. Repeat
+     * reads of rarely changing keys then never leave the process. Requires Redis 6 or later; the copies are shared
+     * instances, so treat fetched values as read-only. Takes precedence over hot-key replication.
+     *
+     * @throws IllegalStateException if the server cannot speak RESP3
+     */
+    public synchronized void enableClientSideCaching(@NotNull ClientCacheOptions options) {
+        disableClientSideCaching();
+        this.clientCache = new RedisClientCache<>(client, this, options, connection.getTimeout());
+    }
+
+    public synchronized void disableClientSideCaching() {
+        RedisClientCache<T> cache = clientCache;
+        if (cache == null) return;
+        clientCache = null;
+        cache.close();
+    }
+
+    public long getClientCacheHitCount() {
+        RedisClientCache<T> cache = clientCache;
+        return cache == null ? 0 : cache.hitCount();
+    }
+
+    public long getClientCacheMissCount() {
+        RedisClientCache<T> cache = clientCache;
+        return cache == null ? 0 : cache.missCount();
+    }
+
+    public long getClientCacheSize() {
+        RedisClientCache<T> cache = clientCache;
+        return cache == null ? 0 : cache.size();
+    }
+
+    /**
+     * Called before a local write and again once it is done: the first keeps readers off the old copy, the second
+     * drops a copy a concurrent read may have taken before the write reached the server, without waiting for the
+     * server's invalidation to arrive.
+     */
+    void invalidateLocal(String key) {
+        HotKeyCache<T> cache = hotKeys;
+        if (cache != null) cache.invalidate(key);
+        RedisClientCache<T> tracked = clientCache;
+        if (tracked != null) tracked.invalidate(key);
+    }
+
+    private <R> CompletableFuture<R> invalidatingAfter(Collection<String> keys, CompletableFuture<R> write) {
+        return write.whenComplete((result, error) -> keys.forEach(this::invalidateLocal));
+    }
+
+    T fetchFromServer(String key) {
+        return decode(key, syncCommands.get(key));
+    }
+
+    /**
+     * Runs {@code work} on a transaction connection no other thread uses meanwhile, waiting while all
+     * {@value #TRANSACTION_CONNECTIONS} are taken. A connection that failed with a Redis error may be left inside
+     * MULTI or with keys WATCHed, so it is closed instead of reused.
+     */
+    private <R> R withTransactionConnection(Function<RedisCommands<String, byte[]>, R> work) {
+        try {
+            transactionPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a Redis transaction connection");
+        }
+
+        StatefulRedisConnection<String, byte[]> borrowed = null;
+        boolean broken = false;
+        try {
+            borrowed = idleTransactionConnections.pollFirst();
+            if (borrowed == null || !borrowed.isOpen()) {
+                if (borrowed != null) transactionConnections.remove(borrowed);
+                borrowed = client.connect(CODEC);
+                borrowed.setTimeout(connection.getTimeout());
+                transactionConnections.add(borrowed);
+            }
+            return work.apply(borrowed.sync());
+        } catch (RedisException e) {
+            broken = true;
+            throw e;
+        } finally {
+            if (borrowed != null) {
+                if (broken) {
+                    transactionConnections.remove(borrowed);
+                    borrowed.close();
+                } else {
+                    idleTransactionConnections.offerFirst(borrowed);
+                }
+            }
+            transactionPermits.release();
+        }
     }
 
 
     @Override
     public T fetch(String key) {
+        RedisClientCache<T> tracked = clientCache;
+        if (tracked != null) {
+            try {
+                return tracked.fetch(key);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to fetch key: " + key, e);
+            }
+        }
+
+        HotKeyCache<T> cache = hotKeys;
+        if (cache != null) {
+            T local = cache.get(key);
+            if (local != null) return local;
+        }
+
+        long start = System.nanoTime();
         try {
-            String json = syncCommands.get(key);
-            return json == null ? null : mapper.readValue(json, typeClass);
+            T value = decode(key, syncCommands.get(key));
+            if (cache != null) cache.offer(key, value);
+            return value;
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch key: " + key, e);
+        } finally {
+            if (OperationClass.current() == OperationClass.INTERACTIVE) priorityGate.recordInteractive(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reads every key not served by the hot-key copy with a single MGET.
+     */
+    @Override
+    public Map<String, T> fetchMany(Collection<String> keys) {
+        try {
+            return fetchManyAsync(keys).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Failed to fetch " + keys.size() + " keys", e.getCause());
         }
     }
 
     @Override
     public List<T> fetchAll() {
-        throw new UnsupportedOperationException("Use fetchAll(prefix) or HSCAN to get all keys by pattern.");
+        throw new UnsupportedOperationException("Use fetchAll(prefix) or streamAll(prefix) to get all keys by pattern.");
     }
 
+    /**
+     * Reads every value under {@code prefix} through {@link #streamAll(String)}, so the server is never blocked by
+     * KEYS and never sees more than a few MGET batches at once.
+     */
     public List<T> fetchAll(String prefix) {
-        List<T> list = new ArrayList<>();
         try {
-            for (String key : syncCommands.keys(prefix + "*")) {
-                String json = syncCommands.get(key);
-                if (json != null) list.add(mapper.readValue(json, typeClass));
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to fetch keys with prefix: " + prefix, e);
+            return fetchAllAsync(prefix).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Failed to fetch keys with prefix: " + prefix, e.getCause());
         }
-        return list;
     }
 
     @Override
     public boolean save(String key, T value) {
+        invalidateLocal(key);
         try {
-            String json = mapper.writeValueAsString(value);
-            syncCommands.set(key, json);
-            return true;
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize object for key: " + key, e);
+            syncCommands.set(key, encode(key, value));
+        } finally {
+            invalidateLocal(key);
         }
+        return true;
     }
 
     @Override
     public boolean save(String key, T value, Duration timeout) {
+        invalidateLocal(key);
         try {
-            String json = mapper.writeValueAsString(value);
-            syncCommands.setex(key, timeout.toSeconds(), json);
-            return true;
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize object for key: " + key, e);
+            syncCommands.psetex(key, timeout.toMillis(), encode(key, value));
+        } finally {
+            invalidateLocal(key);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean saveMany(Map<String, T> values) {
+        if (values.isEmpty()) return true;
+        Map<String, byte[]> payloads = new LinkedHashMap<>();
+        values.forEach((key, value) -> {
+            invalidateLocal(key);
+            payloads.put(key, encode(key, value));
+        });
+        try {
+            return "OK".equalsIgnoreCase(syncCommands.mset(payloads));
+        } finally {
+            payloads.keySet().forEach(this::invalidateLocal);
         }
     }
 
     @Override
     public boolean delete(String key) {
-        return syncCommands.del(key) > 0;
+        invalidateLocal(key);
+        try {
+            return syncCommands.del(key) > 0;
+        } finally {
+            invalidateLocal(key);
+        }
+    }
+
+    /**
+     * Compares the version and sets the value in one EVAL on the shared connection, so concurrent calls cost
+     * retries rather than waiting on each other. Compressed values cannot be read by the script; for those the
+     * version is checked here and the value swapped only if its bytes are unchanged.
+     */
+    @Override
+    public boolean compareAndSave(String key, long expectedVersion, T value) {
+        VersionAccessor<T> accessor = VersionAccessor.require(versionAccessor, typeClass);
+        long previousVersion = accessor.get(value);
+        accessor.set(value, expectedVersion + 1);
+        // a stale local copy would make update() retry against the same old version forever
+        invalidateLocal(key);
+
+        boolean saved = false;
+        try {
+            byte[] payload = encode(key, value);
+            long result = evalScript(COMPARE_VERSION_SCRIPT, key, versionProperty.getBytes(StandardCharsets.UTF_8),
+                    Long.toString(expectedVersion).getBytes(StandardCharsets.UTF_8), payload);
+            if (result < 0) {
+                // compressed or not JSON: check the version here, then swap only if the bytes are unchanged
+                byte[] current = syncCommands.get(key);
+                if (accessor.get(decode(key, current)) != expectedVersion) return false;
+                result = evalScript(COMPARE_BYTES_SCRIPT, key, current != null ? current : new byte[0], payload);
+            }
+            saved = result == 1;
+            return saved;
+        } finally {
+            invalidateLocal(key);
+            if (!saved) accessor.set(value, previousVersion);
+        }
+    }
+
+    private long evalScript(String script, String key, byte[]... args) {
+        String sha = SCRIPT_SHAS.computeIfAbsent(script, syncCommands::digest);
+        try {
+            return syncCommands.evalsha(sha, ScriptOutputType.INTEGER, new String[]{key}, args);
+        } catch (RedisNoScriptException e) {
+            return syncCommands.eval(script, ScriptOutputType.INTEGER, new String[]{key}, args);
+        }
+    }
+
+    /**
+     * Name of the version field in the stored JSON, which Jackson may have renamed.
+     */
+    private static String jsonName(Class<?> type, Field field) {
+        BeanDescription description = DataUtils.mapper.getSerializationConfig().introspect(DataUtils.mapper.constructType(type));
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            if (property.getField() != null && property.getField().getAnnotated().equals(field)) return property.getName();
+        }
+        return field.getName();
+    }
+
+    @Override
+    public T update(String key, UnaryOperator<T> updater) {
+        return VersionAccessor.require(versionAccessor, typeClass).update(this, key, updater);
+    }
+
+    /* ------------------ MIGRATION ------------------ */
+
+    @Override
+    public @Nullable Duration timeToLive(String key) {
+        long millis = syncCommands.pttl(key);
+        // -2 for a missing key, -1 for one without expiry
+        return millis < 0 ? null : Duration.ofMillis(Math.max(1, millis));
+    }
+
+    @Override
+    public boolean saveIfAbsent(String key, T value, @Nullable Duration timeout) {
+        SetArgs args = timeout == null ? SetArgs.Builder.nx() : SetArgs.Builder.nx().px(timeout.toMillis());
+        invalidateLocal(key);
+        try {
+            return "OK".equalsIgnoreCase(syncCommands.set(key, encode(key, value), args));
+        } finally {
+            invalidateLocal(key);
+        }
+    }
+
+    /**
+     * Runs the {@link #compareAndSave} scripts with an empty payload, which they take as a delete.
+     */
+    @Override
+    public boolean deleteIfVersion(String key, long expectedVersion) {
+        VersionAccessor<T> accessor = VersionAccessor.require(versionAccessor, typeClass);
+        invalidateLocal(key);
+        try {
+            long result = evalScript(COMPARE_VERSION_SCRIPT, key, versionProperty.getBytes(StandardCharsets.UTF_8),
+                    Long.toString(expectedVersion).getBytes(StandardCharsets.UTF_8), new byte[0]);
+            if (result < 0) {
+                byte[] current = syncCommands.get(key);
+                if (current == null || accessor.get(decode(key, current)) != expectedVersion) return false;
+                result = evalScript(COMPARE_BYTES_SCRIPT, key, current, new byte[0]);
+            }
+            return result == 1;
+        } finally {
+            invalidateLocal(key);
+        }
+    }
+
+    /**
+     * Runs {@code work} as an optimistic MULTI/EXEC transaction on a pooled transaction connection, so
+     * transactions only wait on each other once the pool is exhausted. Keys fetched inside {@code work} are
+     * WATCHed, so the commit fails if another client changed them.
+     *
+     * @return {@code false} if Redis discarded the transaction because of a conflicting write
+     */
+    @Override
+    public boolean transaction(Consumer<Transaction<T>> work) {
+        return withTransactionConnection(commands -> {
+            RedisTransaction<T> tx = new RedisTransaction<>(this, commands);
+            try {
+                work.accept(tx);
+            } catch (RuntimeException | Error e) {
+                tx.rollback();
+                throw e;
+            }
+            return tx.commit();
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> transactionAsync(Consumer<Transaction<T>> work) {
+        return CompletableFuture.supplyAsync(() -> transaction(work), transactionExecutor);
     }
 
     @Override
     public CompletableFuture<T> fetchAsync(String key) {
-        return asyncCommands.get(key)
-                .thenApply(json -> {
-                    if (json == null) return null;
-                    try {
-                        return mapper.readValue(json, typeClass);
-                    } catch (JsonProcessingException e) {
-                        throw new RuntimeException("Failed to deserialize object for key: " + key, e);
+        RedisClientCache<T> tracked = clientCache;
+        if (tracked != null) return tracked.fetchAsync(key);
+
+        HotKeyCache<T> cache = hotKeys;
+        if (cache != null) {
+            T local = cache.get(key);
+            if (local != null) return CompletableFuture.completedFuture(local);
+        }
+
+        long start = System.nanoTime();
+        return recordingLatency(start, asyncCommands.get(key)
+                .thenApply(payload -> {
+                    T value = decode(key, payload);
+                    if (cache != null) cache.offer(key, value);
+                    return value;
+                })
+                .toCompletableFuture());
+    }
+
+    @Override
+    public CompletableFuture<Map<String, T>> fetchManyAsync(Collection<String> keys) {
+        if (keys.isEmpty()) return CompletableFuture.completedFuture(Map.of());
+        RedisClientCache<T> tracked = clientCache;
+        if (tracked != null) return tracked.fetchManyAsync(keys);
+
+        HotKeyCache<T> cache = hotKeys;
+        Map<String, T> local = new LinkedHashMap<>();
+        List<String> remote = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            T value = cache != null ? cache.get(key) : null;
+            if (value != null) local.put(key, value);
+            else remote.add(key);
+        }
+        if (remote.isEmpty()) return CompletableFuture.completedFuture(local);
+
+        long start = System.nanoTime();
+        return recordingLatency(start, asyncCommands.mget(remote.toArray(new String[0]))
+                .thenApply(values -> {
+                    Map<String, T> fetched = new LinkedHashMap<>(local);
+                    for (KeyValue<String, byte[]> keyValue : values) {
+                        if (!keyValue.hasValue()) continue;
+                        T value = decode(keyValue.getKey(), keyValue.getValue());
+                        if (cache != null) cache.offer(keyValue.getKey(), value);
+                        fetched.put(keyValue.getKey(), value);
+                    }
+
+                    // keep the caller's key order
+                    Map<String, T> result = new LinkedHashMap<>();
+                    for (String key : keys) {
+                        T value = fetched.get(key);
+                        if (value != null) result.put(key, value);
                     }
+                    return result;
                 })
-                .toCompletableFuture();
+                .toCompletableFuture());
     }
 
     @Override
     public CompletableFuture<List<T>> fetchAllAsync() {
-        throw new UnsupportedOperationException("Use fetchAllAsync(prefix) for pattern-based fetching.");
+        throw new UnsupportedOperationException("Use fetchAllAsync(prefix) or streamAll(prefix) for pattern-based fetching.");
     }
 
+    /**
+     * Collects {@link #streamAll(String)} into a list. The list itself still holds every value; use the publisher
+     * directly to process large key spaces in constant memory.
+     */
     public CompletableFuture<List<T>> fetchAllAsync(String prefix) {
-        return asyncCommands.keys(prefix + "*")
-                .thenCompose(keys -> {
-                    List<CompletableFuture<T>> futures = new ArrayList<>();
-                    for (String key : keys) {
-                        futures.add(fetchAsync(key));
-                    }
-                    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                            .thenApply(v -> futures.stream()
-                                    .map(CompletableFuture::join)
-                                    .toList());
-                })
-                .toCompletableFuture();
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        streamAll(prefix).subscribe(new Flow.Subscriber<>() {
+            // SCAN may return a key twice while the keyspace is being resized
+            private final Map<String, T> values = new LinkedHashMap<>();
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Map.Entry<String, T> entry) {
+                values.put(entry.getKey(), entry.getValue());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                result.complete(new ArrayList<>(values.values()));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Streams every entry under {@code prefix} with SCAN and windowed MGETs of {@value #DEFAULT_SCAN_BATCH_SIZE} keys,
+     * at most {@value #DEFAULT_SCAN_MAX_IN_FLIGHT} batches at a time.
+     */
+    public Flow.Publisher<Map.Entry<String, T>> streamAll(String prefix) {
+        return streamAll(prefix, DEFAULT_SCAN_BATCH_SIZE, DEFAULT_SCAN_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Streams every entry under {@code prefix}, honouring the subscriber's demand. At most {@code maxInFlight}
+     * batches of {@code batchSize} keys are being read or buffered at once, so memory use does not grow with
+     * the number of keys. Values are delivered on the common pool, never on the Redis event loop.
+     * <p>
+     * Outside an interactive block the stream is background work: it reads over a connection of its own and
+     * narrows its window while interactive reads are slower than the {@link PriorityOptions} target.
+     */
+    public Flow.Publisher<Map.Entry<String, T>> streamAll(String prefix, int batchSize, int maxInFlight) {
+        if (OperationClass.currentOr(OperationClass.BACKGROUND) == OperationClass.INTERACTIVE) {
+            return new RedisScanPublisher<>(this, asyncCommands, prefix, batchSize, maxInFlight, ForkJoinPool.commonPool(), null);
+        }
+        return new RedisScanPublisher<>(this, backgroundCommands(), prefix, batchSize, maxInFlight, ForkJoinPool.commonPool(), priorityGate);
     }
 
     @Override
     public CompletableFuture<Boolean> saveAsync(String key, T value) {
-        try {
-            String json = mapper.writeValueAsString(value);
-            return asyncCommands.set(key, json)
-                    .thenApply("OK"::equalsIgnoreCase)
-                    .toCompletableFuture();
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize object for key: " + key, e);
-        }
+        invalidateLocal(key);
+        return invalidatingAfter(List.of(key), asyncCommands.set(key, encode(key, value))
+                .thenApply("OK"::equalsIgnoreCase)
+                .toCompletableFuture());
     }
 
     @Override
     public CompletableFuture<Boolean> saveAsync(String key, T value, Duration timeout) {
-        try {
-            String json = mapper.writeValueAsString(value);
-            return asyncCommands.setex(key, timeout.toSeconds(), json)
-                    .thenApply("OK"::equalsIgnoreCase)
-                    .toCompletableFuture();
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize object for key: " + key, e);
-        }
+        invalidateLocal(key);
+        return invalidatingAfter(List.of(key), asyncCommands.psetex(key, timeout.toMillis(), encode(key, value))
+                .thenApply("OK"::equalsIgnoreCase)
+                .toCompletableFuture());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveManyAsync(Map<String, T> values) {
+        if (values.isEmpty()) return CompletableFuture.completedFuture(true);
+        Map<String, byte[]> payloads = new LinkedHashMap<>();
+        values.forEach((key, value) -> {
+            invalidateLocal(key);
+            payloads.put(key, encode(key, value));
+        });
+        return invalidatingAfter(payloads.keySet(), asyncCommands.mset(payloads)
+                .thenApply("OK"::equalsIgnoreCase)
+                .toCompletableFuture());
     }
 
     @Override
     public CompletableFuture<Boolean> deleteAsync(String key) {
-        return asyncCommands.del(key)
+        invalidateLocal(key);
+        return invalidatingAfter(List.of(key), asyncCommands.del(key)
                 .thenApply(result -> result > 0)
-                .toCompletableFuture();
+                .toCompletableFuture());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> compareAndSaveAsync(String key, long expectedVersion, T value) {
+        return CompletableFuture.supplyAsync(() -> compareAndSave(key, expectedVersion, value), versionedWriteExecutor);
+    }
+
+    @Override
+    public CompletableFuture<T> updateAsync(String key, UnaryOperator<T> updater) {
+        return CompletableFuture.supplyAsync(() -> update(key, updater), versionedWriteExecutor);
+    }
+
+    /**
+     * Ranking stored in the sorted set at {@code name}, so top-N, rank and page reads run on the server in
+     * O(log N + page) instead of fetching every value. The sorted set is a key like any other: pick a name that
+     * cannot collide with value keys, such as {@code leaderboard:season-1}.
+     */
+    @Override
+    public RankedCollection<T> ranking(String name) {
+        return new RedisRanking<>(this, syncCommands, name);
+    }
+
+    @Override
+    public Subscription subscribe(ChangeListener<T> listener) {
+        return subscribe("", listener);
+    }
+
+    /**
+     * Streams writes, deletes and expirations of keys starting with {@code prefix} through keyspace notifications.
+     * Enables the needed {@code notify-keyspace-events} flags when the server allows CONFIG SET; on managed Redis
+     * they may have to be set by the provider ({@code K$gxe}). Notifications are fire-and-forget, so events
+     * published while this client is disconnected are lost.
+     */
+    public Subscription subscribe(@NotNull String prefix, @NotNull ChangeListener<T> listener) {
+        enableKeyspaceNotifications();
+        return new RedisKeyspaceSubscription<>(client, this, prefix, listener);
+    }
+
+    private void enableKeyspaceNotifications() {
+        try {
+            String current = syncCommands.configGet("notify-keyspace-events").getOrDefault("notify-keyspace-events", "");
+            StringBuilder flags = new StringBuilder(current);
+            for (char flag : "K$gxe".toCharArray()) {
+                // 'A' is an alias for "g$lshzxet"
+                boolean covered = current.indexOf(flag) >= 0 || (flag != 'K' && current.indexOf('A') >= 0);
+                if (!covered) flags.append(flag);
+            }
+            if (!flags.toString().equals(current)) {
+                syncCommands.configSet("notify-keyspace-events", flags.toString());
+            }
+        } catch (Exception e) {
+            System.err.println("[RedisDatabase] Cannot enable keyspace notifications, make sure notify-keyspace-events includes K$gxe: " + e.getMessage());
+        }
     }
 
     public void close() {
+        disableClientSideCaching();
+        transactionExecutor.shutdown();
+        versionedWriteExecutor.shutdown();
+        transactionConnections.forEach(StatefulRedisConnection::close);
+        synchronized (backgroundConnectionLock) {
+            if (backgroundConnection != null) backgroundConnection.close();
+        }
         connection.close();
         client.shutdown();
     }
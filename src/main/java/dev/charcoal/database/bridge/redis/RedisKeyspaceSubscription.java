@@ -0,0 +1,92 @@
+package dev.charcoal.database.bridge.redis;
+
+import dev.charcoal.database.bridge.change.ChangeEvent;
+import dev.charcoal.database.bridge.change.ChangeListener;
+import dev.charcoal.database.bridge.change.ChangeType;
+import dev.charcoal.database.bridge.change.Subscription;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Listens to keyspace notifications on a dedicated pub/sub connection. Notifications only carry the key and the
+ * command, so written values are read back with GET; events are handed to a single thread so they keep their
+ * order and the Lettuce event loop is never blocked. Redis does not tell inserts from updates, every write is
+ * reported as {@link ChangeType#UPDATE}.
+ */
+class RedisKeyspaceSubscription<T> implements Subscription {
+
+    private static final String CHANNEL_PREFIX = "__keyspace@";
+
+    private final RedisDatabase<T> database;
+    private final ChangeListener<T> listener;
+    private final String pattern;
+    private final StatefulRedisPubSubConnection<String, String> connection;
+    private final ExecutorService dispatcher;
+
+    RedisKeyspaceSubscription(RedisClient client, RedisDatabase<T> database, String prefix, ChangeListener<T> listener) {
+        this.database = database;
+        this.listener = listener;
+        this.pattern = CHANNEL_PREFIX + "*__:" + prefix + "*";
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RedisDatabase-changes-" + prefix);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.connection = client.connectPubSub(StringCodec.UTF8);
+        this.connection.addListener(new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String pattern, String channel, String command) {
+                onNotification(channel, command);
+            }
+        });
+        // synchronous, so the subscription is live before subscribe() returns
+        this.connection.sync().psubscribe(pattern);
+    }
+
+    private void onNotification(String channel, String command) {
+        int separator = channel.indexOf("__:");
+        if (separator < 0) return;
+        String key = channel.substring(separator + 3);
+
+        ChangeType type = switch (command) {
+            case "set" -> ChangeType.UPDATE;
+            case "del", "expired", "evicted" -> ChangeType.DELETE;
+            default -> null; // expire, rename_from/to and non-string commands
+        };
+        if (type == null) return;
+
+        database.invalidateLocal(key); // keeps hot-key copies coherent across instances
+        try {
+            dispatcher.execute(() -> dispatch(type, key));
+        } catch (RejectedExecutionException ignored) {
+            // closed
+        }
+    }
+
+    private void dispatch(ChangeType type, String key) {
+        try {
+            T value = type == ChangeType.DELETE ? null : database.fetchFromServer(key);
+            listener.onChange(new ChangeEvent<>(type, key, value));
+        } catch (RuntimeException e) {
+            System.err.println("[RedisDatabase] Change listener failed for key " + key);
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            connection.sync().punsubscribe(pattern);
+        } finally {
+            connection.close();
+            dispatcher.shutdown();
+        }
+    }
+}
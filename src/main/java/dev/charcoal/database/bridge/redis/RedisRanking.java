@@ -0,0 +1,84 @@
+package dev.charcoal.database.bridge.redis;
+
+import dev.charcoal.database.bridge.ranking.RankedCollection;
+import dev.charcoal.database.bridge.ranking.RankedEntry;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ranking kept in one sorted set, whose members are the keys of {@link RedisDatabase} values. Members travel as
+ * UTF-8 bytes so the database's own connection and codec can carry them.
+ */
+class RedisRanking<T> implements RankedCollection<T> {
+
+    private final RedisDatabase<T> database;
+    private final RedisCommands<String, byte[]> commands;
+    private final String sortedSetKey;
+
+    RedisRanking(RedisDatabase<T> database, RedisCommands<String, byte[]> commands, String sortedSetKey) {
+        this.database = database;
+        this.commands = commands;
+        this.sortedSetKey = sortedSetKey;
+    }
+
+    private static byte[] member(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void setScore(String key, double score) {
+        commands.zadd(sortedSetKey, score, member(key));
+    }
+
+    @Override
+    public double incrementScore(String key, double delta) {
+        return commands.zincrby(sortedSetKey, delta, member(key));
+    }
+
+    @Override
+    public @Nullable Double getScore(String key) {
+        return commands.zscore(sortedSetKey, member(key));
+    }
+
+    @Override
+    public @Nullable Long getRank(String key) {
+        return commands.zrevrank(sortedSetKey, member(key));
+    }
+
+    @Override
+    public boolean remove(String key) {
+        return commands.zrem(sortedSetKey, member(key)) > 0;
+    }
+
+    @Override
+    public long size() {
+        return commands.zcard(sortedSetKey);
+    }
+
+    @Override
+    public List<RankedEntry<T>> range(long offset, int limit) {
+        if (offset < 0 || limit <= 0) return List.of();
+        List<ScoredValue<byte[]>> members = commands.zrevrangeWithScores(sortedSetKey, offset, offset + limit - 1);
+
+        List<RankedEntry<T>> page = new ArrayList<>(members.size());
+        long rank = offset;
+        for (ScoredValue<byte[]> member : members) {
+            page.add(new RankedEntry<>(new String(member.getValue(), StandardCharsets.UTF_8), rank++, member.getScore(), null));
+        }
+        return page;
+    }
+
+    /**
+     * ZREVRANGE for the page, then one MGET for its values, which also goes through the local caches of the
+     * database when they are enabled.
+     */
+    @Override
+    public List<RankedEntry<T>> rangeWithValues(long offset, int limit) {
+        return RankedEntry.withValues(range(offset, limit), database);
+    }
+}
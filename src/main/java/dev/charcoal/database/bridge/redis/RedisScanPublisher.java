@@ -0,0 +1,241 @@
+package dev.charcoal.database.bridge.redis;
+
+import dev.charcoal.database.bridge.priority.PriorityGate;
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams every key matching a prefix with SCAN and reads the values in MGET batches. At most
+ * {@code maxInFlight} batches are requested or waiting for the subscriber at any time, so memory and server load
+ * stay bounded whatever the number of keys, and nothing is read ahead of demand beyond that window. Background
+ * scans narrow that window in proportion to the limit of their {@link PriorityGate}, down to one batch while
+ * interactive calls are slow.
+ * <p>
+ * Values are decoded and delivered on {@code executor}, never on the Lettuce event loop. Like SCAN itself, a key
+ * may be delivered twice if the keyspace is resized during the scan; keys deleted in between are skipped.
+ */
+class RedisScanPublisher<T> implements Flow.Publisher<Map.Entry<String, T>> {
+
+    private final RedisDatabase<T> database;
+    private final RedisAsyncCommands<String, byte[]> commands;
+    private final String pattern;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final Executor executor;
+    @Nullable
+    private final PriorityGate gate;
+
+    RedisScanPublisher(RedisDatabase<T> database, RedisAsyncCommands<String, byte[]> commands, String prefix,
+                       int batchSize, int maxInFlight, Executor executor, @Nullable PriorityGate gate) {
+        if (batchSize <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("batchSize and maxInFlight must be positive");
+        }
+        this.database = database;
+        this.commands = commands;
+        this.pattern = prefix + "*";
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+        this.executor = executor;
+        this.gate = gate;
+    }
+
+    private int window() {
+        if (gate == null) return maxInFlight;
+        return Math.max(1, maxInFlight * gate.getLimit() / gate.getMaxLimit());
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Map.Entry<String, T>> subscriber) {
+        ScanSubscription subscription = new ScanSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private class ScanSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super Map.Entry<String, T>> subscriber;
+
+        // filled by Lettuce callbacks, drained by the drain loop
+        private final Queue<KeyScanCursor<String>> scanResults = new ConcurrentLinkedQueue<>();
+        private final Queue<List<Map.Entry<String, T>>> readyBatches = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingBatches = new AtomicInteger(); // requested or ready, not yet emitted
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+
+        // only touched by the drain loop
+        private final Queue<String> pendingKeys = new ArrayDeque<>();
+        private KeyScanCursor<String> cursor;
+        private boolean scanning;
+        private boolean scanFinished;
+        private Iterator<Map.Entry<String, T>> current;
+        private boolean done;
+
+        ScanSubscription(Flow.Subscriber<? super Map.Entry<String, T>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error.compareAndSet(null, new IllegalArgumentException("Requested " + n + " items, must be positive"));
+            } else {
+                demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            signal();
+        }
+
+        private void signal() {
+            if (wip.getAndIncrement() == 0) executor.execute(this::drain);
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (!done) {
+                    try {
+                        step();
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                        terminate();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void step() {
+            while (true) {
+                if (cancelled) {
+                    done = true;
+                    clear();
+                    return;
+                }
+                if (error.get() != null) {
+                    terminate();
+                    return;
+                }
+
+                if (current == null || !current.hasNext()) {
+                    List<Map.Entry<String, T>> batch = readyBatches.poll();
+                    if (batch != null) {
+                        pendingBatches.decrementAndGet();
+                        current = batch.iterator();
+                        continue;
+                    }
+                }
+
+                if (current != null && current.hasNext() && demand.get() > 0) {
+                    demand.decrementAndGet();
+                    subscriber.onNext(current.next());
+                    continue;
+                }
+
+                KeyScanCursor<String> result = scanResults.poll();
+                if (result != null) {
+                    scanning = false;
+                    cursor = result;
+                    scanFinished = result.isFinished();
+                    pendingKeys.addAll(result.getKeys());
+                }
+
+                refill();
+
+                boolean drained = (current == null || !current.hasNext()) && pendingBatches.get() == 0;
+                if (scanFinished && !scanning && pendingKeys.isEmpty() && drained && scanResults.isEmpty()) {
+                    done = true;
+                    subscriber.onComplete();
+                }
+                return;
+            }
+        }
+
+        private void refill() {
+            int window = window();
+            while (pendingBatches.get() < window
+                    && (pendingKeys.size() >= batchSize || (scanFinished && !pendingKeys.isEmpty()))) {
+                List<String> keys = new ArrayList<>(batchSize);
+                while (keys.size() < batchSize && !pendingKeys.isEmpty()) {
+                    keys.add(pendingKeys.poll());
+                }
+                fetchBatch(keys);
+            }
+
+            // only scan further once the keys already found are about to run out
+            if (!scanFinished && !scanning && pendingKeys.size() < batchSize && pendingBatches.get() < window) {
+                scanning = true;
+                ScanArgs args = ScanArgs.Builder.matches(pattern).limit(batchSize);
+                (cursor == null ? commands.scan(args) : commands.scan(cursor, args))
+                        .whenComplete((next, e) -> {
+                            if (e != null) {
+                                error.compareAndSet(null, e);
+                            } else {
+                                scanResults.add(next);
+                            }
+                            signal();
+                        });
+            }
+        }
+
+        private void fetchBatch(List<String> keys) {
+            pendingBatches.incrementAndGet();
+            commands.mget(keys.toArray(new String[0]))
+                    .thenApplyAsync(this::decode, executor)
+                    .whenComplete((batch, e) -> {
+                        if (e != null) {
+                            error.compareAndSet(null, e);
+                        } else {
+                            readyBatches.add(batch);
+                        }
+                        signal();
+                    });
+        }
+
+        private List<Map.Entry<String, T>> decode(List<KeyValue<String, byte[]>> values) {
+            List<Map.Entry<String, T>> batch = new ArrayList<>(values.size());
+            for (KeyValue<String, byte[]> keyValue : values) {
+                if (!keyValue.hasValue()) continue; // deleted or expired since the scan saw it
+                batch.add(new AbstractMap.SimpleImmutableEntry<>(keyValue.getKey(),
+                        database.decode(keyValue.getKey(), keyValue.getValue())));
+            }
+            return batch;
+        }
+
+        private void terminate() {
+            if (done) return;
+            done = true;
+            clear();
+            if (!cancelled) subscriber.onError(error.get());
+        }
+
+        private void clear() {
+            current = null;
+            pendingKeys.clear();
+            readyBatches.clear();
+            scanResults.clear();
+        }
+    }
+}
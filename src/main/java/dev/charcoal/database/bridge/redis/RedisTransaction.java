@@ -0,0 +1,78 @@
+package dev.charcoal.database.bridge.redis;
+
+import dev.charcoal.database.bridge.Transaction;
+import io.lettuce.core.api.sync.RedisCommands;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Optimistic MULTI/EXEC transaction: every key read is WATCHed and writes are queued until commit,
+ * so EXEC is discarded if another client touched what this transaction read.
+ */
+class RedisTransaction<T> implements Transaction<T> {
+
+    private final RedisDatabase<T> database;
+    private final RedisCommands<String, byte[]> commands;
+
+    private final Map<String, T> values = new LinkedHashMap<>();
+    private final Map<String, Consumer<RedisCommands<String, byte[]>>> writes = new LinkedHashMap<>();
+
+    RedisTransaction(RedisDatabase<T> database, RedisCommands<String, byte[]> commands) {
+        this.database = database;
+        this.commands = commands;
+    }
+
+    @Override
+    public T fetch(String key) {
+        if (writes.containsKey(key)) return values.get(key);
+
+        commands.watch(key);
+        return database.decode(key, commands.get(key));
+    }
+
+    @Override
+    public void save(String key, T value) {
+        byte[] payload = database.encode(key, value);
+        values.put(key, value);
+        writes.put(key, c -> c.set(key, payload));
+    }
+
+    @Override
+    public void save(String key, T value, Duration timeout) {
+        byte[] payload = database.encode(key, value);
+        values.put(key, value);
+        writes.put(key, c -> c.psetex(key, timeout.toMillis(), payload));
+    }
+
+    @Override
+    public void delete(String key) {
+        values.remove(key);
+        writes.put(key, c -> c.del(key));
+    }
+
+    /**
+     * @return {@code false} if a watched key changed and Redis discarded the transaction
+     */
+    boolean commit() {
+        if (writes.isEmpty()) {
+            commands.unwatch();
+            return true;
+        }
+
+        writes.keySet().forEach(database::invalidateLocal);
+        commands.multi();
+        writes.values().forEach(write -> write.accept(commands));
+        try {
+            return !commands.exec().wasDiscarded();
+        } finally {
+            writes.keySet().forEach(database::invalidateLocal);
+        }
+    }
+
+    void rollback() {
+        commands.unwatch();
+    }
+}
@@ -0,0 +1,36 @@
+package dev.charcoal.database.bridge.resilience;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the calls in flight against one backend so a slow dependency cannot absorb every caller thread.
+ */
+public class Bulkhead {
+
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+
+    public Bulkhead(ResiliencePolicy policy) {
+        this.permits = new Semaphore(policy.getMaxConcurrentCalls());
+        this.maxWaitNanos = policy.getMaxWait().toNanos();
+    }
+
+    public boolean tryAcquire() {
+        if (maxWaitNanos <= 0) return permits.tryAcquire();
+        try {
+            return permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+}
@@ -0,0 +1,142 @@
+package dev.charcoal.database.bridge.resilience;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Count-based circuit breaker. While closed it tracks the outcome of the last {@code slidingWindowSize} calls
+ * and opens once the failure rate crosses the threshold. After {@code openDuration} it lets a few probes
+ * through: if they all succeed the circuit closes, a single failure opens it again.
+ * <p>
+ * Every admitted call holds a {@link Permit} stamped with the state it was admitted in. A call that outlives
+ * that state, such as a slow call admitted while closed finishing once the circuit is half-open, is not counted,
+ * so only real probes decide whether the circuit closes.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final ResiliencePolicy policy;
+    private final boolean[] window;
+
+    private State state = State.CLOSED;
+    // bumped on every state change, so outcomes of calls admitted before it can be told apart
+    private long generation;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private long openUntil;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    /**
+     * @param name identifies the breaker in log lines, usually the name of the database it guards
+     */
+    public CircuitBreaker(String name, ResiliencePolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        this.window = new boolean[policy.getSlidingWindowSize()];
+    }
+
+    /**
+     * @return the permit of the admitted call, which must then report through {@link #onSuccess(Permit)} or
+     * {@link #onFailure(Permit)}; {@code null} if the call is rejected
+     */
+    public synchronized @Nullable Permit tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openUntil < 0) return null;
+            transition(State.HALF_OPEN);
+            probesInFlight = 0;
+            probeSuccesses = 0;
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= policy.getHalfOpenProbes()) return null;
+            probesInFlight++;
+        }
+        return new Permit(generation, state);
+    }
+
+    public synchronized void onSuccess(Permit permit) {
+        if (permit.generation != generation) return; // admitted before the last state change
+        switch (state) {
+            case CLOSED -> record(false);
+            case HALF_OPEN -> {
+                probesInFlight--;
+                if (++probeSuccesses >= policy.getHalfOpenProbes()) close();
+            }
+            case OPEN -> { }
+        }
+    }
+
+    public synchronized void onFailure(Permit permit) {
+        if (permit.generation != generation) return;
+        switch (state) {
+            case CLOSED -> {
+                record(true);
+                if (windowCount >= policy.getMinimumCalls()
+                        && (double) windowFailures / windowCount >= policy.getFailureRateThreshold()) {
+                    open();
+                }
+            }
+            case HALF_OPEN -> open();
+            case OPEN -> { }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) windowFailures--;
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) windowFailures++;
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transition(State next) {
+        state = next;
+        generation++;
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openUntil = System.nanoTime() + policy.getOpenDuration().toNanos();
+        System.err.println("[CircuitBreaker] " + name + ": circuit opened for " + policy.getOpenDuration().toMillis() + "ms");
+    }
+
+    private void close() {
+        transition(State.CLOSED);
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    /**
+     * Admission of one call, tied to the state the breaker was in when it was granted.
+     */
+    public static final class Permit {
+
+        private final long generation;
+        private final State state;
+
+        private Permit(long generation, State state) {
+            this.generation = generation;
+            this.state = state;
+        }
+
+        /**
+         * @return {@link State#CLOSED} for a regular call, {@link State#HALF_OPEN} for a probe
+         */
+        public State getState() {
+            return state;
+        }
+    }
+}
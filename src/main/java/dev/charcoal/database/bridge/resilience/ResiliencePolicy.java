@@ -0,0 +1,49 @@
+package dev.charcoal.database.bridge.resilience;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Limits applied by {@link ResilientDatabase} to every call against one backend.
+ */
+@Getter
+@Builder
+public class ResiliencePolicy {
+
+    /** Deadline for a single operation, including time spent waiting for a connection. */
+    @Builder.Default
+    private Duration timeout = Duration.ofSeconds(2);
+
+    /** Share of failed calls in the sliding window that opens the circuit. */
+    @Builder.Default
+    private double failureRateThreshold = 0.5;
+    @Builder.Default
+    private int slidingWindowSize = 20;
+    /** Calls the window must hold before the failure rate is evaluated. */
+    @Builder.Default
+    private int minimumCalls = 10;
+    /** How long an open circuit rejects calls before letting probes through. */
+    @Builder.Default
+    private Duration openDuration = Duration.ofSeconds(5);
+    /** Probes allowed while half-open; all of them must succeed to close the circuit. */
+    @Builder.Default
+    private int halfOpenProbes = 3;
+
+    /** Calls allowed in flight at once; further calls are rejected instead of queueing. */
+    @Builder.Default
+    private int maxConcurrentCalls = 32;
+    @Builder.Default
+    private Duration maxWait = Duration.ZERO;
+
+    /** Last known values kept for fetch fallbacks; 0 disables the stale tier. */
+    @Builder.Default
+    private int staleCacheSize = 10_000;
+    @Builder.Default
+    private Duration staleCacheTtl = Duration.ofMinutes(5);
+
+    public static ResiliencePolicy defaults() {
+        return builder().build();
+    }
+}
@@ -0,0 +1,264 @@
+package dev.charcoal.database.bridge.resilience;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.charcoal.database.bridge.AsyncDatabase;
+import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.VersionedDatabase;
+import dev.charcoal.database.bridge.exception.OptimisticLockException;
+import dev.charcoal.database.bridge.resilience.exception.ResilienceException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Wraps a backend so that every call runs under a {@link ResiliencePolicy}: calls are rejected immediately
+ * while the circuit is open or the bulkhead is full, each call has a deadline, and failed fetches fall back
+ * to the last value this instance saw for the key.
+ * <p>
+ * Sync methods go through the backend's async API and wait for the deadline, so a stalled backend releases
+ * the caller on time even though the underlying call keeps its bulkhead permit until it really finishes.
+ * <p>
+ * Only exceptions count as failures, so SQL backends should be made
+ * {@link dev.charcoal.database.bridge.sql.SQLDatabase#setStrict strict}; otherwise their errors look like missing
+ * rows and failed writes. An {@link OptimisticLockException} is a conflict between callers, not a sick backend,
+ * and counts as a success.
+ */
+public class ResilientDatabase<T> implements SyncDatabase<T>, AsyncDatabase<T>, VersionedDatabase<T> {
+
+    private final String name;
+    private final AsyncDatabase<T> asyncDelegate;
+    private final ResiliencePolicy policy;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    @Nullable
+    private final Cache<String, T> staleCache;
+
+    public <D extends SyncDatabase<T> & AsyncDatabase<T>> ResilientDatabase(@NotNull String name, @NotNull D delegate,
+                                                                         @NotNull ResiliencePolicy policy) {
+        this.name = name;
+        this.asyncDelegate = delegate;
+        this.policy = policy;
+        this.circuitBreaker = new CircuitBreaker(name, policy);
+        this.bulkhead = new Bulkhead(policy);
+        this.staleCache = policy.getStaleCacheSize() <= 0
+                ? null
+                : Caffeine.newBuilder()
+                    .maximumSize(policy.getStaleCacheSize())
+                    .expireAfterWrite(policy.getStaleCacheTtl())
+                    .build();
+    }
+
+    public <D extends SyncDatabase<T> & AsyncDatabase<T>> ResilientDatabase(@NotNull String name, @NotNull D delegate) {
+        this(name, delegate, ResiliencePolicy.defaults());
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public int getAvailablePermits() {
+        return bulkhead.getAvailablePermits();
+    }
+
+    private <R> CompletableFuture<R> call(String operation, Supplier<CompletableFuture<R>> action) {
+        if (!bulkhead.tryAcquire()) {
+            return CompletableFuture.failedFuture(new ResilienceException(name + ": bulkhead full, rejected " + operation));
+        }
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            bulkhead.release();
+            return CompletableFuture.failedFuture(new ResilienceException(name + ": circuit open, rejected " + operation));
+        }
+
+        CompletableFuture<R> underlying;
+        try {
+            underlying = action.get();
+        } catch (RuntimeException e) {
+            underlying = CompletableFuture.failedFuture(e);
+        }
+        // the permit follows the real call, the breaker follows what the caller observed
+        underlying.whenComplete((result, error) -> bulkhead.release());
+
+        long timeoutMillis = policy.getTimeout().toMillis();
+        return underlying.copy()
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .handle((result, error) -> {
+                    if (error == null) {
+                        circuitBreaker.onSuccess(permit);
+                        return result;
+                    }
+
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof OptimisticLockException) circuitBreaker.onSuccess(permit);
+                    else circuitBreaker.onFailure(permit);
+                    if (cause instanceof TimeoutException) {
+                        throw new ResilienceException(name + ": " + operation + " timed out after " + timeoutMillis + "ms", cause);
+                    }
+                    throw cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+                });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static <R> R await(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw new ResilienceException("Call failed", cause);
+        }
+    }
+
+    /**
+     * A {@code null} never evicts: backends that swallow errors return it for failed reads too, and the stale copy
+     * is exactly what the next failure needs. Writes through this instance still evict.
+     */
+    private void remember(String key, @Nullable T value) {
+        if (staleCache != null && value != null) staleCache.put(key, value);
+    }
+
+    private void forget(String key) {
+        if (staleCache != null) staleCache.invalidate(key);
+    }
+
+    @Override
+    public CompletableFuture<T> fetchAsync(String key) {
+        return call("fetch", () -> asyncDelegate.fetchAsync(key))
+                .handle((value, error) -> {
+                    if (error == null) {
+                        remember(key, value);
+                        return value;
+                    }
+
+                    T stale = staleCache == null ? null : staleCache.getIfPresent(key);
+                    if (stale != null) return stale;
+                    throw error instanceof RuntimeException runtime ? runtime : new CompletionException(error);
+                });
+    }
+
+    @Override
+    public CompletableFuture<Map<String, T>> fetchManyAsync(Collection<String> keys) {
+        return call("fetchMany", () -> asyncDelegate.fetchManyAsync(keys))
+                .handle((values, error) -> {
+                    if (error == null) {
+                        keys.forEach(key -> remember(key, values.get(key)));
+                        return values;
+                    }
+
+                    // only fall back when every key is known, a partial map would read as missing entries
+                    if (staleCache != null) {
+                        Map<String, T> stale = new LinkedHashMap<>(staleCache.getAllPresent(keys));
+                        if (stale.size() == keys.size()) return stale;
+                    }
+                    throw error instanceof RuntimeException runtime ? runtime : new CompletionException(error);
+                });
+    }
+
+    @Override
+    public CompletableFuture<List<T>> fetchAllAsync() {
+        return call("fetchAll", asyncDelegate::fetchAllAsync);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveAsync(String key, T value) {
+        forget(key);
+        return call("save", () -> asyncDelegate.saveAsync(key, value));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveAsync(String key, T value, Duration timeout) {
+        forget(key);
+        return call("save", () -> asyncDelegate.saveAsync(key, value, timeout));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveManyAsync(Map<String, T> values) {
+        values.keySet().forEach(this::forget);
+        return call("saveMany", () -> asyncDelegate.saveManyAsync(values));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String key) {
+        forget(key);
+        return call("delete", () -> asyncDelegate.deleteAsync(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> compareAndSaveAsync(String key, long expectedVersion, T value) {
+        VersionedDatabase<T> versioned = VersionedDatabase.require(asyncDelegate);
+        forget(key);
+        return call("compareAndSave", () -> versioned.compareAndSaveAsync(key, expectedVersion, value));
+    }
+
+    @Override
+    public CompletableFuture<T> updateAsync(String key, UnaryOperator<T> updater) {
+        VersionedDatabase<T> versioned = VersionedDatabase.require(asyncDelegate);
+        forget(key);
+        return call("update", () -> versioned.updateAsync(key, updater));
+    }
+
+    @Override
+    public T fetch(String key) {
+        return await(fetchAsync(key));
+    }
+
+    @Override
+    public Map<String, T> fetchMany(Collection<String> keys) {
+        return await(fetchManyAsync(keys));
+    }
+
+    @Override
+    public List<T> fetchAll() {
+        return await(fetchAllAsync());
+    }
+
+    @Override
+    public boolean save(String key, T value) {
+        return await(saveAsync(key, value));
+    }
+
+    @Override
+    public boolean save(String key, T value, Duration timeout) {
+        return await(saveAsync(key, value, timeout));
+    }
+
+    @Override
+    public boolean saveMany(Map<String, T> values) {
+        return await(saveManyAsync(values));
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return await(deleteAsync(key));
+    }
+
+    @Override
+    public boolean compareAndSave(String key, long expectedVersion, T value) {
+        return await(compareAndSaveAsync(key, expectedVersion, value));
+    }
+
+    @Override
+    public T update(String key, UnaryOperator<T> updater) {
+        return await(updateAsync(key, updater));
+    }
+}
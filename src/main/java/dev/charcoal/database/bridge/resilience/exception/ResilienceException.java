@@ -0,0 +1,12 @@
+package dev.charcoal.database.bridge.resilience.exception;
+
+public class ResilienceException extends RuntimeException {
+
+    public ResilienceException(String message) {
+        super(message);
+    }
+
+    public ResilienceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
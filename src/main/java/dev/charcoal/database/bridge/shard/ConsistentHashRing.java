@@ -0,0 +1,70 @@
+package dev.charcoal.database.bridge.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable hash ring with virtual nodes. Adding or removing a shard only moves the key ranges next to its
+ * virtual nodes; every other key keeps its owner.
+ */
+public class ConsistentHashRing {
+
+    private final TreeMap<Long, String> ring;
+    private final List<String> shards;
+    private final int virtualNodes;
+
+    public ConsistentHashRing(Collection<String> shards, int virtualNodes) {
+        this.shards = List.copyOf(shards);
+        this.virtualNodes = virtualNodes;
+        this.ring = new TreeMap<>();
+        for (String shard : this.shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(shard + "#" + i), shard);
+            }
+        }
+    }
+
+    public ConsistentHashRing with(String shard) {
+        List<String> updated = new ArrayList<>(shards);
+        updated.add(shard);
+        return new ConsistentHashRing(updated, virtualNodes);
+    }
+
+    public ConsistentHashRing without(String shard) {
+        List<String> updated = new ArrayList<>(shards);
+        updated.remove(shard);
+        return new ConsistentHashRing(updated, virtualNodes);
+    }
+
+    public String owner(String key) {
+        if (ring.isEmpty()) throw new IllegalStateException("Hash ring has no shards");
+
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    /**
+     * 64-bit FNV-1a followed by the MurmurHash3 finalizer, which spreads short similar keys well.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,549 @@
+package dev.charcoal.database.bridge.shard;
+
+import dev.charcoal.database.bridge.AsyncDatabase;
+import dev.charcoal.database.bridge.MigratableDatabase;
+import dev.charcoal.database.bridge.ScannableDatabase;
+import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.VersionedDatabase;
+import dev.charcoal.database.bridge.priority.OperationClass;
+import dev.charcoal.database.bridge.redis.RedisDatabase;
+import dev.charcoal.database.bridge.utils.VersionAccessor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Spreads keys over several databases of the same type with a {@link ConsistentHashRing}.
+ * <p>
+ * Shards can be added or removed while the database is in use: during a rebalance reads fall back to the
+ * previous owner of a key, and writes go to the new owner under the key's lock and remove the key from the
+ * previous one. Writes that were in flight when the rebalance started are redone the same way. Rebalancing needs
+ * shards implementing {@link MigratableDatabase}: a key is only copied to a new owner that has none, keeps its
+ * expiry, and is deleted from the old owner only if it did not change meanwhile.
+ */
+public class ShardedDatabase<T> implements SyncDatabase<T>, AsyncDatabase<T>, VersionedDatabase<T> {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private static final int REBALANCE_PAGE_SIZE = 500;
+    private static final int KEY_LOCK_STRIPES = 256;
+
+    private final Function<T, String> keyExtractor;
+    private final ExecutorService executorService = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ShardedDatabase-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Map<String, SyncDatabase<T>> shards;
+    private volatile ConsistentHashRing ring;
+    // Ring before the running rebalance, null when no rebalance is in progress
+    @Nullable
+    private volatile ConsistentHashRing previousRing;
+    @Nullable
+    private volatile String rebalancePrefix;
+
+    // held by moves and writes while rebalancing, so a write cannot slip between a move's copy and its cleanup
+    private final ReentrantLock[] keyLocks = new ReentrantLock[KEY_LOCK_STRIPES];
+    private final Map<Class<?>, Optional<VersionAccessor<T>>> versionAccessors = new ConcurrentHashMap<>();
+
+    /**
+     * @param shards       underlying databases by a stable name; the name, not the position, decides key ownership
+     * @param keyExtractor returns the key a value is stored under, used to rebalance and de-duplicate values
+     */
+    public ShardedDatabase(@NotNull Map<String, ? extends SyncDatabase<T>> shards, @NotNull Function<T, String> keyExtractor) {
+        this(shards, keyExtractor, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ShardedDatabase(@NotNull Map<String, ? extends SyncDatabase<T>> shards, @NotNull Function<T, String> keyExtractor, int virtualNodes) {
+        if (shards.isEmpty()) throw new IllegalArgumentException("At least one shard is required");
+
+        this.shards = new LinkedHashMap<>(shards);
+        this.ring = new ConsistentHashRing(shards.keySet(), virtualNodes);
+        this.keyExtractor = keyExtractor;
+        for (int i = 0; i < keyLocks.length; i++) {
+            keyLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Prefix Redis shards are scanned under when a rebalance moves their keys, since they cannot list every key
+     * without one.
+     */
+    public void setRebalancePrefix(@Nullable String prefix) {
+        this.rebalancePrefix = prefix;
+    }
+
+    private SyncDatabase<T> owner(String key) {
+        return shards.get(ring.owner(key));
+    }
+
+    private @Nullable SyncDatabase<T> previousOwner(String key) {
+        ConsistentHashRing previous = previousRing;
+        if (previous == null) return null;
+
+        SyncDatabase<T> owner = shards.get(previous.owner(key));
+        return owner == owner(key) ? null : owner;
+    }
+
+    /* ------------------ SYNC ------------------ */
+
+    @Override
+    public T fetch(String key) {
+        T value = owner(key).fetch(key);
+        if (value != null) return value;
+
+        SyncDatabase<T> previous = previousOwner(key);
+        return previous != null ? previous.fetch(key) : null;
+    }
+
+    @Override
+    public List<T> fetchAll() {
+        return fetchAllAsync().join();
+    }
+
+    @Override
+    public Map<String, T> fetchMany(Collection<String> keys) {
+        return fetchManyAsync(keys).join();
+    }
+
+    @Override
+    public boolean save(String key, T value) {
+        return routeWrite(key, shard -> shard.save(key, value), false);
+    }
+
+    @Override
+    public boolean save(String key, T value, Duration timeout) {
+        return routeWrite(key, shard -> shard.save(key, value, timeout), false);
+    }
+
+    @Override
+    public boolean saveMany(Map<String, T> values) {
+        return saveManyAsync(values).join();
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return routeWrite(key, shard -> shard.delete(key), true);
+    }
+
+    @Override
+    public boolean compareAndSave(String key, long expectedVersion, T value) {
+        migrateKey(key);
+        return VersionedDatabase.<T>require(owner(key)).compareAndSave(key, expectedVersion, value);
+    }
+
+    @Override
+    public T update(String key, UnaryOperator<T> updater) {
+        migrateKey(key);
+        return VersionedDatabase.<T>require(owner(key)).update(key, updater);
+    }
+
+    /**
+     * Runs {@code write} on the owner of {@code key}. Outside a rebalance it runs unlocked, unless the ring changed
+     * while it was in flight: a move may then have emptied the shard before the write landed there.
+     *
+     * @param deleting whether {@code write} is a delete, which also reports removing the key from another shard
+     */
+    private boolean routeWrite(String key, Function<SyncDatabase<T>, Boolean> write, boolean deleting) {
+        ConsistentHashRing routed = ring;
+        if (previousRing == null) {
+            SyncDatabase<T> target = shards.get(routed.owner(key));
+            boolean written = write.apply(target);
+            // moves only start after the ring is swapped, so an unchanged ring means none could have raced this write
+            if (ring == routed) return written;
+            return rewrite(key, write, target, deleting) || deleting && written;
+        }
+        return rewrite(key, write, null, deleting);
+    }
+
+    /**
+     * Runs {@code write} on the current owner under the key lock, then deletes the key from its previous owner and
+     * from {@code stray}, the shard an earlier attempt wrote to, so no move can copy an older value over it.
+     */
+    private boolean rewrite(String key, Function<SyncDatabase<T>, Boolean> write, @Nullable SyncDatabase<T> stray, boolean deleting) {
+        return lockKey(key, () -> {
+            SyncDatabase<T> owner = owner(key);
+            boolean written = write.apply(owner);
+
+            boolean removed = false;
+            SyncDatabase<T> previous = previousOwner(key);
+            if (previous != null) removed = previous.delete(key);
+            if (stray != null && stray != owner && stray != previous) removed |= stray.delete(key);
+            return deleting ? written || removed : written;
+        });
+    }
+
+    /**
+     * Moves {@code key} from its previous owner to its current one if a rebalance has not reached it yet.
+     * An existing value on the new owner always wins.
+     */
+    private void migrateKey(String key) {
+        SyncDatabase<T> previous = previousOwner(key);
+        if (previous == null) return;
+
+        moveKey(key, previous, owner(key));
+    }
+
+    /**
+     * Copies {@code key} with its remaining expiry to {@code to} if that has no value yet, then deletes it from
+     * {@code from} if it is unchanged. A copy whose source changed or vanished meanwhile is taken back, unless
+     * the new owner has overwritten it already.
+     *
+     * @return {@code true} if the value was moved
+     */
+    private boolean moveKey(String key, SyncDatabase<T> from, SyncDatabase<T> to) {
+        MigratableDatabase<T> source = migratable(from);
+        MigratableDatabase<T> target = migratable(to);
+
+        return whileRebalancing(key, () -> {
+            // read the expiry first: if the key expires in between, the fetch below finds nothing
+            Duration timeToLive = source.timeToLive(key);
+            T value = from.fetch(key);
+            if (value == null) return false;
+
+            VersionAccessor<T> accessor = versionAccessor(value);
+            long version = accessor != null ? accessor.get(value) : 0;
+            if (!target.saveIfAbsent(key, value, timeToLive)) {
+                // the new owner already has a newer value, so ours is stale
+                if (accessor != null) source.deleteIfVersion(key, version);
+                else from.delete(key);
+                return false;
+            }
+
+            if (accessor == null) {
+                from.delete(key);
+                return true;
+            }
+            if (source.deleteIfVersion(key, version)) return true;
+
+            target.deleteIfVersion(key, version);
+            return false;
+        });
+    }
+
+    /**
+     * Runs {@code work} under the lock of {@code key} while a rebalance is in progress.
+     */
+    private <R> R whileRebalancing(String key, Supplier<R> work) {
+        return previousRing == null ? work.get() : lockKey(key, work);
+    }
+
+    private <R> R lockKey(String key, Supplier<R> work) {
+        ReentrantLock lock = keyLocks[Math.floorMod(key.hashCode(), keyLocks.length)];
+        lock.lock();
+        try {
+            return work.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable VersionAccessor<T> versionAccessor(T value) {
+        return versionAccessors.computeIfAbsent(value.getClass(),
+                type -> Optional.ofNullable(VersionAccessor.find((Class<T>) type))).orElse(null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> MigratableDatabase<T> migratable(SyncDatabase<T> shard) {
+        if (!(shard instanceof MigratableDatabase<?>)) {
+            throw new IllegalStateException(shard.getClass().getSimpleName() + " does not implement MigratableDatabase and cannot be rebalanced");
+        }
+        return (MigratableDatabase<T>) shard;
+    }
+
+    /* ------------------ REBALANCING ------------------ */
+
+    /**
+     * Adds a shard and migrates the key ranges it now owns from the existing shards. Every shard must implement
+     * {@link MigratableDatabase}; Redis shards also need a {@link #setRebalancePrefix rebalance prefix}.
+     *
+     * @return the number of keys moved
+     */
+    public synchronized int addShard(@NotNull String name, @NotNull SyncDatabase<T> shard) {
+        if (shards.containsKey(name)) throw new IllegalArgumentException("Shard " + name + " already exists");
+
+        Map<String, SyncDatabase<T>> updated = new LinkedHashMap<>(shards);
+        updated.put(name, shard);
+
+        List<SyncDatabase<T>> sources = new ArrayList<>(shards.values());
+        shards = updated;
+        return rebalance(ring.with(name), sources);
+    }
+
+    /**
+     * Moves every key of the named shard to its new owner, then removes the shard.
+     *
+     * @return the number of keys moved
+     */
+    public synchronized int removeShard(@NotNull String name) {
+        SyncDatabase<T> removed = shards.get(name);
+        if (removed == null) throw new IllegalArgumentException("Unknown shard " + name);
+        if (shards.size() == 1) throw new IllegalStateException("Cannot remove the last shard");
+
+        int moved = rebalance(ring.without(name), List.of(removed));
+
+        Map<String, SyncDatabase<T>> updated = new LinkedHashMap<>(shards);
+        updated.remove(name);
+        shards = updated;
+        return moved;
+    }
+
+    private int rebalance(ConsistentHashRing target, List<SyncDatabase<T>> sources) {
+        shards.values().forEach(ShardedDatabase::migratable);
+        sources.forEach(ShardedDatabase::migratable);
+
+        previousRing = ring;
+        ring = target;
+        try {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (SyncDatabase<T> source : sources) {
+                futures.add(CompletableFuture.supplyAsync(() -> OperationClass.BACKGROUND.call(() -> moveAll(source)), executorService));
+            }
+            return futures.stream().mapToInt(CompletableFuture::join).sum();
+        } finally {
+            previousRing = null;
+        }
+    }
+
+    /**
+     * Moves the keys of {@code source} that now belong elsewhere, a page or a streamed batch at a time, so the
+     * source is never loaded whole unless it has no way to be paged.
+     */
+    @SuppressWarnings("unchecked")
+    private int moveAll(SyncDatabase<T> source) {
+        if (source instanceof ScannableDatabase<?>) {
+            ScannableDatabase<T> scannable = (ScannableDatabase<T>) source;
+            int moved = 0;
+            String afterKey = null;
+            while (true) {
+                Map<String, T> page = scannable.scan(afterKey, REBALANCE_PAGE_SIZE);
+                if (page.isEmpty()) return moved;
+                for (String key : page.keySet()) {
+                    afterKey = key;
+                    if (moveIfOwnedElsewhere(key, source)) moved++;
+                }
+            }
+        }
+
+        if (source instanceof RedisDatabase<?>) {
+            return streamMoves((RedisDatabase<T>) source);
+        }
+
+        int moved = 0;
+        for (T value : source.fetchAll()) {
+            if (moveIfOwnedElsewhere(keyExtractor.apply(value), source)) moved++;
+        }
+        return moved;
+    }
+
+    private boolean moveIfOwnedElsewhere(String key, SyncDatabase<T> source) {
+        SyncDatabase<T> owner = owner(key);
+        return owner != source && moveKey(key, source, owner);
+    }
+
+    /**
+     * Walks a Redis shard with {@link RedisDatabase#streamAll(String)}, asking for the next entry only once the
+     * previous one has been moved.
+     */
+    private int streamMoves(RedisDatabase<T> source) {
+        String prefix = rebalancePrefix;
+        if (prefix == null) throw new IllegalStateException("Redis shards need a rebalance prefix to be scanned");
+
+        AtomicInteger moved = new AtomicInteger();
+        CompletableFuture<Integer> done = new CompletableFuture<>();
+        source.streamAll(prefix).subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(Map.Entry<String, T> entry) {
+                try {
+                    if (moveIfOwnedElsewhere(entry.getKey(), source)) moved.incrementAndGet();
+                } catch (RuntimeException e) {
+                    subscription.cancel();
+                    done.completeExceptionally(e);
+                    return;
+                }
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(moved.get());
+            }
+        });
+        return done.join();
+    }
+
+    public List<String> getShardNames() {
+        return ring.getShards();
+    }
+
+    /* ------------------ ASYNC ------------------ */
+
+    private CompletableFuture<T> fetchAsync(SyncDatabase<T> shard, String key) {
+        if (shard instanceof AsyncDatabase<?>) {
+            @SuppressWarnings("unchecked")
+            AsyncDatabase<T> async = (AsyncDatabase<T>) shard;
+            return async.fetchAsync(key);
+        }
+        return CompletableFuture.supplyAsync(() -> shard.fetch(key), executorService);
+    }
+
+    @Override
+    public CompletableFuture<T> fetchAsync(String key) {
+        return fetchAsync(owner(key), key).thenCompose(value -> {
+            if (value != null) return CompletableFuture.completedFuture(value);
+
+            SyncDatabase<T> previous = previousOwner(key);
+            return previous != null ? fetchAsync(previous, key) : CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Fans out to every shard in parallel. Values present on two shards mid-rebalance are only returned once.
+     */
+    @Override
+    public CompletableFuture<List<T>> fetchAllAsync() {
+        List<CompletableFuture<List<T>>> futures = shards.values().stream()
+                .map(shard -> CompletableFuture.supplyAsync(shard::fetchAll, executorService))
+                .toList();
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    Map<String, T> merged = new LinkedHashMap<>();
+                    for (CompletableFuture<List<T>> future : futures) {
+                        for (T value : future.join()) {
+                            merged.putIfAbsent(keyExtractor.apply(value), value);
+                        }
+                    }
+                    return List.copyOf(merged.values());
+                });
+    }
+
+    /**
+     * Groups the keys by owner and fetches each group from its shard in parallel.
+     */
+    @Override
+    public CompletableFuture<Map<String, T>> fetchManyAsync(Collection<String> keys) {
+        Map<SyncDatabase<T>, List<String>> groups = new LinkedHashMap<>();
+        for (String key : keys) {
+            groups.computeIfAbsent(owner(key), shard -> new ArrayList<>()).add(key);
+        }
+
+        List<CompletableFuture<Map<String, T>>> futures = new ArrayList<>();
+        groups.forEach((shard, group) -> futures.add(CompletableFuture.supplyAsync(() -> shard.fetchMany(group), executorService)));
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    Map<String, T> merged = new LinkedHashMap<>();
+                    futures.forEach(future -> merged.putAll(future.join()));
+
+                    for (String key : keys) {
+                        if (merged.containsKey(key)) continue;
+                        SyncDatabase<T> previous = previousOwner(key);
+                        if (previous == null) continue;
+                        T value = previous.fetch(key);
+                        if (value != null) merged.put(key, value);
+                    }
+                    return merged;
+                });
+    }
+
+    /**
+     * Groups the entries by owner and saves each group on its shard in parallel. During a rebalance every key has
+     * to be written under its lock, so the entries go out one by one instead.
+     */
+    @Override
+    public CompletableFuture<Boolean> saveManyAsync(Map<String, T> values) {
+        ConsistentHashRing routed = ring;
+        if (previousRing != null) {
+            return CompletableFuture.supplyAsync(() -> saveEach(values, null), executorService);
+        }
+
+        Map<SyncDatabase<T>, Map<String, T>> groups = new LinkedHashMap<>();
+        values.forEach((key, value) -> groups.computeIfAbsent(shards.get(routed.owner(key)), shard -> new LinkedHashMap<>()).put(key, value));
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        groups.forEach((shard, group) -> futures.add(CompletableFuture.supplyAsync(() -> shard.saveMany(group), executorService)));
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApplyAsync(v -> {
+                    boolean saved = futures.stream().allMatch(CompletableFuture::join);
+                    if (ring == routed) return saved;
+
+                    // a rebalance started while the batches were in flight, as in routeWrite
+                    boolean rewritten = true;
+                    for (Map.Entry<SyncDatabase<T>, Map<String, T>> group : groups.entrySet()) {
+                        rewritten &= saveEach(group.getValue(), group.getKey());
+                    }
+                    return rewritten;
+                }, executorService);
+    }
+
+    private boolean saveEach(Map<String, T> values, @Nullable SyncDatabase<T> stray) {
+        boolean saved = true;
+        for (Map.Entry<String, T> entry : values.entrySet()) {
+            saved &= rewrite(entry.getKey(), shard -> shard.save(entry.getKey(), entry.getValue()), stray, false);
+        }
+        return saved;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveAsync(String key, T value) {
+        return CompletableFuture.supplyAsync(() -> save(key, value), executorService);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveAsync(String key, T value, Duration timeout) {
+        return CompletableFuture.supplyAsync(() -> save(key, value, timeout), executorService);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String key) {
+        return CompletableFuture.supplyAsync(() -> delete(key), executorService);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> compareAndSaveAsync(String key, long expectedVersion, T value) {
+        return CompletableFuture.supplyAsync(() -> compareAndSave(key, expectedVersion, value), executorService);
+    }
+
+    @Override
+    public CompletableFuture<T> updateAsync(String key, UnaryOperator<T> updater) {
+        return CompletableFuture.supplyAsync(() -> update(key, updater), executorService);
+    }
+
+    public void close() {
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,45 @@
+package dev.charcoal.database.bridge.sql;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Settings of {@link SQLDatabase#bulkLoad}.
+ */
+@Getter
+@Builder
+public class BulkLoadOptions {
+
+    /** Rows sent per statement batch, and per commit unless {@link #singleTransaction} is set. */
+    @Builder.Default
+    private int batchSize = 5000;
+    /**
+     * Commit once at the end, so a failed load leaves the table as it was. Otherwise every batch is committed as
+     * it goes, which keeps the undo log small and leaves the rows loaded so far in place on failure.
+     */
+    @Builder.Default
+    private boolean singleTransaction = false;
+    /**
+     * Drop the table's non-unique indexes (such as the expiry index) before loading and rebuild them afterwards,
+     * which is much cheaper than maintaining them row by row. Queries running meanwhile go without them.
+     */
+    @Builder.Default
+    private boolean deferIndexes = false;
+    /**
+     * Overwrite rows whose id already exists. Off, duplicates fail the load (or are skipped, with
+     * {@link #loadDataInfile}, and left out of the count {@code bulkLoad} returns), which lets a fresh table skip
+     * the work of an upsert.
+     */
+    @Builder.Default
+    private boolean replaceExisting = true;
+    /**
+     * MySQL only: stream each batch through {@code LOAD DATA LOCAL INFILE} from a temp file instead of INSERTs.
+     * The server must have {@code local_infile} enabled.
+     */
+    @Builder.Default
+    private boolean loadDataInfile = false;
+
+    public static BulkLoadOptions defaults() {
+        return builder().build();
+    }
+}
@@ -0,0 +1,110 @@
+package dev.charcoal.database.bridge.sql;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import dev.charcoal.database.bridge.priority.OperationClass;
+import dev.charcoal.database.bridge.priority.PriorityGate;
+import dev.charcoal.database.bridge.priority.PriorityOptions;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A Hikari pool with its own {@link PriorityGate}, sized from the pool, so background calls never hold more of
+ * it than the gate allows. The primary and every replica get one each.
+ */
+final class GatedPool {
+
+    private final String name;
+    private final HikariDataSource dataSource;
+    private volatile PriorityGate gate;
+
+    GatedPool(String name, HikariConfig config, PriorityOptions options) {
+        this.name = name;
+        config.setMetricsTrackerFactory((poolName, poolStats) -> new InteractiveLatencyTracker());
+        this.dataSource = new HikariDataSource(config);
+        this.gate = new PriorityGate(name, dataSource.getMaximumPoolSize(), options);
+    }
+
+    /**
+     * Takes a pooled connection. Background calls first take a slot of the gate, given back when the connection
+     * is closed.
+     */
+    Connection getConnection() throws SQLException {
+        if (OperationClass.current() != OperationClass.BACKGROUND) return dataSource.getConnection();
+
+        PriorityGate gate = this.gate;
+        try {
+            gate.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a background connection to " + name, e);
+        }
+        try {
+            return releasingOnClose(dataSource.getConnection(), gate);
+        } catch (SQLException | RuntimeException e) {
+            gate.release();
+            throw e;
+        }
+    }
+
+    private static Connection releasingOnClose(Connection connection, PriorityGate gate) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if (method.getName().equals("close") && closed.compareAndSet(false, true)) gate.release();
+                    }
+                }
+        );
+    }
+
+    /**
+     * Feeds this pool's gate with how long interactive calls waited for one of its connections, which grows when
+     * background work crowds it. How long a connection is then held is left out: inside a transaction that
+     * includes all of the caller's own work. Hikari reports the wait on the calling thread.
+     */
+    private class InteractiveLatencyTracker implements IMetricsTracker {
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            PriorityGate current = gate;
+            if (current != null && OperationClass.current() == OperationClass.INTERACTIVE) {
+                current.recordInteractive(elapsedAcquiredNanos);
+            }
+        }
+    }
+
+    /**
+     * Replaces the limits of background calls; slots held under the previous options are returned to them.
+     */
+    void setPriorityOptions(PriorityOptions options) {
+        this.gate = new PriorityGate(name, dataSource.getMaximumPoolSize(), options);
+    }
+
+    PriorityGate getGate() {
+        return gate;
+    }
+
+    HikariDataSource getDataSource() {
+        return dataSource;
+    }
+
+    int getMaximumPoolSize() {
+        return dataSource.getMaximumPoolSize();
+    }
+
+    void close() {
+        if (!dataSource.isClosed()) dataSource.close();
+    }
+}
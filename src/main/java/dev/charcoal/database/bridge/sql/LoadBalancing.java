@@ -0,0 +1,15 @@
+package dev.charcoal.database.bridge.sql;
+
+public enum LoadBalancing {
+
+    /**
+     * Rotates through the healthy replicas.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Picks the healthy replica with the fewest active and waiting connections.
+     */
+    LEAST_LOADED
+
+}
@@ -0,0 +1,17 @@
+package dev.charcoal.database.bridge.sql;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A save buffered by a transaction until commit.
+ */
+@Getter
+@AllArgsConstructor
+public class PendingWrite<T> {
+
+    private final String key;
+    private final T value;
+    private final long expiresAt;
+
+}
@@ -0,0 +1,121 @@
+package dev.charcoal.database.bridge.sql;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import dev.charcoal.database.bridge.priority.PriorityOptions;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads reads over the replica pools. A replica that fails to hand out a connection is taken out of rotation
+ * until the background health check sees it answer again. Each replica gates background calls on its own pool.
+ */
+public class ReplicaRouter {
+
+    private static final long HEALTH_CHECK_INTERVAL_SECONDS = 5;
+    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 2;
+
+    private final List<GatedPool> replicas;
+    private final LoadBalancing balancing;
+    private final AtomicBoolean[] healthy;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthCheck;
+
+    ReplicaRouter(List<GatedPool> replicas, LoadBalancing balancing, String name) {
+        this.replicas = List.copyOf(replicas);
+        this.balancing = balancing;
+        this.healthy = new AtomicBoolean[replicas.size()];
+        for (int i = 0; i < healthy.length; i++) {
+            healthy[i] = new AtomicBoolean(true);
+        }
+
+        this.healthCheck = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SQLDatabase-replicas-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.healthCheck.scheduleWithFixedDelay(this::checkHealth, HEALTH_CHECK_INTERVAL_SECONDS, HEALTH_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return a replica connection, or {@code null} if no replica is healthy and the caller should use the primary
+     * @throws SQLException if the thread is interrupted while a background call waits for a slot of the replica
+     */
+    public @Nullable Connection getConnection() throws SQLException {
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            int index = pick();
+            if (index < 0) return null;
+
+            try {
+                return replicas.get(index).getConnection();
+            } catch (SQLException e) {
+                if (Thread.currentThread().isInterrupted()) throw e;
+                healthy[index].set(false);
+                System.err.println("[SQLDatabase] Replica " + replicas.get(index).getDataSource().getJdbcUrl() + " marked unhealthy: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private int pick() {
+        if (balancing == LoadBalancing.LEAST_LOADED) {
+            int best = -1;
+            int bestLoad = Integer.MAX_VALUE;
+            for (int i = 0; i < replicas.size(); i++) {
+                if (!healthy[i].get()) continue;
+                int load = load(replicas.get(i));
+                if (load < bestLoad) {
+                    best = i;
+                    bestLoad = load;
+                }
+            }
+            return best;
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            if (healthy[index].get()) return index;
+        }
+        return -1;
+    }
+
+    private int load(GatedPool replica) {
+        HikariPoolMXBean pool = replica.getDataSource().getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+    }
+
+    private void checkHealth() {
+        for (int i = 0; i < replicas.size(); i++) {
+            try (Connection conn = replicas.get(i).getDataSource().getConnection()) {
+                boolean valid = conn.isValid(HEALTH_CHECK_TIMEOUT_SECONDS);
+                if (valid && !healthy[i].getAndSet(true)) {
+                    System.out.println("[SQLDatabase] Replica " + replicas.get(i).getDataSource().getJdbcUrl() + " is healthy again");
+                }
+                if (!valid) healthy[i].set(false);
+            } catch (SQLException e) {
+                healthy[i].set(false);
+            }
+        }
+    }
+
+    void setPriorityOptions(PriorityOptions options) {
+        for (GatedPool replica : replicas) {
+            replica.setPriorityOptions(options);
+        }
+    }
+
+    public void close() {
+        healthCheck.shutdownNow();
+        for (GatedPool replica : replicas) {
+            replica.close();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package dev.charcoal.database.bridge.sql;
+
+import dev.charcoal.database.bridge.change.ChangeEvent;
+import dev.charcoal.database.bridge.change.ChangeListener;
+import dev.charcoal.database.bridge.change.ChangeType;
+import dev.charcoal.database.bridge.change.Subscription;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tails the changelog table filled by the triggers from {@link SQLDatabase#changelogDDL}. Rows only carry the key,
+ * so inserted and updated rows are read back from the primary before being delivered.
+ * <p>
+ * Sequence numbers of concurrent transactions can commit out of order, so a gap is waited on for
+ * {@link #GAP_GRACE_MILLIS} before it is skipped, usually as a rolled back insert. A transaction can still commit
+ * later than that, so skipped sequence numbers are queried again on every poll until the changelog would have
+ * pruned them; rows found there are delivered late, out of order.
+ */
+class SQLChangelogPoller<T> implements Subscription {
+
+    private static final long POLL_INTERVAL_MILLIS = 500;
+    private static final long GAP_GRACE_MILLIS = 2000;
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_GAPS = 100;
+
+    private final SQLDatabase<T> database;
+    private final ChangeListener<T> listener;
+    private final String changelogTable;
+    private final ScheduledFuture<?> task;
+
+    private long lastSeq;
+    private long gapSince;
+    // skipped ranges in seq order, only touched by the polling thread
+    private final List<Gap> gaps = new ArrayList<>();
+
+    SQLChangelogPoller(SQLDatabase<T> database, String changelogTable, ChangeListener<T> listener,
+                       ScheduledExecutorService poller) throws SQLException {
+        this.database = database;
+        this.listener = listener;
+        this.changelogTable = changelogTable;
+        this.lastSeq = latestSeq();
+        this.task = poller.scheduleWithFixedDelay(this::poll, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private long latestSeq() throws SQLException {
+        try (Connection conn = database.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(seq) FROM " + changelogTable)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private void poll() {
+        try {
+            recheckGaps();
+            int delivered;
+            do {
+                delivered = pollBatch();
+            } while (delivered == BATCH_SIZE);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private int pollBatch() throws SQLException {
+        String sql = new SQLQueryBuilder()
+                .select("seq, id, op")
+                .from(changelogTable)
+                .where("seq > ?")
+                .orderBy("seq")
+                .limit("?")
+                .build();
+
+        int delivered = 0;
+        try (Connection conn = database.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, lastSeq);
+            ps.setInt(2, BATCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long seq = rs.getLong("seq");
+                    if (seq != lastSeq + 1) {
+                        if (!gapExpired()) break;
+                        addGap(new Gap(lastSeq + 1, seq - 1, System.currentTimeMillis()));
+                    }
+
+                    gapSince = 0;
+                    deliver(database.keyFromChangelog(rs.getString("id")), rs.getString("op"));
+                    lastSeq = seq;
+                    delivered++;
+                }
+            }
+        }
+        return delivered;
+    }
+
+    private boolean gapExpired() {
+        long now = System.currentTimeMillis();
+        if (gapSince == 0) gapSince = now;
+        return now - gapSince >= GAP_GRACE_MILLIS;
+    }
+
+    /**
+     * Delivers the rows that showed up in skipped ranges since the last poll, after dropping ranges older than
+     * the changelog retention.
+     */
+    private void recheckGaps() throws SQLException {
+        long now = System.currentTimeMillis();
+        gaps.removeIf(gap -> now - gap.skippedAt() >= SQLDatabase.CHANGELOG_RETENTION_MILLIS);
+        if (gaps.isEmpty()) return;
+
+        String ranges = gaps.stream().map(gap -> "seq BETWEEN ? AND ?").collect(Collectors.joining(" OR "));
+        String sql = new SQLQueryBuilder()
+                .select("seq, id, op")
+                .from(changelogTable)
+                .where("(" + ranges + ")")
+                .orderBy("seq")
+                .build();
+
+        List<Long> found = new ArrayList<>();
+        try (Connection conn = database.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (Gap gap : gaps) {
+                ps.setLong(index++, gap.from());
+                ps.setLong(index++, gap.to());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    deliver(database.keyFromChangelog(rs.getString("id")), rs.getString("op"));
+                    found.add(rs.getLong("seq"));
+                }
+            }
+        }
+        for (long seq : found) {
+            fillGap(seq);
+        }
+    }
+
+    /**
+     * Splits the range holding {@code seq} around it, so a delivered row is not delivered again.
+     */
+    private void fillGap(long seq) {
+        for (int i = 0; i < gaps.size(); i++) {
+            Gap gap = gaps.get(i);
+            if (seq < gap.from() || seq > gap.to()) continue;
+
+            gaps.remove(i);
+            if (seq < gap.to()) gaps.add(i, new Gap(seq + 1, gap.to(), gap.skippedAt()));
+            if (seq > gap.from()) gaps.add(i, new Gap(gap.from(), seq - 1, gap.skippedAt()));
+            trimGaps();
+            return;
+        }
+    }
+
+    private void addGap(Gap gap) {
+        gaps.add(gap);
+        trimGaps();
+    }
+
+    /**
+     * Keeps the recheck query bounded; the oldest ranges are the least likely to still commit.
+     */
+    private void trimGaps() {
+        while (gaps.size() > MAX_GAPS) {
+            gaps.remove(0);
+        }
+    }
+
+    private void deliver(String key, String op) {
+        ChangeType type = switch (op) {
+            case "I" -> ChangeType.INSERT;
+            case "U" -> ChangeType.UPDATE;
+            default -> ChangeType.DELETE;
+        };
+
+        try {
+            T value = type == ChangeType.DELETE ? null : database.readYourWrites(() -> database.fetch(key));
+            listener.onChange(new ChangeEvent<>(type, key, value));
+        } catch (RuntimeException e) {
+            System.err.println("[SQLDatabase] Change listener failed for key " + key);
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() {
+        task.cancel(false);
+    }
+
+    /**
+     * Sequence numbers {@code from} to {@code to}, both included, skipped at {@code skippedAt}.
+     */
+    private record Gap(long from, long to, long skippedAt) {
+    }
+}
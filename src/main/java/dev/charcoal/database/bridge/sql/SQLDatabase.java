@@ -1,57 +1,341 @@
 package dev.charcoal.database.bridge.sql;
 
 import com.zaxxer.hikari.HikariConfig;
-import com.zaxxer.hikari.HikariDataSource;
 import dev.charcoal.database.bridge.AsyncDatabase;
 import dev.charcoal.database.bridge.DatabaseConnectionBuilder;
+import dev.charcoal.database.bridge.MigratableDatabase;
+import dev.charcoal.database.bridge.ObservableDatabase;
+import dev.charcoal.database.bridge.ProjectableDatabase;
+import dev.charcoal.database.bridge.RankableDatabase;
+import dev.charcoal.database.bridge.ScannableDatabase;
 import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.Transaction;
+import dev.charcoal.database.bridge.TransactionalDatabase;
+import dev.charcoal.database.bridge.VersionedDatabase;
+import dev.charcoal.database.bridge.change.ChangeListener;
+import dev.charcoal.database.bridge.change.Subscription;
+import dev.charcoal.database.bridge.key.KeyCodec;
+import dev.charcoal.database.bridge.key.KeyedDatabase;
+import dev.charcoal.database.bridge.priority.OperationClass;
+import dev.charcoal.database.bridge.priority.PriorityGate;
+import dev.charcoal.database.bridge.priority.PriorityOptions;
+import dev.charcoal.database.bridge.ranking.RankedCollection;
 import dev.charcoal.database.bridge.sql.annotations.Column;
+import dev.charcoal.database.bridge.sql.exception.SQLDatabaseException;
+import dev.charcoal.database.bridge.utils.Compression;
+import dev.charcoal.database.bridge.utils.FieldProjection;
+import dev.charcoal.database.bridge.utils.VersionAccessor;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
-public abstract class SQLDatabase<T> implements AsyncDatabase<T>, SyncDatabase<T> {
+public abstract class SQLDatabase<T> implements AsyncDatabase<T>, SyncDatabase<T>, TransactionalDatabase<T>, ScannableDatabase<T>,
+        ObservableDatabase<T>, ProjectableDatabase<T>, RankableDatabase<T>, MigratableDatabase<T>,
+        VersionedDatabase<T> {
 
-    private final HikariDataSource dataSource;
+    /**
+     * Epoch-millis expiry column added to every table. {@code NULL} means the row never expires.
+     */
+    protected static final String EXPIRY_COLUMN = "expires_at";
+
+    /**
+     * Condition appended to every read so expired rows are never returned, even before the reaper removes them.
+     * Binds the current epoch millis.
+     */
+    protected static final String NOT_EXPIRED = "(" + EXPIRY_COLUMN + " IS NULL OR " + EXPIRY_COLUMN + " > ?)";
+
+    protected static final long NO_EXPIRY = 0L;
+
+    private static final long REAPER_INTERVAL_SECONDS = 30;
+    private static final int REAPER_BATCH_SIZE = 500;
+    private static final int REAPER_MAX_BATCHES_PER_RUN = 20;
+
+    static final long CHANGELOG_RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Keys bound per {@code IN (...)} list, well under the placeholders a statement may have: 65,535 on MySQL,
+     * 32,766 on SQLite.
+     */
+    protected static final int MAX_KEYS_PER_STATEMENT = 1000;
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+    private static final int MAX_QUEUED_ASYNC_CALLS = 1000;
+
+    private final GatedPool primary;
     private final Class<T> type;
     private final String tableName;
+    private final ScheduledExecutorService reaper;
+
+    /**
+     * Runs the async API. Sized like the connection pool so queued calls wait here instead of on the common pool,
+     * and bounded so a stalled server rejects new calls rather than piling them up.
+     */
+    private final ExecutorService executorService;
+    /**
+     * Runs async calls of the background class, so they wait for a background connection without holding up
+     * the interactive workers.
+     */
+    private final ExecutorService backgroundExecutor;
+
+    private final String changelogTable;
+    private volatile boolean changelogReady;
+    private ScheduledExecutorService changePoller;
+
+    private final Map<String, SQLRanking<T>> rankings = new ConcurrentHashMap<>();
+
+    /**
+     * Connection of the transaction running on the current thread; {@link #getConnection()} hands it out instead
+     * of borrowing a new one so every hook joins the transaction.
+     */
+    private final ThreadLocal<Connection> transactionConnection = new ThreadLocal<>();
+    private final ThreadLocal<TransactionCallbacks> transactionCallbacks = new ThreadLocal<>();
+
+    @Nullable
+    private final ReplicaRouter replicaRouter;
+    private final ThreadLocal<Integer> primarySessionDepth = ThreadLocal.withInitial(() -> 0);
+
+    @Nullable
+    protected final VersionAccessor<T> versionAccessor;
+    protected final FieldProjection<T> projection;
+    @Nullable
+    private final Field idField;
+
+    private volatile Compression compression = Compression.lz4();
+    private final KeyCodec<?> keyCodec;
+    private volatile boolean strict;
 
     public SQLDatabase(@NotNull DatabaseConnectionBuilder connectionBuilder, Class<T> type) {
-        HikariConfig config = new HikariConfig();
-        config.setJdbcUrl(connectionBuilder.getSQLUrl());
-        config.setUsername(connectionBuilder.getUsername());
-        config.setPassword(connectionBuilder.getPassword());
+        this(connectionBuilder, List.of(), LoadBalancing.ROUND_ROBIN, type);
+    }
 
+    /**
+     * @param replicas read replicas, each with its own pool. Reads go to a healthy replica; writes, transactions
+     *                 and {@link #readYourWrites} sessions stay on the primary.
+     */
+    public SQLDatabase(@NotNull DatabaseConnectionBuilder connectionBuilder, @NotNull List<DatabaseConnectionBuilder> replicas,
+                       @NotNull LoadBalancing balancing, Class<T> type) {
         this.tableName = connectionBuilder.getTable();
+        this.changelogTable = tableName + "_changelog";
         this.type = type;
+        this.versionAccessor = VersionAccessor.find(type);
+        this.projection = FieldProjection.of(type);
+        this.idField = findIdField(type);
+        this.keyCodec = connectionBuilder.getKeyCodec();
 
-        config.setMaximumPoolSize(10);
-        config.setMinimumIdle(2);
-        config.setConnectionTimeout(10000); // 10s
+        this.primary = createPool("SQLDatabase-" + tableName, connectionBuilder, 10000); // 10s
+        this.replicaRouter = replicas.isEmpty()
+                ? null
+                : new ReplicaRouter(
+                    IntStream.range(0, replicas.size())
+                            .mapToObj(i -> createPool("SQLDatabase-" + tableName + "-replica-" + i, replicas.get(i), 2000)) // fail over quickly
+                            .toList(),
+                    balancing,
+                    tableName
+                );
+        createTableIfMissing();
+
+        this.reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SQLDatabase-reaper-" + tableName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reaper.scheduleWithFixedDelay(this::reapExpired, REAPER_INTERVAL_SECONDS, REAPER_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        this.executorService = createExecutor("SQLDatabase-worker-" + tableName, primary.getMaximumPoolSize());
+        this.backgroundExecutor = createExecutor("SQLDatabase-background-" + tableName, primary.getMaximumPoolSize());
+    }
+
+    private static ExecutorService createExecutor(String threadName, int threads) {
+        return new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUED_ASYNC_CALLS),
+                runnable -> {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    private GatedPool createPool(String name, DatabaseConnectionBuilder connectionBuilder, long connectionTimeout) {
+        HikariConfig config = new HikariConfig();
+        config.setMaximumPoolSize(connectionBuilder.getMaxPoolSize() > 0 ? connectionBuilder.getMaxPoolSize() : DEFAULT_POOL_SIZE);
+        config.setMinimumIdle(Math.min(2, config.getMaximumPoolSize()));
+        config.setConnectionTimeout(connectionTimeout);
         config.setIdleTimeout(60000);       // 1 min
         config.setMaxLifetime(1800000);     // 30 min
-        config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        configureDataSource(config, connectionBuilder);
 
-        this.dataSource = new HikariDataSource(config);
-        createTableIfMissing();
+        return new GatedPool(name, config, PriorityOptions.defaults());
+    }
+
+    /**
+     * Points the pool at the server. Runs from the constructor, before subclass fields are assigned.
+     */
+    protected void configureDataSource(HikariConfig config, DatabaseConnectionBuilder connectionBuilder) {
+        config.setJdbcUrl(connectionBuilder.getSQLUrl());
+        config.setUsername(connectionBuilder.getUsername());
+        config.setPassword(connectionBuilder.getPassword());
+        config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        // lets Connector/J send JDBC batches as multi-row INSERTs instead of one round trip per row
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
     }
 
     protected Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        Connection bound = transactionConnection.get();
+        return bound != null ? bound : borrow();
+    }
+
+    /**
+     * Takes a connection of the primary pool, through its {@link PriorityGate} for background calls.
+     */
+    private Connection borrow() throws SQLException {
+        return primary.getConnection();
+    }
+
+    /**
+     * Replaces the limits of background calls on the primary and every replica; slots held under the previous
+     * options are returned to them.
+     */
+    public void setPriorityOptions(@NotNull PriorityOptions options) {
+        primary.setPriorityOptions(options);
+        if (replicaRouter != null) replicaRouter.setPriorityOptions(options);
+    }
+
+    /**
+     * Gate of the primary pool. Each replica has its own, sized from its pool.
+     */
+    public PriorityGate getPriorityGate() {
+        return primary.getGate();
+    }
+
+    /**
+     * Connection for read-only hooks. Goes to a replica when one is configured and healthy, unless the current
+     * thread is inside a transaction or a {@link #readYourWrites} session. Background calls take a slot of the
+     * gate of whichever pool serves them.
+     */
+    protected Connection getReadConnection() throws SQLException {
+        if (readsFromPrimary()) return getConnection();
+
+        Connection replica = replicaRouter.getConnection();
+        return replica != null ? replica : getConnection();
+    }
+
+    /**
+     * Whether {@link #getReadConnection()} on this thread is sure to hand out the primary. When it is not, the
+     * read may still land there if no replica is healthy.
+     */
+    protected boolean readsFromPrimary() {
+        return replicaRouter == null || transactionConnection.get() != null || primarySessionDepth.get() > 0;
+    }
+
+    /**
+     * Runs {@code work} with every read on this thread pinned to the primary, so it observes its own writes
+     * regardless of replica lag.
+     */
+    public <R> R readYourWrites(Supplier<R> work) {
+        primarySessionDepth.set(primarySessionDepth.get() + 1);
+        try {
+            return work.get();
+        } finally {
+            int depth = primarySessionDepth.get() - 1;
+            if (depth == 0) primarySessionDepth.remove();
+            else primarySessionDepth.set(depth);
+        }
+    }
+
+    /**
+     * Runs {@code onCommit} once the transaction bound to this thread commits, or right away outside one;
+     * {@code onRollback} runs instead if it rolls back. For state kept beside the table, such as caches, that
+     * must only ever reflect committed rows.
+     */
+    protected void afterCommit(@NotNull Runnable onCommit, @NotNull Runnable onRollback) {
+        TransactionCallbacks callbacks = transactionCallbacks.get();
+        if (callbacks == null) {
+            onCommit.run();
+            return;
+        }
+        callbacks.onCommit.add(onCommit);
+        callbacks.onRollback.add(onRollback);
+    }
+
+    private static final class TransactionCallbacks {
+
+        private final List<Runnable> onCommit = new ArrayList<>();
+        private final List<Runnable> onRollback = new ArrayList<>();
+
+        void run(boolean committed) {
+            for (Runnable callback : committed ? onCommit : onRollback) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Hooks close their connection with try-with-resources, which must not end a running transaction.
+     */
+    private static Connection nonClosing(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close")) return null;
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+        );
     }
 
     public void close() {
-        if (dataSource != null && !dataSource.isClosed()) {
-            dataSource.close();
+        reaper.shutdownNow();
+        executorService.shutdown();
+        backgroundExecutor.shutdown();
+        synchronized (this) {
+            if (changePoller != null) changePoller.shutdownNow();
         }
+        if (replicaRouter != null) replicaRouter.close();
+        if (primary != null) primary.close();
     }
 
     private void createTableIfMissing() {
@@ -59,27 +343,83 @@ public abstract class SQLDatabase<T> implements AsyncDatabase<T>, SyncDatabase<T
         try (Connection conn = getConnection();
              Statement stmt = conn.createStatement()) {
             stmt.executeUpdate(ddl);
+            ensureExpiryColumn(conn, stmt);
             System.out.println("[SQLDatabase] Ensured table: " + tableName);
         } catch (SQLException e) {
             throw new RuntimeException("Failed to create table for " + tableName, e);
         }
     }
 
+    /**
+     * Tables created before TTL support lack the expiry column and its index, so add them in place.
+     */
+    private void ensureExpiryColumn(Connection conn, Statement stmt) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+
+        try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, tableName, EXPIRY_COLUMN)) {
+            if (!rs.next()) {
+                stmt.executeUpdate("ALTER TABLE " + tableName + " ADD COLUMN " + EXPIRY_COLUMN + " BIGINT NULL");
+            }
+        }
+
+        boolean indexed = false;
+        try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, tableName, false, true)) {
+            while (rs.next()) {
+                if (EXPIRY_COLUMN.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    indexed = true;
+                    break;
+                }
+            }
+        }
+
+        if (!indexed) {
+            stmt.executeUpdate("CREATE INDEX idx_" + tableName + "_" + EXPIRY_COLUMN + " ON " + tableName + " (" + EXPIRY_COLUMN + ")");
+        }
+    }
+
     private String generateCreateTableDDL() {
         List<String> columns = new ArrayList<>();
         for (Field field : type.getDeclaredFields()) {
             if (!field.isAnnotationPresent(Column.class)) continue;
 
             Column col = field.getAnnotation(Column.class);
-            String sqlType = !col.type().isEmpty() ? col.type() : mapJavaTypeToSQL(field.getType());
+            if (col.compressed() && field.getType() != String.class) {
+                throw new IllegalStateException("Compressed column " + col.name() + " must be a String field");
+            }
+            String sqlType = !col.type().isEmpty() ? col.type() : col.compressed() ? "LONGBLOB" : mapJavaTypeToSQL(field.getType());
             String colDef = col.name() + " " + sqlType + (col.id() ? " PRIMARY KEY" : "");
             columns.add(colDef);
         }
+        columns.add(EXPIRY_COLUMN + " BIGINT NULL");
 
         String columnDefs = String.join(", ", columns);
         return "CREATE TABLE IF NOT EXISTS " + tableName + " (" + columnDefs + ");";
     }
 
+    private static @Nullable Field findIdField(Class<?> type) {
+        for (Field field : type.getDeclaredFields()) {
+            if (field.isAnnotationPresent(Column.class) && field.getAnnotation(Column.class).id()) {
+                field.setAccessible(true);
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Key of {@code value}, read from its {@code @Column(id = true)} field.
+     */
+    protected String keyOf(T value) {
+        if (idField == null) throw new IllegalStateException(type.getSimpleName() + " has no @Column(id = true) field");
+        try {
+            Object key = idField.get(value);
+            if (key == null) throw new IllegalArgumentException("Null id in " + type.getSimpleName() + " value");
+            return keyCodec.keyType().isInstance(key) ? encodeKey(key) : key.toString();
+        } catch (IllegalAccessException e) {
+            throw new SQLDatabaseException("Failed to read id of " + type.getSimpleName(), e);
+        }
+    }
+
     private String mapJavaTypeToSQL(Class<?> clazz) {
         if (clazz == String.class) return "VARCHAR(255)";
         if (clazz == int.class || clazz == Integer.class) return "INT";
@@ -91,17 +431,280 @@ public abstract class SQLDatabase<T> implements AsyncDatabase<T>, SyncDatabase<T
     }
 
 
+    /**
+     * Deletes expired rows in small batches so each run only holds short locks on the expiry index.
+     */
+    private void reapExpired() {
+        OperationClass.BACKGROUND.run(this::reapExpiredBatches);
+    }
+
+    private void reapExpiredBatches() {
+        try {
+            for (int i = 0; i < REAPER_MAX_BATCHES_PER_RUN; i++) {
+                if (purgeExpired(System.currentTimeMillis(), REAPER_BATCH_SIZE) < REAPER_BATCH_SIZE) break;
+            }
+            if (changelogReady) pruneChangelog();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Streams changes made by any client through a changelog table filled by triggers on this table, polled every
+     * 500ms. The table and triggers are created on the first subscription and stay in place afterwards; entries are
+     * kept for an hour so subscribers on other instances can catch up.
+     */
+    @Override
+    public synchronized Subscription subscribe(ChangeListener<T> listener) {
+        try {
+            ensureChangelog();
+            if (changePoller == null) {
+                changePoller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "SQLDatabase-changes-" + tableName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return new SQLChangelogPoller<>(this, changelogTable, listener, changePoller);
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Failed to set up change capture for " + tableName, e);
+        }
+    }
+
+    private void ensureChangelog() throws SQLException {
+        if (changelogReady) return;
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String ddl : changelogDDL(changelogTable)) {
+                stmt.executeUpdate(ddl);
+            }
+        }
+        changelogReady = true;
+        System.out.println("[SQLDatabase] Ensured changelog: " + changelogTable);
+    }
+
+    private void pruneChangelog() throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     new SQLQueryBuilder().deleteFrom(changelogTable).where("changed_at < ?").build())) {
+            ps.setLong(1, System.currentTimeMillis() - CHANGELOG_RETENTION_MILLIS);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Sets the threshold/codec used for {@code @Column(compressed = true)} fields. Existing rows stay readable
+     * either way since every value carries a header byte, compressed or not.
+     */
+    public void setCompression(@NotNull Compression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Makes reads, writes and transactions throw {@link SQLDatabaseException} on a database error instead of
+     * logging it and returning {@code null}, {@code false} or an empty result. Wrappers that count failures, such
+     * as a {@code ResilientDatabase}, need this to tell an error from a missing row.
+     */
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    private <R> R failed(String message, SQLException e, R fallback) {
+        if (strict) throw new SQLDatabaseException(message, e);
+        e.printStackTrace();
+        return fallback;
+    }
+
+    /**
+     * Converts a field value into what is bound to its column, compressing {@code compressed} columns.
+     */
+    protected Object toColumnValue(Field field, Object value) {
+        if (value != null && field.equals(idField)) return nativeKey(value);
+        if (value == null || !field.getAnnotation(Column.class).compressed()) return value;
+        return compression.compressFramed(((String) value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a {@code @Column(compressed = true)} value inside a row mapper.
+     *
+     * @throws IllegalArgumentException if the stored value is not one this class wrote, or declares more than
+     *                                  {@link Compression#DEFAULT_MAX_LENGTH} bytes
+     */
+    public static @Nullable String readCompressed(ResultSet rs, String column) throws SQLException {
+        byte[] payload = rs.getBytes(column);
+        return payload == null ? null : new String(Compression.NONE.decompressFramed(payload), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@code keys} in order, split into lists of at most {@link #MAX_KEYS_PER_STATEMENT} for statements binding
+     * one placeholder per key.
+     */
+    protected static List<List<String>> keyChunks(Collection<String> keys) {
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>(Math.min(keys.size(), MAX_KEYS_PER_STATEMENT));
+        for (String key : keys) {
+            if (chunk.size() == MAX_KEYS_PER_STATEMENT) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(MAX_KEYS_PER_STATEMENT);
+            }
+            chunk.add(key);
+        }
+        if (!chunk.isEmpty()) chunks.add(chunk);
+        return chunks;
+    }
+
+    protected static void bindExpiry(PreparedStatement ps, int index, long expiresAt) throws SQLException {
+        if (expiresAt == NO_EXPIRY) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, expiresAt);
+        }
+    }
+
     // Abstract hooks to be implemented by subclasses
     protected abstract T mapResult(ResultSet rs) throws SQLException;
 
-    protected abstract void saveToDatabase(String key, T value) throws SQLException;
+    /**
+     * @param expiresAt epoch millis after which the row is expired, or {@link #NO_EXPIRY}
+     */
+    protected abstract void saveToDatabase(String key, T value, long expiresAt) throws SQLException;
+
+    /**
+     * Saves a batch of buffered writes. Subclasses can override this to send them as one JDBC batch;
+     * the default saves them one by one on the current connection.
+     */
+    protected void saveAllToDatabase(List<PendingWrite<T>> writes) throws SQLException {
+        for (PendingWrite<T> write : writes) {
+            saveToDatabase(write.getKey(), write.getValue(), write.getExpiresAt());
+        }
+    }
+
+    /**
+     * Writes one batch of a {@link #bulkLoad} on {@code conn}, which {@link #getConnection()} also returns meanwhile.
+     * The default upserts through {@link #saveAllToDatabase}; subclasses override it to honour
+     * {@link BulkLoadOptions#isReplaceExisting()} and skip per-row bookkeeping.
+     *
+     * @return the rows written, leaving out any the server skipped as duplicates
+     */
+    protected int bulkInsert(Connection conn, List<T> batch, BulkLoadOptions options) throws SQLException {
+        List<PendingWrite<T>> writes = new ArrayList<>(batch.size());
+        for (T value : batch) {
+            writes.add(new PendingWrite<>(keyOf(value), value, NO_EXPIRY));
+        }
+        saveAllToDatabase(writes);
+        return batch.size();
+    }
+
+    /**
+     * Non-unique indexes of this table by name, each with the statement recreating it as it is defined now,
+     * including index types, prefix lengths, sort order and expressions.
+     */
+    protected abstract Map<String, String> secondaryIndexes(Connection conn) throws SQLException;
+
+    /**
+     * Statement dropping {@code index} of this table.
+     */
+    protected String dropIndexSql(String index) {
+        return "DROP INDEX " + index + " ON " + tableName;
+    }
+
+    protected void deleteAllFromDatabase(Collection<String> keys) throws SQLException {
+        for (String key : keys) {
+            deleteFromDatabase(key);
+        }
+    }
+
+    /**
+     * Deletes at most {@code limit} rows whose expiry is at or before {@code now}.
+     *
+     * @return the number of deleted rows
+     */
+    protected abstract int purgeExpired(long now, int limit) throws SQLException;
 
     protected abstract List<T> loadAll() throws SQLException;
 
     protected abstract T load(String key) throws SQLException;
 
+    /**
+     * Loads several live rows, leaving missing keys out. The default loads them one by one; subclasses override it
+     * with {@code IN} queries of at most {@link #MAX_KEYS_PER_STATEMENT} keys each.
+     */
+    protected Map<String, T> loadMany(Collection<String> keys) throws SQLException {
+        Map<String, T> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            T value = load(key);
+            if (value != null) result.put(key, value);
+        }
+        return result;
+    }
+
+    /**
+     * Reads {@code key} with only {@code fields} populated. The default loads the whole row and copies the fields
+     * out; subclasses that store fields in their own columns override it to select only those.
+     */
+    protected @Nullable T loadProjected(String key, List<Field> fields) throws SQLException {
+        T full = load(key);
+        return full == null ? null : projection.project(full, fields);
+    }
+
+    protected Map<String, T> loadManyProjected(Collection<String> keys, List<Field> fields) throws SQLException {
+        Map<String, T> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            T value = loadProjected(key, fields);
+            if (value != null) result.put(key, value);
+        }
+        return result;
+    }
+
+    /**
+     * Keyset page for {@link #scan}: live rows with a key after {@code afterKey} ({@code null} for the first page),
+     * ordered by key.
+     */
+    protected abstract Map<String, T> loadPage(@Nullable String afterKey, int limit) throws SQLException;
+
+    /**
+     * Statements creating {@code changelogTable} ({@code seq} increasing, {@code id}, {@code op} one of
+     * {@code I}/{@code U}/{@code D}, {@code changed_at} epoch millis) and the triggers that fill it. They must be
+     * idempotent since every instance runs them on its first subscription.
+     */
+    protected abstract List<String> changelogDDL(String changelogTable);
+
+    /**
+     * Idempotent statements creating {@code rankingTable} with {@code id} as primary key, a {@code score} double and
+     * an index on {@code (score, id)} so pages are read straight from the index.
+     */
+    protected abstract List<String> rankingDDL(String rankingTable);
+
+    /**
+     * Upsert binding {@code id} then {@code score}; with {@code increment} the score is added to an existing one
+     * instead of replacing it.
+     */
+    protected abstract String upsertScoreSql(String rankingTable, boolean increment);
+
     protected abstract boolean deleteFromDatabase(String key) throws SQLException;
 
+    /**
+     * Writes {@code value}, whose version has already been bumped, only if the stored version equals
+     * {@code expectedVersion}. The expiry column is cleared, as with a plain save.
+     *
+     * @return {@code false} on a version conflict
+     */
+    protected abstract boolean compareAndSaveToDatabase(String key, long expectedVersion, T value) throws SQLException;
+
+    /**
+     * Inserts {@code value} as it is, unless a row for {@code key} exists. Expired rows have been purged already.
+     *
+     * @param expiresAt epoch millis after which the row is expired, or {@link #NO_EXPIRY}
+     * @return {@code false} if a row was there
+     */
+    protected abstract boolean insertIfAbsent(String key, T value, long expiresAt) throws SQLException;
+
+    /**
+     * Deletes the live row of {@code key} only if its version equals {@code expectedVersion}, {@code 0} also
+     * matching a row saved without one.
+     */
+    protected abstract boolean deleteIfVersionFromDatabase(String key, long expectedVersion) throws SQLException;
+
     /* ------------------ SYNC ------------------ */
 
     @Override
@@ -109,29 +712,107 @@ public abstract class SQLDatabase<T> implements AsyncDatabase<T>, SyncDatabase<T
         try {
             return load(key);
         } catch (SQLException e) {
-            e.printStackTrace();
-            return null;
+            return failed("Failed to fetch key: " + key, e, null);
         }
     }
 
     @Override
-    public List<T> fetchAll() {
+    public Map<String, T> fetchMany(Collection<String> keys) {
+        if (keys.isEmpty()) return Map.of();
         try {
-            return loadAll();
+            return loadMany(keys);
         } catch (SQLException e) {
-            e.printStackTrace();
-            return List.of();
+            return failed("Failed to fetch " + keys.size() + " keys", e, Map.of());
+        }
+    }
+
+    @Override
+    public T fetch(String key, String... fields) {
+        List<Field> selected = projection.resolve(fields);
+        try {
+            return loadProjected(key, selected);
+        } catch (SQLException e) {
+            return failed("Failed to fetch key: " + key, e, null);
         }
     }
 
+    @Override
+    public Map<String, T> fetchMany(Collection<String> keys, String... fields) {
+        List<Field> selected = projection.resolve(fields);
+        if (keys.isEmpty()) return Map.of();
+        try {
+            return loadManyProjected(keys, selected);
+        } catch (SQLException e) {
+            return failed("Failed to fetch " + keys.size() + " keys", e, Map.of());
+        }
+    }
+
+    @Override
+    public T fetchShallow(String key) {
+        return fetch(key, projection.getEagerFieldNames());
+    }
+
+    @Override
+    public T loadLazy(String key, T value, String... fields) {
+        String[] names = fields.length == 0 ? projection.getLazyFieldNames() : fields;
+        T loaded = fetch(key, names);
+        if (loaded == null) return null;
+        List<Field> selected = projection.resolve(names);
+        projection.copy(loaded, value, selected);
+        return value;
+    }
+
+    @Override
+    public List<T> fetchAll() {
+        return OperationClass.withDefault(OperationClass.BACKGROUND, () -> {
+            try {
+                return loadAll();
+            } catch (SQLException e) {
+                return failed("Failed to fetch all of " + tableName, e, List.of());
+            }
+        });
+    }
+
+    /**
+     * Unlike {@link #fetchAll()} this fails loudly: an empty page means the end of the table to callers.
+     */
+    @Override
+    public Map<String, T> scan(@Nullable String afterKey, int limit) {
+        return OperationClass.withDefault(OperationClass.BACKGROUND, () -> {
+            try {
+                return loadPage(afterKey, limit);
+            } catch (SQLException e) {
+                throw new SQLDatabaseException("Failed to scan " + tableName + " after key: " + afterKey, e);
+            }
+        });
+    }
+
     @Override
     public boolean save(String key, T value) {
         try {
-            saveToDatabase(key, value);
+            saveToDatabase(key, value, NO_EXPIRY);
             return true;
         } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
+            return failed("Failed to save key: " + key, e, false);
+        }
+    }
+
+    /**
+     * Writes every entry in one transaction, so the hooks can send them as a single batch.
+     */
+    @Override
+    public boolean saveMany(Map<String, T> values) {
+        if (values.isEmpty()) return true;
+        return transaction(tx -> values.forEach(tx::save));
+    }
+
+    @Override
+    public boolean save(String key, T value, Duration timeout) {
+        try {
+            saveToDatabase(key, value, System.currentTimeMillis() + timeout.toMillis());
+            return true;
+        } catch (SQLException e) {
+            return failed("Failed to save key: " + key, e, false);
         }
     }
 
@@ -140,41 +821,431 @@ public abstract class SQLDatabase<T> implements AsyncDatabase<T>, SyncDatabase<T
         try {
             return deleteFromDatabase(key);
         } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
+            return failed("Failed to delete key: " + key, e, false);
+        }
+    }
+
+    @Override
+    public boolean compareAndSave(String key, long expectedVersion, T value) {
+        VersionAccessor<T> accessor = VersionAccessor.require(versionAccessor, type);
+        long previousVersion = accessor.get(value);
+        accessor.set(value, expectedVersion + 1);
+
+        boolean saved = false;
+        try {
+            saved = compareAndSaveToDatabase(key, expectedVersion, value);
+            return saved;
+        } catch (SQLException e) {
+            return failed("Failed to compare and save key: " + key, e, false);
+        } finally {
+            if (!saved) accessor.set(value, previousVersion);
+        }
+    }
+
+    /**
+     * Reads from the primary: a lagging replica would hand out versions {@code compareAndSave} on the primary
+     * keeps rejecting, until the retries run out.
+     */
+    @Override
+    public T update(String key, UnaryOperator<T> updater) {
+        VersionAccessor<T> accessor = VersionAccessor.require(versionAccessor, type);
+        return readYourWrites(() -> accessor.update(this, key, updater));
+    }
+
+    /* ------------------ MIGRATION ------------------ */
+
+    /**
+     * Migration reads go to the primary and fail loudly, so a move never mistakes an error for a missing row.
+     */
+    @Override
+    public @Nullable Duration timeToLive(String key) {
+        String sql = new SQLQueryBuilder()
+                .select(EXPIRY_COLUMN)
+                .from(tableName)
+                .where("id = ?")
+                .and(NOT_EXPIRED)
+                .build();
+
+        long now = System.currentTimeMillis();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindKey(ps, 1, key);
+            ps.setLong(2, now);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                long expiresAt = rs.getLong(1);
+                return rs.wasNull() ? null : Duration.ofMillis(Math.max(1, expiresAt - now));
+            }
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Failed to read the expiry of key: " + key, e);
+        }
+    }
+
+    @Override
+    public boolean saveIfAbsent(String key, T value, @Nullable Duration timeout) {
+        long now = System.currentTimeMillis();
+        long expiresAt = timeout == null ? NO_EXPIRY : now + timeout.toMillis();
+        String purge = new SQLQueryBuilder()
+                .deleteFrom(tableName)
+                .where("id = ?")
+                .and(EXPIRY_COLUMN + " <= ?")
+                .build();
+
+        try {
+            try (Connection conn = getConnection();
+                 PreparedStatement ps = conn.prepareStatement(purge)) {
+                bindKey(ps, 1, key);
+                ps.setLong(2, now);
+                ps.executeUpdate();
+            }
+            return insertIfAbsent(key, value, expiresAt);
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Failed to insert key: " + key, e);
         }
     }
 
+    @Override
+    public boolean deleteIfVersion(String key, long expectedVersion) {
+        VersionAccessor.require(versionAccessor, type);
+        try {
+            return deleteIfVersionFromDatabase(key, expectedVersion);
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Failed to delete key: " + key, e);
+        }
+    }
+
+    /* ------------------ KEYS ------------------ */
+
+    /**
+     * Returns a view taking keys of the codec's type. The codec must be the one given to
+     * {@link DatabaseConnectionBuilder#getKeyCodec()}, since it decides how the id column and the changelog
+     * triggers are created: BIGINT for {@link KeyCodec#longs()}, BINARY(16) (a BLOB in SQLite) for the UUID
+     * codecs, declared with {@code @Column(type = "BINARY(16)")} when this class creates the table.
+     *
+     * @throws IllegalArgumentException if {@code codec} is not the codec this database was built with
+     */
+    public <K> KeyedDatabase<K, T> keyed(@NotNull KeyCodec<K> codec) {
+        if (!codec.equals(keyCodec)) {
+            throw new IllegalArgumentException("Table " + tableName + " was built with a different key codec ("
+                    + keyCodec.keyType().getSimpleName() + " keys), pass it through DatabaseConnectionBuilder.keyCodec");
+        }
+        return new KeyedDatabase<>(this, codec);
+    }
+
+    /**
+     * Binds {@code key} for a comparison against the id column: a long, 16 bytes, or the String itself.
+     */
+    protected void bindKey(PreparedStatement ps, int index, String key) throws SQLException {
+        Object nativeKey = keyCodec.decode(key);
+        if (nativeKey instanceof Long id) {
+            ps.setLong(index, id);
+        } else if (nativeKey instanceof UUID uuid) {
+            ps.setBytes(index, KeyCodec.toBytes(uuid));
+        } else {
+            ps.setString(index, key);
+        }
+    }
+
+    /**
+     * Reads the id column of the current row back into its String form.
+     */
+    protected String readKey(ResultSet rs) throws SQLException {
+        Class<?> keyType = keyCodec.keyType();
+        if (keyType == Long.class) return encodeKey(rs.getLong("id"));
+        if (keyType == UUID.class) return encodeKey(KeyCodec.fromBytes(rs.getBytes("id")));
+        return rs.getString("id");
+    }
+
+    /**
+     * Id value written for an entity: the id field converted to the native key type, whether the entity holds
+     * it typed or as a String.
+     */
+    private Object nativeKey(Object id) {
+        if (keyCodec.keyType() == String.class) return id;
+        Object nativeKey = id instanceof String key ? keyCodec.decode(key) : id;
+        return nativeKey instanceof UUID uuid ? KeyCodec.toBytes(uuid) : nativeKey;
+    }
+
+    @SuppressWarnings("unchecked")
+    private String encodeKey(Object nativeKey) {
+        return ((KeyCodec<Object>) keyCodec).encode(nativeKey);
+    }
+
+    /**
+     * Expression the changelog triggers store for the id of {@code row} ({@code NEW} or {@code OLD}). Binary
+     * UUIDs are stored as hex, since the changelog id column is text.
+     */
+    protected String changelogKey(String row) {
+        return keyCodec.keyType() == UUID.class ? "HEX(" + row + ".id)" : row + ".id";
+    }
+
+    /**
+     * Turns an id stored by {@link #changelogKey} back into its String form.
+     */
+    String keyFromChangelog(String stored) {
+        Class<?> keyType = keyCodec.keyType();
+        if (keyType == Long.class) return encodeKey(Long.parseLong(stored));
+        if (keyType == UUID.class) return encodeKey(KeyCodec.fromBytes(HexFormat.of().parseHex(stored)));
+        return stored;
+    }
+
+    /* ------------------ RANKING ------------------ */
+
+    /**
+     * Ranking stored in the table {@code <table>_rank_<name>}, created on first use. Ranks are counted over the
+     * score index, so top-N and paging stay cheap while the rank of a key deep in a large ranking costs a range
+     * scan; Redis is the better home for those.
+     */
+    @Override
+    public RankedCollection<T> ranking(String name) {
+        if (!name.matches("[A-Za-z0-9_]+")) {
+            throw new IllegalArgumentException("Ranking names may only use letters, digits and underscores: " + name);
+        }
+        return rankings.computeIfAbsent(name, ignored -> new SQLRanking<>(this, tableName + "_rank_" + name));
+    }
+
+    /* ------------------ BULK ------------------ */
+
+    /**
+     * Seeds the table with {@code values} far faster than {@link #saveMany}: rows go out in large batches on one
+     * dedicated connection and commit per batch or once, instead of per row. Keys are read from the
+     * {@code @Column(id = true)} field and rows never expire.
+     * <p>
+     * Unlike {@link #saveMany} this fails loudly, since a half-loaded table must not look like success.
+     *
+     * @return the number of rows written
+     * @throws SQLDatabaseException when a batch fails; unless {@link BulkLoadOptions#isSingleTransaction()} is set,
+     *                              the batches committed before it stay
+     */
+    public long bulkLoad(@NotNull Iterator<T> values, @NotNull BulkLoadOptions options) {
+        if (transactionConnection.get() != null) {
+            throw new IllegalStateException("bulkLoad cannot run inside a transaction on " + tableName);
+        }
+        return OperationClass.withDefault(OperationClass.BACKGROUND, () -> loadInBatches(values, options));
+    }
+
+    private long loadInBatches(Iterator<T> values, BulkLoadOptions options) {
+
+        long started = System.nanoTime();
+        long loaded = 0;
+        try (Connection conn = borrow()) {
+            // DDL commits implicitly on MySQL, so the indexes go before the load transaction starts
+            List<String> deferred = options.isDeferIndexes() ? dropSecondaryIndexes(conn) : List.of();
+            try {
+                conn.setAutoCommit(false);
+                transactionConnection.set(nonClosing(conn));
+                try {
+                    List<T> batch = new ArrayList<>(options.getBatchSize());
+                    while (values.hasNext()) {
+                        batch.add(values.next());
+                        if (batch.size() < options.getBatchSize() && values.hasNext()) continue;
+
+                        int written = bulkInsert(conn, batch, options);
+                        if (!options.isSingleTransaction()) conn.commit();
+                        loaded += written;
+                        batch.clear();
+                    }
+                    conn.commit();
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    if (options.isSingleTransaction()) loaded = 0;
+                    throw e;
+                } finally {
+                    transactionConnection.remove();
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException | RuntimeException e) {
+                // an aborted load must not leave the table without its indexes either
+                SQLException unrestored = restoreIndexes(conn, deferred);
+                if (unrestored != null) e.addSuppressed(unrestored);
+                throw e;
+            }
+            SQLException unrestored = restoreIndexes(conn, deferred);
+            if (unrestored != null) throw unrestored;
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Bulk load into " + tableName + " failed after " + loaded + " committed rows", e);
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        System.out.println("[SQLDatabase] Bulk loaded " + loaded + " rows into " + tableName + " in " + millis + "ms");
+        return loaded;
+    }
+
+    public long bulkLoad(@NotNull Iterator<T> values) {
+        return bulkLoad(values, BulkLoadOptions.defaults());
+    }
+
+    /**
+     * Same as {@link #bulkLoad(Iterator, BulkLoadOptions)}, closing {@code values} afterwards.
+     */
+    public long bulkLoad(@NotNull Stream<T> values, @NotNull BulkLoadOptions options) {
+        try (values) {
+            return bulkLoad(values.iterator(), options);
+        }
+    }
+
+    public long bulkLoad(@NotNull Stream<T> values) {
+        return bulkLoad(values, BulkLoadOptions.defaults());
+    }
+
+    /**
+     * Drops the non-unique indexes of the table; unique ones stay since they enforce constraints.
+     *
+     * @return statements recreating them exactly as they were defined
+     */
+    private List<String> dropSecondaryIndexes(Connection conn) throws SQLException {
+        Map<String, String> indexes = secondaryIndexes(conn);
+
+        List<String> recreate = new ArrayList<>();
+        try (Statement stmt = conn.createStatement()) {
+            for (Map.Entry<String, String> index : indexes.entrySet()) {
+                stmt.executeUpdate(dropIndexSql(index.getKey()));
+                recreate.add(index.getValue());
+            }
+        } catch (SQLException e) {
+            // a later drop can fail, such as MySQL refusing one a foreign key needs, so put back those already gone
+            SQLException unrestored = restoreIndexes(conn, recreate);
+            if (unrestored != null) e.addSuppressed(unrestored);
+            throw e;
+        }
+        return recreate;
+    }
+
+    /**
+     * Tries every statement even after one fails.
+     *
+     * @return {@code null} if all indexes were rebuilt, otherwise an exception naming the statements to run
+     *         manually, with each failure as its cause or suppressed
+     */
+    private @Nullable SQLException restoreIndexes(Connection conn, List<String> statements) {
+        List<String> failed = new ArrayList<>();
+        SQLException failure = null;
+        for (String ddl : statements) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(ddl);
+            } catch (SQLException e) {
+                failed.add(ddl);
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure == null) return null;
+        return new SQLException("Indexes of " + tableName + " were not rebuilt, run manually: " + String.join("; ", failed), failure);
+    }
+
+    /**
+     * Binds one connection to the calling thread for the duration of {@code work}, flushes the buffered writes as
+     * a batch and commits once. Calls made on this database from the same thread inside {@code work} join the
+     * transaction; a nested call simply joins the outer one.
+     */
+    @Override
+    public boolean transaction(Consumer<Transaction<T>> work) {
+        if (transactionConnection.get() != null) {
+            SQLTransaction<T> nested = new SQLTransaction<>(this);
+            work.accept(nested);
+            try {
+                nested.flush();
+                return true;
+            } catch (SQLException e) {
+                // Let the outer transaction roll back instead of committing half of the work
+                throw new SQLDatabaseException("Failed to flush nested transaction on " + tableName, e);
+            }
+        }
+
+        try (Connection conn = borrow()) {
+            conn.setAutoCommit(false);
+            transactionConnection.set(nonClosing(conn));
+            TransactionCallbacks callbacks = new TransactionCallbacks();
+            transactionCallbacks.set(callbacks);
+            boolean committed = false;
+            try {
+                SQLTransaction<T> tx = new SQLTransaction<>(this);
+                work.accept(tx);
+                tx.flush();
+                conn.commit();
+                committed = true;
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                return failed("Transaction on " + tableName + " failed", e, false);
+            } catch (RuntimeException | Error e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                transactionConnection.remove();
+                transactionCallbacks.remove();
+                callbacks.run(committed);
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            return failed("Transaction on " + tableName + " failed", e, false);
+        }
+    }
+
+    /**
+     * Runs {@code work} on the executor of the caller's class, keeping that class on the worker thread.
+     */
+    private <R> CompletableFuture<R> submit(Supplier<R> work) {
+        return submit(work, OperationClass.INTERACTIVE);
+    }
+
+    private <R> CompletableFuture<R> submit(Supplier<R> work, OperationClass defaultClass) {
+        OperationClass operationClass = OperationClass.currentOr(defaultClass);
+        ExecutorService executor = operationClass == OperationClass.BACKGROUND ? backgroundExecutor : executorService;
+        return CompletableFuture.supplyAsync(() -> operationClass.call(work), executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> transactionAsync(Consumer<Transaction<T>> work) {
+        return submit(() -> transaction(work));
+    }
+
     @Override
     public CompletableFuture<T> fetchAsync(String key) {
-        return CompletableFuture.supplyAsync(() -> fetch(key));
+        return submit(() -> fetch(key));
     }
 
     @Override
     public CompletableFuture<List<T>> fetchAllAsync() {
-        return CompletableFuture.supplyAsync(this::fetchAll);
+        return submit(this::fetchAll, OperationClass.BACKGROUND);
     }
 
     @Override
     public CompletableFuture<Boolean> saveAsync(String key, T value) {
-        return CompletableFuture.supplyAsync(() -> save(key, value));
+        return submit(() -> save(key, value));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveAsync(String key, T value, Duration timeout) {
+        return submit(() -> save(key, value, timeout));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, T>> fetchManyAsync(Collection<String> keys) {
+        return submit(() -> fetchMany(keys));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveManyAsync(Map<String, T> values) {
+        return submit(() -> saveMany(values));
     }
 
     @Override
     public CompletableFuture<Boolean> deleteAsync(String key) {
-        return CompletableFuture.supplyAsync(() -> delete(key));
+        return submit(() -> delete(key));
     }
 
-    @Deprecated
     @Override
-    public CompletableFuture<Boolean> saveAsync(String key, T value, Duration timeout) {
-        return null;
+    public CompletableFuture<Boolean> compareAndSaveAsync(String key, long expectedVersion, T value) {
+        return submit(() -> compareAndSave(key, expectedVersion, value));
     }
 
-    @Deprecated
     @Override
-    public boolean save(String key, T value, Duration timeout) {
-        return false;
+    public CompletableFuture<T> updateAsync(String key, UnaryOperator<T> updater) {
+        return submit(() -> update(key, updater));
     }
 
 }
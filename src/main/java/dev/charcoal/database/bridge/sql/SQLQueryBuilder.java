@@ -51,6 +51,20 @@ public class SQLQueryBuilder {
         return this;
     }
 
+    /**
+     * Names the inserted row, so {@link #onDuplicateKeyUpdate(String)} can refer to its columns as
+     * {@code alias.column}. Needs MySQL 8.0.19+.
+     */
+    public SQLQueryBuilder as(String alias) {
+        query.append("AS ").append(alias).append(" ");
+        return this;
+    }
+
+    public SQLQueryBuilder onDuplicateKeyUpdate(String assignments) {
+        query.append("ON DUPLICATE KEY UPDATE ").append(assignments).append(" ");
+        return this;
+    }
+
     public SQLQueryBuilder update(String table) {
         query.append("UPDATE ").append(table).append(" ");
         return this;
@@ -61,6 +75,16 @@ public class SQLQueryBuilder {
         return this;
     }
 
+    public SQLQueryBuilder orderBy(String columns) {
+        query.append("ORDER BY ").append(columns).append(" ");
+        return this;
+    }
+
+    public SQLQueryBuilder limit(String limit) {
+        query.append("LIMIT ").append(limit).append(" ");
+        return this;
+    }
+
     public SQLQueryBuilder deleteFrom(String table) {
         query.append("DELETE FROM ").append(table).append(" ");
         return this;
@@ -0,0 +1,188 @@
+package dev.charcoal.database.bridge.sql;
+
+import dev.charcoal.database.bridge.ranking.RankedCollection;
+import dev.charcoal.database.bridge.ranking.RankedEntry;
+import dev.charcoal.database.bridge.sql.exception.SQLDatabaseException;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ranking kept in its own table of {@code (id, score)} with an index on {@code (score, id)}. Pages are read by
+ * walking that index backwards; ranks count the index entries ahead of the key, a range scan that grows with
+ * the rank, so very deep ranks on very large tables are better served by Redis.
+ * <p>
+ * Unlike the reads of {@link SQLDatabase}, failures throw {@link SQLDatabaseException}: a missing rank and a
+ * failed query must not look alike.
+ */
+class SQLRanking<T> implements RankedCollection<T> {
+
+    private final SQLDatabase<T> database;
+    private final String table;
+
+    SQLRanking(SQLDatabase<T> database, String table) {
+        this.database = database;
+        this.table = table;
+        try (Connection conn = database.getConnection()) {
+            for (String ddl : database.rankingDDL(table)) {
+                try (PreparedStatement ps = conn.prepareStatement(ddl)) {
+                    ps.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Failed to create ranking table " + table, e);
+        }
+    }
+
+    @Override
+    public void setScore(String key, double score) {
+        try (Connection conn = database.getConnection();
+             PreparedStatement ps = conn.prepareStatement(database.upsertScoreSql(table, false))) {
+            ps.setString(1, key);
+            ps.setDouble(2, score);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Failed to set score of " + key + " in " + table, e);
+        }
+    }
+
+    /**
+     * Upserts and reads back in one transaction, so the returned score includes this increment and no other.
+     */
+    @Override
+    public double incrementScore(String key, double delta) {
+        try (Connection conn = database.getConnection()) {
+            // inside a database transaction the connection is already in one
+            boolean ownTransaction = conn.getAutoCommit();
+            if (ownTransaction) conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(database.upsertScoreSql(table, true))) {
+                    ps.setString(1, key);
+                    ps.setDouble(2, delta);
+                    ps.executeUpdate();
+                }
+                Double score = readScore(conn, key);
+                if (ownTransaction) conn.commit();
+                return score == null ? delta : score;
+            } catch (SQLException | RuntimeException e) {
+                if (ownTransaction) conn.rollback();
+                throw e;
+            } finally {
+                if (ownTransaction) conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Failed to increment score of " + key + " in " + table, e);
+        }
+    }
+
+    @Override
+    public @Nullable Double getScore(String key) {
+        try (Connection conn = database.getReadConnection()) {
+            return readScore(conn, key);
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Failed to read score of " + key + " in " + table, e);
+        }
+    }
+
+    private @Nullable Double readScore(Connection conn, String key) throws SQLException {
+        String sql = new SQLQueryBuilder()
+                .select("score")
+                .from(table)
+                .where("id = ?")
+                .build();
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : null;
+            }
+        }
+    }
+
+    @Override
+    public @Nullable Long getRank(String key) {
+        try (Connection conn = database.getReadConnection()) {
+            Double score = readScore(conn, key);
+            if (score == null) return null;
+
+            String sql = new SQLQueryBuilder()
+                    .select("COUNT(*)")
+                    .from(table)
+                    .where("score > ?")
+                    .or("(score = ? AND id > ?)")
+                    .build();
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setDouble(1, score);
+                ps.setDouble(2, score);
+                ps.setString(3, key);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Failed to read rank of " + key + " in " + table, e);
+        }
+    }
+
+    @Override
+    public boolean remove(String key) {
+        try (Connection conn = database.getConnection();
+             PreparedStatement ps = conn.prepareStatement(new SQLQueryBuilder().deleteFrom(table).where("id = ?").build())) {
+            ps.setString(1, key);
+            return ps.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Failed to remove " + key + " from " + table, e);
+        }
+    }
+
+    @Override
+    public long size() {
+        try (Connection conn = database.getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(new SQLQueryBuilder().select("COUNT(*)").from(table).build());
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Failed to count " + table, e);
+        }
+    }
+
+    @Override
+    public List<RankedEntry<T>> range(long offset, int limit) {
+        if (offset < 0 || limit <= 0) return List.of();
+        String sql = new SQLQueryBuilder()
+                .select("id, score")
+                .from(table)
+                .orderBy("score DESC, id DESC")
+                .limit("? OFFSET ?")
+                .build();
+
+        try (Connection conn = database.getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, limit);
+            ps.setLong(2, offset);
+            List<RankedEntry<T>> page = new ArrayList<>();
+            long rank = offset;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    page.add(new RankedEntry<>(rs.getString(1), rank++, rs.getDouble(2), null));
+                }
+            }
+            return page;
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Failed to read ranks " + offset + "+" + limit + " of " + table, e);
+        }
+    }
+
+    @Override
+    public List<RankedEntry<T>> rangeWithValues(long offset, int limit) {
+        return RankedEntry.withValues(range(offset, limit), database);
+    }
+}
@@ -0,0 +1,71 @@
+package dev.charcoal.database.bridge.sql;
+
+import dev.charcoal.database.bridge.Transaction;
+import dev.charcoal.database.bridge.sql.exception.SQLDatabaseException;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Buffers writes per key (last write wins) and flushes them as one batch on the transaction's connection.
+ */
+class SQLTransaction<T> implements Transaction<T> {
+
+    private final SQLDatabase<T> database;
+    private final Map<String, PendingWrite<T>> saves = new LinkedHashMap<>();
+    private final Set<String> deletes = new LinkedHashSet<>();
+
+    SQLTransaction(SQLDatabase<T> database) {
+        this.database = database;
+    }
+
+    @Override
+    public T fetch(String key) {
+        if (deletes.contains(key)) return null;
+
+        PendingWrite<T> pending = saves.get(key);
+        if (pending != null) return pending.getValue();
+
+        try {
+            return database.load(key);
+        } catch (SQLException e) {
+            throw new SQLDatabaseException("Failed to fetch key: " + key, e);
+        }
+    }
+
+    @Override
+    public void save(String key, T value) {
+        deletes.remove(key);
+        saves.put(key, new PendingWrite<>(key, value, SQLDatabase.NO_EXPIRY));
+    }
+
+    @Override
+    public void save(String key, T value, Duration timeout) {
+        deletes.remove(key);
+        saves.put(key, new PendingWrite<>(key, value, System.currentTimeMillis() + timeout.toMillis()));
+    }
+
+    @Override
+    public void delete(String key) {
+        saves.remove(key);
+        deletes.add(key);
+    }
+
+    void flush() throws SQLException {
+        if (!deletes.isEmpty()) {
+            database.deleteAllFromDatabase(new ArrayList<>(deletes));
+            deletes.clear();
+        }
+        if (!saves.isEmpty()) {
+            List<PendingWrite<T>> writes = new ArrayList<>(saves.values());
+            database.saveAllToDatabase(writes);
+            saves.clear();
+        }
+    }
+}
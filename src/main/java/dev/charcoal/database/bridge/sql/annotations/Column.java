@@ -11,4 +11,10 @@ public @interface Column {
     String name();
     boolean id() default false;
     String type() default "";
+
+    /**
+     * Stores a {@code String} field LZ4-compressed in a blob column once it exceeds the database's compression
+     * threshold. Read it back in the row mapper with {@code SQLDatabase.readCompressed}.
+     */
+    boolean compressed() default false;
 }
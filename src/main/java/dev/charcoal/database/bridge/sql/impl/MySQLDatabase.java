@@ -1,30 +1,108 @@
 package dev.charcoal.database.bridge.sql.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariConfig;
 import dev.charcoal.database.bridge.DatabaseConnectionBuilder;
+import dev.charcoal.database.bridge.sql.BulkLoadOptions;
+import dev.charcoal.database.bridge.sql.LoadBalancing;
+import dev.charcoal.database.bridge.sql.PendingWrite;
 import dev.charcoal.database.bridge.sql.SQLDatabase;
 import dev.charcoal.database.bridge.sql.SQLQueryBuilder;
 import dev.charcoal.database.bridge.sql.annotations.Column;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class MySQLDatabase<T> extends SQLDatabase<T> {
 
+    private static final int DIRTY_TRACKING_MAX_ENTRIES = 10_000;
+    private static final Duration DIRTY_TRACKING_IDLE_TIMEOUT = Duration.ofMinutes(10);
+
+    /**
+     * Where {@code LOAD DATA LOCAL INFILE} batches are written; the driver refuses to send files from anywhere else.
+     */
+    private static final Path BULK_LOAD_DIR = Path.of(System.getProperty("java.io.tmpdir"), "databasebridge-bulk");
+
+    /**
+     * A non-unique index line of {@code SHOW CREATE TABLE}, without its trailing comma.
+     */
+    private static final Pattern SECONDARY_INDEX = Pattern.compile("((?:FULLTEXT |SPATIAL )?KEY `([^`]+)` .*?),?");
+
+    /**
+     * Row alias of the values an upsert tried to insert, read back in its {@code ON DUPLICATE KEY UPDATE} clause.
+     */
+    private static final String INSERTED_ROW = "new";
+
     private final String table;
     private final Function<ResultSet, T> mapper;
 
+    /**
+     * Column values (plus expiry) as last read from or written to the table, keyed by id.
+     * Only present when dirty tracking is enabled.
+     */
+    private final Cache<String, Object[]> snapshots;
+
     public MySQLDatabase(DatabaseConnectionBuilder builder, Class<T> clazz, Function<ResultSet, T> mapper) {
-        super(builder, clazz);
+        this(builder, clazz, mapper, false);
+    }
+
+    /**
+     * @param dirtyTracking when enabled, saves of a previously loaded or saved entity only update the columns
+     *                      that changed since; when nothing changed, only the expiry is rewritten to check that
+     *                      the row still exists
+     */
+    public MySQLDatabase(DatabaseConnectionBuilder builder, Class<T> clazz, Function<ResultSet, T> mapper, boolean dirtyTracking) {
+        this(builder, List.of(), LoadBalancing.ROUND_ROBIN, clazz, mapper, dirtyTracking);
+    }
+
+    /**
+     * @param replicas read replicas; {@code fetch}/{@code fetchAll} are balanced over them while writes go to {@code builder}
+     */
+    public MySQLDatabase(DatabaseConnectionBuilder builder, List<DatabaseConnectionBuilder> replicas, LoadBalancing balancing,
+                         Class<T> clazz, Function<ResultSet, T> mapper, boolean dirtyTracking) {
+        super(builder, replicas, balancing, clazz);
         this.table = builder.getTable();
         this.mapper = mapper;
+        this.snapshots = dirtyTracking
+                ? Caffeine.newBuilder()
+                    .maximumSize(DIRTY_TRACKING_MAX_ENTRIES)
+                    .expireAfterAccess(DIRTY_TRACKING_IDLE_TIMEOUT)
+                    .build()
+                : null;
+    }
+
+    @Override
+    protected void configureDataSource(HikariConfig config, DatabaseConnectionBuilder connectionBuilder) {
+        super.configureDataSource(config, connectionBuilder);
+        // a hostile server can ask for any local file, so LOCAL INFILE is limited to our own temp files
+        config.addDataSourceProperty("allowLoadLocalInfileInPath", BULK_LOAD_DIR.toString());
     }
 
     @Override
@@ -34,83 +112,756 @@ public class MySQLDatabase<T> extends SQLDatabase<T> {
 
 
     @Override
-    protected void saveToDatabase(String key, T value) throws SQLException {
+    protected void saveToDatabase(String key, T value, long expiresAt) throws SQLException {
+        List<Field> fields = columnFields(value);
+        Object[] current = snapshots != null ? snapshot(fields, value, expiresAt) : null;
+
         try (Connection conn = getConnection()) {
-            List<Field> fields = Arrays.stream(value.getClass().getDeclaredFields())
-                    .filter(f -> f.isAnnotationPresent(Column.class))
-                    .toList();
+            if (current != null && updateDirtyColumns(conn, key, fields, current)) {
+                recordSnapshot(key, current);
+                return;
+            }
+
+            String sql = upsertSql(fields);
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                int index = bindColumns(ps, fields, value, 1);
+                bindExpiry(ps, index, expiresAt);
+                ps.executeUpdate();
+            }
+        }
+
+        if (current != null) recordSnapshot(key, current);
+    }
+
+    @Override
+    protected void saveAllToDatabase(List<PendingWrite<T>> writes) throws SQLException {
+        Class<?> valueType = writes.get(0).getValue().getClass();
+        if (writes.stream().anyMatch(w -> w.getValue().getClass() != valueType)) {
+            super.saveAllToDatabase(writes);
+            return;
+        }
+
+        List<Field> fields = columnFields(writes.get(0).getValue());
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(upsertSql(fields))) {
+            for (PendingWrite<T> write : writes) {
+                int index = bindColumns(ps, fields, write.getValue(), 1);
+                bindExpiry(ps, index, write.getExpiresAt());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        if (snapshots != null) {
+            for (PendingWrite<T> write : writes) {
+                recordSnapshot(write.getKey(), snapshot(fields, write.getValue(), write.getExpiresAt()));
+            }
+        }
+    }
+
+    /**
+     * Inside a transaction the snapshot is only kept once it commits; a rollback drops the key's snapshot, since
+     * the row may no longer match any snapshot taken in between.
+     */
+    private void recordSnapshot(String key, Object[] snapshot) {
+        afterCommit(() -> snapshots.put(key, snapshot), () -> snapshots.invalidate(key));
+    }
+
+    /**
+     * Sent as one JDBC batch, which the driver rewrites into multi-row INSERTs. Dirty tracking snapshots are
+     * skipped: a load would only flush the cache with rows nobody has read yet.
+     */
+    @Override
+    protected int bulkInsert(Connection conn, List<T> batch, BulkLoadOptions options) throws SQLException {
+        Class<?> valueType = batch.get(0).getClass();
+        if (batch.stream().anyMatch(value -> value.getClass() != valueType)) {
+            return super.bulkInsert(conn, batch, options);
+        }
+
+        List<Field> fields = columnFields(batch.get(0));
+        if (options.isLoadDataInfile()) {
+            return loadDataInfile(conn, fields, batch, options);
+        }
+
+        String sql = options.isReplaceExisting() ? upsertSql(fields) : insertSql(fields);
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (T value : batch) {
+                int index = bindColumns(ps, fields, value, 1);
+                bindExpiry(ps, index, NO_EXPIRY);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        // the upsert writes every row and a plain INSERT fails on the first duplicate
+        return batch.size();
+    }
+
+    /**
+     * Writes the batch as a tab-separated file and has the server parse it, skipping statement handling
+     * altogether. With LOCAL, MySQL skips duplicate keys rather than failing on them when not replacing.
+     *
+     * @return the rows written, which leaves out skipped duplicates
+     */
+    private int loadDataInfile(Connection conn, List<Field> fields, List<T> batch, BulkLoadOptions options) throws SQLException {
+        Path file;
+        try {
+            Files.createDirectories(BULK_LOAD_DIR);
+            file = Files.createTempFile(BULK_LOAD_DIR, table + "-", ".tsv");
+        } catch (IOException e) {
+            throw new SQLException("Failed to create bulk load file in " + BULK_LOAD_DIR, e);
+        }
+
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                for (T value : batch) {
+                    for (Field field : fields) {
+                        field.setAccessible(true);
+                        writeInfileValue(out, toColumnValue(field, field.get(value)));
+                        out.write('\t');
+                    }
+                    writeInfileValue(out, null); // expiry
+                    out.write('\n');
+                }
+            } catch (IOException | IllegalAccessException e) {
+                throw new SQLException("Failed to write bulk load file " + file, e);
+            }
 
             String columns = fields.stream()
                     .map(f -> f.getAnnotation(Column.class).name())
-                    .collect(Collectors.joining(", "));
+                    .collect(Collectors.joining(", ")) + ", " + EXPIRY_COLUMN;
+            String path = file.toAbsolutePath().toString().replace("\\", "\\\\").replace("'", "\\'");
+
+            // binary leaves the UTF-8 bytes we wrote untouched, whatever the connection character set is
+            String sql = "LOAD DATA LOCAL INFILE '" + path + "'" + (options.isReplaceExisting() ? " REPLACE" : "")
+                    + " INTO TABLE " + table + " CHARACTER SET binary"
+                    + " FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n'"
+                    + " (" + columns + ")";
+            try (Statement stmt = conn.createStatement()) {
+                int affected = stmt.executeUpdate(sql);
+                // REPLACE counts a replaced row twice, once deleted and once inserted, but writes every row
+                return options.isReplaceExisting() ? batch.size() : affected;
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * One field in the format {@code LOAD DATA} reads by default: {@code \N} for NULL and backslash escapes for
+     * the separators.
+     */
+    private static void writeInfileValue(OutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.write('\\');
+            out.write('N');
+            return;
+        }
+
+        byte[] bytes = infileText(value);
+        for (byte b : bytes) {
+            switch (b) {
+                case '\\' -> out.write(new byte[]{'\\', '\\'});
+                case '\t' -> out.write(new byte[]{'\\', 't'});
+                case '\n' -> out.write(new byte[]{'\\', 'n'});
+                case '\r' -> out.write(new byte[]{'\\', 'r'});
+                case 0 -> out.write(new byte[]{'\\', '0'});
+                default -> out.write(b);
+            }
+        }
+    }
+
+    private static byte[] infileText(Object value) {
+        if (value instanceof byte[] raw) return raw;
+        if (value instanceof Boolean bool) return new byte[]{(byte) (bool ? '1' : '0')};
+
+        String text;
+        if (value instanceof Enum<?> constant) {
+            text = constant.name();
+        } else if (value instanceof Date date && !(value instanceof java.sql.Date || value instanceof java.sql.Time)) {
+            text = new Timestamp(date.getTime()).toString(); // Date.toString() is not a format MySQL parses
+        } else {
+            text = value.toString();
+        }
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String insertSql(List<Field> fields) {
+        String columns = fields.stream()
+                .map(f -> f.getAnnotation(Column.class).name())
+                .collect(Collectors.joining(", ")) + ", " + EXPIRY_COLUMN;
+        String placeholders = fields.stream().map(f -> "?").collect(Collectors.joining(", ")) + ", ?";
+
+        return new SQLQueryBuilder()
+                .insertInto(table, columns)
+                .values(placeholders)
+                .build();
+    }
+
+    private String upsertSql(List<Field> fields) {
+        String columns = fields.stream()
+                .map(f -> f.getAnnotation(Column.class).name())
+                .collect(Collectors.joining(", ")) + ", " + EXPIRY_COLUMN;
+
+        String placeholders = fields.stream().map(f -> "?").collect(Collectors.joining(", ")) + ", ?";
+
+        // Unlike REPLACE INTO this updates the row in place instead of deleting and re-inserting it; the row alias
+        // replaces VALUES(column), deprecated since MySQL 8.0.20
+        String assignments = fields.stream()
+                .filter(f -> !f.getAnnotation(Column.class).id())
+                .map(f -> f.getAnnotation(Column.class).name())
+                .map(name -> name + " = " + INSERTED_ROW + "." + name)
+                .collect(Collectors.joining(", ")) + ", " + EXPIRY_COLUMN + " = " + INSERTED_ROW + "." + EXPIRY_COLUMN;
+
+        return new SQLQueryBuilder()
+                .insertInto(table, columns)
+                .values(placeholders)
+                .as(INSERTED_ROW)
+                .onDuplicateKeyUpdate(assignments)
+                .build();
+    }
 
+    /**
+     * Updates only the columns that differ from the snapshot of {@code key}.
+     *
+     * @return {@code true} if the row is now up to date, {@code false} if a full upsert is still required
+     */
+    private boolean updateDirtyColumns(Connection conn, String key, List<Field> fields, Object[] current) throws SQLException {
+        Object[] previous = snapshots.getIfPresent(key);
+        if (previous == null || previous.length != current.length) return false;
+
+        List<String> assignments = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < current.length; i++) {
+            if (Objects.deepEquals(previous[i], current[i])) continue;
+
+            if (i == fields.size()) {
+                assignments.add(EXPIRY_COLUMN + " = ?");
+                values.add(current[i]);
+            } else {
+                Field field = fields.get(i);
+                assignments.add(field.getAnnotation(Column.class).name() + " = ?");
+                values.add(toColumnValue(field, current[i]));
+            }
+        }
+        if (assignments.isEmpty()) {
+            // nothing changed, but the row may have been deleted or reaped since the snapshot was taken
+            assignments.add(EXPIRY_COLUMN + " = ?");
+            values.add(current[fields.size()]);
+        }
+
+        String sql = new SQLQueryBuilder()
+                .update(table)
+                .set(String.join(", ", assignments))
+                .where("id = ?")
+                .and(NOT_EXPIRED)
+                .build();
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (Object value : values) {
+                ps.setObject(index++, value);
+            }
+            bindKey(ps, index++, key);
+            ps.setLong(index, System.currentTimeMillis());
+            // Zero matched rows means the row was deleted or expired behind our back
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Mutable column values are copied so later in-place changes to the entity still show up as dirty.
+     */
+    private Object[] snapshot(List<Field> fields, T value, long expiresAt) throws SQLException {
+        Object[] snapshot = new Object[fields.size() + 1];
+        for (int i = 0; i < fields.size(); i++) {
+            try {
+                Field f = fields.get(i);
+                f.setAccessible(true);
+                Object fieldValue = f.get(value);
+                if (fieldValue instanceof byte[] bytes) fieldValue = bytes.clone();
+                if (fieldValue instanceof Date date) fieldValue = date.clone();
+                snapshot[i] = fieldValue;
+            } catch (IllegalAccessException e) {
+                throw new SQLException("Failed to access field value", e);
+            }
+        }
+        snapshot[fields.size()] = expiresAt == NO_EXPIRY ? null : expiresAt;
+        return snapshot;
+    }
+
+    /**
+     * Rows that may come from a replica are not tracked: it can lag behind the primary, and a baseline older than
+     * the row would leave changes out of the next partial update. Their key's snapshot is dropped instead, so the
+     * next save writes every column.
+     */
+    private T mapAndTrack(ResultSet rs) throws SQLException {
+        T entity = mapResult(rs);
+        if (snapshots == null || entity == null) return entity;
+
+        if (readsFromPrimary()) {
+            // a read inside a transaction may see its own uncommitted writes
+            recordSnapshot(readKey(rs), snapshot(columnFields(entity), entity, rs.getLong(EXPIRY_COLUMN)));
+        } else {
+            snapshots.invalidate(readKey(rs));
+        }
+        return entity;
+    }
+
+    /**
+     * Read from {@code SHOW CREATE TABLE}, whose index lines are valid {@code ALTER TABLE ... ADD} clauses as they
+     * are, FULLTEXT and SPATIAL types, prefix lengths, DESC parts, functional parts and comments included.
+     */
+    @Override
+    protected Map<String, String> secondaryIndexes(Connection conn) throws SQLException {
+        Map<String, String> indexes = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SHOW CREATE TABLE " + table)) {
+            if (!rs.next()) throw new SQLException("SHOW CREATE TABLE returned nothing for " + table);
+
+            for (String line : rs.getString(2).split("\n")) {
+                Matcher index = SECONDARY_INDEX.matcher(line.strip());
+                if (index.matches()) indexes.put(index.group(2), "ALTER TABLE " + table + " ADD " + index.group(1));
+            }
+        }
+        return indexes;
+    }
+
+    @Override
+    protected boolean compareAndSaveToDatabase(String key, long expectedVersion, T value) throws SQLException {
+        if (snapshots != null) snapshots.invalidate(key);
+        String versionColumn = versionColumn();
+
+        List<Field> fields = columnFields(value);
+        List<Field> updatable = fields.stream()
+                .filter(f -> !f.getAnnotation(Column.class).id())
+                .toList();
+
+        String assignments = updatable.stream()
+                .map(f -> f.getAnnotation(Column.class).name() + " = ?")
+                .collect(Collectors.joining(", ")) + ", " + EXPIRY_COLUMN + " = NULL";
+
+        String versionCondition = versionCondition(versionColumn, expectedVersion);
+
+        long now = System.currentTimeMillis();
+
+        try (Connection conn = getConnection()) {
+            String update = new SQLQueryBuilder()
+                    .update(table)
+                    .set(assignments)
+                    .where("id = ?")
+                    .and(versionCondition)
+                    .and(NOT_EXPIRED)
+                    .build();
+
+            try (PreparedStatement ps = conn.prepareStatement(update)) {
+                int index = bindColumns(ps, updatable, value, 1);
+                bindKey(ps, index++, key);
+                if (expectedVersion != 0) ps.setLong(index++, expectedVersion);
+                ps.setLong(index, now);
+                if (ps.executeUpdate() > 0) return true;
+            }
+
+            if (expectedVersion != 0) return false;
+
+            // Nothing matched version 0, so the key is either absent or only an expired row is left
+            String purge = new SQLQueryBuilder()
+                    .deleteFrom(table)
+                    .where("id = ?")
+                    .and(EXPIRY_COLUMN + " <= ?")
+                    .build();
+
+            try (PreparedStatement ps = conn.prepareStatement(purge)) {
+                bindKey(ps, 1, key);
+                ps.setLong(2, now);
+                ps.executeUpdate();
+            }
+
+            String columns = fields.stream()
+                    .map(f -> f.getAnnotation(Column.class).name())
+                    .collect(Collectors.joining(", "));
             String placeholders = fields.stream().map(f -> "?").collect(Collectors.joining(", "));
 
-            //String sql = "REPLACE INTO " + table + " (" + columns + ") VALUES (" + placeholders + ");";
-            String sql = new SQLQueryBuilder().replaceInto(table, columns, placeholders).build();
+            String insert = new SQLQueryBuilder()
+                    .insertInto(table, columns)
+                    .values(placeholders)
+                    .build();
 
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                for (int i = 0; i < fields.size(); i++) {
-                    Field f = fields.get(i);
-                    f.setAccessible(true);
-                    ps.setObject(i + 1, f.get(value));
-                }
+            try (PreparedStatement ps = conn.prepareStatement(insert)) {
+                bindColumns(ps, fields, value, 1);
                 ps.executeUpdate();
+                return true;
+            } catch (SQLIntegrityConstraintViolationException e) {
+                return false; // someone else created it first
+            }
+        }
+    }
+
+    @Override
+    protected boolean insertIfAbsent(String key, T value, long expiresAt) throws SQLException {
+        if (snapshots != null) snapshots.invalidate(key);
+        List<Field> fields = columnFields(value);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(insertSql(fields))) {
+            int index = bindColumns(ps, fields, value, 1);
+            bindExpiry(ps, index, expiresAt);
+            ps.executeUpdate();
+            return true;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return false;
+        }
+    }
+
+    @Override
+    protected boolean deleteIfVersionFromDatabase(String key, long expectedVersion) throws SQLException {
+        if (snapshots != null) snapshots.invalidate(key);
+        String sql = new SQLQueryBuilder()
+                .deleteFrom(table)
+                .where("id = ?")
+                .and(versionCondition(versionColumn(), expectedVersion))
+                .and(NOT_EXPIRED)
+                .build();
+
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            bindKey(ps, index++, key);
+            if (expectedVersion != 0) ps.setLong(index++, expectedVersion);
+            ps.setLong(index, System.currentTimeMillis());
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    private String versionColumn() throws SQLException {
+        Field versionField = versionAccessor.getField();
+        if (!versionField.isAnnotationPresent(Column.class)) {
+            throw new SQLException("@Version field " + versionField.getName() + " must also be a @Column");
+        }
+        return versionField.getAnnotation(Column.class).name();
+    }
+
+    /**
+     * Rows saved before versioning was introduced carry 0 or NULL, so version 0 matches both.
+     */
+    private static String versionCondition(String versionColumn, long expectedVersion) {
+        return expectedVersion == 0
+                ? "(" + versionColumn + " = 0 OR " + versionColumn + " IS NULL)"
+                : versionColumn + " = ?";
+    }
+
+    private List<Field> columnFields(T value) {
+        return Arrays.stream(value.getClass().getDeclaredFields())
+                .filter(f -> f.isAnnotationPresent(Column.class))
+                .toList();
+    }
+
+    /**
+     * @return the next free parameter index
+     */
+    private int bindColumns(PreparedStatement ps, List<Field> fields, T value, int startIndex) throws SQLException {
+        int index = startIndex;
+        for (Field f : fields) {
+            try {
+                f.setAccessible(true);
+                ps.setObject(index++, toColumnValue(f, f.get(value)));
             } catch (IllegalAccessException e) {
                 throw new SQLException("Failed to access field value", e);
             }
         }
+        return index;
     }
 
 
+    @Override
+    protected List<String> changelogDDL(String changelogTable) {
+        String now = "CAST(UNIX_TIMESTAMP(NOW(3)) * 1000 AS SIGNED)";
+        return List.of(
+                "CREATE TABLE IF NOT EXISTS " + changelogTable + " ("
+                        + "seq BIGINT AUTO_INCREMENT PRIMARY KEY, id VARCHAR(255) NOT NULL, op CHAR(1) NOT NULL, "
+                        + "changed_at BIGINT NOT NULL, INDEX idx_" + changelogTable + "_changed_at (changed_at))",
+                changelogTrigger(changelogTable, "INSERT", "NEW", "I", now),
+                changelogTrigger(changelogTable, "UPDATE", "NEW", "U", now),
+                changelogTrigger(changelogTable, "DELETE", "OLD", "D", now)
+        );
+    }
+
+    @Override
+    protected List<String> rankingDDL(String rankingTable) {
+        return List.of("CREATE TABLE IF NOT EXISTS " + rankingTable + " ("
+                + "id VARCHAR(255) PRIMARY KEY, score DOUBLE NOT NULL, "
+                + "INDEX idx_" + rankingTable + "_score (score, id))");
+    }
+
+    @Override
+    protected String upsertScoreSql(String rankingTable, boolean increment) {
+        return new SQLQueryBuilder()
+                .insertInto(rankingTable, "id, score")
+                .values("?, ?")
+                .as(INSERTED_ROW)
+                .onDuplicateKeyUpdate(increment
+                        ? "score = score + " + INSERTED_ROW + ".score"
+                        : "score = " + INSERTED_ROW + ".score")
+                .build();
+    }
+
+    /**
+     * Upserts fire the insert trigger for new rows and the update trigger for existing ones. Needs MySQL 8.0.29+
+     * for IF NOT EXISTS, and TRIGGER privilege (plus log_bin_trust_function_creators with binary logging).
+     */
+    private String changelogTrigger(String changelogTable, String event, String row, String op, String now) {
+        return "CREATE TRIGGER IF NOT EXISTS " + table + "_cdc_" + event.toLowerCase()
+                + " AFTER " + event + " ON " + table + " FOR EACH ROW "
+                + "INSERT INTO " + changelogTable + " (id, op, changed_at) VALUES (" + changelogKey(row) + ", '" + op + "', " + now + ")";
+    }
+
     @Override
     protected List<T> loadAll() throws SQLException {
         List<T> results = new ArrayList<>();
-        try (Connection conn = getConnection()) {
+        try (Connection conn = getReadConnection()) {
             SQLQueryBuilder qb = new SQLQueryBuilder()
                     .select("*")
-                    .from(table);
+                    .from(table)
+                    .where(NOT_EXPIRED);
 
-            try (PreparedStatement ps = conn.prepareStatement(qb.build());
-                 ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    results.add(mapResult(rs));
+            try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
+                ps.setLong(1, System.currentTimeMillis());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        results.add(mapAndTrack(rs));
+                    }
                 }
             }
         }
         return results;
     }
 
+    @Override
+    protected Map<String, T> loadPage(@Nullable String afterKey, int limit) throws SQLException {
+        Map<String, T> page = new LinkedHashMap<>();
+        try (Connection conn = getReadConnection()) {
+            SQLQueryBuilder qb = new SQLQueryBuilder()
+                    .select("*")
+                    .from(table)
+                    .where(NOT_EXPIRED);
+            if (afterKey != null) qb.and("id > ?");
+            qb.orderBy("id").limit("?");
+
+            try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
+                int index = 1;
+                ps.setLong(index++, System.currentTimeMillis());
+                if (afterKey != null) bindKey(ps, index++, afterKey);
+                ps.setInt(index, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        page.put(readKey(rs), mapAndTrack(rs));
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
     @Override
     protected T load(String key) throws SQLException {
-        try (Connection conn = getConnection()) {
+        try (Connection conn = getReadConnection()) {
             SQLQueryBuilder qb = new SQLQueryBuilder()
                     .select("*")
                     .from(table)
-                    .where("id = ?");
+                    .where("id = ?")
+                    .and(NOT_EXPIRED);
 
             try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
-                ps.setString(1, key);
+                bindKey(ps, 1, key);
+                ps.setLong(2, System.currentTimeMillis());
                 try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) return mapResult(rs);
+                    if (rs.next()) return mapAndTrack(rs);
                 }
             }
         }
         return null;
     }
 
+    @Override
+    protected T loadProjected(String key, List<Field> fields) throws SQLException {
+        List<Field> selected = projectedColumns(fields);
+        try (Connection conn = getReadConnection()) {
+            SQLQueryBuilder qb = new SQLQueryBuilder()
+                    .select(columnList(selected))
+                    .from(table)
+                    .where("id = ?")
+                    .and(NOT_EXPIRED);
+
+            try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
+                bindKey(ps, 1, key);
+                ps.setLong(2, System.currentTimeMillis());
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) return mapProjected(rs, selected);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected Map<String, T> loadMany(Collection<String> keys) throws SQLException {
+        return loadWhereIdIn(keys, "*", this::mapAndTrack);
+    }
+
+    @Override
+    protected Map<String, T> loadManyProjected(Collection<String> keys, List<Field> fields) throws SQLException {
+        List<Field> selected = projectedColumns(fields);
+        return loadWhereIdIn(keys, columnList(selected), rs -> mapProjected(rs, selected));
+    }
+
+    @FunctionalInterface
+    private interface RowReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * One {@code IN} query per {@link #MAX_KEYS_PER_STATEMENT} keys, on one connection; the result follows the
+     * caller's key order.
+     */
+    private Map<String, T> loadWhereIdIn(Collection<String> keys, String columns, RowReader<T> reader) throws SQLException {
+        Map<String, T> found = new LinkedHashMap<>();
+        try (Connection conn = getReadConnection()) {
+            for (List<String> chunk : keyChunks(keys)) {
+                String placeholders = chunk.stream().map(k -> "?").collect(Collectors.joining(", "));
+                SQLQueryBuilder qb = new SQLQueryBuilder()
+                        .select(columns)
+                        .from(table)
+                        .where("id IN (" + placeholders + ")")
+                        .and(NOT_EXPIRED);
+
+                try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
+                    int index = 1;
+                    for (String key : chunk) {
+                        bindKey(ps, index++, key);
+                    }
+                    ps.setLong(index, System.currentTimeMillis());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            found.put(readKey(rs), reader.read(rs));
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<String, T> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            T value = found.get(key);
+            if (value != null) result.put(key, value);
+        }
+        return result;
+    }
+
+    /**
+     * Fields without a {@link Column} are not stored, so they are left out of the select and keep their default.
+     */
+    private List<Field> projectedColumns(List<Field> fields) {
+        return fields.stream()
+                .filter(f -> f.isAnnotationPresent(Column.class))
+                .toList();
+    }
+
+    private String columnList(List<Field> fields) {
+        return fields.stream()
+                .map(f -> f.getAnnotation(Column.class).name())
+                .filter(name -> !name.equals("id"))
+                .map(name -> ", " + name)
+                .collect(Collectors.joining("", "id", ""));
+    }
+
+    /**
+     * Builds the entity reflectively, since the row mapper expects every column to be present.
+     */
+    private T mapProjected(ResultSet rs, List<Field> fields) throws SQLException {
+        T entity = projection.newInstance();
+        for (Field field : fields) {
+            Column column = field.getAnnotation(Column.class);
+            projection.set(entity, field, column.compressed()
+                    ? readCompressed(rs, column.name())
+                    : readColumn(rs, column.name(), field.getType()));
+        }
+        return entity;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object readColumn(ResultSet rs, String column, Class<?> type) throws SQLException {
+        if (type.isEnum()) {
+            String name = rs.getString(column);
+            return name == null ? null : Enum.valueOf((Class<? extends Enum>) type, name);
+        }
+        return rs.getObject(column, boxed(type));
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        if (!type.isPrimitive()) return type;
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        return Character.class;
+    }
+
     @Override
     protected boolean deleteFromDatabase(String key) throws SQLException {
+        if (snapshots != null) snapshots.invalidate(key);
         try (Connection conn = getConnection()) {
             SQLQueryBuilder qb = new SQLQueryBuilder()
                     .deleteFrom(table)
                     .where("id = ?");
 
             try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
-                ps.setString(1, key);
+                bindKey(ps, 1, key);
                 return ps.executeUpdate() > 0;
             }
         }
     }
 
+    @Override
+    protected void deleteAllFromDatabase(Collection<String> keys) throws SQLException {
+        if (snapshots != null) snapshots.invalidateAll(keys);
+        try (Connection conn = getConnection()) {
+            for (List<String> chunk : keyChunks(keys)) {
+                String placeholders = chunk.stream().map(k -> "?").collect(Collectors.joining(", "));
+                SQLQueryBuilder qb = new SQLQueryBuilder()
+                        .deleteFrom(table)
+                        .where("id IN (" + placeholders + ")");
+
+                try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
+                    int index = 1;
+                    for (String key : chunk) {
+                        bindKey(ps, index++, key);
+                    }
+                    ps.executeUpdate();
+                }
+            }
+        }
+    }
+
+    @Override
+    protected int purgeExpired(long now, int limit) throws SQLException {
+        try (Connection conn = getConnection()) {
+            SQLQueryBuilder qb = new SQLQueryBuilder()
+                    .deleteFrom(table)
+                    .where(EXPIRY_COLUMN + " <= ?")
+                    .limit("?");
+
+            try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
+                ps.setLong(1, now);
+                ps.setInt(2, limit);
+                return ps.executeUpdate();
+            }
+        }
+    }
+
 }
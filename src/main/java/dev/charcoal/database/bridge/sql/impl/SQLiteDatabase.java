@@ -1,26 +1,69 @@
 package dev.charcoal.database.bridge.sql.impl;
 
+import com.zaxxer.hikari.HikariConfig;
 import dev.charcoal.database.bridge.DatabaseConnectionBuilder;
+import dev.charcoal.database.bridge.sql.BulkLoadOptions;
+import dev.charcoal.database.bridge.sql.PendingWrite;
 import dev.charcoal.database.bridge.sql.SQLDatabase;
 import dev.charcoal.database.bridge.sql.SQLQueryBuilder;
+import dev.charcoal.database.bridge.utils.DataUtils;
+import dev.charcoal.database.bridge.utils.TypedSerializer;
+import org.jetbrains.annotations.Nullable;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
+/**
+ * Stores each value in the {@code data} column of a file database. JDBC types (strings, numbers, bytes) are
+ * stored as they are, anything else as JSON, which the mapper reads back with {@link DataUtils#serializer(Class)}.
+ */
 public class SQLiteDatabase<T> extends SQLDatabase<T> {
 
+    /**
+     * Writers wait this long for SQLite's file lock instead of failing with SQLITE_BUSY straight away.
+     */
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+
+    private static final Pattern UNIQUE_INDEX = Pattern.compile("\\s*CREATE\\s+UNIQUE\\s", Pattern.CASE_INSENSITIVE);
+
     private final String table;
     private final Function<ResultSet, T> mapper;
+    private final TypedSerializer<T> serializer;
 
     public SQLiteDatabase(DatabaseConnectionBuilder builder, Class<T> clazz, Function<ResultSet, T> mapper) {
         super(builder, clazz);
         this.table = builder.getTable();
         this.mapper = mapper;
+        this.serializer = DataUtils.serializer(clazz);
+    }
+
+    @Override
+    protected void configureDataSource(HikariConfig config, DatabaseConnectionBuilder connectionBuilder) {
+        config.setJdbcUrl(connectionBuilder.getSQLiteUrl());
+        config.setDriverClassName("org.sqlite.JDBC");
+        // WAL lets readers run next to the single writer
+        config.addDataSourceProperty("journal_mode", "WAL");
+        config.addDataSourceProperty("busy_timeout", String.valueOf(BUSY_TIMEOUT_MILLIS));
+    }
+
+    private void bindValue(PreparedStatement ps, int index, T value) throws SQLException {
+        if (value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof byte[]) {
+            ps.setObject(index, value);
+        } else {
+            ps.setString(index, serializer.toString(value));
+        }
     }
 
     @Override
@@ -28,51 +71,278 @@ public class SQLiteDatabase<T> extends SQLDatabase<T> {
         return mapper.apply(rs);
     }
 
+    private String insertSql(boolean replace) {
+        String sql = new SQLQueryBuilder()
+                .insertInto(table, "id, data, " + EXPIRY_COLUMN)
+                .values("?, ?, ?")
+                .build();
+        return replace ? sql.replaceFirst("INSERT", "INSERT OR REPLACE") : sql;
+    }
+
+    @Override
+    protected void saveToDatabase(String key, T value, long expiresAt) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(insertSql(true))) {
+            bindKey(ps, 1, key);
+            bindValue(ps, 2, value);
+            bindExpiry(ps, 3, expiresAt);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Reuses one prepared statement for the whole batch; SQLite has no network round trip to save, but parsing
+     * and planning the statement per row is most of the cost of a small insert.
+     */
+    @Override
+    protected void saveAllToDatabase(List<PendingWrite<T>> writes) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(insertSql(true))) {
+            for (PendingWrite<T> write : writes) {
+                bindKey(ps, 1, write.getKey());
+                bindValue(ps, 2, write.getValue());
+                bindExpiry(ps, 3, write.getExpiresAt());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @Override
+    protected int bulkInsert(Connection conn, List<T> batch, BulkLoadOptions options) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(insertSql(options.isReplaceExisting()))) {
+            for (T value : batch) {
+                bindKey(ps, 1, keyOf(value));
+                bindValue(ps, 2, value);
+                ps.setNull(3, Types.BIGINT);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        // a duplicate fails the batch unless it is replaced, so every row was written
+        return batch.size();
+    }
+
+    @Override
+    protected Map<String, String> secondaryIndexes(Connection conn) throws SQLException {
+        Map<String, String> indexes = new LinkedHashMap<>();
+        // indexes backing PRIMARY KEY and UNIQUE constraints have no sql
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT name, sql FROM sqlite_master WHERE type = 'index' AND tbl_name = ? AND sql IS NOT NULL")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String sql = rs.getString("sql");
+                    if (UNIQUE_INDEX.matcher(sql).lookingAt()) continue;
+                    indexes.put(rs.getString("name"), sql);
+                }
+            }
+        }
+        return indexes;
+    }
+
+    @Override
+    protected String dropIndexSql(String index) {
+        return "DROP INDEX " + index;
+    }
+
     @Override
-    protected void saveToDatabase(String key, T value) throws SQLException {
+    protected boolean compareAndSaveToDatabase(String key, long expectedVersion, T value) throws SQLException {
         try (Connection conn = getConnection()) {
-            SQLQueryBuilder qb = new SQLQueryBuilder()
-                    .insertInto(table, "id, data")
-                    .values("?, ?");
+            // The version lives inside the stored value, so take SQLite's write lock before reading it
+            return locked(conn, "compare_and_save", () -> {
+                if (versionAccessor.get(loadLive(conn, key)) != expectedVersion) return false;
 
-            String sql = qb.build().replaceFirst("INSERT", "INSERT OR REPLACE");
+                String insert = new SQLQueryBuilder()
+                        .insertInto(table, "id, data, " + EXPIRY_COLUMN)
+                        .values("?, ?, NULL")
+                        .build()
+                        .replaceFirst("INSERT", "INSERT OR REPLACE");
 
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, key);
-                ps.setObject(2, value);
-                ps.executeUpdate();
+                try (PreparedStatement ps = conn.prepareStatement(insert)) {
+                    bindKey(ps, 1, key);
+                    bindValue(ps, 2, value);
+                    ps.executeUpdate();
+                }
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Runs {@code work} in its own {@code BEGIN IMMEDIATE} transaction, or under a savepoint when {@code conn} is
+     * the connection of a running {@link #transaction}, which already has one open that SQLite cannot nest.
+     * Everything {@code work} wrote is undone when it returns {@code false} or throws.
+     */
+    private boolean locked(Connection conn, String savepoint, LockedWork work) throws SQLException {
+        boolean joined = !conn.getAutoCommit();
+        try (Statement tx = conn.createStatement()) {
+            tx.execute(joined ? "SAVEPOINT " + savepoint : "BEGIN IMMEDIATE");
+            boolean applied = false;
+            try {
+                applied = work.run();
+                return applied;
+            } finally {
+                if (joined) {
+                    // ROLLBACK TO keeps the savepoint open, so it is released either way
+                    if (!applied) tx.execute("ROLLBACK TO " + savepoint);
+                    tx.execute("RELEASE " + savepoint);
+                } else {
+                    tx.execute(applied ? "COMMIT" : "ROLLBACK");
+                }
             }
         }
     }
 
+    @FunctionalInterface
+    private interface LockedWork {
+        boolean run() throws SQLException;
+    }
+
+    private T loadLive(Connection conn, String key) throws SQLException {
+        SQLQueryBuilder select = new SQLQueryBuilder()
+                .select("*")
+                .from(table)
+                .where("id = ?")
+                .and(NOT_EXPIRED);
+
+        try (PreparedStatement ps = conn.prepareStatement(select.build())) {
+            bindKey(ps, 1, key);
+            ps.setLong(2, System.currentTimeMillis());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapResult(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    protected boolean insertIfAbsent(String key, T value, long expiresAt) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(insertSql(false).replaceFirst("INSERT", "INSERT OR IGNORE"))) {
+            bindKey(ps, 1, key);
+            bindValue(ps, 2, value);
+            bindExpiry(ps, 3, expiresAt);
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    protected boolean deleteIfVersionFromDatabase(String key, long expectedVersion) throws SQLException {
+        try (Connection conn = getConnection()) {
+            // as in compareAndSaveToDatabase, the version is inside the value, so lock before reading it
+            return locked(conn, "delete_if_version", () -> {
+                T current = loadLive(conn, key);
+                if (current == null || versionAccessor.get(current) != expectedVersion) return false;
+
+                String delete = new SQLQueryBuilder()
+                        .deleteFrom(table)
+                        .where("id = ?")
+                        .build();
+
+                try (PreparedStatement ps = conn.prepareStatement(delete)) {
+                    bindKey(ps, 1, key);
+                    ps.executeUpdate();
+                }
+                return true;
+            });
+        }
+    }
+
+    /**
+     * INSERT OR REPLACE does not fire delete triggers for the replaced row, so every save is logged as an insert.
+     */
+    @Override
+    protected List<String> changelogDDL(String changelogTable) {
+        String now = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+        return List.of(
+                "CREATE TABLE IF NOT EXISTS " + changelogTable + " ("
+                        + "seq INTEGER PRIMARY KEY AUTOINCREMENT, id TEXT NOT NULL, op TEXT NOT NULL, changed_at INTEGER NOT NULL)",
+                "CREATE INDEX IF NOT EXISTS idx_" + changelogTable + "_changed_at ON " + changelogTable + " (changed_at)",
+                changelogTrigger(changelogTable, "INSERT", "NEW", "I", now),
+                changelogTrigger(changelogTable, "UPDATE", "NEW", "U", now),
+                changelogTrigger(changelogTable, "DELETE", "OLD", "D", now)
+        );
+    }
+
+    @Override
+    protected List<String> rankingDDL(String rankingTable) {
+        return List.of(
+                "CREATE TABLE IF NOT EXISTS " + rankingTable + " (id TEXT PRIMARY KEY, score REAL NOT NULL)",
+                "CREATE INDEX IF NOT EXISTS idx_" + rankingTable + "_score ON " + rankingTable + " (score, id)"
+        );
+    }
+
+    @Override
+    protected String upsertScoreSql(String rankingTable, boolean increment) {
+        return "INSERT INTO " + rankingTable + " (id, score) VALUES (?, ?) ON CONFLICT(id) DO UPDATE SET score = "
+                + (increment ? "score + excluded.score" : "excluded.score");
+    }
+
+    private String changelogTrigger(String changelogTable, String event, String row, String op, String now) {
+        return "CREATE TRIGGER IF NOT EXISTS " + table + "_cdc_" + event.toLowerCase()
+                + " AFTER " + event + " ON " + table + " BEGIN "
+                + "INSERT INTO " + changelogTable + " (id, op, changed_at) VALUES (" + changelogKey(row) + ", '" + op + "', " + now + "); END";
+    }
+
     @Override
     protected List<T> loadAll() throws SQLException {
         List<T> results = new ArrayList<>();
-        try (Connection conn = getConnection()) {
+        try (Connection conn = getReadConnection()) {
             SQLQueryBuilder qb = new SQLQueryBuilder()
                     .select("*")
-                    .from(table);
+                    .from(table)
+                    .where(NOT_EXPIRED);
 
-            try (PreparedStatement ps = conn.prepareStatement(qb.build());
-                 ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    results.add(mapResult(rs));
+            try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
+                ps.setLong(1, System.currentTimeMillis());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        results.add(mapResult(rs));
+                    }
                 }
             }
         }
         return results;
     }
 
+    @Override
+    protected Map<String, T> loadPage(@Nullable String afterKey, int limit) throws SQLException {
+        Map<String, T> page = new LinkedHashMap<>();
+        try (Connection conn = getReadConnection()) {
+            SQLQueryBuilder qb = new SQLQueryBuilder()
+                    .select("*")
+                    .from(table)
+                    .where(NOT_EXPIRED);
+            if (afterKey != null) qb.and("id > ?");
+            qb.orderBy("id").limit("?");
+
+            try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
+                int index = 1;
+                ps.setLong(index++, System.currentTimeMillis());
+                if (afterKey != null) bindKey(ps, index++, afterKey);
+                ps.setInt(index, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        page.put(readKey(rs), mapResult(rs));
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
     @Override
     protected T load(String key) throws SQLException {
-        try (Connection conn = getConnection()) {
+        try (Connection conn = getReadConnection()) {
             SQLQueryBuilder qb = new SQLQueryBuilder()
                     .select("*")
                     .from(table)
-                    .where("id = ?");
+                    .where("id = ?")
+                    .and(NOT_EXPIRED);
 
             try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
-                ps.setString(1, key);
+                bindKey(ps, 1, key);
+                ps.setLong(2, System.currentTimeMillis());
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) return mapResult(rs);
                 }
@@ -81,6 +351,41 @@ public class SQLiteDatabase<T> extends SQLDatabase<T> {
         return null;
     }
 
+    @Override
+    protected Map<String, T> loadMany(Collection<String> keys) throws SQLException {
+        Map<String, T> found = new LinkedHashMap<>();
+        try (Connection conn = getReadConnection()) {
+            for (List<String> chunk : keyChunks(keys)) {
+                String placeholders = chunk.stream().map(k -> "?").collect(Collectors.joining(", "));
+                SQLQueryBuilder qb = new SQLQueryBuilder()
+                        .select("*")
+                        .from(table)
+                        .where("id IN (" + placeholders + ")")
+                        .and(NOT_EXPIRED);
+
+                try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
+                    int index = 1;
+                    for (String key : chunk) {
+                        bindKey(ps, index++, key);
+                    }
+                    ps.setLong(index, System.currentTimeMillis());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            found.put(readKey(rs), mapResult(rs));
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<String, T> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            T value = found.get(key);
+            if (value != null) result.put(key, value);
+        }
+        return result;
+    }
+
     @Override
     protected boolean deleteFromDatabase(String key) throws SQLException {
         try (Connection conn = getConnection()) {
@@ -89,9 +394,25 @@ public class SQLiteDatabase<T> extends SQLDatabase<T> {
                     .where("id = ?");
 
             try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
-                ps.setString(1, key);
+                bindKey(ps, 1, key);
                 return ps.executeUpdate() > 0;
             }
         }
     }
+
+    @Override
+    protected int purgeExpired(long now, int limit) throws SQLException {
+        try (Connection conn = getConnection()) {
+            // SQLite has no DELETE ... LIMIT by default, so bound the batch through the rowid
+            SQLQueryBuilder qb = new SQLQueryBuilder()
+                    .deleteFrom(table)
+                    .where("rowid IN (SELECT rowid FROM " + table + " WHERE " + EXPIRY_COLUMN + " <= ? LIMIT ?)");
+
+            try (PreparedStatement ps = conn.prepareStatement(qb.build())) {
+                ps.setLong(1, now);
+                ps.setInt(2, limit);
+                return ps.executeUpdate();
+            }
+        }
+    }
 }
@@ -0,0 +1,149 @@
+package dev.charcoal.database.bridge.utils;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.util.Arrays;
+
+/**
+ * LZ4 compression for stored payloads above a size threshold.
+ * <p>
+ * Compressed payloads start with the {@link #LZ4_HEADER} byte followed by the original length (4 bytes,
+ * big-endian) and the LZ4 block. {@link #compress} leaves smaller payloads untouched, so values written before
+ * compression was enabled keep their plain form; a payload that itself starts with {@code 0x01} is always stored
+ * compressed, so it cannot be mistaken for one. {@link #compressFramed} gives the plain form a
+ * {@link #PLAIN_HEADER} byte as well, for stores that never held unframed values.
+ * <p>
+ * Decompression never trusts the stored length: it is checked against {@link #getMaxLength()} before anything
+ * is allocated, and the block must decode to exactly that many bytes.
+ */
+public class Compression {
+
+    public static final byte PLAIN_HEADER = 0x00;
+    public static final byte LZ4_HEADER = 0x01;
+
+    public static final int DEFAULT_THRESHOLD = 1024;
+    public static final int DEFAULT_MAX_LENGTH = 64 * 1024 * 1024; // 64 MiB
+
+    // Pure-Java implementation; no JNI or Unsafe access. Must be initialized before NONE.
+    private static final LZ4Factory FACTORY = LZ4Factory.safeInstance();
+
+    /**
+     * Never compresses, but still reads compressed payloads written by other instances.
+     */
+    public static final Compression NONE = new Compression(Integer.MAX_VALUE);
+
+    private final int threshold;
+    private final int maxLength;
+    private final LZ4Compressor compressor = FACTORY.fastCompressor();
+    private final LZ4SafeDecompressor decompressor = FACTORY.safeDecompressor();
+
+    /**
+     * @param threshold payloads smaller than this many bytes are stored uncompressed
+     */
+    public Compression(int threshold) {
+        this(threshold, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param maxLength largest original length a compressed payload may declare
+     */
+    public Compression(int threshold, int maxLength) {
+        this.threshold = threshold;
+        this.maxLength = maxLength;
+    }
+
+    public static Compression lz4() {
+        return new Compression(DEFAULT_THRESHOLD);
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public byte[] compress(byte[] raw) {
+        boolean ambiguous = raw.length > 0 && raw[0] == LZ4_HEADER;
+        if (raw.length < threshold && !ambiguous) return raw;
+
+        byte[] out = lz4(raw);
+        // Incompressible data is cheaper to keep as is
+        return out.length >= raw.length && !ambiguous ? raw : out;
+    }
+
+    /**
+     * Like {@link #compress}, but the plain form gets a {@link #PLAIN_HEADER} byte, so any payload round-trips.
+     */
+    public byte[] compressFramed(byte[] raw) {
+        if (raw.length >= threshold) {
+            byte[] out = lz4(raw);
+            if (out.length < raw.length + 1) return out;
+        }
+
+        byte[] out = new byte[raw.length + 1];
+        out[0] = PLAIN_HEADER;
+        System.arraycopy(raw, 0, out, 1, raw.length);
+        return out;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the payload declares more than {@link #getMaxLength()} bytes or is
+     *                                  not a valid LZ4 block
+     */
+    public byte[] decompress(byte[] payload) {
+        if (!isCompressed(payload)) return payload;
+        return decompressBlock(payload);
+    }
+
+    /**
+     * Reads a payload of {@link #compressFramed}.
+     *
+     * @throws IllegalArgumentException if the header is unknown, or as {@link #decompress}
+     */
+    public byte[] decompressFramed(byte[] payload) {
+        if (payload.length > 0 && payload[0] == PLAIN_HEADER) return Arrays.copyOfRange(payload, 1, payload.length);
+        if (isCompressed(payload)) return decompressBlock(payload);
+        throw new IllegalArgumentException("Unknown compression header in a payload of " + payload.length + " bytes");
+    }
+
+    public static boolean isCompressed(byte[] payload) {
+        return payload != null && payload.length > 5 && payload[0] == LZ4_HEADER;
+    }
+
+    private byte[] lz4(byte[] raw) {
+        int maxCompressed = compressor.maxCompressedLength(raw.length);
+        byte[] out = new byte[5 + maxCompressed];
+        out[0] = LZ4_HEADER;
+        out[1] = (byte) (raw.length >>> 24);
+        out[2] = (byte) (raw.length >>> 16);
+        out[3] = (byte) (raw.length >>> 8);
+        out[4] = (byte) raw.length;
+
+        int length = compressor.compress(raw, 0, raw.length, out, 5, maxCompressed);
+        return Arrays.copyOf(out, 5 + length);
+    }
+
+    private byte[] decompressBlock(byte[] payload) {
+        int length = ((payload[1] & 0xFF) << 24) | ((payload[2] & 0xFF) << 16) | ((payload[3] & 0xFF) << 8) | (payload[4] & 0xFF);
+        if (length < 0 || length > maxLength) {
+            throw new IllegalArgumentException("Compressed payload declares " + Integer.toUnsignedString(length)
+                    + " bytes, more than the limit of " + maxLength);
+        }
+
+        byte[] raw = new byte[length];
+        try {
+            int written = decompressor.decompress(payload, 5, payload.length - 5, raw, 0, length);
+            if (written != length) {
+                throw new IllegalArgumentException("Compressed payload declares " + length + " bytes but holds " + written);
+            }
+        } catch (LZ4Exception e) {
+            throw new IllegalArgumentException("Corrupt compressed payload", e);
+        }
+        return raw;
+    }
+}
@@ -3,23 +3,49 @@ package dev.charcoal.database.bridge.utils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DataUtils {
 
-    public static ObjectMapper mapper = new ObjectMapper();
+    /**
+     * System property that, set to {@code true}, registers Jackson's Blackbird module, which replaces reflective
+     * property access with generated lambdas. It is read once, when the mapper is built: a module registered
+     * later would miss the (de)serializers the mapper and the backends have cached by then.
+     */
+    public static final String BLACKBIRD_PROPERTY = "databasebridge.blackbird";
+
+    public static final ObjectMapper mapper = createMapper();
+
+    private static final Map<Class<?>, TypedSerializer<?>> serializers = new ConcurrentHashMap<>();
 
-    static {
+    private static ObjectMapper createMapper() {
+        ObjectMapper mapper = new ObjectMapper();
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         mapper.configure(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES, false);
         mapper.configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false);
+        if (Boolean.getBoolean(BLACKBIRD_PROPERTY)) {
+            mapper.registerModule(new BlackbirdModule());
+        }
+        return mapper;
+    }
+
+    /**
+     * Returns the cached reader/writer pair for {@code type}, so type resolution happens once per class.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> TypedSerializer<T> serializer(Class<T> type) {
+        return (TypedSerializer<T>) serializers.computeIfAbsent(type, t -> new TypedSerializer<>(mapper.readerFor(t), mapper.writerFor(t)));
     }
 
     public static <T> T deserialize(String text, Class<T> tClass) {
-        try {
-            return mapper.readValue(text, tClass);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
-        }
+        return serializer(tClass).fromString(text);
+    }
+
+    public static <T> T deserialize(byte[] bytes, Class<T> tClass) {
+        return serializer(tClass).fromBytes(bytes);
     }
 
     public static String serialize(Object object) {
@@ -0,0 +1,124 @@
+package dev.charcoal.database.bridge.utils;
+
+import dev.charcoal.database.bridge.annotations.Lazy;
+import dev.charcoal.database.bridge.mongo.annotations.MongoId;
+import dev.charcoal.database.bridge.sql.annotations.Column;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves field names for projections and {@link Lazy} loading, and copies the selected fields between
+ * instances. Resolved once per type; obtain instances through {@link #of(Class)}.
+ */
+public class FieldProjection<T> {
+
+    private static final Map<Class<?>, FieldProjection<?>> projections = new ConcurrentHashMap<>();
+
+    private final Class<T> type;
+    private final Map<String, Field> fields = new LinkedHashMap<>();
+    @Nullable
+    private final Field keyField;
+    private final String[] eagerFieldNames;
+    private final String[] lazyFieldNames;
+
+    private FieldProjection(Class<T> type) {
+        this.type = type;
+
+        Field key = null;
+        List<String> eager = new ArrayList<>();
+        List<String> lazy = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) continue;
+            field.setAccessible(true);
+            fields.put(field.getName(), field);
+
+            if (field.isAnnotationPresent(MongoId.class)
+                    || (field.isAnnotationPresent(Column.class) && field.getAnnotation(Column.class).id())) {
+                key = field;
+            }
+            (field.isAnnotationPresent(Lazy.class) ? lazy : eager).add(field.getName());
+        }
+        this.keyField = key;
+        this.eagerFieldNames = eager.toArray(new String[0]);
+        this.lazyFieldNames = lazy.toArray(new String[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> FieldProjection<T> of(@NotNull Class<T> type) {
+        return (FieldProjection<T>) projections.computeIfAbsent(type, FieldProjection::new);
+    }
+
+    /**
+     * Looks up {@code names}, adding the key field when the type has one.
+     *
+     * @throws IllegalArgumentException if a name is not a field of the type
+     */
+    public List<Field> resolve(String... names) {
+        List<Field> resolved = new ArrayList<>(names.length + 1);
+        if (keyField != null) resolved.add(keyField);
+        for (String name : names) {
+            Field field = fields.get(name);
+            if (field == null) {
+                throw new IllegalArgumentException("No field " + name + " in " + type.getName());
+            }
+            if (!resolved.contains(field)) resolved.add(field);
+        }
+        return resolved;
+    }
+
+    public String[] getEagerFieldNames() {
+        return eagerFieldNames.clone();
+    }
+
+    public String[] getLazyFieldNames() {
+        return lazyFieldNames.clone();
+    }
+
+    public T newInstance() {
+        try {
+            Constructor<T> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Projections need a no-arg constructor on " + type.getName(), e);
+        }
+    }
+
+    public void set(@NotNull T target, @NotNull Field field, @Nullable Object value) {
+        // Primitives keep their default instead of failing on a NULL column
+        if (value == null && field.getType().isPrimitive()) return;
+        try {
+            field.set(target, value);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Cannot access field " + field.getName(), e);
+        }
+    }
+
+    public void copy(@NotNull T source, @NotNull T target, @NotNull List<Field> selected) {
+        for (Field field : selected) {
+            try {
+                field.set(target, field.get(source));
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Cannot access field " + field.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Copies {@code selected} out of a fully loaded entity, for backends that cannot read fewer fields.
+     */
+    public T project(@NotNull T source, @NotNull List<Field> selected) {
+        T projected = newInstance();
+        copy(source, projected, selected);
+        return projected;
+    }
+}
@@ -0,0 +1,100 @@
+package dev.charcoal.database.bridge.utils;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * JSON reader/writer pair resolved once per type, with byte-oriented entry points so callers that already hold
+ * bytes (Redis, files, snapshots) skip the intermediate {@link String}. Obtain instances through
+ * {@link DataUtils#serializer(Class)}.
+ */
+public class TypedSerializer<T> {
+
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+
+    TypedSerializer(ObjectReader reader, ObjectWriter writer) {
+        this.reader = reader;
+        this.writer = writer;
+    }
+
+    public T fromString(@NotNull String json) {
+        try {
+            return reader.readValue(json);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public T fromBytes(byte @NotNull [] bytes) {
+        return fromBytes(bytes, 0, bytes.length);
+    }
+
+    public T fromBytes(byte @NotNull [] bytes, int offset, int length) {
+        try {
+            return reader.readValue(bytes, offset, length);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the remaining bytes of {@code buffer} without copying when it is heap-backed.
+     * The buffer's position is left untouched.
+     */
+    public T fromBuffer(@NotNull ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return fromBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        return read(new ByteBufferBackedInputStream(buffer.duplicate()));
+    }
+
+    public T read(@NotNull InputStream in) {
+        try {
+            return reader.readValue(in);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public String toString(T value) {
+        try {
+            return writer.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Jackson already builds the bytes in buffers recycled per thread, so this is a single copy with no String.
+     */
+    public byte[] toBytes(T value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Serializes into a new heap buffer positioned at zero and limited to the payload.
+     */
+    public ByteBuffer toBuffer(T value) {
+        return ByteBuffer.wrap(toBytes(value));
+    }
+
+    public void write(T value, @NotNull OutputStream out) {
+        try {
+            writer.writeValue(out, value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
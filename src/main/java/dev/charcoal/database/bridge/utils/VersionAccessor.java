@@ -0,0 +1,100 @@
+package dev.charcoal.database.bridge.utils;
+
+import dev.charcoal.database.bridge.SyncDatabase;
+import dev.charcoal.database.bridge.VersionedDatabase;
+import dev.charcoal.database.bridge.annotations.Version;
+import dev.charcoal.database.bridge.exception.OptimisticLockException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reads and writes the {@link Version} field of an entity and drives the optimistic retry loop behind {@code update}.
+ */
+public class VersionAccessor<T> {
+
+    private static final int MAX_UPDATE_ATTEMPTS = 16;
+    private static final long MAX_BACKOFF_MICROS = 5_000;
+
+    private final Field field;
+
+    private VersionAccessor(Field field) {
+        this.field = field;
+        this.field.setAccessible(true);
+    }
+
+    public static <T> @Nullable VersionAccessor<T> find(@NotNull Class<T> type) {
+        for (Field field : type.getDeclaredFields()) {
+            if (!field.isAnnotationPresent(Version.class)) continue;
+
+            Class<?> fieldType = field.getType();
+            if (fieldType != long.class && fieldType != Long.class && fieldType != int.class && fieldType != Integer.class) {
+                throw new IllegalStateException("@Version field " + field.getName() + " in " + type.getName() + " must be a long or int");
+            }
+            return new VersionAccessor<>(field);
+        }
+        return null;
+    }
+
+    public static <T> @NotNull VersionAccessor<T> require(@Nullable VersionAccessor<T> accessor, @NotNull Class<T> type) {
+        if (accessor == null) {
+            throw new IllegalStateException("No @Version field found in class " + type.getName());
+        }
+        return accessor;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public long get(@Nullable T value) {
+        if (value == null) return 0L;
+        try {
+            Object version = field.get(value);
+            return version == null ? 0L : ((Number) version).longValue();
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Cannot access version field", e);
+        }
+    }
+
+    public void set(@NotNull T value, long version) {
+        try {
+            Class<?> fieldType = field.getType();
+            if (fieldType == int.class || fieldType == Integer.class) {
+                field.set(value, (int) version);
+            } else {
+                field.set(value, version);
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Cannot access version field", e);
+        }
+    }
+
+    /**
+     * Fetches the current value, applies {@code updater} and writes it back with {@code compareAndSave},
+     * retrying with a short randomized backoff while other writers win the race.
+     *
+     * @return the value that was written, or {@code null} if the updater returned {@code null}
+     */
+    public <D extends SyncDatabase<T> & VersionedDatabase<T>> @Nullable T update(@NotNull D database, String key,
+                                                                              @NotNull UnaryOperator<T> updater) {
+        for (int attempt = 1; attempt <= MAX_UPDATE_ATTEMPTS; attempt++) {
+            T current = database.fetch(key);
+            long expectedVersion = get(current);
+
+            T next = updater.apply(current);
+            if (next == null) return null;
+
+            if (database.compareAndSave(key, expectedVersion, next)) return next;
+
+            long backoff = Math.min(MAX_BACKOFF_MICROS, 50L << Math.min(attempt, 10));
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(ThreadLocalRandom.current().nextLong(backoff)));
+        }
+        throw new OptimisticLockException("Gave up updating key " + key + " after " + MAX_UPDATE_ATTEMPTS + " conflicting attempts");
+    }
+}
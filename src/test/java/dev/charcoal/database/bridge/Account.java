@@ -0,0 +1,27 @@
+package dev.charcoal.database.bridge;
+
+import dev.charcoal.database.bridge.annotations.Version;
+import dev.charcoal.database.bridge.sql.annotations.Column;
+
+/**
+ * Versioned entity shared by the backend tests. SQL backends store the whole value as JSON in {@code data}.
+ */
+public class Account {
+
+    @Column(name = "id", id = true)
+    public String id;
+    @Column(name = "data", type = "TEXT")
+    public String owner;
+    public long balance;
+    @Version
+    public long version;
+
+    public Account() {
+    }
+
+    public Account(String id, String owner, long balance) {
+        this.id = id;
+        this.owner = owner;
+        this.balance = balance;
+    }
+}
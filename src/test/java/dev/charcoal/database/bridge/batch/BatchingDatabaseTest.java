@@ -0,0 +1,98 @@
+package dev.charcoal.database.bridge.batch;
+
+import dev.charcoal.database.bridge.Account;
+import dev.charcoal.database.bridge.memory.MemoryDatabase;
+import dev.charcoal.database.bridge.memory.MemoryOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The backend answers after a random delay, so writes that were not ordered would land out of order.
+ */
+class BatchingDatabaseTest {
+
+    private final MemoryDatabase<Account> backend = new MemoryDatabase<>(Account.class, MemoryOptions.builder()
+            .latencyJitter(Duration.ofMillis(5))
+            .build());
+    private final BatchingDatabase<Account> batching = new BatchingDatabase<>(backend);
+
+    @AfterEach
+    void close() {
+        batching.close();
+        backend.close();
+    }
+
+    @Test
+    void deleteRunsAfterTheBufferedSave() {
+        List<CompletableFuture<?>> writes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String key = "k" + i;
+            writes.add(batching.saveAsync(key, new Account(key, "ann", i)));
+            writes.add(batching.deleteAsync(key));
+        }
+        writes.forEach(CompletableFuture::join);
+
+        for (int i = 0; i < 50; i++) {
+            assertNull(backend.fetch("k" + i));
+        }
+    }
+
+    @Test
+    void saveRunsAfterTheDelete() {
+        for (int i = 0; i < 50; i++) {
+            backend.save("k" + i, new Account("k" + i, "old", 0));
+        }
+
+        List<CompletableFuture<?>> writes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String key = "k" + i;
+            writes.add(batching.deleteAsync(key));
+            writes.add(batching.saveAsync(key, new Account(key, "new", i)));
+        }
+        writes.forEach(CompletableFuture::join);
+
+        for (int i = 0; i < 50; i++) {
+            Account account = backend.fetch("k" + i);
+            assertNotNull(account);
+            assertEquals("new", account.owner);
+        }
+    }
+
+    @Test
+    void laterSavesWin() {
+        List<CompletableFuture<?>> writes = new ArrayList<>();
+        for (int round = 0; round < 5; round++) {
+            writes.add(batching.saveAsync("a", new Account("a", "ann", round)));
+            batching.flushSaves();
+        }
+        writes.forEach(CompletableFuture::join);
+
+        assertEquals(4, backend.fetch("a").balance);
+    }
+
+    @Test
+    void fetchSeesTheBufferedSave() {
+        batching.saveAsync("a", new Account("a", "ann", 7));
+        assertEquals(7, batching.fetchAsync("a").join().balance);
+    }
+
+    @Test
+    void conditionalWriteSeesTheEarlierSave() {
+        Account first = new Account("a", "ann", 1);
+        batching.saveAsync("a", first);
+
+        Account next = new Account("a", "ann", 2);
+        assertTrue(batching.compareAndSaveAsync("a", 0, next).join(), "a save without a version leaves version 0");
+        assertEquals(2, backend.fetch("a").balance);
+    }
+}
@@ -0,0 +1,73 @@
+package dev.charcoal.database.bridge.bloom;
+
+import dev.charcoal.database.bridge.Account;
+import dev.charcoal.database.bridge.memory.MemoryDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomGuardedDatabaseTest {
+
+    private final MemoryDatabase<Account> backend = new MemoryDatabase<>(Account.class);
+    private BloomGuardedDatabase<Account> guarded;
+
+    @BeforeEach
+    void open() throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            backend.save("existing-" + i, new Account("existing-" + i, "owner", i));
+        }
+        guarded = new BloomGuardedDatabase<>(backend, BloomGuardOptions.builder()
+                .expectedKeys(10_000)
+                .scanBatchSize(100)
+                .build());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!guarded.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(guarded.isReady(), "the initial key scan did not complete");
+    }
+
+    @AfterEach
+    void close() {
+        guarded.close();
+        backend.close();
+    }
+
+    @Test
+    void neverMissesAnExistingKey() {
+        for (int i = 0; i < 500; i++) {
+            assertNotNull(guarded.fetch("existing-" + i));
+        }
+        assertEquals(3, guarded.fetchMany(List.of("existing-1", "missing", "existing-2", "existing-3")).size());
+    }
+
+    @Test
+    void answersMostMissingKeysLocally() {
+        for (int i = 0; i < 1000; i++) {
+            assertNull(guarded.fetch("missing-" + i));
+        }
+        // 1% false positives at the configured size, so nearly every miss stays local
+        assertTrue(guarded.getSkippedFetches() > 900, "skipped only " + guarded.getSkippedFetches());
+    }
+
+    @Test
+    void writesThroughTheGuardAreVisible() {
+        guarded.save("new", new Account("new", "ann", 1));
+        assertNotNull(guarded.fetch("new"));
+
+        guarded.saveMany(Map.of("x", new Account("x", "bob", 2), "y", new Account("y", "carl", 3)));
+        assertEquals(2, guarded.fetchMany(List.of("x", "y")).size());
+
+        assertTrue(guarded.delete("new"));
+        assertNull(guarded.fetch("new"));
+    }
+}
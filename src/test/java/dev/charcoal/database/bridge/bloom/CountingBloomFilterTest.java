@@ -0,0 +1,85 @@
+package dev.charcoal.database.bridge.bloom;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountingBloomFilterTest {
+
+    @Test
+    void neverMissesAnAddedKey() {
+        CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("key-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("key-" + i));
+        }
+    }
+
+    @Test
+    void staysNearTheTargetFalsePositiveRate() {
+        CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("key-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("missing-" + i)) falsePositives++;
+        }
+        assertTrue(falsePositives < 200, falsePositives + " false positives");
+    }
+
+    @Test
+    void removedKeysLookAbsentAndOthersStay() {
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+        filter.add("a");
+        filter.add("b");
+        filter.add("b");
+
+        filter.remove("a");
+        assertFalse(filter.mightContain("a"));
+        filter.remove("b");
+        assertTrue(filter.mightContain("b"), "b was added twice");
+        filter.remove("b");
+        assertFalse(filter.mightContain("b"));
+    }
+
+    @Test
+    void saturatedCountersAreNeverDecremented() {
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+        for (int i = 0; i < 16; i++) {
+            filter.add("hot");
+        }
+        for (int i = 0; i < 15; i++) {
+            filter.remove("hot");
+        }
+        assertTrue(filter.mightContain("hot"), "a saturated counter may stand for more additions");
+    }
+
+    @Test
+    void removingAnAbsentKeyDoesNotUnderflow() {
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+        filter.remove("never-added");
+        filter.add("never-added");
+        assertTrue(filter.mightContain("never-added"));
+    }
+
+    @Test
+    void sameSettingsGiveTheSameIndexes() {
+        CountingBloomFilter first = new CountingBloomFilter(50_000, 0.001);
+        CountingBloomFilter second = new CountingBloomFilter(50_000, 0.001);
+        assertArrayEquals(first.indexes("user:42"), second.indexes("user:42"));
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(1000, 0));
+        assertThrows(IllegalArgumentException.class, () -> new CountingBloomFilter(1000, 1));
+    }
+}
@@ -0,0 +1,114 @@
+package dev.charcoal.database.bridge.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapStoreTest {
+
+    private static final int SLAB_SIZE = 1024;
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // header, three key bytes and this value fill a 64 byte chunk exactly, sixteen to a slab
+    private static byte[] chunkValue(int i) {
+        return bytes(String.format("%040d", i));
+    }
+
+    @Test
+    void storesReplacesAndRemoves() {
+        OffHeapStore store = new OffHeapStore(16L * SLAB_SIZE, 4, SLAB_SIZE);
+        assertNull(store.get("a"));
+
+        assertTrue(store.put("a", bytes("one"), 0));
+        assertArrayEquals(bytes("one"), store.get("a"));
+
+        assertTrue(store.put("a", bytes("a much longer second value"), 0));
+        assertArrayEquals(bytes("a much longer second value"), store.get("a"));
+        assertEquals(1, store.size());
+
+        store.remove("a");
+        assertNull(store.get("a"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void expiredEntriesAreNotReturned() {
+        OffHeapStore store = new OffHeapStore(16L * SLAB_SIZE, 1, SLAB_SIZE);
+        store.put("old", bytes("x"), System.currentTimeMillis() - 1);
+        store.put("fresh", bytes("y"), System.currentTimeMillis() + 60_000);
+
+        assertNull(store.get("old"));
+        assertArrayEquals(bytes("y"), store.get("fresh"));
+        assertEquals(1, store.size(), "reading an expired entry drops it");
+    }
+
+    @Test
+    void staysWithinCapacity() {
+        long capacity = 16L * SLAB_SIZE;
+        OffHeapStore store = new OffHeapStore(capacity, 1, SLAB_SIZE);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(store.put("key" + i, bytes("value of entry " + i), 0));
+        }
+
+        assertTrue(store.evictions() > 0);
+        assertTrue(store.allocatedBytes() <= capacity);
+        assertEquals(1000 - store.evictions(), store.size());
+        assertArrayEquals(bytes("value of entry 999"), store.get("key999"), "the latest entry is kept");
+    }
+
+    @Test
+    void evictionSkipsEntriesReadSinceTheLastPass() {
+        OffHeapStore store = new OffHeapStore(SLAB_SIZE, 1, SLAB_SIZE);
+        for (int i = 0; i < 16; i++) {
+            store.put(String.format("k%02d", i), chunkValue(i), 0);
+        }
+        assertEquals(0, store.evictions());
+        assertNotNull(store.get("k00"));
+
+        store.put("k16", chunkValue(16), 0);
+        assertEquals(1, store.evictions());
+        assertNotNull(store.get("k00"), "a read entry gets a second chance");
+        assertNull(store.get("k01"));
+        assertNotNull(store.get("k16"));
+    }
+
+    @Test
+    void oversizedEntriesAreNotCached() {
+        OffHeapStore store = new OffHeapStore(16L * SLAB_SIZE, 1, SLAB_SIZE);
+        store.put("a", bytes("small"), 0);
+
+        assertFalse(store.put("a", new byte[SLAB_SIZE], 0));
+        assertNull(store.get("a"), "the previous value is dropped");
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void clearKeepsTheSlabsForReuse() {
+        OffHeapStore store = new OffHeapStore(16L * SLAB_SIZE, 1, SLAB_SIZE);
+        for (int i = 0; i < 100; i++) {
+            store.put("key" + i, bytes("value " + i), 0);
+        }
+        long allocated = store.allocatedBytes();
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertNull(store.get("key1"));
+        assertEquals(allocated, store.allocatedBytes());
+
+        for (int i = 0; i < 100; i++) {
+            store.put("key" + i, bytes("value " + i), 0);
+        }
+        assertEquals(allocated, store.allocatedBytes(), "cleared slabs are handed out before new ones");
+        assertArrayEquals(bytes("value 42"), store.get("key42"));
+    }
+}
@@ -0,0 +1,73 @@
+package dev.charcoal.database.bridge.key;
+
+import dev.charcoal.database.bridge.Account;
+import dev.charcoal.database.bridge.memory.MemoryDatabase;
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeyCodecTest {
+
+    private static final UUID ID = UUID.fromString("00112233-4455-6677-8899-aabbccddeeff");
+
+    @Test
+    void codecsRoundTrip() {
+        assertEquals("any key", KeyCodec.strings().decode(KeyCodec.strings().encode("any key")));
+        assertEquals("-42", KeyCodec.longs().encode(-42L));
+        assertEquals(Long.MAX_VALUE, KeyCodec.longs().decode(KeyCodec.longs().encode(Long.MAX_VALUE)));
+        assertEquals(ID.toString(), KeyCodec.uuids().encode(ID));
+        assertEquals(ID, KeyCodec.uuids().decode(ID.toString()));
+        assertEquals(ID, KeyCodec.compactUuids().decode(KeyCodec.compactUuids().encode(ID)));
+    }
+
+    @Test
+    void compactUuidsTake22UrlSafeCharacters() {
+        for (int i = 0; i < 100; i++) {
+            String encoded = KeyCodec.compactUuids().encode(UUID.randomUUID());
+            assertEquals(22, encoded.length());
+            assertEquals(-1, encoded.indexOf('+'));
+            assertEquals(-1, encoded.indexOf('/'));
+            assertEquals(-1, encoded.indexOf('='));
+        }
+    }
+
+    @Test
+    void bytesAreBigEndianLikeUuidToBin() {
+        assertArrayEquals(HexFormat.of().parseHex("00112233445566778899aabbccddeeff"), KeyCodec.toBytes(ID));
+        assertEquals(ID, KeyCodec.fromBytes(KeyCodec.toBytes(ID)));
+        assertThrows(IllegalArgumentException.class, () -> KeyCodec.fromBytes(new byte[15]));
+    }
+
+    @Test
+    void malformedKeysAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> KeyCodec.longs().decode("12a"));
+        assertThrows(IllegalArgumentException.class, () -> KeyCodec.uuids().decode("not-a-uuid"));
+        assertThrows(IllegalArgumentException.class, () -> KeyCodec.compactUuids().decode("tooShort"));
+        assertThrows(IllegalArgumentException.class, () -> KeyCodec.compactUuids().decode("!!!!!!!!!!!!!!!!!!!!!!"));
+    }
+
+    @Test
+    void keyedDatabaseStoresEncodedKeysAndReturnsTypedOnes() {
+        MemoryDatabase<Account> backend = new MemoryDatabase<>(Account.class);
+        try {
+            KeyedDatabase<Long, Account> accounts = new KeyedDatabase<>(backend, KeyCodec.longs());
+            accounts.save(1L, new Account("1", "ann", 10));
+            accounts.save(2L, new Account("2", "bob", 20));
+
+            assertNotNull(backend.fetch("1"), "stored under the encoded key");
+            Map<Long, Account> found = accounts.fetchMany(List.of(2L, 3L, 1L));
+            assertEquals(List.of(2L, 1L), List.copyOf(found.keySet()), "missing keys are left out, order is kept");
+            assertEquals("bob", found.get(2L).owner);
+        } finally {
+            backend.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package dev.charcoal.database.bridge.memory;
+
+import dev.charcoal.database.bridge.Account;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryDatabaseTest {
+
+    private final MemoryDatabase<Account> database = new MemoryDatabase<>(Account.class);
+
+    @AfterEach
+    void close() {
+        database.close();
+    }
+
+    @Test
+    void compareAndSaveRejectsStaleVersions() {
+        Account account = new Account("a", "ann", 10);
+        assertTrue(database.compareAndSave("a", 0, account));
+        assertEquals(1, account.version);
+
+        Account stale = new Account("a", "ann", 20);
+        assertFalse(database.compareAndSave("a", 0, stale));
+        assertEquals(0, stale.version, "a rejected write keeps its version");
+
+        Account current = database.fetch("a");
+        current.balance = 30;
+        assertTrue(database.compareAndSave("a", current.version, current));
+        assertEquals(30, database.fetch("a").balance);
+        assertEquals(2, database.fetch("a").version);
+    }
+
+    @Test
+    void concurrentUpdatesAreNotLost() {
+        database.save("a", new Account("a", "ann", 0));
+
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 100; i++) {
+                    database.update("a", account -> {
+                        account.balance++;
+                        return account;
+                    });
+                }
+            }));
+        }
+        writers.forEach(CompletableFuture::join);
+
+        assertEquals(800, database.fetch("a").balance);
+    }
+
+    @Test
+    void transactionAppliesAllWritesAtOnce() {
+        database.save("from", new Account("from", "ann", 100));
+        database.save("to", new Account("to", "bob", 0));
+
+        assertTrue(database.transaction(tx -> {
+            Account from = tx.fetch("from");
+            Account to = tx.fetch("to");
+            from.balance -= 40;
+            to.balance += 40;
+            tx.save("from", from);
+            tx.save("to", to);
+            assertEquals(60, tx.fetch("from").balance, "reads see the transaction's own writes");
+        }));
+
+        assertEquals(60, database.fetch("from").balance);
+        assertEquals(40, database.fetch("to").balance);
+    }
+
+    @Test
+    void transactionFailsWhenAReadKeyChanged() {
+        database.save("a", new Account("a", "ann", 1));
+
+        assertFalse(database.transaction(tx -> {
+            Account account = tx.fetch("a");
+            database.save("a", new Account("a", "ann", 2)); // a concurrent writer
+            account.balance = 3;
+            tx.save("a", account);
+        }));
+        assertEquals(2, database.fetch("a").balance);
+    }
+
+    @Test
+    void failingWorkWritesNothing() {
+        assertThrows(IllegalStateException.class, () -> database.transaction(tx -> {
+            tx.save("a", new Account("a", "ann", 1));
+            throw new IllegalStateException("abort");
+        }));
+        assertNull(database.fetch("a"));
+    }
+
+    @Test
+    void entriesExpire() throws InterruptedException {
+        database.save("short", new Account("short", "ann", 1), Duration.ofMillis(100));
+        database.save("long", new Account("long", "bob", 1), Duration.ofMinutes(5));
+
+        Duration left = database.timeToLive("long");
+        assertNotNull(left);
+        assertTrue(left.compareTo(Duration.ofMinutes(4)) > 0);
+        assertNull(database.timeToLive("missing"));
+
+        Thread.sleep(200);
+        assertNull(database.fetch("short"));
+        assertNotNull(database.fetch("long"));
+        assertTrue(database.saveIfAbsent("short", new Account("short", "carl", 2), null), "an expired key counts as absent");
+    }
+
+    @Test
+    void snapshotRestoresEntriesWithTheirExpiry(@TempDir Path dir) {
+        Path file = dir.resolve("accounts.snapshot");
+        MemoryOptions options = MemoryOptions.builder().snapshotFile(file).build();
+
+        MemoryDatabase<Account> source = new MemoryDatabase<>(Account.class, options);
+        source.save("a", new Account("a", "ann", 1));
+        source.save("b", new Account("b", "bob", 2), Duration.ofMinutes(5));
+        source.save("gone", new Account("gone", "carl", 3), Duration.ofMillis(1));
+        source.close(); // writes the snapshot
+
+        MemoryDatabase<Account> restored = new MemoryDatabase<>(Account.class, options);
+        try {
+            assertEquals(2, restored.size());
+            assertEquals("ann", restored.fetch("a").owner);
+            assertNull(restored.timeToLive("a"));
+            assertEquals(2, restored.fetch("b").balance);
+            assertNotNull(restored.timeToLive("b"));
+            assertNull(restored.fetch("gone"));
+        } finally {
+            restored.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package dev.charcoal.database.bridge.migration;
+
+import dev.charcoal.database.bridge.Account;
+import dev.charcoal.database.bridge.memory.MemoryDatabase;
+import dev.charcoal.database.bridge.migration.exception.MigrationException;
+import dev.charcoal.database.bridge.utils.Compression;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotTest {
+
+    @Test
+    void recordsRoundTripWithTheirExpiry() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SnapshotWriter<Account> writer = new SnapshotWriter<>(bytes, Account.class, new Compression(16))) {
+            writer.write("a", new Account("a", "ann", 1));
+            writer.write("b", new Account("b", "b".repeat(1000), 2), 1_700_000_000_000L);
+            writer.finish();
+            assertEquals(2, writer.getCount());
+        }
+
+        Map<String, Long> expiries = new LinkedHashMap<>();
+        Map<String, Account> values = new LinkedHashMap<>();
+        try (SnapshotReader<Account> reader = new SnapshotReader<>(new ByteArrayInputStream(bytes.toByteArray()), Account.class)) {
+            assertEquals(2, reader.forEachRemaining((key, value, expiresAt) -> {
+                values.put(key, value);
+                expiries.put(key, expiresAt);
+            }));
+        }
+
+        assertEquals(List.of("a", "b"), new ArrayList<>(values.keySet()));
+        assertEquals("ann", values.get("a").owner);
+        assertEquals("b".repeat(1000), values.get("b").owner);
+        assertEquals(0L, expiries.get("a"));
+        assertEquals(1_700_000_000_000L, expiries.get("b"));
+    }
+
+    @Test
+    void exportCanBeScannedInPages(@TempDir Path dir) throws IOException {
+        MemoryDatabase<Account> source = new MemoryDatabase<>(Account.class);
+        for (int i = 0; i < 25; i++) {
+            source.save(String.format("k%02d", i), new Account("k" + i, "owner", i));
+        }
+        Path file = dir.resolve("export.snapshot");
+        assertEquals(25, SnapshotWriter.export(source, Account.class, file));
+        source.close();
+
+        List<String> keys = new ArrayList<>();
+        try (SnapshotReader<Account> reader = new SnapshotReader<>(file, Account.class)) {
+            String afterKey = null;
+            Map<String, Account> page;
+            while (!(page = reader.scan(afterKey, 10)).isEmpty()) {
+                assertTrue(page.size() <= 10);
+                keys.addAll(page.keySet());
+                afterKey = keys.get(keys.size() - 1);
+            }
+        }
+        assertEquals(25, keys.size());
+        assertEquals("k00", keys.get(0));
+        assertEquals("k24", keys.get(24));
+    }
+
+    @Test
+    void exportKeepsExpiries(@TempDir Path dir) throws IOException {
+        MemoryDatabase<Account> source = new MemoryDatabase<>(Account.class);
+        long before = System.currentTimeMillis();
+        source.save("a", new Account("a", "ann", 1));
+        source.save("b", new Account("b", "bob", 2), Duration.ofHours(1));
+        Path file = dir.resolve("export.snapshot");
+        assertEquals(2, SnapshotWriter.export(source, Account.class, file));
+        long after = System.currentTimeMillis();
+        source.close();
+
+        Map<String, Long> expiries = new LinkedHashMap<>();
+        try (SnapshotReader<Account> reader = new SnapshotReader<>(file, Account.class)) {
+            reader.forEachRemaining((key, value, expiresAt) -> expiries.put(key, expiresAt));
+        }
+        assertEquals(0L, expiries.get("a"));
+        long expiresAt = expiries.get("b");
+        long hour = Duration.ofHours(1).toMillis();
+        assertTrue(expiresAt >= before + hour && expiresAt <= after + hour, "expires when it did in the source");
+    }
+
+    @Test
+    void unfinishedSnapshotIsRejected() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SnapshotWriter<Account> writer = new SnapshotWriter<>(bytes, Account.class, Compression.lz4())) {
+            writer.write("a", new Account("a", "ann", 1));
+        }
+
+        try (SnapshotReader<Account> reader = new SnapshotReader<>(new ByteArrayInputStream(bytes.toByteArray()), Account.class)) {
+            assertThrows(MigrationException.class, () -> reader.forEachRemaining((key, value, expiresAt) -> {
+            }));
+        }
+    }
+
+    @Test
+    void unfinishedFileIsDeleted(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("failed.snapshot");
+        try (SnapshotWriter<Account> writer = new SnapshotWriter<>(file, Account.class)) {
+            writer.write("a", new Account("a", "ann", 1));
+        }
+        assertFalse(Files.exists(file));
+    }
+}
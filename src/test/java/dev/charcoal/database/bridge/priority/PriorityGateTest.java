@@ -0,0 +1,126 @@
+package dev.charcoal.database.bridge.priority;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriorityGateTest {
+
+    private static final Duration INTERVAL = Duration.ofMillis(20);
+
+    private static PriorityGate gate(int capacity, int reserved) {
+        return new PriorityGate("test", capacity, PriorityOptions.builder()
+                .reservedInteractive(reserved)
+                .latencyTarget(Duration.ofMillis(5))
+                .adjustInterval(INTERVAL)
+                .build());
+    }
+
+    @Test
+    void backgroundNeverTakesTheReservedSlots() throws InterruptedException {
+        PriorityGate gate = gate(4, 2);
+        assertEquals(2, gate.getMaxLimit());
+
+        SlotHolder first = new SlotHolder(gate);
+        SlotHolder second = new SlotHolder(gate);
+        assertTrue(first.acquired.await(1, TimeUnit.SECONDS));
+        assertTrue(second.acquired.await(1, TimeUnit.SECONDS));
+
+        SlotHolder third = new SlotHolder(gate);
+        assertFalse(third.acquired.await(100, TimeUnit.MILLISECONDS), "the limit is reached");
+        assertEquals(2, gate.getInFlight());
+
+        first.interrupt();
+        assertTrue(third.acquired.await(1, TimeUnit.SECONDS), "a released slot goes to the waiting call");
+
+        second.interrupt();
+        third.interrupt();
+    }
+
+    @Test
+    void nestedAcquiresAreFree() throws InterruptedException {
+        PriorityGate gate = gate(3, 2);
+        gate.acquire();
+        gate.acquire();
+        assertEquals(1, gate.getInFlight());
+
+        gate.release();
+        assertEquals(1, gate.getInFlight(), "the outer slot is still held");
+        gate.release();
+        assertEquals(0, gate.getInFlight());
+    }
+
+    @Test
+    void slowInteractiveCallsHalveTheLimitAndQuietOnesRestoreIt() throws InterruptedException {
+        PriorityGate gate = gate(18, 2);
+        assertEquals(16, gate.getLimit());
+
+        Thread.sleep(INTERVAL.toMillis() * 2);
+        gate.recordInteractive(TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(8, gate.getLimit());
+
+        Thread.sleep(INTERVAL.toMillis() * 2);
+        gate.recordInteractive(TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(4, gate.getLimit());
+
+        Thread.sleep(INTERVAL.toMillis() * 2);
+        gate.recordInteractive(TimeUnit.MICROSECONDS.toNanos(100));
+        assertEquals(5, gate.getLimit(), "one slot back per quiet interval");
+    }
+
+    @Test
+    void limitNeverDropsBelowTheMinimum() throws InterruptedException {
+        PriorityGate gate = gate(4, 2);
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(INTERVAL.toMillis() * 2);
+            gate.recordInteractive(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        assertEquals(1, gate.getLimit());
+    }
+
+    @Test
+    void interactiveCallsAreNotGated() throws InterruptedException {
+        PriorityGate gate = gate(3, 2);
+        SlotHolder holder = new SlotHolder(gate);
+        assertTrue(holder.acquired.await(1, TimeUnit.SECONDS));
+
+        assertEquals("done", gate.call(OperationClass.INTERACTIVE, () -> "done"));
+        holder.interrupt();
+    }
+
+    /**
+     * Takes a background slot and keeps it until interrupted.
+     */
+    private static final class SlotHolder extends Thread {
+
+        private final PriorityGate gate;
+        private final CountDownLatch acquired = new CountDownLatch(1);
+
+        SlotHolder(PriorityGate gate) {
+            this.gate = gate;
+            setDaemon(true);
+            start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                gate.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            acquired.countDown();
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+            } catch (InterruptedException e) {
+                gate.release();
+            }
+        }
+    }
+}
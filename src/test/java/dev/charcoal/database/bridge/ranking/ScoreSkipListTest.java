@@ -0,0 +1,112 @@
+package dev.charcoal.database.bridge.ranking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScoreSkipListTest {
+
+    // highest score first, ties broken by the larger key
+    private static final Comparator<Map.Entry<String, Double>> ORDER =
+            Map.Entry.<String, Double>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.<String, Double>comparingByKey().reversed());
+
+    private static List<String> keys(List<ScoreSkipList.Node> nodes) {
+        return nodes.stream().map(node -> node.key).toList();
+    }
+
+    @Test
+    void ordersByScoreThenKey() {
+        ScoreSkipList list = new ScoreSkipList();
+        list.insert("a", 1);
+        list.insert("b", 3);
+        list.insert("c", 3);
+        list.insert("d", 2);
+
+        assertEquals(List.of("c", "b", "d", "a"), keys(list.range(0, 10)));
+        assertEquals(0, list.rank("c", 3));
+        assertEquals(1, list.rank("b", 3));
+        assertEquals(3, list.rank("a", 1));
+        assertEquals(-1, list.rank("a", 2), "the score is part of the identity");
+        assertEquals(-1, list.rank("missing", 1));
+    }
+
+    @Test
+    void rangeStartsAtTheRequestedRank() {
+        ScoreSkipList list = new ScoreSkipList();
+        for (int i = 0; i < 100; i++) {
+            list.insert("k" + i, i);
+        }
+
+        assertEquals(List.of("k89", "k88", "k87"), keys(list.range(10, 3)));
+        assertEquals(List.of("k1", "k0"), keys(list.range(98, 5)), "a page past the end is cut short");
+        assertTrue(list.range(100, 5).isEmpty());
+        assertTrue(list.range(-1, 5).isEmpty());
+        assertTrue(list.range(0, 0).isEmpty());
+    }
+
+    @Test
+    void deleteOnlyRemovesTheExactPair() {
+        ScoreSkipList list = new ScoreSkipList();
+        list.insert("a", 1);
+
+        assertFalse(list.delete("a", 2));
+        assertFalse(list.delete("b", 1));
+        assertTrue(list.delete("a", 1));
+        assertEquals(0, list.size());
+        assertTrue(list.range(0, 1).isEmpty());
+    }
+
+    @Test
+    void ranksMatchASortedListAcrossRandomUpdates() {
+        ScoreSkipList list = new ScoreSkipList();
+        Map<String, Double> scores = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int step = 0; step < 5000; step++) {
+            String key = "k" + random.nextInt(500);
+            Double previous = scores.get(key);
+            if (previous != null) assertTrue(list.delete(key, previous));
+            if (random.nextInt(4) == 0) {
+                scores.remove(key);
+            } else {
+                double score = random.nextInt(50);
+                scores.put(key, score);
+                list.insert(key, score);
+            }
+        }
+
+        List<Map.Entry<String, Double>> expected = new ArrayList<>(scores.entrySet());
+        expected.sort(ORDER);
+        assertEquals(expected.size(), list.size());
+        assertEquals(expected.stream().map(Map.Entry::getKey).toList(), keys(list.range(0, expected.size())));
+        for (int rank = 0; rank < expected.size(); rank++) {
+            Map.Entry<String, Double> entry = expected.get(rank);
+            assertEquals(rank, list.rank(entry.getKey(), entry.getValue()));
+            assertEquals(entry.getKey(), list.range(rank, 1).get(0).key);
+        }
+    }
+
+    @Test
+    void clearEmptiesTheList() {
+        ScoreSkipList list = new ScoreSkipList();
+        for (int i = 0; i < 50; i++) {
+            list.insert("k" + i, i);
+        }
+        list.clear();
+
+        assertEquals(0, list.size());
+        assertTrue(list.range(0, 10).isEmpty());
+        list.insert("a", 1);
+        assertEquals(List.of("a"), keys(list.range(0, 10)));
+    }
+}
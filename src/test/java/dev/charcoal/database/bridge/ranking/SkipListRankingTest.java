@@ -0,0 +1,90 @@
+package dev.charcoal.database.bridge.ranking;
+
+import dev.charcoal.database.bridge.Account;
+import dev.charcoal.database.bridge.memory.MemoryDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SkipListRankingTest {
+
+    private final MemoryDatabase<Account> values = new MemoryDatabase<>(Account.class);
+    private final SkipListRanking<Account> ranking = new SkipListRanking<>(values);
+
+    @AfterEach
+    void close() {
+        values.close();
+    }
+
+    @Test
+    void setScoreMovesAnExistingKey() {
+        ranking.setScore("a", 10);
+        ranking.setScore("b", 20);
+        assertEquals(1L, ranking.getRank("a"));
+
+        ranking.setScore("a", 30);
+        assertEquals(0L, ranking.getRank("a"));
+        assertEquals(30.0, ranking.getScore("a"));
+        assertEquals(2, ranking.size(), "a key is ranked once");
+    }
+
+    @Test
+    void incrementStartsFromZero() {
+        assertEquals(5.0, ranking.incrementScore("a", 5));
+        assertEquals(3.0, ranking.incrementScore("a", -2));
+        assertEquals(3.0, ranking.getScore("a"));
+    }
+
+    @Test
+    void removeForgetsTheKey() {
+        ranking.setScore("a", 1);
+        assertTrue(ranking.remove("a"));
+        assertFalse(ranking.remove("a"));
+        assertNull(ranking.getScore("a"));
+        assertNull(ranking.getRank("a"));
+        assertEquals(0, ranking.size());
+    }
+
+    @Test
+    void rangeCarriesRanksAndScores() {
+        for (int i = 0; i < 10; i++) {
+            ranking.setScore("k" + i, i);
+        }
+
+        List<RankedEntry<Account>> page = ranking.range(2, 3);
+        assertEquals(List.of("k7", "k6", "k5"), page.stream().map(RankedEntry::getKey).toList());
+        assertEquals(2, page.get(0).getRank());
+        assertEquals(4, page.get(2).getRank());
+        assertEquals(7.0, page.get(0).getScore());
+        assertNull(page.get(0).getValue());
+    }
+
+    @Test
+    void rangeWithValuesDropsKeysWithoutAValue() {
+        values.save("a", new Account("a", "ann", 1));
+        values.save("c", new Account("c", "carl", 3));
+        ranking.setScore("a", 1);
+        ranking.setScore("b", 2);
+        ranking.setScore("c", 3);
+
+        List<RankedEntry<Account>> page = ranking.rangeWithValues(0, 3);
+        assertEquals(List.of("c", "a"), page.stream().map(RankedEntry::getKey).toList());
+        assertEquals("carl", page.get(0).getValue().owner);
+        assertEquals(2, page.get(1).getRank(), "ranks are kept");
+    }
+
+    @Test
+    void rejectsNaNScores() {
+        assertThrows(IllegalArgumentException.class, () -> ranking.setScore("a", Double.NaN));
+        ranking.setScore("a", Double.POSITIVE_INFINITY);
+        assertThrows(IllegalArgumentException.class, () -> ranking.incrementScore("a", Double.NEGATIVE_INFINITY));
+        assertEquals(Double.POSITIVE_INFINITY, ranking.getScore("a"));
+    }
+}
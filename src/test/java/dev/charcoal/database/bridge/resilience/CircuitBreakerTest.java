@@ -0,0 +1,91 @@
+package dev.charcoal.database.bridge.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofMillis(50);
+
+    private final CircuitBreaker breaker = new CircuitBreaker("test", ResiliencePolicy.builder()
+            .slidingWindowSize(4)
+            .minimumCalls(4)
+            .failureRateThreshold(0.5)
+            .openDuration(OPEN_DURATION)
+            .halfOpenProbes(2)
+            .build());
+
+    private CircuitBreaker.Permit admit() {
+        CircuitBreaker.Permit permit = breaker.tryAcquire();
+        assertNotNull(permit, "the call is admitted");
+        return permit;
+    }
+
+    private void open() {
+        breaker.onSuccess(admit());
+        breaker.onSuccess(admit());
+        breaker.onFailure(admit());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "the window is not full yet");
+        breaker.onFailure(admit());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private static void waitOut() throws InterruptedException {
+        Thread.sleep(OPEN_DURATION.toMillis() + 20);
+    }
+
+    @Test
+    void opensOnceTheFailureRateIsReached() {
+        open();
+        assertNull(breaker.tryAcquire(), "an open circuit rejects calls");
+    }
+
+    @Test
+    void closesWhenEveryProbeSucceeds() throws InterruptedException {
+        open();
+        waitOut();
+
+        CircuitBreaker.Permit first = admit();
+        CircuitBreaker.Permit second = admit();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, first.getState());
+        assertNull(breaker.tryAcquire(), "only the configured probes go through");
+
+        breaker.onSuccess(first);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(second);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedProbeReopens() throws InterruptedException {
+        open();
+        waitOut();
+
+        breaker.onFailure(admit());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+    }
+
+    @Test
+    void callsAdmittedBeforeHalfOpenAreNotProbes() throws InterruptedException {
+        CircuitBreaker.Permit slowSuccess = admit();
+        CircuitBreaker.Permit slowFailure = admit();
+        open();
+        waitOut();
+
+        CircuitBreaker.Permit probe = admit();
+        breaker.onSuccess(slowSuccess);
+        breaker.onFailure(slowFailure);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(), "late outcomes of closed calls are ignored");
+
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(), "one probe is not enough");
+        breaker.onSuccess(admit());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
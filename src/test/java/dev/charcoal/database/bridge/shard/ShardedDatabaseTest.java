@@ -0,0 +1,132 @@
+package dev.charcoal.database.bridge.shard;
+
+import dev.charcoal.database.bridge.Account;
+import dev.charcoal.database.bridge.memory.MemoryDatabase;
+import dev.charcoal.database.bridge.memory.MemoryOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Shards answer after a small random delay, which leaves writes in flight while a rebalance swaps the ring.
+ */
+class ShardedDatabaseTest {
+
+    private static final int KEYS = 400;
+
+    private final List<MemoryDatabase<Account>> backends = new ArrayList<>();
+    private ShardedDatabase<Account> sharded;
+
+    private MemoryDatabase<Account> shard() {
+        MemoryDatabase<Account> shard = new MemoryDatabase<>(Account.class, MemoryOptions.builder()
+                .latencyJitter(Duration.ofMillis(1))
+                .build());
+        backends.add(shard);
+        return shard;
+    }
+
+    @AfterEach
+    void close() {
+        sharded.close();
+        backends.forEach(MemoryDatabase::close);
+    }
+
+    @Test
+    void writesDuringAddShardAreNotLost() {
+        sharded = new ShardedDatabase<>(Map.of("a", shard(), "b", shard()), account -> account.id);
+        Map<String, Long> expected = writeWhile(() -> sharded.addShard("c", shard()));
+
+        assertLatestWrites(expected);
+    }
+
+    @Test
+    void writesDuringRemoveShardAreNotLost() {
+        MemoryDatabase<Account> removed = shard();
+        sharded = new ShardedDatabase<>(Map.of("a", shard(), "b", shard(), "c", removed), account -> account.id);
+        Map<String, Long> expected = writeWhile(() -> sharded.removeShard("c"));
+
+        assertLatestWrites(expected);
+        assertEquals(0, removed.size(), "every key left the removed shard");
+    }
+
+    @Test
+    void deletesDuringAddShardAreNotUndone() {
+        sharded = new ShardedDatabase<>(Map.of("a", shard(), "b", shard()), account -> account.id);
+        for (int i = 0; i < KEYS; i++) {
+            sharded.save("k" + i, new Account("k" + i, "owner", i));
+        }
+
+        CompletableFuture<Integer> rebalance = CompletableFuture.supplyAsync(() -> sharded.addShard("c", shard()));
+        for (int i = 0; i < KEYS; i++) {
+            sharded.delete("k" + i);
+        }
+        rebalance.join();
+
+        for (int i = 0; i < KEYS; i++) {
+            assertNull(sharded.fetch("k" + i));
+        }
+    }
+
+    /**
+     * Saves every key over and over from two writers until {@code rebalance} returns, then once more.
+     *
+     * @return the balance last written for each key
+     */
+    private Map<String, Long> writeWhile(Runnable rebalance) {
+        for (int i = 0; i < KEYS; i++) {
+            sharded.save("k" + i, new Account("k" + i, "owner", 0));
+        }
+
+        Map<String, Long> written = new ConcurrentHashMap<>();
+        AtomicBoolean rebalanced = new AtomicBoolean();
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int writer = 0; writer < 2; writer++) {
+            int first = writer;
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (long round = 1; ; round++) {
+                    boolean last = rebalanced.get();
+                    Map<String, Account> batch = new LinkedHashMap<>();
+                    for (int i = first; i < KEYS; i += 2) {
+                        String key = "k" + i;
+                        Account account = new Account(key, "owner", round);
+                        // every other round goes through saveMany
+                        if (round % 2 == 0) batch.put(key, account);
+                        else sharded.save(key, account);
+                        written.put(key, round);
+                    }
+                    if (!batch.isEmpty()) sharded.saveMany(batch);
+                    if (last) return;
+                }
+            }));
+        }
+
+        rebalance.run();
+        rebalanced.set(true);
+        writers.forEach(CompletableFuture::join);
+        return written;
+    }
+
+    private void assertLatestWrites(Map<String, Long> expected) {
+        assertEquals(KEYS, expected.size());
+        expected.forEach((key, balance) -> {
+            Account account = sharded.fetch(key);
+            assertNotNull(account, key + " was lost");
+            assertEquals(balance, account.balance, key + " lost its latest write");
+        });
+
+        int stored = backends.stream().mapToInt(MemoryDatabase::size).sum();
+        assertEquals(KEYS, stored, "no stale copy was left on another shard");
+    }
+}
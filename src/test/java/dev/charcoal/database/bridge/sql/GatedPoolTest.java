@@ -0,0 +1,73 @@
+package dev.charcoal.database.bridge.sql;
+
+import com.zaxxer.hikari.HikariConfig;
+import dev.charcoal.database.bridge.priority.OperationClass;
+import dev.charcoal.database.bridge.priority.PriorityOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GatedPoolTest {
+
+    @TempDir
+    Path dir;
+    private GatedPool pool;
+
+    @BeforeEach
+    void open() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:sqlite:" + dir.resolve("pool.db"));
+        config.setMaximumPoolSize(4);
+        pool = new GatedPool("test", config, PriorityOptions.builder().reservedInteractive(2).build());
+    }
+
+    @AfterEach
+    void close() {
+        pool.close();
+    }
+
+    private Connection background() {
+        return OperationClass.BACKGROUND.call(() -> {
+            try {
+                return pool.getConnection();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Test
+    void gateIsSizedFromThePool() {
+        assertEquals(2, pool.getGate().getMaxLimit());
+    }
+
+    @Test
+    void backgroundConnectionsHoldASlotUntilClosed() throws SQLException {
+        Connection connection = background();
+        assertEquals(1, pool.getGate().getInFlight());
+
+        connection.close();
+        connection.close();
+        assertEquals(0, pool.getGate().getInFlight(), "the slot is given back once");
+    }
+
+    @Test
+    void interactiveConnectionsBypassTheGate() throws SQLException {
+        try (Connection ignored = pool.getConnection()) {
+            assertEquals(0, pool.getGate().getInFlight());
+        }
+    }
+
+    @Test
+    void newOptionsReplaceTheGate() {
+        pool.setPriorityOptions(PriorityOptions.builder().reservedInteractive(1).build());
+        assertEquals(3, pool.getGate().getMaxLimit());
+    }
+}
@@ -0,0 +1,310 @@
+package dev.charcoal.database.bridge.sql.impl;
+
+import dev.charcoal.database.bridge.Account;
+import dev.charcoal.database.bridge.DatabaseConnectionBuilder;
+import dev.charcoal.database.bridge.change.ChangeEvent;
+import dev.charcoal.database.bridge.change.ChangeType;
+import dev.charcoal.database.bridge.change.Subscription;
+import dev.charcoal.database.bridge.sql.BulkLoadOptions;
+import dev.charcoal.database.bridge.sql.exception.SQLDatabaseException;
+import dev.charcoal.database.bridge.utils.DataUtils;
+import dev.charcoal.database.bridge.utils.TypedSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SQLiteDatabaseTest {
+
+    private static final TypedSerializer<Account> SERIALIZER = DataUtils.serializer(Account.class);
+
+    @TempDir
+    Path dir;
+    private SQLiteDatabase<Account> database;
+
+    @BeforeEach
+    void open() {
+        database = new SQLiteDatabase<>(DatabaseConnectionBuilder.sqliteFile(dir.resolve("test.db").toString(), "accounts"),
+                Account.class, SQLiteDatabaseTest::mapAccount);
+        database.setStrict(true);
+    }
+
+    private static Account mapAccount(ResultSet rs) {
+        try {
+            return SERIALIZER.fromString(rs.getString("data"));
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @AfterEach
+    void close() {
+        database.close();
+    }
+
+    @Test
+    void opensTheFileInWalMode() throws SQLException {
+        database.save("a", new Account("a", "ann", 1));
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("test.db"));
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+            assertTrue(rs.next());
+            assertEquals("wal", rs.getString(1), "journal mode is stored in the file");
+        }
+    }
+
+    @Test
+    void concurrentWritersWaitForTheFileLock() {
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int first = thread * 50;
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (int i = first; i < first + 50; i++) {
+                    assertTrue(database.save("k" + i, new Account("k" + i, "owner", i)), "no SQLITE_BUSY");
+                }
+            }));
+        }
+        writers.forEach(CompletableFuture::join);
+
+        assertEquals(400, database.fetchAll().size());
+    }
+
+    @Test
+    void compareAndSaveRejectsStaleVersions() {
+        Account account = new Account("a", "ann", 10);
+        assertTrue(database.compareAndSave("a", 0, account));
+        assertFalse(database.compareAndSave("a", 0, new Account("a", "ann", 20)));
+
+        Account current = database.fetch("a");
+        assertEquals(1, current.version);
+        current.balance = 30;
+        assertTrue(database.compareAndSave("a", 1, current));
+        assertFalse(database.compareAndSave("a", 1, current), "the version moved on");
+        assertEquals(30, database.fetch("a").balance);
+    }
+
+    @Test
+    void concurrentUpdatesAreNotLost() {
+        database.save("a", new Account("a", "ann", 0));
+
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 25; i++) {
+                    database.update("a", account -> {
+                        account.balance++;
+                        return account;
+                    });
+                }
+            }));
+        }
+        writers.forEach(CompletableFuture::join);
+
+        assertEquals(100, database.fetch("a").balance);
+    }
+
+    @Test
+    void manyKeysAreReadAndDeletedPastThePlaceholderLimit() {
+        // SQLite allows 32,766 placeholders per statement
+        Map<String, Account> values = new LinkedHashMap<>();
+        for (int i = 0; i < 33_000; i++) {
+            values.put("k" + i, new Account("k" + i, "owner", i));
+        }
+        assertTrue(database.saveMany(values));
+
+        List<String> keys = new ArrayList<>(values.keySet());
+        keys.add("missing");
+        Map<String, Account> fetched = database.fetchMany(keys);
+        assertEquals(values.size(), fetched.size());
+        assertEquals(new ArrayList<>(values.keySet()), new ArrayList<>(fetched.keySet()), "the caller's key order is kept");
+
+        assertTrue(database.transaction(tx -> values.keySet().forEach(tx::delete)));
+        assertTrue(database.fetchMany(keys).isEmpty());
+    }
+
+    @Test
+    void transactionCommitsAllWrites() {
+        database.save("from", new Account("from", "ann", 100));
+
+        assertTrue(database.transaction(tx -> {
+            Account from = tx.fetch("from");
+            from.balance -= 40;
+            tx.save("from", from);
+            tx.save("to", new Account("to", "bob", 40));
+        }));
+
+        assertEquals(60, database.fetch("from").balance);
+        assertEquals(40, database.fetch("to").balance);
+    }
+
+    @Test
+    void failingWorkRollsBack() {
+        database.save("a", new Account("a", "ann", 1));
+
+        assertThrows(IllegalStateException.class, () -> database.transaction(tx -> {
+            tx.delete("a");
+            tx.save("b", new Account("b", "bob", 2));
+            throw new IllegalStateException("abort");
+        }));
+        assertNotNull(database.fetch("a"));
+        assertNull(database.fetch("b"));
+    }
+
+    @Test
+    void entriesExpire() throws InterruptedException {
+        database.save("short", new Account("short", "ann", 1), Duration.ofMillis(100));
+        database.save("long", new Account("long", "bob", 1), Duration.ofMinutes(5));
+        assertNotNull(database.timeToLive("long"));
+        assertNull(database.timeToLive("missing"));
+
+        Thread.sleep(200);
+        assertNull(database.fetch("short"));
+        assertNotNull(database.fetch("long"));
+        assertTrue(database.saveIfAbsent("short", new Account("short", "carl", 2), null), "an expired row counts as absent");
+        assertFalse(database.saveIfAbsent("long", new Account("long", "dan", 3), null));
+    }
+
+    @Test
+    void deleteIfVersionOnlyDeletesTheExpectedVersion() {
+        database.compareAndSave("a", 0, new Account("a", "ann", 1));
+
+        assertFalse(database.deleteIfVersion("a", 0));
+        assertTrue(database.deleteIfVersion("a", 1));
+        assertNull(database.fetch("a"));
+    }
+
+    @Test
+    void updateJoinsTheSurroundingTransaction() {
+        database.save("a", new Account("a", "ann", 1));
+
+        assertTrue(database.transaction(tx -> {
+            database.update("a", account -> {
+                account.balance = 5;
+                return account;
+            });
+            assertFalse(database.compareAndSave("a", 0, new Account("a", "ann", 6)), "a conflict must not end the transaction");
+            tx.save("b", new Account("b", "bob", 2));
+        }));
+
+        assertEquals(5, database.fetch("a").balance);
+        assertNotNull(database.fetch("b"));
+    }
+
+    @Test
+    void updateRollsBackWithTheSurroundingTransaction() {
+        database.save("a", new Account("a", "ann", 1));
+
+        assertThrows(IllegalStateException.class, () -> database.transaction(tx -> {
+            database.update("a", account -> {
+                account.balance = 5;
+                return account;
+            });
+            assertTrue(database.deleteIfVersion("a", 1));
+            throw new IllegalStateException("abort");
+        }));
+
+        Account account = database.fetch("a");
+        assertNotNull(account);
+        assertEquals(1, account.balance);
+    }
+
+    @Test
+    void failedIndexDropRestoresTheIndexesAlreadyDropped() throws SQLException {
+        IndexDropFailingDatabase failing = new IndexDropFailingDatabase(dir.resolve("indexes.db"));
+        try {
+            failing.execute("CREATE INDEX idx_accounts_data ON accounts (data)");
+            Set<String> before = failing.indexNames();
+            assertEquals(2, before.size(), "the expiry index and idx_accounts_data");
+
+            BulkLoadOptions options = BulkLoadOptions.builder().deferIndexes(true).build();
+            assertThrows(SQLDatabaseException.class,
+                    () -> failing.bulkLoad(List.of(new Account("a", "ann", 1)).iterator(), options));
+            assertEquals(before, failing.indexNames());
+        } finally {
+            failing.close();
+        }
+    }
+
+    @Test
+    void changelogRowCommittedAfterItsGapWasSkippedIsStillDelivered() throws Exception {
+        BlockingQueue<ChangeEvent<Account>> events = new LinkedBlockingQueue<>();
+        try (Subscription ignored = database.subscribe(events::add)) {
+            database.save("a", new Account("a", "ann", 1));
+            assertEquals("a", events.poll(5, TimeUnit.SECONDS).getKey());
+
+            // seq 3 commits first; seq 2 only after the poller has given up waiting for it
+            insertChangelogRow(3, "c");
+            assertEquals("c", events.poll(10, TimeUnit.SECONDS).getKey(), "the gap is skipped after its grace period");
+            insertChangelogRow(2, "b");
+            ChangeEvent<Account> late = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(late, "the skipped seq is queried again");
+            assertEquals("b", late.getKey());
+            assertEquals(ChangeType.DELETE, late.getType());
+            assertNull(events.poll(1, TimeUnit.SECONDS), "a late row is delivered once");
+        }
+    }
+
+    private void insertChangelogRow(long seq, String key) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("test.db"));
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO accounts_changelog (seq, id, op, changed_at) VALUES (?, ?, 'D', ?)")) {
+            ps.setLong(1, seq);
+            ps.setString(2, key);
+            ps.setLong(3, System.currentTimeMillis());
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Fails to drop {@code idx_accounts_data}, which is created after the expiry index and so dropped second.
+     */
+    private static final class IndexDropFailingDatabase extends SQLiteDatabase<Account> {
+
+        IndexDropFailingDatabase(Path file) {
+            super(DatabaseConnectionBuilder.sqliteFile(file.toString(), "accounts"), Account.class, SQLiteDatabaseTest::mapAccount);
+        }
+
+        @Override
+        protected String dropIndexSql(String index) {
+            return index.equals("idx_accounts_data") ? "DROP INDEX no_such_index" : super.dropIndexSql(index);
+        }
+
+        void execute(String sql) throws SQLException {
+            try (Connection conn = getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(sql);
+            }
+        }
+
+        Set<String> indexNames() throws SQLException {
+            try (Connection conn = getConnection()) {
+                return secondaryIndexes(conn).keySet();
+            }
+        }
+    }
+}